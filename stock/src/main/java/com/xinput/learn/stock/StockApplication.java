@@ -2,8 +2,17 @@ package com.xinput.learn.stock;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
 
-@SpringBootApplication
+/**
+ * 数据源相关的自动配置已排除，jdbc 后端的数据源由 {@link com.xinput.learn.stock.config.JdbcBackendConfig} 创建
+ */
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class,
+        JdbcTemplateAutoConfiguration.class})
 public class StockApplication {
     public static void main(String[] args) {
         SpringApplication.run(StockApplication.class, args);
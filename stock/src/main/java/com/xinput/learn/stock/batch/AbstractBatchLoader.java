@@ -1,21 +1,43 @@
 package com.xinput.learn.stock.batch;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import com.xinput.learn.stock.util.MemoryEstimator;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -30,20 +52,174 @@ import lombok.extern.slf4j.Slf4j;
 public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
 
     /**
-     * 批处理任务队列
+     * 未指定租户的请求所属的租户
      */
-    private BlockingQueue<BatchRequest<K, V>> requestQueue;
+    public static final String DEFAULT_TENANT = "default";
 
     /**
-     * 批处理执行器
+     * 超过租户数上限后新出现的租户
      */
-    private ScheduledExecutorService batchExecutor;
+    public static final String OTHER_TENANT = "other";
 
     /**
-     * 批处理配置
+     * 完成执行器每个线程的等待队列长度
+     */
+    private static final int COMPLETION_QUEUE_PER_THREAD = 64;
+
+    /**
+     * 分区执行器每个线程的等待队列长度
+     */
+    private static final int PARTITION_QUEUE_PER_THREAD = 4;
+
+    /**
+     * 批处理请求通道，按优先级的 ordinal 下标存放，数组顺序即组批时的取数顺序
+     */
+    private BatchLane<K, V>[] lanes;
+
+    /**
+     * 请求对象池
+     */
+    private BatchRequestPool<K, V> requestPool;
+
+    /**
+     * 每个批处理线程复用的批次缓冲区
+     */
+    private final ThreadLocal<BatchBuffer> batchBuffers = ThreadLocal.withInitial(BatchBuffer::new);
+
+    /**
+     * 批处理任务，提前创建避免每次触发时生成新的方法引用对象
+     */
+    private final Runnable processBatchTask = this::processBatch;
+
+    /**
+     * 是否已有接力组批任务在排队，同一时刻最多一个，避免积压时堆积任务
+     */
+    private final AtomicBoolean handOffPending = new AtomicBoolean(false);
+
+    /**
+     * 接力组批任务：取出一批后如果积压仍够一批，交给下一个空闲批处理线程继续组批
+     */
+    private final Runnable handOffTask = () -> {
+        handOffPending.set(false);
+        processBatch();
+    };
+
+    /**
+     * 加载器自有线程池创建的线程（批处理、降级、完成、分区、对冲、伸缩），用于统计线程分配的内存
+     */
+    private final Set<Thread> loaderThreads = new CopyOnWriteArraySet<>();
+
+    /**
+     * 批处理执行器，启用弹性伸缩时运行中调整核心线程数
+     */
+    private ScheduledThreadPoolExecutor batchExecutor;
+
+    /**
+     * 批处理线程弹性伸缩，未启用时为 null
+     */
+    private WorkerScaler workerScaler;
+
+    /**
+     * 弹性伸缩评估执行器，独立于批处理线程，批处理线程全部阻塞时仍能扩容
+     */
+    private ScheduledExecutorService scaleExecutor;
+
+    private long lastScaleBatchCount;
+
+    private long lastScaleTime;
+
+    /**
+     * 批量查询执行器（启用对冲请求时使用，主请求和对冲请求都在这里执行）
+     */
+    private ExecutorService hedgeExecutor;
+
+    /**
+     * 降级/重试执行器，单个查询并行执行，不占用批处理线程
+     */
+    private ExecutorService fallbackExecutor;
+
+    /**
+     * 分区子批次执行器（设置了分区器时使用），未被领取的子批次由批处理线程自己执行
+     */
+    private ExecutorService partitionExecutor;
+
+    /**
+     * 完成执行器，批量结果在这里分块完成各请求的 future；为空时在批处理线程上完成
+     */
+    private Executor completionExecutor;
+
+    /**
+     * 完成执行器是否由外部设置，外部设置的执行器关闭时不处理
+     */
+    private boolean externalCompletionExecutor = false;
+
+    /**
+     * 批次分区器，为空时不拆分批次
+     */
+    private BatchPartitioner<K> partitioner;
+
+    /**
+     * 批处理配置，运行中可通过 {@link #reconfigure} 整体替换
      */
     @Getter
-    private BatchLoaderConfig config;
+    private volatile BatchLoaderConfig config;
+
+    /**
+     * 定时批处理任务，调整批处理间隔时重新调度
+     */
+    private ScheduledFuture<?> batchTaskFuture;
+
+    /**
+     * 自适应并发限制器（仅 ADAPTIVE_LIMIT 策略下启用）
+     */
+    private volatile AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * 排队时间丢弃控制（仅 CODEL 策略下启用）
+     */
+    private volatile CoDelController coDelController;
+
+    /**
+     * 批量查询熔断器
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * batchLoad 耗时记录（启用对冲请求时用于计算对冲延迟）
+     */
+    private LatencyRecorder latencyRecorder;
+
+    /**
+     * 热点 Key 统计，未启用时为 null
+     */
+    private HeavyHitterSketch<K> hotKeys;
+
+    /**
+     * 各租户的配额和计数
+     */
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * 批量查询返回到最后一个 future 完成的耗时(微秒)，查看指标时才计算分位数
+     */
+    private final LatencyRecorder completionLatency = new LatencyRecorder(1024);
+
+    private final AtomicLong completionLatencyMax = new AtomicLong(0);
+
+    /**
+     * 完成执行器已满或已关闭，由提交线程自己完成的次数
+     */
+    private final AtomicLong completionCallerRunsCount = new AtomicLong(0);
+
+    /**
+     * 结果分发对象池，批次的请求列表随对象交给完成执行器，最后一块完成后连同列表一起归还
+     */
+    private ArrayBlockingQueue<Completion> completionPool;
+
+    /**
+     * 结果分发对象池为空时新建对象的次数，稳定运行时应不再增长
+     */
+    private final AtomicLong completionPoolMissCount = new AtomicLong(0);
 
     /**
      * 是否已关闭
@@ -76,6 +252,61 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
      */
     private final AtomicLong failCount = new AtomicLong(0);
 
+    /**
+     * 超出自适应并发限制被拒绝的次数
+     */
+    private final AtomicLong limitRejectCount = new AtomicLong(0);
+
+    /**
+     * 超出租户配额被拒绝的次数，调用方超额不计入失败次数
+     */
+    private final AtomicLong quotaRejectCount = new AtomicLong(0);
+
+    /**
+     * 排队时间超限被丢弃的次数
+     */
+    private final AtomicLong codelDropCount = new AtomicLong(0);
+
+    /**
+     * 发出对冲请求的次数
+     */
+    private final AtomicLong hedgeCount = new AtomicLong(0);
+
+    /**
+     * 对冲请求先于主请求返回的次数
+     */
+    private final AtomicLong hedgeWinCount = new AtomicLong(0);
+
+    /**
+     * 结果为空后单独重试的次数
+     */
+    private final AtomicLong retryCount = new AtomicLong(0);
+
+    /**
+     * 整批失败后进行二分重试的次数
+     */
+    private final AtomicLong bisectCount = new AtomicLong(0);
+
+    /**
+     * 单个Key加载失败的次数
+     */
+    private final AtomicLong keyErrorCount = new AtomicLong(0);
+
+    /**
+     * 跨分区被拆分的批次数
+     */
+    private final AtomicLong partitionedBatchCount = new AtomicLong(0);
+
+    /**
+     * 拆分出的子批次数
+     */
+    private final AtomicLong subBatchCount = new AtomicLong(0);
+
+    /**
+     * 请求级调度上下文立即触发组批的次数
+     */
+    private final AtomicLong contextDispatchCount = new AtomicLong(0);
+
     /**
      * 当前队列大小
      */
@@ -88,27 +319,143 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
         this.config = config;
     }
 
+    /**
+     * 设置完成执行器，需要在初始化之前设置；不设置时按 completionParallelism 创建
+     * 外部执行器的生命周期由调用方管理
+     */
+    public void setCompletionExecutor(Executor completionExecutor) {
+        this.completionExecutor = completionExecutor;
+        this.externalCompletionExecutor = completionExecutor != null;
+    }
+
+    /**
+     * 设置批次分区器，需要在初始化之前设置
+     */
+    public void setPartitioner(BatchPartitioner<K> partitioner) {
+        this.partitioner = partitioner;
+    }
+
     @PostConstruct
+    @SuppressWarnings("unchecked")
     public void init() {
-        // 初始化请求队列
-        requestQueue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+        // 初始化各优先级请求通道，低优先级通道单独限制容量
+        lanes = new BatchLane[BatchPriority.values().length];
+        for (BatchPriority priority : BatchPriority.values()) {
+            int capacity = priority == BatchPriority.LOW
+                    ? config.getLowPriorityQueueCapacity()
+                    : config.getQueueCapacity();
+            lanes[priority.ordinal()] = new BatchLane<>(priority, capacity, config.getTenantMaxQueueShare());
+        }
+        requestPool = new BatchRequestPool<>(config.getRequestPoolSize());
+
+        // 初始化负载保护
+        initLoadProtection(config);
 
         // 初始化批处理执行器
-        batchExecutor = Executors.newScheduledThreadPool(
-                config.getThreadPoolSize(),
-                r -> {
-                    Thread thread = new Thread(r, config.getName() + "-batch-loader");
-                    thread.setDaemon(true);
-                    return thread;
-                });
+        if (config.isElasticEnabled()) {
+            workerScaler = new WorkerScaler(
+                    config.getThreadPoolSize(),
+                    config.getMinThreadPoolSize(),
+                    config.getMaxThreadPoolSize(),
+                    config.getMaxBatchSize(),
+                    config.getScaleUpQueueAgeMs(),
+                    config.getScaleDownIdleRounds());
+        }
+        batchExecutor = new ScheduledThreadPoolExecutor(
+                workerScaler != null ? workerScaler.getWorkers() : config.getThreadPoolSize(),
+                namedThreadFactory(config.getName() + "-batch-loader"));
+
+        // 初始化降级/重试执行器，有界并发、有界队列
+        fallbackExecutor = new ThreadPoolExecutor(
+                config.getFallbackParallelism(),
+                config.getFallbackParallelism(),
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(config.getFallbackQueueCapacity()),
+                namedThreadFactory(config.getName() + "-fallback"));
+
+        // 初始化完成执行器，基于数组的队列入队不产生新对象，队列满时由提交线程自己完成
+        int completionQueueSize = Math.max(1, config.getCompletionParallelism()) * COMPLETION_QUEUE_PER_THREAD;
+        completionPool = new ArrayBlockingQueue<>(completionQueueSize);
+        if (completionExecutor == null && config.getCompletionParallelism() > 0) {
+            completionExecutor = new ThreadPoolExecutor(
+                    config.getCompletionParallelism(),
+                    config.getCompletionParallelism(),
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(completionQueueSize),
+                    namedThreadFactory(config.getName() + "-completion"),
+                    (task, executor) -> {
+                        // 队列满或正在关闭时由提交线程完成，保证 future 一定会被完成
+                        completionCallerRunsCount.incrementAndGet();
+                        task.run();
+                    });
+        }
+
+        // 初始化分区子批次执行器，线程预先启动，基于数组的队列入队不产生新对象；
+        // 队列满时直接丢弃，批处理线程会领取并执行尚未开始的子批次
+        if (partitioner != null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    config.getPartitionParallelism(),
+                    config.getPartitionParallelism(),
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(config.getPartitionParallelism() * PARTITION_QUEUE_PER_THREAD),
+                    namedThreadFactory(config.getName() + "-partition"),
+                    new ThreadPoolExecutor.DiscardPolicy());
+            executor.prestartAllCoreThreads();
+            partitionExecutor = executor;
+        }
+
+        // 初始化熔断器
+        if (config.isCircuitBreakerEnabled()) {
+            circuitBreaker = new CircuitBreaker(
+                    config.getCircuitBreakerFailureThreshold(),
+                    config.getCircuitBreakerOpenMs(),
+                    config.getCircuitBreakerHalfOpenProbes());
+        }
+
+        // 初始化对冲请求执行器，每个批处理线程最多同时有主请求和对冲请求两个在途
+        if (config.isHedgeEnabled()) {
+            latencyRecorder = new LatencyRecorder(256, config.getHedgePercentile());
+            hedgeExecutor = new ThreadPoolExecutor(
+                    0,
+                    maxWorkers() * 2,
+                    60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    namedThreadFactory(config.getName() + "-hedge"));
+        }
 
         // 启动定时批处理任务
-        batchExecutor.scheduleAtFixedRate(
-                this::processBatch,
+        batchTaskFuture = batchExecutor.scheduleAtFixedRate(
+                processBatchTask,
                 config.getIntervalMs(),
                 config.getIntervalMs(),
                 TimeUnit.MILLISECONDS);
 
+        // 启动弹性伸缩评估任务
+        if (workerScaler != null) {
+            lastScaleTime = System.currentTimeMillis();
+            scaleExecutor = Executors.newSingleThreadScheduledExecutor(namedThreadFactory(config.getName() + "-scaler"));
+            scaleExecutor.scheduleWithFixedDelay(
+                    this::scaleWorkers,
+                    config.getScaleIntervalMs(),
+                    config.getScaleIntervalMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+
+        // 初始化热点 Key 统计，按衰减周期缩小计数
+        if (config.isHotKeyEnabled()) {
+            hotKeys = new HeavyHitterSketch<>(
+                    config.getHotKeyTopK(),
+                    config.getHotKeySketchWidth(),
+                    config.getHotKeySketchDepth(),
+                    config.getHotKeySampleEvery(),
+                    config.getHotKeyHalfLifeMs());
+            batchExecutor.scheduleAtFixedRate(
+                    hotKeys::decay,
+                    hotKeys.getDecayIntervalMs(),
+                    hotKeys.getDecayIntervalMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+
         // 启动监控日志任务
         if (config.isEnableMonitor()) {
             batchExecutor.scheduleAtFixedRate(
@@ -118,18 +465,225 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
                     TimeUnit.SECONDS);
         }
 
-        log.info("{} 初始化完成 - 批处理间隔: {}ms, 最大批量: {}, 队列容量: {}, 溢出策略: {}, 超时时间: {}ms",
+        log.info("{} 初始化完成 - 批处理间隔: {}ms, 最大批量: {}, 队列容量: {}, 低优先级队列容量: {}, 溢出策略: {}, 超时时间: {}ms",
                 config.getName(),
                 config.getIntervalMs(),
                 config.getMaxBatchSize(),
                 config.getQueueCapacity(),
+                config.getLowPriorityQueueCapacity(),
                 config.getOverflowStrategy(),
                 config.getTimeoutMs());
     }
 
+    /**
+     * 按溢出策略创建负载保护组件，其他策略下置空
+     */
+    private void initLoadProtection(BatchLoaderConfig config) {
+        concurrencyLimiter = config.getOverflowStrategy() == OverflowStrategy.ADAPTIVE_LIMIT
+                ? new AdaptiveConcurrencyLimiter(
+                config.getAdaptiveInitialLimit(),
+                config.getAdaptiveMinLimit(),
+                config.getAdaptiveMaxLimit())
+                : null;
+        coDelController = config.getOverflowStrategy() == OverflowStrategy.CODEL
+                ? new CoDelController(config.getCodelTargetMs(), config.getCodelIntervalMs())
+                : null;
+    }
+
+    /**
+     * 运行中替换配置，已排队的请求全部保留
+     * <p>
+     * 即时生效：批处理间隔、最大批量、队列容量、溢出策略及其参数、批处理线程数（未启用弹性伸缩时）、
+     * 超时、空值处理、二分重试、对冲延迟、分区批量上限、JFR 开关；
+     * 其余在初始化时创建组件的参数保持原值，返回这些参数名，需要重启才能生效
+     *
+     * 所有参数先校验再应用，校验失败时抛出 IllegalArgumentException 且不修改任何状态；
+     * 应用过程中出错时恢复队列容量、配置和调度后重新抛出
+     *
+     * @param newConfig 新配置，名称必须与当前一致
+     * @return 未生效（需要重启）的参数名
+     */
+    public synchronized List<String> reconfigure(BatchLoaderConfig newConfig) {
+        BatchLoaderConfig old = this.config;
+        List<String> restartRequired = new ArrayList<>();
+        BatchLoaderConfig effective = effectiveConfig(old, newConfig, restartRequired);
+
+        boolean protectionChanged = old.getOverflowStrategy() != effective.getOverflowStrategy()
+                || old.getAdaptiveInitialLimit() != effective.getAdaptiveInitialLimit()
+                || old.getAdaptiveMinLimit() != effective.getAdaptiveMinLimit()
+                || old.getAdaptiveMaxLimit() != effective.getAdaptiveMaxLimit()
+                || old.getCodelTargetMs() != effective.getCodelTargetMs()
+                || old.getCodelIntervalMs() != effective.getCodelIntervalMs();
+        AdaptiveConcurrencyLimiter oldLimiter = concurrencyLimiter;
+        CoDelController oldCoDel = coDelController;
+        ScheduledFuture<?> oldBatchTask = batchTaskFuture;
+        ScheduledFuture<?> newBatchTask = null;
+        try {
+            // 先扩大队列、替换配置，再调整调度，避免新旧参数交错时拒绝请求
+            resizeLanes(effective);
+            if (protectionChanged) {
+                initLoadProtection(effective);
+            }
+            this.config = effective;
+
+            if (workerScaler == null && old.getThreadPoolSize() != effective.getThreadPoolSize()) {
+                batchExecutor.setCorePoolSize(effective.getThreadPoolSize());
+            }
+            if (old.getIntervalMs() != effective.getIntervalMs()) {
+                // 新定时任务创建成功后再取消旧任务，保证任何时刻都有定时批处理
+                newBatchTask = batchExecutor.scheduleAtFixedRate(
+                        processBatchTask,
+                        effective.getIntervalMs(),
+                        effective.getIntervalMs(),
+                        TimeUnit.MILLISECONDS);
+                batchTaskFuture = newBatchTask;
+                oldBatchTask.cancel(false);
+            }
+        } catch (RuntimeException e) {
+            if (newBatchTask != null) {
+                newBatchTask.cancel(false);
+            }
+            batchTaskFuture = oldBatchTask;
+            if (workerScaler == null) {
+                batchExecutor.setCorePoolSize(old.getThreadPoolSize());
+            }
+            this.config = old;
+            concurrencyLimiter = oldLimiter;
+            coDelController = oldCoDel;
+            resizeLanes(old);
+            log.error("{} 配置更新失败，已恢复原配置", old.getName(), e);
+            throw e;
+        }
+
+        log.info("{} 配置已更新 - 批处理间隔: {}ms, 最大批量: {}, 队列容量: {}, 低优先级队列容量: {}, 溢出策略: {}, 超时时间: {}ms, 需重启生效: {}",
+                effective.getName(),
+                effective.getIntervalMs(),
+                effective.getMaxBatchSize(),
+                effective.getQueueCapacity(),
+                effective.getLowPriorityQueueCapacity(),
+                effective.getOverflowStrategy(),
+                effective.getTimeoutMs(),
+                restartRequired);
+        return restartRequired;
+    }
+
+    /**
+     * 只校验不应用，用于批量变更多个加载器前先确认全部合法
+     *
+     * @throws IllegalArgumentException 名称不一致或存在非法取值
+     */
+    public synchronized void validateReconfigure(BatchLoaderConfig newConfig) {
+        effectiveConfig(this.config, newConfig, new ArrayList<>());
+    }
+
+    private void resizeLanes(BatchLoaderConfig config) {
+        lane(BatchPriority.HIGH).resize(config.getQueueCapacity());
+        lane(BatchPriority.NORMAL).resize(config.getQueueCapacity());
+        lane(BatchPriority.LOW).resize(config.getLowPriorityQueueCapacity());
+    }
+
+    /**
+     * 合并出实际生效的配置并校验：初始化时创建组件的参数保持原值并记入 restartRequired
+     */
+    private static BatchLoaderConfig effectiveConfig(BatchLoaderConfig old, BatchLoaderConfig newConfig, List<String> restartRequired) {
+        if (!old.getName().equals(newConfig.getName())) {
+            throw new IllegalArgumentException("不能修改加载器名称: " + old.getName() + " -> " + newConfig.getName());
+        }
+
+        // 初始化时创建组件的参数保持原值
+        BatchLoaderConfig.BatchLoaderConfigBuilder builder = newConfig.toBuilder();
+        keep(restartRequired, "requestPoolSize", old.getRequestPoolSize(), newConfig.getRequestPoolSize(),
+                () -> builder.requestPoolSize(old.getRequestPoolSize()));
+        keep(restartRequired, "tenantMaxQueueShare", old.getTenantMaxQueueShare(), newConfig.getTenantMaxQueueShare(),
+                () -> builder.tenantMaxQueueShare(old.getTenantMaxQueueShare()));
+        keep(restartRequired, "fallbackParallelism", old.getFallbackParallelism(), newConfig.getFallbackParallelism(),
+                () -> builder.fallbackParallelism(old.getFallbackParallelism()));
+        keep(restartRequired, "fallbackQueueCapacity", old.getFallbackQueueCapacity(), newConfig.getFallbackQueueCapacity(),
+                () -> builder.fallbackQueueCapacity(old.getFallbackQueueCapacity()));
+        keep(restartRequired, "completionParallelism", old.getCompletionParallelism(), newConfig.getCompletionParallelism(),
+                () -> builder.completionParallelism(old.getCompletionParallelism()));
+        keep(restartRequired, "partitionParallelism", old.getPartitionParallelism(), newConfig.getPartitionParallelism(),
+                () -> builder.partitionParallelism(old.getPartitionParallelism()));
+        keep(restartRequired, "circuitBreakerEnabled", old.isCircuitBreakerEnabled(), newConfig.isCircuitBreakerEnabled(),
+                () -> builder.circuitBreakerEnabled(old.isCircuitBreakerEnabled()));
+        keep(restartRequired, "circuitBreakerFailureThreshold", old.getCircuitBreakerFailureThreshold(), newConfig.getCircuitBreakerFailureThreshold(),
+                () -> builder.circuitBreakerFailureThreshold(old.getCircuitBreakerFailureThreshold()));
+        keep(restartRequired, "circuitBreakerOpenMs", old.getCircuitBreakerOpenMs(), newConfig.getCircuitBreakerOpenMs(),
+                () -> builder.circuitBreakerOpenMs(old.getCircuitBreakerOpenMs()));
+        keep(restartRequired, "circuitBreakerHalfOpenProbes", old.getCircuitBreakerHalfOpenProbes(), newConfig.getCircuitBreakerHalfOpenProbes(),
+                () -> builder.circuitBreakerHalfOpenProbes(old.getCircuitBreakerHalfOpenProbes()));
+        keep(restartRequired, "hedgeEnabled", old.isHedgeEnabled(), newConfig.isHedgeEnabled(),
+                () -> builder.hedgeEnabled(old.isHedgeEnabled()));
+        keep(restartRequired, "hedgePercentile", old.getHedgePercentile(), newConfig.getHedgePercentile(),
+                () -> builder.hedgePercentile(old.getHedgePercentile()));
+        keep(restartRequired, "elasticEnabled", old.isElasticEnabled(), newConfig.isElasticEnabled(),
+                () -> builder.elasticEnabled(old.isElasticEnabled()));
+        keep(restartRequired, "minThreadPoolSize", old.getMinThreadPoolSize(), newConfig.getMinThreadPoolSize(),
+                () -> builder.minThreadPoolSize(old.getMinThreadPoolSize()));
+        keep(restartRequired, "maxThreadPoolSize", old.getMaxThreadPoolSize(), newConfig.getMaxThreadPoolSize(),
+                () -> builder.maxThreadPoolSize(old.getMaxThreadPoolSize()));
+        keep(restartRequired, "scaleIntervalMs", old.getScaleIntervalMs(), newConfig.getScaleIntervalMs(),
+                () -> builder.scaleIntervalMs(old.getScaleIntervalMs()));
+        keep(restartRequired, "scaleUpQueueAgeMs", old.getScaleUpQueueAgeMs(), newConfig.getScaleUpQueueAgeMs(),
+                () -> builder.scaleUpQueueAgeMs(old.getScaleUpQueueAgeMs()));
+        keep(restartRequired, "scaleDownIdleRounds", old.getScaleDownIdleRounds(), newConfig.getScaleDownIdleRounds(),
+                () -> builder.scaleDownIdleRounds(old.getScaleDownIdleRounds()));
+        keep(restartRequired, "hotKeyEnabled", old.isHotKeyEnabled(), newConfig.isHotKeyEnabled(),
+                () -> builder.hotKeyEnabled(old.isHotKeyEnabled()));
+        keep(restartRequired, "hotKeyTopK", old.getHotKeyTopK(), newConfig.getHotKeyTopK(),
+                () -> builder.hotKeyTopK(old.getHotKeyTopK()));
+        keep(restartRequired, "hotKeySketchWidth", old.getHotKeySketchWidth(), newConfig.getHotKeySketchWidth(),
+                () -> builder.hotKeySketchWidth(old.getHotKeySketchWidth()));
+        keep(restartRequired, "hotKeySketchDepth", old.getHotKeySketchDepth(), newConfig.getHotKeySketchDepth(),
+                () -> builder.hotKeySketchDepth(old.getHotKeySketchDepth()));
+        keep(restartRequired, "hotKeySampleEvery", old.getHotKeySampleEvery(), newConfig.getHotKeySampleEvery(),
+                () -> builder.hotKeySampleEvery(old.getHotKeySampleEvery()));
+        keep(restartRequired, "hotKeyHalfLifeMs", old.getHotKeyHalfLifeMs(), newConfig.getHotKeyHalfLifeMs(),
+                () -> builder.hotKeyHalfLifeMs(old.getHotKeyHalfLifeMs()));
+        keep(restartRequired, "enableMonitor", old.isEnableMonitor(), newConfig.isEnableMonitor(),
+                () -> builder.enableMonitor(old.isEnableMonitor()));
+        keep(restartRequired, "monitorIntervalSeconds", old.getMonitorIntervalSeconds(), newConfig.getMonitorIntervalSeconds(),
+                () -> builder.monitorIntervalSeconds(old.getMonitorIntervalSeconds()));
+        BatchLoaderConfig effective = builder.build();
+        effective.validate();
+        return effective;
+    }
+
+    private static void keep(List<String> restartRequired, String name, Object oldValue, Object newValue, Runnable keepOld) {
+        if (!Objects.equals(oldValue, newValue)) {
+            restartRequired.add(name);
+            keepOld.run();
+        }
+    }
+
+    /**
+     * 创建的线程登记到 loaderThreads，同时清理已退出的线程（空闲回收的对冲、降级线程等）
+     */
+    private ThreadFactory namedThreadFactory(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            loaderThreads.removeIf(existing -> !existing.isAlive());
+            loaderThreads.add(thread);
+            return thread;
+        };
+    }
+
     @PreDestroy
     public void destroy() {
         shutdown = true;
+        if (scaleExecutor != null) {
+            scaleExecutor.shutdown();
+        }
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdown();
+        }
+        if (fallbackExecutor != null) {
+            fallbackExecutor.shutdown();
+        }
+        if (partitionExecutor != null) {
+            partitionExecutor.shutdown();
+        }
         if (batchExecutor != null) {
             batchExecutor.shutdown();
             try {
@@ -141,11 +695,39 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
                 Thread.currentThread().interrupt();
             }
         }
+        // 批处理线程结束后再关闭完成执行器，已提交的完成任务继续执行完
+        if (completionExecutor instanceof ExecutorService && !externalCompletionExecutor) {
+            ExecutorService executor = (ExecutorService) completionExecutor;
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
         log.info("{} 已关闭", config.getName());
     }
 
     @Override
     public CompletableFuture<V> load(K key) {
+        return load(key, BatchPriority.NORMAL);
+    }
+
+    @Override
+    public CompletableFuture<V> load(K key, BatchPriority priority) {
+        return load(key, priority, null);
+    }
+
+    /**
+     * 按指定优先级和租户异步加载单个数据
+     * 租户受配额限制，并在组批时与其他租户公平分配批次位置
+     *
+     * @param tenant 租户或调用方标识，为空时归入默认租户
+     */
+    public CompletableFuture<V> load(K key, BatchPriority priority, String tenant) {
         if (shutdown) {
             CompletableFuture<V> future = new CompletableFuture<>();
             future.completeExceptionally(new IllegalStateException("BatchLoader 已关闭"));
@@ -153,31 +735,91 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
         }
 
         totalRequestCount.incrementAndGet();
+        if (hotKeys != null) {
+            hotKeys.record(key);
+        }
         CompletableFuture<V> future = new CompletableFuture<>();
-        BatchRequest<K, V> request = new BatchRequest<>(key, future, System.currentTimeMillis());
 
-        // 尝试将请求加入队列
-        boolean offered = requestQueue.offer(request);
+        // 租户配额：超出配额直接拒绝，不占用队列
+        BatchLoaderConfig current = config;
+        TenantState tenantState = tenantState(tenant, current);
+        if (!tenantState.tryAcquire(rateLimit(tenantState.getTenant(), current), current.getTenantBurst())) {
+            handleQuotaReject(key, tenantState, future);
+            return future;
+        }
+        BatchRequest<K, V> request = requestPool.acquire(key, future, System.currentTimeMillis(), priority,
+                tenantState.getTenant());
 
-        if (!offered) {
-            // 队列已满，根据溢出策略处理
-            handleOverflow(request);
-        } else {
-            currentQueueSize.incrementAndGet();
+        // 自适应并发限制：超出后端可承受的在途请求数时直接拒绝，高优先级请求不受限制
+        // 运行中可能切换溢出策略，使用获取名额时的限制器释放
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null) {
+            if (!limiter.tryAcquire(priority == BatchPriority.HIGH)) {
+                handleLimitReject(request, limiter);
+                requestPool.release(request);
+                return future;
+            }
+            future.whenComplete((value, throwable) -> limiter.release());
+        }
+
+        // 尝试将请求加入对应优先级的通道，入队后请求对象归批处理线程所有，这里不能再访问
+        BatchLane<K, V> lane = lane(priority);
+        BatchEvents.EnqueueEvent enqueueEvent = null;
+        if (config.isJfrEnabled()) {
+            enqueueEvent = new BatchEvents.EnqueueEvent();
+            enqueueEvent.begin();
+        }
+        boolean enqueued;
+        boolean offered = lane.offer(request);
+        if (enqueueEvent != null && enqueueEvent.shouldCommit()) {
+            enqueueEvent.loader = config.getName();
+            enqueueEvent.priority = priority.name();
+            enqueueEvent.enqueued = offered;
+            enqueueEvent.commit();
+        }
+        if (offered) {
+            enqueued = true;
             // 如果队列已达到最大批量，立即触发批处理
-            if (requestQueue.size() >= config.getMaxBatchSize()) {
-                batchExecutor.execute(this::processBatch);
+            if (currentQueueSize.incrementAndGet() >= config.getMaxBatchSize()) {
+                batchExecutor.execute(processBatchTask);
             }
+        } else if (priority == BatchPriority.LOW) {
+            // 低优先级通道已满，直接丢弃，不占用阻塞/降级资源
+            tenantState.recordQueueFull();
+            handleShedLowPriority(request);
+            enqueued = false;
+        } else {
+            // 通道或租户队列已满，根据溢出策略处理
+            tenantState.recordQueueFull();
+            enqueued = handleOverflow(request);
         }
 
+        if (!enqueued) {
+            requestPool.release(request);
+        } else {
+            // 请求级调度上下文中的请求，由上下文在请求线程空闲时立即触发组批
+            BatchDispatchContext context = BatchDispatchContext.current();
+            if (context != null) {
+                context.register(this);
+            }
+        }
         return future;
     }
 
     @Override
     public V loadSync(K key) {
+        return loadSync(key, BatchPriority.NORMAL);
+    }
+
+    @Override
+    public V loadSync(K key, BatchPriority priority) {
         try {
-            CompletableFuture<V> future = load(key);
-            // 带超时的等待
+            CompletableFuture<V> future = load(key, priority);
+            // 带超时的等待，在请求级调度上下文中由上下文立即触发组批
+            BatchDispatchContext context = BatchDispatchContext.current();
+            if (context != null) {
+                return context.await(future, config.getTimeoutMs());
+            }
             return future.get(config.getTimeoutMs(), TimeUnit.MILLISECONDS);
         } catch (TimeoutException e) {
             log.error("请求超时: key={}, timeout={}ms", key, config.getTimeoutMs());
@@ -188,45 +830,69 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
         }
     }
 
+    /**
+     * 立即触发组批，由 {@link BatchDispatchContext} 在请求线程空闲时调用
+     * 每次组批最多取出一批，按当前积压的批次数提交，直到通道中剩余不足一批，剩余部分由最后一次组批带走
+     */
+    void dispatchNow() {
+        int queued = currentQueueSize.get();
+        if (shutdown || queued <= 0) {
+            return;
+        }
+        try {
+            for (int remaining = queued; remaining > 0; remaining -= config.getMaxBatchSize()) {
+                batchExecutor.execute(processBatchTask);
+            }
+            contextDispatchCount.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            // 执行器已关闭，剩余请求由关闭流程处理
+            log.debug("{} 立即组批被拒绝", config.getName());
+        }
+    }
+
     /**
      * 处理队列溢出
+     *
+     * @return 请求最终是否进入了队列
      */
-    private void handleOverflow(BatchRequest<K, V> request) {
+    private boolean handleOverflow(BatchRequest<K, V> request) {
         switch (config.getOverflowStrategy()) {
             case BLOCK:
                 // 阻塞等待队列有空位
-                handleBlockStrategy(request);
-                break;
+                return handleBlockStrategy(request);
 
             case DEGRADE:
                 // 降级执行单个查询
                 handleDegradeStrategy(request);
-                break;
+                return false;
 
             case FAIL_FAST:
                 // 快速失败
                 handleFailFastStrategy(request);
-                break;
+                return false;
 
             case DROP_OLDEST:
                 // 丢弃最旧的请求
-                handleDropOldestStrategy(request);
-                break;
+                return handleDropOldestStrategy(request);
 
             default:
                 handleFailFastStrategy(request);
+                return false;
         }
     }
 
     /**
      * 阻塞等待策略
+     *
+     * @return 请求最终是否进入了队列
      */
-    private void handleBlockStrategy(BatchRequest<K, V> request) {
+    private boolean handleBlockStrategy(BatchRequest<K, V> request) {
         blockCount.incrementAndGet();
-        log.warn("队列已满，阻塞等待 - key: {}, 队列大小: {}", request.getKey(), requestQueue.size());
+        BatchLane<K, V> lane = lane(request.getPriority());
+        log.warn("队列已满，阻塞等待 - key: {}, 优先级: {}, 队列大小: {}", request.getKey(), request.getPriority(), lane.size());
         try {
             // 阻塞等待，直到队列有空位或超时
-            boolean offered = requestQueue.offer(
+            boolean offered = lane.offer(
                     request,
                     config.getTimeoutMs(),
                     TimeUnit.MILLISECONDS);
@@ -235,13 +901,15 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
                 // 等待超时，降级执行
                 log.error("阻塞等待超时，降级执行 - key: {}", request.getKey());
                 handleDegradeStrategy(request);
-            } else {
-                currentQueueSize.incrementAndGet();
+                return false;
             }
+            currentQueueSize.incrementAndGet();
+            return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("阻塞等待被中断，降级执行 - key: {}", request.getKey());
             handleDegradeStrategy(request);
+            return false;
         }
     }
 
@@ -250,18 +918,33 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
      */
     private void handleDegradeStrategy(BatchRequest<K, V> request) {
         degradeCount.incrementAndGet();
-        log.warn("队列已满，降级执行单个查询 - key: {}, 队列大小: {}", request.getKey(), requestQueue.size());
+        log.warn("队列已满，降级执行单个查询 - key: {}, 队列大小: {}", request.getKey(), currentQueueSize.get());
 
         // 异步执行单个查询，避免阻塞调用线程
-        CompletableFuture.runAsync(() -> {
-            try {
-                V result = singleLoad(request.getKey());
-                request.getFuture().complete(result);
-            } catch (Exception e) {
-                log.error("降级执行异常 - key: {}", request.getKey(), e);
-                request.getFuture().completeExceptionally(e);
-            }
-        }, batchExecutor);
+        submitSingleLoad(request.getKey(), request.getFuture());
+    }
+
+    /**
+     * 在降级/重试执行器上执行单个查询，不占用调用线程和批处理线程
+     * 只传入 key 和 future，请求对象可以在提交后立即归还对象池
+     */
+    private void submitSingleLoad(K key, CompletableFuture<V> future) {
+        try {
+            fallbackExecutor.execute(() -> {
+                try {
+                    V result = singleLoad(key);
+                    future.complete(result);
+                } catch (Exception e) {
+                    log.error("单个查询异常 - key: {}", key, e);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failCount.incrementAndGet();
+            log.error("降级/重试队列已满 - key: {}", key);
+            future.completeExceptionally(
+                    new RuntimeException("降级/重试队列已满，请稍后重试。队列容量: " + config.getFallbackQueueCapacity()));
+        }
     }
 
     /**
@@ -269,110 +952,657 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
      */
     private void handleFailFastStrategy(BatchRequest<K, V> request) {
         failCount.incrementAndGet();
-        log.error("队列已满，快速失败 - key: {}, 队列大小: {}", request.getKey(), requestQueue.size());
+        log.error("队列已满，快速失败 - key: {}, 队列大小: {}", request.getKey(), currentQueueSize.get());
         request.getFuture().completeExceptionally(
                 new RuntimeException("批处理队列已满，请稍后重试。队列容量: " + config.getQueueCapacity()));
     }
 
     /**
-     * 丢弃最旧策略（不推荐）
+     * 超出自适应并发限制 - 直接拒绝
      */
-    private void handleDropOldestStrategy(BatchRequest<K, V> request) {
-        log.warn("队列已满，丢弃最旧请求 - key: {}", request.getKey());
-        BatchRequest<K, V> oldest = requestQueue.poll();
-        if (oldest != null) {
-            currentQueueSize.decrementAndGet();
-            oldest.getFuture().completeExceptionally(
-                    new RuntimeException("请求被丢弃（队列已满，采用丢弃最旧策略）"));
-        }
-        // 加入新请求
-        if (requestQueue.offer(request)) {
-            currentQueueSize.incrementAndGet();
-        } else {
-            // 还是失败，降级执行
+    private void handleLimitReject(BatchRequest<K, V> request, AdaptiveConcurrencyLimiter limiter) {
+        limitRejectCount.incrementAndGet();
+        failCount.incrementAndGet();
+        log.warn("超出自适应并发限制，拒绝请求 - key: {}, 在途: {}, 限制: {}",
+                request.getKey(), limiter.getInflight(), limiter.getLimit());
+        request.getFuture().completeExceptionally(
+                new RuntimeException("批处理负载过高，请稍后重试。当前并发限制: " + limiter.getLimit()));
+    }
+
+    /**
+     * 超出租户配额 - 直接拒绝
+     */
+    private void handleQuotaReject(K key, TenantState tenantState, CompletableFuture<V> future) {
+        quotaRejectCount.incrementAndGet();
+        log.warn("超出租户配额，拒绝请求 - key: {}, 租户: {}", key, tenantState.getTenant());
+        future.completeExceptionally(
+                new RuntimeException("超出租户请求配额，请稍后重试。租户: " + tenantState.getTenant()));
+    }
+
+    /**
+     * 租户状态，为空时归入默认租户，超过租户数上限时归入 other
+     */
+    private TenantState tenantState(String tenant, BatchLoaderConfig current) {
+        String name = tenant == null || tenant.isEmpty() ? DEFAULT_TENANT : tenant;
+        TenantState state = tenants.get(name);
+        if (state == null) {
+            if (tenants.size() >= current.getMaxTenants()) {
+                name = OTHER_TENANT;
+            }
+            state = tenants.computeIfAbsent(name, TenantState::new);
+        }
+        return state;
+    }
+
+    /**
+     * 租户每秒配额，默认租户只受单独配置的配额限制
+     */
+    private static double rateLimit(String tenant, BatchLoaderConfig current) {
+        Double quota = current.getTenantQuotas().get(tenant);
+        if (quota != null) {
+            return quota;
+        }
+        return DEFAULT_TENANT.equals(tenant) ? 0 : current.getTenantRateLimit();
+    }
+
+    /**
+     * 低优先级通道溢出 - 直接丢弃新请求
+     */
+    private void handleShedLowPriority(BatchRequest<K, V> request) {
+        failCount.incrementAndGet();
+        BatchLane<K, V> lane = lane(BatchPriority.LOW);
+        lane.recordShed();
+        log.warn("低优先级队列已满，丢弃请求 - key: {}, 队列大小: {}", request.getKey(), lane.size());
+        request.getFuture().completeExceptionally(
+                new RuntimeException("低优先级批处理队列已满，请稍后重试。队列容量: " + lane.getCapacity()));
+    }
+
+    /**
+     * 丢弃最旧策略（不推荐）
+     * 高优先级请求永远不会被丢弃，其通道溢出时改为降级执行
+     *
+     * @return 请求最终是否进入了队列
+     */
+    private boolean handleDropOldestStrategy(BatchRequest<K, V> request) {
+        if (request.getPriority() == BatchPriority.HIGH) {
+            log.warn("高优先级队列已满，不丢弃请求，降级执行 - key: {}", request.getKey());
             handleDegradeStrategy(request);
+            return false;
+        }
+
+        log.warn("队列已满，丢弃最旧请求 - key: {}", request.getKey());
+        BatchLane<K, V> lane = lane(request.getPriority());
+        BatchRequest<K, V> oldest = lane.poll(request.getTenant());
+        if (oldest != null) {
+            currentQueueSize.decrementAndGet();
+            lane.recordShed();
+            oldest.getFuture().completeExceptionally(
+                    new RuntimeException("请求被丢弃（队列已满，采用丢弃最旧策略）"));
+            requestPool.release(oldest);
+        }
+        // 加入新请求
+        if (lane.offer(request)) {
+            currentQueueSize.incrementAndGet();
+            return true;
         }
+        // 还是失败，降级执行
+        handleDegradeStrategy(request);
+        return false;
     }
 
     /**
      * 处理批量请求
+     * 批次、Key列表和分区子批次都使用线程内复用的缓冲区，正常路径下除批量查询本身外不产生新对象；
+     * 需要异步完成的路径（二分重试）会先复制一份批次
      */
     private void processBatch() {
-        if (requestQueue.isEmpty()) {
+        if (currentQueueSize.get() <= 0) {
             return;
         }
 
-        // 从队列中取出待处理的请求
-        List<BatchRequest<K, V>> batch = new ArrayList<>();
-        requestQueue.drainTo(batch, config.getMaxBatchSize());
+        BatchBuffer buffer = batchBuffers.get();
+        try {
+            dispatch(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void dispatch(BatchBuffer buffer) {
+        List<BatchRequest<K, V>> batch = buffer.requests;
+        List<K> keys = buffer.keys;
+        BatchEvents.BatchFormationEvent formationEvent = null;
+        if (config.isJfrEnabled()) {
+            formationEvent = new BatchEvents.BatchFormationEvent();
+            formationEvent.begin();
+        }
+
+        // 按优先级从高到低取出待处理的请求，高优先级请求先填满批次
+        for (BatchLane<K, V> lane : lanes) {
+            lane.drainTo(batch, config.getMaxBatchSize() - batch.size(), config.getTenantQuantum());
+        }
 
         if (batch.isEmpty()) {
             return;
         }
 
-        currentQueueSize.addAndGet(-batch.size());
+        if (formationEvent != null && formationEvent.shouldCommit()) {
+            long oldestStartTime = Long.MAX_VALUE;
+            for (int i = 0; i < batch.size(); i++) {
+                oldestStartTime = Math.min(oldestStartTime, batch.get(i).getStartTime());
+            }
+            formationEvent.loader = config.getName();
+            formationEvent.batchSize = batch.size();
+            formationEvent.oldestWait = System.currentTimeMillis() - oldestStartTime;
+            formationEvent.commit();
+        }
+
+        // 剩余积压仍够一批时交给其他批处理线程接力，当前线程执行批量查询期间继续组批
+        if (currentQueueSize.addAndGet(-batch.size()) >= config.getMaxBatchSize()) {
+            handOff();
+        }
+
+        // 排队时间控制：丢弃排队过久的请求，避免在过载时继续处理已经无意义的请求
+        CoDelController codel = coDelController;
+        if (codel != null) {
+            dropBySojourn(batch, codel);
+            if (batch.isEmpty()) {
+                return;
+            }
+        }
+
         batchCount.incrementAndGet();
 
         long startTime = System.currentTimeMillis();
-        List<K> keys = new ArrayList<>(batch.size());
 
         // 收集所有Key
-        for (BatchRequest<K, V> request : batch) {
-            keys.add(request.getKey());
+        for (int i = 0; i < batch.size(); i++) {
+            keys.add(batch.get(i).getKey());
+        }
+        if (hotKeys != null) {
+            hotKeys.recordBatch(keys);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("开始批量查询 - 请求数量: {}", batch.size());
         }
 
+        if (partitioner != null) {
+            // 跨分区的批次拆成子批次并行加载，只有一个子批次时按普通批次处理
+            splitByPartition(buffer);
+            if (buffer.subBatchCount > 1) {
+                loadPartitioned(buffer, startTime);
+                return;
+            }
+        }
+
+        // 批量查询数据，成功后交给完成执行器分发结果
+        BatchResult<K, V> result;
         try {
-            log.debug("开始批量查询 - 请求数量: {}, keys: {}", batch.size(), keys);
+            result = invokeBatchLoad(keys);
+        } catch (Exception e) {
+            List<BatchRequest<K, V>> pending = new ArrayList<>(batch);
+            List<K> pendingKeys = new ArrayList<>(keys);
+            handleBatchFailure(pendingKeys, e).whenComplete((bisected, throwable) -> completeBatch(
+                    pending,
+                    throwable != null ? BatchResult.failed(pendingKeys, throwable) : bisected,
+                    startTime));
+            return;
+        }
+        buffer.requests = completeBatch(batch, result, startTime);
+    }
 
-            // 批量查询数据
-            Map<K, V> resultMap = batchLoad(keys);
+    /**
+     * 整批失败：按配置二分重试，否则所有Key以该异常失败
+     */
+    private CompletableFuture<BatchResult<K, V>> handleBatchFailure(List<K> keys, Exception e) {
+        if (config.isBisectOnFailure() && keys.size() > 1 && !(e instanceof CircuitBreakerOpenException)) {
+            // 整批失败时二分重试，隔离出错的Key，其余Key正常返回
+            log.warn("批量查询异常，二分重试隔离错误Key - 请求数量: {}", keys.size(), e);
+            bisectCount.incrementAndGet();
+            return bisectLoad(keys, e, 1);
+        }
+        log.error("批量查询异常 - keys: {}", keys, e);
+        return CompletableFuture.completedFuture(BatchResult.failed(keys, e));
+    }
 
-            // 将结果分发给各个等待的请求
-            for (BatchRequest<K, V> request : batch) {
-                try {
-                    // 检查是否超时
-                    long waitTime = System.currentTimeMillis() - request.getStartTime();
-                    if (waitTime > config.getTimeoutMs()) {
-                        log.warn("请求已超时 - key: {}, 等待时间: {}ms", request.getKey(), waitTime);
-                        request.getFuture().completeExceptionally(
-                                new TimeoutException("请求超时: " + waitTime + "ms"));
-                        continue;
-                    }
+    /**
+     * 按分区把批次分到子批次中，每个分区再按该分区的最大批量切分
+     */
+    private void splitByPartition(BatchBuffer buffer) {
+        BatchLoaderConfig current = config;
+        long epoch = ++buffer.epoch;
+        for (int i = 0; i < buffer.requests.size(); i++) {
+            BatchRequest<K, V> request = buffer.requests.get(i);
+            String partition = partitioner.partition(request.getKey());
+            PartitionCursor cursor = buffer.partitions.get(partition);
+            if (cursor == null) {
+                cursor = new PartitionCursor();
+                buffer.partitions.put(partition, cursor);
+            }
+            if (cursor.epoch != epoch || cursor.current.requests.size() >= cursor.maxSize) {
+                Integer maxSize = current.getPartitionMaxBatchSize().get(partition);
+                cursor.maxSize = Math.max(1, maxSize != null ? maxSize : current.getMaxBatchSize());
+                cursor.epoch = epoch;
+                cursor.current = buffer.nextSubBatch();
+            }
+            cursor.current.add(request);
+        }
+    }
+
+    /**
+     * 各子批次并行加载，全部加载完成后分别分发结果
+     * 除第一个外的子批次先交给分区执行器，批处理线程再依次领取尚未开始的子批次自己执行，然后等待其余子批次完成；
+     * 子批次在批处理线程返回前全部结束，对象可以在下一个批次复用
+     */
+    private void loadPartitioned(BatchBuffer buffer, long startTime) {
+        int count = buffer.subBatchCount;
+        partitionedBatchCount.incrementAndGet();
+        subBatchCount.addAndGet(count);
+
+        buffer.waiter = Thread.currentThread();
+        buffer.loading.set(count);
+        for (int i = 0; i < count; i++) {
+            buffer.subBatches.get(i).ready();
+        }
+        for (int i = 1; i < count; i++) {
+            partitionExecutor.execute(buffer.subBatches.get(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.subBatches.get(i).run();
+        }
+        while (buffer.loading.get() > 0) {
+            LockSupport.park(this);
+        }
+
+        for (int i = 0; i < count; i++) {
+            SubBatch subBatch = buffer.subBatches.get(i);
+            if (subBatch.failure == null) {
+                subBatch.requests = completeBatch(subBatch.requests, subBatch.result, startTime);
+                continue;
+            }
+            // 整批失败的子批次异步二分重试，需要复制
+            List<BatchRequest<K, V>> pending = new ArrayList<>(subBatch.requests);
+            List<K> pendingKeys = new ArrayList<>(subBatch.keys);
+            handleBatchFailure(pendingKeys, subBatch.failure).whenComplete((bisected, throwable) -> completeBatch(
+                    pending,
+                    throwable != null ? BatchResult.failed(pendingKeys, throwable) : bisected,
+                    startTime));
+        }
+    }
+
+    /**
+     * 将批量结果分发给各个等待的请求
+     * 配置了完成执行器时，批次的请求列表直接交给分发对象，不复制；按 completionChunkSize 分块提交，
+     * 调用方挂在 future 上的回调在完成线程上执行；最后一块完成时记录从批量查询返回到全部 future 完成的耗时
+     *
+     * @param batch 批次的请求列表，交给完成执行器后调用方不能再使用
+     * @return 调用方此后使用的请求列表：在当前线程完成时就是传入的列表，否则是分发对象换回的空列表
+     */
+    private List<BatchRequest<K, V>> completeBatch(List<BatchRequest<K, V>> batch, BatchResult<K, V> result, long startTime) {
+        long loadedAt = System.nanoTime();
+        Executor executor = completionExecutor;
+        if (executor == null || batch.isEmpty()) {
+            completeRequests(batch, 0, batch.size(), result);
+            onBatchCompleted(batch.size(), startTime, loadedAt);
+            return batch;
+        }
+
+        Completion completion = completionPool.poll();
+        if (completion == null) {
+            completionPoolMissCount.incrementAndGet();
+            completion = new Completion();
+        }
+        List<BatchRequest<K, V>> spare = completion.requests;
+        completion.requests = batch;
+        completion.result = result;
+        completion.startTime = startTime;
+        completion.loadedAt = loadedAt;
+
+        int chunkSize = Math.max(1, config.getCompletionChunkSize());
+        int total = batch.size();
+        int chunks = (total + chunkSize - 1) / chunkSize;
+        completion.remaining.set(chunks);
+        for (int i = 0; i < chunks; i++) {
+            completion.task(i).range(i * chunkSize, Math.min(total, (i + 1) * chunkSize));
+        }
+        // 全部分块设置好后再提交，最后一块完成时分发对象会被归还复用，提交后不能再访问
+        for (int i = 0; i < chunks; i++) {
+            CompletionTask task = completion.tasks.get(i);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // 外部执行器拒绝或已关闭，在当前线程完成
+                completionCallerRunsCount.incrementAndGet();
+                task.run();
+            }
+        }
+        return spare;
+    }
+
+    private void onBatchCompleted(int batchSize, long startTime, long loadedAt) {
+        long latencyMicros = (System.nanoTime() - loadedAt) / 1000;
+        completionLatency.record(latencyMicros);
+        completionLatencyMax.accumulateAndGet(latencyMicros, Math::max);
+
+        if (log.isDebugEnabled()) {
+            long costTime = System.currentTimeMillis() - startTime;
+            log.debug("批量查询完成 - 耗时: {}ms, 请求数量: {}, 平均: {}ms, 完成耗时: {}us",
+                    costTime, batchSize, costTime * 1.0 / batchSize, latencyMicros);
+        }
+    }
+
+    /**
+     * 按批量结果完成批次中 [from, to) 范围内请求的 future，完成后归还请求对象
+     */
+    private void completeRequests(List<BatchRequest<K, V>> batch, int from, int to, BatchResult<K, V> result) {
+        BatchEvents.BatchCompleteEvent completeEvent = null;
+        if (config.isJfrEnabled()) {
+            completeEvent = new BatchEvents.BatchCompleteEvent();
+            completeEvent.begin();
+        }
+        int errorCount = 0;
+        for (int i = from; i < to; i++) {
+            BatchRequest<K, V> request = batch.get(i);
+            try {
+                // 检查是否超时
+                long waitTime = System.currentTimeMillis() - request.getStartTime();
+                if (waitTime > config.getTimeoutMs()) {
+                    log.warn("请求已超时 - key: {}, 等待时间: {}ms", request.getKey(), waitTime);
+                    errorCount++;
+                    request.getFuture().completeExceptionally(
+                            new TimeoutException("请求超时: " + waitTime + "ms"));
+                    continue;
+                }
+
+                Throwable error = result.getError(request.getKey());
+                if (error != null) {
+                    keyErrorCount.incrementAndGet();
+                    errorCount++;
+                    request.getFuture().completeExceptionally(error);
+                    continue;
+                }
 
-                    V value = resultMap.get(request.getKey());
-                    if (value != null || config.isAllowNull()) {
-                        request.getFuture().complete(value);
+                V value = result.getValue(request.getKey());
+                if (value != null || config.isAllowNull()) {
+                    request.getFuture().complete(value);
+                } else {
+                    // 结果为空且不允许空值，尝试单独查询（并行执行，不阻塞批处理线程）
+                    if (config.isRetryOnNull()) {
+                        log.warn("批量查询结果为空，尝试单独查询 - key: {}", request.getKey());
+                        retryCount.incrementAndGet();
+                        submitSingleLoad(request.getKey(), request.getFuture());
                     } else {
-                        // 结果为空且不允许空值，尝试单独查询
-                        if (config.isRetryOnNull()) {
-                            log.warn("批量查询结果为空，尝试单独查询 - key: {}", request.getKey());
-                            V singleResult = singleLoad(request.getKey());
-                            request.getFuture().complete(singleResult);
-                        } else {
-                            request.getFuture().complete(null);
-                        }
+                        request.getFuture().complete(null);
                     }
+                }
+            } catch (Exception e) {
+                log.error("分发结果异常 - key: {}", request.getKey(), e);
+                errorCount++;
+                request.getFuture().completeExceptionally(e);
+            } finally {
+                requestPool.release(request);
+            }
+        }
+
+        if (completeEvent != null && completeEvent.shouldCommit()) {
+            completeEvent.loader = config.getName();
+            completeEvent.batchSize = to - from;
+            completeEvent.errorCount = errorCount;
+            completeEvent.commit();
+        }
+    }
+
+    /**
+     * 二分重试：把失败的批次拆成两半分别重试，递归直到定位出单个出错的Key
+     * 两半在降级/重试执行器上并行执行，不阻塞批处理线程
+     *
+     * @param keys  失败的Key列表
+     * @param cause 失败原因，无法继续拆分时作为这些Key的错误
+     * @param depth 当前拆分深度
+     */
+    private CompletableFuture<BatchResult<K, V>> bisectLoad(List<K> keys, Throwable cause, int depth) {
+        if (keys.size() <= 1 || depth > config.getBisectMaxDepth()) {
+            return CompletableFuture.completedFuture(BatchResult.failed(keys, cause));
+        }
+        int middle = keys.size() / 2;
+        List<K> left = new ArrayList<>(keys.subList(0, middle));
+        List<K> right = new ArrayList<>(keys.subList(middle, keys.size()));
+        return bisectAttempt(left, depth).thenCombine(bisectAttempt(right, depth), BatchResult::merge);
+    }
+
+    private CompletableFuture<BatchResult<K, V>> bisectAttempt(List<K> keys, int depth) {
+        CompletableFuture<BatchResult<K, V>> attempt = new CompletableFuture<>();
+        try {
+            fallbackExecutor.execute(() -> {
+                try {
+                    attempt.complete(invokeBatchLoad(keys));
                 } catch (Exception e) {
-                    log.error("分发结果异常 - key: {}", request.getKey(), e);
-                    request.getFuture().completeExceptionally(e);
+                    attempt.completeExceptionally(e);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("降级/重试队列已满，停止二分重试 - 请求数量: {}", keys.size());
+            return CompletableFuture.completedFuture(BatchResult.failed(keys, e));
+        }
+        return attempt.handle((result, throwable) -> {
+            if (throwable == null) {
+                return CompletableFuture.completedFuture(result);
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            if (cause instanceof CircuitBreakerOpenException) {
+                return CompletableFuture.completedFuture(BatchResult.<K, V>failed(keys, cause));
             }
+            return bisectLoad(keys, cause, depth + 1);
+        }).thenCompose(future -> future);
+    }
 
-            long costTime = System.currentTimeMillis() - startTime;
-            log.debug("批量查询完成 - 耗时: {}ms, 请求数量: {}, 平均: {}ms",
-                    costTime, batch.size(), costTime * 1.0 / batch.size());
+    /**
+     * 执行批量查询：经过熔断器，启用时发出对冲请求，并记录耗时样本
+     */
+    private BatchResult<K, V> invokeBatchLoad(List<K> keys) throws Exception {
+        if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+            throw new CircuitBreakerOpenException("批量查询已熔断，暂停访问后端。熔断状态: " + circuitBreaker.getState());
+        }
 
+        BatchEvents.BatchLoadEvent loadEvent = null;
+        if (config.isJfrEnabled()) {
+            loadEvent = new BatchEvents.BatchLoadEvent();
+            loadEvent.begin();
+        }
+        boolean success = false;
+        long loadStartNanos = System.nanoTime();
+        try {
+            // 对冲请求可能在批处理线程返回后仍在执行，需要使用独立的Key列表
+            BatchResult<K, V> result = hedgeExecutor != null
+                    ? hedgedBatchLoad(new ArrayList<>(keys))
+                    : batchLoadResult(keys);
+            success = true;
+            long costNanos = System.nanoTime() - loadStartNanos;
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+            if (workerScaler != null) {
+                workerScaler.onLatency(costNanos);
+            }
+            if (latencyRecorder != null) {
+                latencyRecorder.record(TimeUnit.NANOSECONDS.toMillis(costNanos));
+            }
+            AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+            if (limiter != null) {
+                limiter.onSample(costNanos);
+            }
+            return result;
         } catch (Exception e) {
-            log.error("批量查询异常 - keys: {}", keys, e);
-            // 异常情况下，将异常传递给所有等待的请求
-            for (BatchRequest<K, V> request : batch) {
-                if (!request.getFuture().isDone()) {
-                    request.getFuture().completeExceptionally(e);
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure();
+            }
+            throw e;
+        } finally {
+            if (loadEvent != null && loadEvent.shouldCommit()) {
+                loadEvent.loader = config.getName();
+                loadEvent.keyCount = keys.size();
+                loadEvent.success = success;
+                loadEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * 对冲批量查询：主请求超过耗时分位数仍未返回时，再发出一个相同的请求，取先成功的结果
+     */
+    private BatchResult<K, V> hedgedBatchLoad(List<K> keys) throws Exception {
+        CompletableFuture<BatchResult<K, V>> result = new CompletableFuture<>();
+        AtomicInteger pendingAttempts = new AtomicInteger(1);
+        if (!submitAttempt(keys, result, pendingAttempts, false)) {
+            // 执行器已满，直接在批处理线程上执行
+            pendingAttempts.decrementAndGet();
+            return batchLoadResult(keys);
+        }
+
+        long hedgeDelayMs = Math.max(config.getHedgeMinDelayMs(), latencyRecorder.getPercentile());
+        try {
+            return result.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            pendingAttempts.incrementAndGet();
+            if (submitAttempt(keys, result, pendingAttempts, true)) {
+                hedgeCount.incrementAndGet();
+                log.debug("批量查询超过 {}ms 未返回，发出对冲请求 - 请求数量: {}", hedgeDelayMs, keys.size());
+            } else {
+                pendingAttempts.decrementAndGet();
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        try {
+            return result.get(config.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 提交一次批量查询尝试，成功时以先到者为准，全部失败时传递最后一个异常
+     *
+     * @return 是否提交成功
+     */
+    private boolean submitAttempt(List<K> keys, CompletableFuture<BatchResult<K, V>> result,
+                                  AtomicInteger pendingAttempts, boolean hedge) {
+        try {
+            hedgeExecutor.execute(() -> {
+                try {
+                    BatchResult<K, V> batchResult = batchLoadResult(keys);
+                    if (result.complete(batchResult) && hedge) {
+                        hedgeWinCount.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    if (pendingAttempts.decrementAndGet() == 0) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+
+    /**
+     * 按排队时间丢弃请求，高优先级请求不丢弃
+     * 批次作为 CoDel 的出队单位，以最旧请求的排队时间为样本，由控制器给出本批次允许的最大排队时间
+     */
+    private void dropBySojourn(List<BatchRequest<K, V>> batch, CoDelController coDelController) {
+        long now = System.currentTimeMillis();
+        long oldestStartTime = Long.MAX_VALUE;
+        for (int i = 0; i < batch.size(); i++) {
+            oldestStartTime = Math.min(oldestStartTime, batch.get(i).getStartTime());
+        }
+        long thresholdMs = coDelController.dropThresholdMs(now - oldestStartTime, now);
+        int kept = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            BatchRequest<K, V> request = batch.get(i);
+            long sojournMs = now - request.getStartTime();
+            if (sojournMs > thresholdMs && request.getPriority() != BatchPriority.HIGH) {
+                codelDropCount.incrementAndGet();
+                failCount.incrementAndGet();
+                lane(request.getPriority()).recordShed();
+                request.getFuture().completeExceptionally(
+                        new RuntimeException("请求排队时间过长被丢弃: " + sojournMs + "ms"));
+                requestPool.release(request);
+            } else {
+                batch.set(kept++, request);
+            }
+        }
+        if (kept < batch.size()) {
+            log.warn("排队时间超限，丢弃请求数: {}", batch.size() - kept);
+            batch.subList(kept, batch.size()).clear();
+        }
+    }
+
+    /**
+     * 积压时提交一个接力组批任务，只有一个批处理线程时不需要接力
+     */
+    private void handOff() {
+        if (batchExecutor.getCorePoolSize() > 1 && handOffPending.compareAndSet(false, true)) {
+            try {
+                batchExecutor.execute(handOffTask);
+            } catch (RejectedExecutionException e) {
+                // 正在关闭
+                handOffPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * 弹性伸缩：评估负载并调整批处理线程数；积压时启动接力组批，新增线程从下一批开始参与处理
+     */
+    private void scaleWorkers() {
+        try {
+            long now = System.currentTimeMillis();
+            long batches = batchCount.get();
+            int queueDepth = currentQueueSize.get();
+            long oldestStartTime = Long.MAX_VALUE;
+            for (BatchLane<K, V> lane : lanes) {
+                long startTime = lane.oldestStartTime();
+                if (startTime > 0) {
+                    oldestStartTime = Math.min(oldestStartTime, startTime);
                 }
             }
+            long oldestAgeMs = oldestStartTime == Long.MAX_VALUE ? 0 : Math.max(0, now - oldestStartTime);
+
+            int current = batchExecutor.getCorePoolSize();
+            int target = workerScaler.evaluate(queueDepth, oldestAgeMs, batches - lastScaleBatchCount, now - lastScaleTime);
+            lastScaleBatchCount = batches;
+            lastScaleTime = now;
+
+            if (target != current) {
+                log.info("{} 批处理线程数调整 {} -> {} - 队列: {}, 最旧请求排队: {}ms, 批量查询平均耗时: {}ms",
+                        config.getName(), current, target, queueDepth, oldestAgeMs,
+                        String.format("%.1f", workerScaler.getAvgLatencyMs()));
+                batchExecutor.setCorePoolSize(target);
+            }
+
+            // 定时任务同一时刻只有一个在执行，积压时由接力组批把后续批次分给其他线程
+            if (queueDepth >= config.getMaxBatchSize()) {
+                handOff();
+            }
+        } catch (Exception e) {
+            log.error("{} 弹性伸缩评估异常", config.getName(), e);
         }
     }
 
+    private int maxWorkers() {
+        return config.isElasticEnabled()
+                ? Math.max(config.getThreadPoolSize(), config.getMaxThreadPoolSize())
+                : config.getThreadPoolSize();
+    }
+
     /**
      * 打印监控指标
      */
@@ -388,15 +1618,17 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
         double degradeRate = total > 0 ? degrade * 100.0 / total : 0;
 
         log.info("{} 监控指标 - 总请求: {}, 批处理次数: {}, 平均批量: {:.2f}, " +
-                "降级: {}({:.2f}%), 阻塞等待: {}, 失败: {}, 当前队列: {}",
+                "降级: {}({:.2f}%), 阻塞等待: {}, 失败: {}, 当前队列: {}, 通道: {}",
                 config.getName(), total, batch, avgBatchSize,
-                degrade, degradeRate, block, fail, queueSize);
+                degrade, degradeRate, block, fail, queueSize, getLaneMetrics().values());
     }
 
     /**
      * 获取监控指标
      */
     public BatchLoaderMetrics getMetrics() {
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter;
+        long[] completionPercentiles = completionLatency.percentiles(0.5, 0.99);
         return BatchLoaderMetrics.builder()
                 .totalRequestCount(totalRequestCount.get())
                 .batchCount(batchCount.get())
@@ -404,22 +1636,292 @@ public abstract class AbstractBatchLoader<K, V> implements BatchLoader<K, V> {
                 .blockCount(blockCount.get())
                 .failCount(failCount.get())
                 .currentQueueSize(currentQueueSize.get())
+                .lanes(getLaneMetrics())
+                .limitRejectCount(limitRejectCount.get())
+                .quotaRejectCount(quotaRejectCount.get())
+                .codelDropCount(codelDropCount.get())
+                .concurrencyLimit(limiter != null ? limiter.getLimit() : -1)
+                .inflightCount(limiter != null ? limiter.getInflight() : -1)
+                .circuitState(circuitBreaker != null ? circuitBreaker.getState().name() : "DISABLED")
+                .circuitOpenCount(circuitBreaker != null ? circuitBreaker.getOpenCount() : 0)
+                .circuitRejectCount(circuitBreaker != null ? circuitBreaker.getRejectCount() : 0)
+                .hedgeCount(hedgeCount.get())
+                .hedgeWinCount(hedgeWinCount.get())
+                .retryCount(retryCount.get())
+                .bisectCount(bisectCount.get())
+                .keyErrorCount(keyErrorCount.get())
+                .partitionedBatchCount(partitionedBatchCount.get())
+                .subBatchCount(subBatchCount.get())
+                .requestPoolMissCount(requestPool.getMissCount())
+                .workerCount(batchExecutor.getCorePoolSize())
+                .scaleUpCount(workerScaler != null ? workerScaler.getScaleUpCount() : 0)
+                .scaleDownCount(workerScaler != null ? workerScaler.getScaleDownCount() : 0)
+                .avgBatchLatencyMs(workerScaler != null ? workerScaler.getAvgLatencyMs() : -1)
+                .completionLatencyP50Micros(completionPercentiles[0])
+                .completionLatencyP99Micros(completionPercentiles[1])
+                .completionLatencyMaxMicros(completionLatencyMax.get())
+                .completionCallerRunsCount(completionCallerRunsCount.get())
+                .completionPoolMissCount(completionPoolMissCount.get())
+                .contextDispatchCount(contextDispatchCount.get())
+                .hotKeys(hotKeys != null ? hotKeys.getHotKeys() : Collections.emptyList())
+                .tenants(getTenantMetrics())
                 .build();
     }
 
     /**
-     * 批处理请求包装类
+     * 获取各租户的监控指标
      */
-    @Getter
-    private static class BatchRequest<K, V> {
-        private final K key;
-        private final CompletableFuture<V> future;
-        private final long startTime;
-
-        public BatchRequest(K key, CompletableFuture<V> future, long startTime) {
-            this.key = key;
-            this.future = future;
-            this.startTime = startTime;
+    public Map<String, TenantMetrics> getTenantMetrics() {
+        Map<String, Integer> queueSizes = new HashMap<>();
+        for (BatchLane<K, V> lane : lanes) {
+            lane.getTenantQueueSizes().forEach((tenant, size) -> queueSizes.merge(tenant, size, Integer::sum));
+        }
+        BatchLoaderConfig current = config;
+        Map<String, TenantMetrics> tenantMetrics = new TreeMap<>();
+        for (TenantState state : tenants.values()) {
+            tenantMetrics.put(state.getTenant(), TenantMetrics.builder()
+                    .tenant(state.getTenant())
+                    .rateLimit(rateLimit(state.getTenant(), current))
+                    .queueSize(queueSizes.getOrDefault(state.getTenant(), 0))
+                    .requestCount(state.getRequestCount())
+                    .quotaRejectCount(state.getQuotaRejectCount())
+                    .queueFullCount(state.getQueueFullCount())
+                    .build());
+        }
+        return tenantMetrics;
+    }
+
+    /**
+     * 获取各优先级通道的监控指标
+     */
+    public Map<BatchPriority, LaneMetrics> getLaneMetrics() {
+        Map<BatchPriority, LaneMetrics> laneMetrics = new EnumMap<>(BatchPriority.class);
+        for (BatchLane<K, V> lane : lanes) {
+            laneMetrics.put(lane.getPriority(), lane.getMetrics());
+        }
+        return laneMetrics;
+    }
+
+    /**
+     * 估算加载器占用的堆内存(字节)，Key 和结果由调用方持有，不计入
+     * <p>
+     * queueArrays: 各通道各租户队列的内部数组；queuedRequests: 排队中的请求对象及其 future；pooledRequests: 对象池中空闲的请求对象；hotKeySketch: 热点统计的计数器和候选集合
+     */
+    public Map<String, Long> estimateRetainedBytes() {
+        long requestBytes = MemoryEstimator.shallow(4, 8);
+        long queueArrays = 0;
+        long queued = 0;
+        for (BatchLane<K, V> lane : lanes) {
+            queueArrays += lane.estimateQueueArrayBytes();
+            queued += lane.size();
+        }
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("queueArrays", queueArrays);
+        result.put("queuedRequests", queued * (requestBytes + MemoryEstimator.COMPLETABLE_FUTURE));
+        result.put("pooledRequests", requestPool.getIdleCount() * requestBytes);
+        if (hotKeys != null) {
+            result.put("hotKeySketch", hotKeys.estimateRetainedBytes());
+        }
+        return result;
+    }
+
+    /**
+     * 加载器自有线程池的存活线程ID（批处理、降级、完成、分区、对冲、伸缩），用于统计加载器的内存分配
+     * 调用 load 的请求线程由多个加载器和接口共用，不包含在内；外部传入的完成执行器的线程也不包含在内
+     */
+    public long[] getThreadIds() {
+        return loaderThreads.stream().filter(Thread::isAlive).mapToLong(Thread::getId).toArray();
+    }
+
+    private BatchLane<K, V> lane(BatchPriority priority) {
+        return lanes[priority.ordinal()];
+    }
+
+    /**
+     * 批处理线程复用的批次缓冲区
+     */
+    private final class BatchBuffer {
+        /**
+         * 批次的请求列表，交给完成执行器后换成分发对象归还的空列表
+         */
+        private List<BatchRequest<K, V>> requests;
+        private final List<K> keys;
+
+        /**
+         * 分区 -> 本批次中该分区正在填充的子批次，条目创建后一直保留，分区数由分区器决定
+         */
+        private final Map<String, PartitionCursor> partitions = new HashMap<>();
+
+        /**
+         * 子批次，按需创建后一直复用，前 subBatchCount 个属于当前批次
+         */
+        private final List<SubBatch> subBatches = new ArrayList<>();
+
+        private int subBatchCount;
+
+        /**
+         * 批次序号，用于判断分区游标是否属于当前批次
+         */
+        private long epoch;
+
+        /**
+         * 尚未加载完成的子批次数
+         */
+        private final AtomicInteger loading = new AtomicInteger(0);
+
+        /**
+         * 等待子批次加载完成的批处理线程
+         */
+        private volatile Thread waiter;
+
+        BatchBuffer() {
+            int capacity = config.getMaxBatchSize();
+            this.requests = new ArrayList<>(capacity);
+            this.keys = new ArrayList<>(capacity);
+        }
+
+        SubBatch nextSubBatch() {
+            if (subBatchCount == subBatches.size()) {
+                subBatches.add(new SubBatch(this));
+            }
+            return subBatches.get(subBatchCount++);
+        }
+
+        void onSubBatchLoaded() {
+            if (loading.decrementAndGet() == 0) {
+                LockSupport.unpark(waiter);
+            }
+        }
+
+        void clear() {
+            requests.clear();
+            keys.clear();
+            for (int i = 0; i < subBatchCount; i++) {
+                subBatches.get(i).clear();
+            }
+            subBatchCount = 0;
+        }
+    }
+
+    /**
+     * 分区在当前批次中正在填充的子批次
+     */
+    private final class PartitionCursor {
+        private long epoch = -1;
+        private int maxSize;
+        private SubBatch current;
+    }
+
+    /**
+     * 分区子批次，在所属缓冲区内复用
+     * 状态: 空闲(填充中) -> 就绪 -> 已领取；分区执行器和批处理线程都可以执行，只有领取成功的一方加载；
+     * 执行器队列中残留的旧任务只能领取就绪状态的子批次，不会读到填充中的数据
+     */
+    private final class SubBatch implements Runnable {
+        private static final int IDLE = 0;
+        private static final int READY = 1;
+        private static final int CLAIMED = 2;
+
+        private final BatchBuffer owner;
+        private List<BatchRequest<K, V>> requests = new ArrayList<>();
+        private final List<K> keys = new ArrayList<>();
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private BatchResult<K, V> result;
+        private Exception failure;
+
+        SubBatch(BatchBuffer owner) {
+            this.owner = owner;
+        }
+
+        void add(BatchRequest<K, V> request) {
+            requests.add(request);
+            keys.add(request.getKey());
+        }
+
+        void ready() {
+            state.set(READY);
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(READY, CLAIMED)) {
+                return;
+            }
+            try {
+                result = invokeBatchLoad(keys);
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                owner.onSubBatchLoaded();
+            }
+        }
+
+        void clear() {
+            state.set(IDLE);
+            requests.clear();
+            keys.clear();
+            result = null;
+            failure = null;
+        }
+    }
+
+    /**
+     * 一个批次的结果分发，持有交接过来的请求列表，分块任务对象随分发对象复用
+     */
+    private final class Completion {
+        private List<BatchRequest<K, V>> requests = new ArrayList<>();
+        private final List<CompletionTask> tasks = new ArrayList<>();
+
+        /**
+         * 尚未完成的分块数
+         */
+        private final AtomicInteger remaining = new AtomicInteger(0);
+        private BatchResult<K, V> result;
+        private long startTime;
+        private long loadedAt;
+
+        CompletionTask task(int index) {
+            if (index == tasks.size()) {
+                tasks.add(new CompletionTask(this));
+            }
+            return tasks.get(index);
+        }
+
+        void onChunkCompleted() {
+            if (remaining.decrementAndGet() > 0) {
+                return;
+            }
+            onBatchCompleted(requests.size(), startTime, loadedAt);
+            requests.clear();
+            result = null;
+            completionPool.offer(this);
+        }
+    }
+
+    /**
+     * 结果分发的一个分块
+     */
+    private final class CompletionTask implements Runnable {
+        private final Completion owner;
+        private int from;
+        private int to;
+
+        CompletionTask(Completion owner) {
+            this.owner = owner;
+        }
+
+        void range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            try {
+                completeRequests(owner.requests, from, to, owner.result);
+            } finally {
+                owner.onChunkCompleted();
+            }
         }
     }
 }
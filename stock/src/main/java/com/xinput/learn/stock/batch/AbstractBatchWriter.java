@@ -0,0 +1,341 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 通用批量写入器（write-behind）
+ * <p>
+ * 1. 写入先放入按 Key 索引的待写入表，同一个 Key 在刷新前的多次写入通过 {@link #merge} 合并
+ * 2. 定时或待写入 Key 达到最大批量时刷新，每次最多取出 maxBatchSize 个 Key 调用 {@link #batchWrite}
+ * 3. 刷新串行执行，同一个 Key 的两次刷新不会乱序；达到最大批量触发的刷新同一时间最多排队一个
+ * 4. 一轮刷新可能分多批写入，全部写完后调用一次 {@link #afterFlush}，之后才完成这些写入的 future
+ * 5. 关闭时先拒绝新写入，再在 shutdownTimeoutMs 内把剩余更新全部刷新，超时未刷新的以异常完成
+ *
+ * @param <K> Key类型
+ * @param <U> 更新内容类型
+ */
+@Slf4j
+public abstract class AbstractBatchWriter<K, U> implements BatchWriter<K, U> {
+
+    @Getter
+    protected final BatchWriterConfig config;
+
+    private final ConcurrentHashMap<K, Pending<U>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 刷新锁，保证刷新串行
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private ScheduledExecutorService flushExecutor;
+
+    private final Runnable flushTask = this::flushQuietly;
+
+    /**
+     * 是否已有达到最大批量触发的刷新在排队，避免写入高峰时堆积刷新任务
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    private final Runnable requestedFlushTask = () -> {
+        flushRequested.set(false);
+        flushQuietly();
+    };
+
+    /**
+     * 写入延迟，查看指标时才计算分位数
+     */
+    private final LatencyRecorder writeLatency = new LatencyRecorder(1024);
+
+    private final AtomicLong latencyMax = new AtomicLong(0);
+
+    private final AtomicLong writeCount = new AtomicLong(0);
+
+    private final AtomicLong mergeCount = new AtomicLong(0);
+
+    private final AtomicLong rejectCount = new AtomicLong(0);
+
+    private final AtomicLong flushCount = new AtomicLong(0);
+
+    private final AtomicLong flushedKeyCount = new AtomicLong(0);
+
+    private final AtomicLong flushFailCount = new AtomicLong(0);
+
+    private volatile boolean shutdown = false;
+
+    public AbstractBatchWriter(BatchWriterConfig config) {
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void init() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, config.getName() + "-batch-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(flushTask, config.getIntervalMs(), config.getIntervalMs(), TimeUnit.MILLISECONDS);
+
+        if (config.isEnableMonitor()) {
+            flushExecutor.scheduleAtFixedRate(
+                    () -> log.info("{} 监控指标 - {}", config.getName(), getMetrics()),
+                    config.getMonitorIntervalSeconds(),
+                    config.getMonitorIntervalSeconds(),
+                    TimeUnit.SECONDS);
+        }
+
+        log.info("{} 初始化完成 - 刷新间隔: {}ms, 最大批量: {}, 待写入上限: {}",
+                config.getName(), config.getIntervalMs(), config.getMaxBatchSize(), config.getQueueCapacity());
+    }
+
+    /**
+     * 关闭：拒绝新写入，停止定时刷新，然后在超时时间内刷新剩余的全部更新
+     */
+    @PreDestroy
+    public void destroy() {
+        shutdown = true;
+        long deadline = System.currentTimeMillis() + config.getShutdownTimeoutMs();
+        try {
+            if (flushExecutor != null) {
+                flushExecutor.shutdown();
+                flushExecutor.awaitTermination(config.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
+            }
+            // 正在进行的刷新可能卡在后端，等待刷新锁同样受关闭超时限制
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || !flushLock.tryLock(remaining, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+                try {
+                    flushLocked();
+                } catch (Exception e) {
+                    log.error("{} 关闭时刷新异常", config.getName(), e);
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!pending.isEmpty()) {
+            log.error("{} 关闭超时，丢弃未刷新的更新 - 数量: {}", config.getName(), pending.size());
+            for (K key : new ArrayList<>(pending.keySet())) {
+                Pending<U> entry = pending.remove(key);
+                if (entry != null) {
+                    entry.completeExceptionally(new IllegalStateException("BatchWriter 关闭超时，更新未写入"));
+                }
+            }
+        }
+        log.info("{} 已关闭 - {}", config.getName(), getMetrics());
+    }
+
+    @Override
+    public CompletableFuture<Void> write(K key, U update) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (shutdown) {
+            rejectCount.incrementAndGet();
+            future.completeExceptionally(new IllegalStateException("BatchWriter 已关闭"));
+            return future;
+        }
+        // 新 Key 受待写入上限限制，已有 Key 的更新直接合并
+        if (pending.size() >= config.getQueueCapacity() && !pending.containsKey(key)) {
+            rejectCount.incrementAndGet();
+            future.completeExceptionally(new RejectedExecutionException("待写入数量已达上限: " + config.getQueueCapacity()));
+            return future;
+        }
+
+        writeCount.incrementAndGet();
+        long now = System.currentTimeMillis();
+        pending.compute(key, (k, previous) -> {
+            if (previous == null) {
+                return new Pending<>(update, now, future);
+            }
+            mergeCount.incrementAndGet();
+            previous.update = merge(previous.update, update);
+            previous.futures.add(future);
+            return previous;
+        });
+
+        if (pending.size() >= config.getMaxBatchSize() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(requestedFlushTask);
+            } catch (RejectedExecutionException e) {
+                // 正在关闭，剩余更新由 destroy 刷新
+                flushRequested.set(false);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * 刷新所有待写入的更新，刷新失败的更新以异常完成
+     */
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 一轮刷新结束后调用一次（本轮至少一批写入成功时），在刷新锁内执行，之后才完成本轮写入的 future
+     * 用于把同一轮多个批次的结果合并处理，例如只发布一次快照；抛出的异常只记录日志，不影响已写入的更新
+     */
+    protected void afterFlush() {
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("{} 刷新异常", config.getName(), e);
+        }
+    }
+
+    /**
+     * 分批写入全部待写入的更新，调用方持有刷新锁
+     */
+    private void flushLocked() {
+        List<Pending<U>> written = new ArrayList<>();
+        try {
+            while (!pending.isEmpty()) {
+                if (!flushBatch(written)) {
+                    return;
+                }
+            }
+        } finally {
+            if (!written.isEmpty()) {
+                completeFlushed(written);
+            }
+        }
+    }
+
+    /**
+     * 取出最多 maxBatchSize 个 Key 写入，写入成功的放入 written，失败的直接以异常完成
+     *
+     * @return 是否写入成功
+     */
+    private boolean flushBatch(List<Pending<U>> written) {
+        Map<K, U> updates = new LinkedHashMap<>();
+        List<Pending<U>> entries = new ArrayList<>();
+        Iterator<K> iterator = pending.keySet().iterator();
+        while (iterator.hasNext() && updates.size() < config.getMaxBatchSize()) {
+            K key = iterator.next();
+            Pending<U> entry = pending.remove(key);
+            if (entry != null) {
+                updates.put(key, entry.update);
+                entries.add(entry);
+            }
+        }
+        if (updates.isEmpty()) {
+            return true;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            batchWrite(updates);
+        } catch (Exception e) {
+            flushFailCount.incrementAndGet();
+            log.error("{} 批量写入失败 - 数量: {}", config.getName(), updates.size(), e);
+            for (Pending<U> entry : entries) {
+                entry.completeExceptionally(e);
+            }
+            return false;
+        }
+
+        flushCount.incrementAndGet();
+        flushedKeyCount.addAndGet(updates.size());
+        written.addAll(entries);
+        if (log.isDebugEnabled()) {
+            log.debug("{} 批量写入完成 - 数量: {}, 耗时: {}ms", config.getName(), updates.size(), System.currentTimeMillis() - startTime);
+        }
+        return true;
+    }
+
+    private void completeFlushed(List<Pending<U>> written) {
+        try {
+            afterFlush();
+        } catch (Exception e) {
+            log.error("{} 刷新后处理异常 - 数量: {}", config.getName(), written.size(), e);
+        }
+        long now = System.currentTimeMillis();
+        for (Pending<U> entry : written) {
+            long latency = now - entry.firstWriteTime;
+            writeLatency.record(latency);
+            latencyMax.accumulateAndGet(latency, Math::max);
+            entry.complete();
+        }
+    }
+
+    /**
+     * 获取监控指标
+     */
+    public BatchWriterMetrics getMetrics() {
+        long[] latencyPercentiles = writeLatency.percentiles(0.5, 0.99);
+        return BatchWriterMetrics.builder()
+                .writeCount(writeCount.get())
+                .mergeCount(mergeCount.get())
+                .rejectCount(rejectCount.get())
+                .flushCount(flushCount.get())
+                .flushedKeyCount(flushedKeyCount.get())
+                .flushFailCount(flushFailCount.get())
+                .pendingCount(pending.size())
+                .writeLatencyP50Ms(latencyPercentiles[0])
+                .writeLatencyP99Ms(latencyPercentiles[1])
+                .writeLatencyMaxMs(latencyMax.get())
+                .build();
+    }
+
+    /**
+     * 一个 Key 待写入的更新，只在 ConcurrentHashMap.compute 内修改
+     */
+    private static class Pending<U> {
+
+        private U update;
+
+        /**
+         * 首次写入时间，写入延迟从这里开始计算
+         */
+        private final long firstWriteTime;
+
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+
+        private Pending(U update, long firstWriteTime, CompletableFuture<Void> future) {
+            this.update = update;
+            this.firstWriteTime = firstWriteTime;
+            this.futures.add(future);
+        }
+
+        private void complete() {
+            for (CompletableFuture<Void> future : futures) {
+                future.complete(null);
+            }
+        }
+
+        private void completeExceptionally(Throwable e) {
+            for (CompletableFuture<Void> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限制器（梯度算法）
+ * 根据 batchLoad 的实测耗时推算后端可承受的在途请求数：
+ * 短期耗时明显高于长期基线时收缩限制，耗时平稳且限制被用满时逐步放大
+ */
+class AdaptiveConcurrencyLimiter {
+
+    /**
+     * 长期基线耗时的平滑系数
+     */
+    private static final double LONG_RTT_ALPHA = 0.05;
+
+    /**
+     * 新旧限制值的平滑系数
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 允许短期耗时超出基线的倍数
+     */
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    /**
+     * 当前在途请求数（已接受但未完成）
+     */
+    private final AtomicInteger inflight = new AtomicInteger(0);
+
+    /**
+     * 当前并发限制
+     */
+    private volatile double limit;
+
+    /**
+     * 长期基线耗时(纳秒)
+     */
+    private double longRttNanos = 0;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 尝试占用一个在途名额
+     *
+     * @param force 是否忽略限制（高优先级请求），仍然计入在途数
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(boolean force) {
+        while (true) {
+            int current = inflight.get();
+            if (!force && current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 记录一次 batchLoad 耗时样本并调整限制
+     */
+    synchronized void onSample(long rttNanos) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        longRttNanos = longRttNanos == 0
+                ? rttNanos
+                : longRttNanos * (1 - LONG_RTT_ALPHA) + rttNanos * LONG_RTT_ALPHA;
+
+        double currentLimit = limit;
+        // 在途请求远低于限制时，样本不能说明后端容量，不放大限制
+        if (inflight.get() * 2 < currentLimit && rttNanos <= longRttNanos) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rttNanos));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        newLimit = currentLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+}
@@ -0,0 +1,184 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 请求级批处理调度上下文（类似 GraphQL DataLoader 的调度方式）
+ * <p>
+ * 1. 上下文绑定到请求线程，期间该线程上的 {@link AbstractBatchLoader#load} 照常入队，同时登记到上下文
+ * 2. 请求线程在 {@link #await} 中等待结果时，先执行完本上下文的待执行任务，没有任务可做时立即触发所有登记过的加载器组批，
+ *    不再等待 intervalMs 定时器，N 层依赖的扇出约为 N 次后端往返
+ * 3. 依赖上一层结果的下一层加载需要通过 thenComposeAsync(fn, context) 等方法把回调交给上下文执行，回调在请求线程上运行，
+ *    其中的 load 同样会被登记；在其他线程上发起的 load 不属于本上下文，仍按定时器组批
+ * <p>
+ * 使用方式: try (BatchDispatchContext context = BatchDispatchContext.open()) { ... context.await(future, timeoutMs); }
+ * 非线程安全，除 {@link #execute} 外只能在绑定的请求线程上访问
+ */
+public class BatchDispatchContext implements Executor, AutoCloseable {
+
+    private static final ThreadLocal<BatchDispatchContext> CURRENT = new ThreadLocal<>();
+
+    private static final Runnable WAKE_UP = () -> {
+    };
+
+    /**
+     * 外层上下文，嵌套打开时关闭后恢复
+     */
+    private final BatchDispatchContext parent;
+
+    private final Thread owner;
+
+    /**
+     * 有待处理请求、尚未触发组批的加载器，按登记顺序触发
+     */
+    private final Set<AbstractBatchLoader<?, ?>> pending = new LinkedHashSet<>();
+
+    /**
+     * 交给上下文在请求线程上执行的回调
+     */
+    private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+    private volatile boolean closed = false;
+
+    private long loadCount = 0;
+
+    private long dispatchCount = 0;
+
+    private BatchDispatchContext(BatchDispatchContext parent) {
+        this.parent = parent;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * 在当前线程上打开上下文
+     */
+    public static BatchDispatchContext open() {
+        BatchDispatchContext context = new BatchDispatchContext(CURRENT.get());
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * 当前线程绑定的上下文，没有时返回 null
+     */
+    public static BatchDispatchContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 加载器登记入队的请求，由 {@link AbstractBatchLoader#load} 调用
+     */
+    void register(AbstractBatchLoader<?, ?> loader) {
+        loadCount++;
+        pending.add(loader);
+    }
+
+    /**
+     * 在请求线程上执行回调，可在任意线程调用；上下文已关闭时在调用线程上直接执行
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (closed) {
+            task.run();
+            return;
+        }
+        tasks.offer(task);
+        if (closed && tasks.remove(task)) {
+            // 与 close 并发时，close 可能已经排空了队列
+            task.run();
+        }
+    }
+
+    /**
+     * 立即触发所有登记过的加载器组批
+     */
+    public void dispatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (AbstractBatchLoader<?, ?> loader : pending) {
+            loader.dispatchNow();
+        }
+        pending.clear();
+        dispatchCount++;
+    }
+
+    /**
+     * 等待结果: 执行待执行的回调，没有回调可执行时触发组批，直到 future 完成或超时
+     *
+     * @param timeoutMs 超时时间(毫秒)
+     */
+    public <T> T await(CompletableFuture<T> future, long timeoutMs)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        checkOwner();
+        if (!future.isDone()) {
+            future.whenComplete((value, throwable) -> execute(WAKE_UP));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (!future.isDone()) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                // 请求线程没有其他工作可做，触发组批后等待结果或新的回调
+                dispatch();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (task = tasks.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    if (future.isDone()) {
+                        break;
+                    }
+                    throw new TimeoutException("请求级批处理等待超时: " + timeoutMs + "ms");
+                }
+            }
+            task.run();
+        }
+        return future.get();
+    }
+
+    /**
+     * 本上下文登记的加载请求数
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * 本上下文触发组批的轮数
+     */
+    public long getDispatchCount() {
+        return dispatchCount;
+    }
+
+    /**
+     * 执行剩余回调并触发剩余的组批，然后解除绑定
+     */
+    @Override
+    public void close() {
+        checkOwner();
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        dispatch();
+        closed = true;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+
+    private void checkOwner() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("BatchDispatchContext 只能在打开它的线程上使用");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.xinput.learn.stock.batch;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 批处理生命周期的 JFR 事件
+ * <p>
+ * 由 {@link BatchLoaderConfig#isJfrEnabled()} 控制，关闭时不创建事件对象；开启后需要同时有 JFR 录制才会写入，例如
+ * -XX:StartFlightRecording=duration=60s,filename=batch.jfr
+ * <p>
+ * 一次请求的耗时可以在录制中拆成：入队(Enqueue) -> 排队等待(BatchFormation.oldestWait) -> 批量查询(BatchLoad) -> 完成 future(BatchComplete)
+ */
+public final class BatchEvents {
+
+    private static final String CATEGORY = "Stock Batch";
+
+    private BatchEvents() {
+    }
+
+    @Name("com.xinput.learn.stock.batch.Enqueue")
+    @Label("Batch Enqueue")
+    @Category(CATEGORY)
+    @Description("请求进入优先级通道")
+    @StackTrace(false)
+    public static class EnqueueEvent extends Event {
+
+        @Label("Loader")
+        String loader;
+
+        @Label("Priority")
+        String priority;
+
+        @Label("Enqueued")
+        @Description("false 表示通道已满，交给溢出策略处理")
+        boolean enqueued;
+    }
+
+    @Name("com.xinput.learn.stock.batch.BatchFormation")
+    @Label("Batch Formation")
+    @Category(CATEGORY)
+    @Description("批处理线程从通道取出请求组成批次")
+    @StackTrace(false)
+    public static class BatchFormationEvent extends Event {
+
+        @Label("Loader")
+        String loader;
+
+        @Label("Batch Size")
+        int batchSize;
+
+        @Label("Oldest Wait")
+        @Description("批次中最早的请求已排队的时间")
+        @Timespan(Timespan.MILLISECONDS)
+        long oldestWait;
+    }
+
+    @Name("com.xinput.learn.stock.batch.BatchLoad")
+    @Label("Batch Load")
+    @Category(CATEGORY)
+    @Description("一次 batchLoad 调用，包含熔断检查和对冲请求")
+    @StackTrace(false)
+    public static class BatchLoadEvent extends Event {
+
+        @Label("Loader")
+        String loader;
+
+        @Label("Key Count")
+        int keyCount;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("com.xinput.learn.stock.batch.BatchComplete")
+    @Label("Batch Complete")
+    @Category(CATEGORY)
+    @Description("按批量结果完成各请求的 future")
+    @StackTrace(false)
+    public static class BatchCompleteEvent extends Event {
+
+        @Label("Loader")
+        String loader;
+
+        @Label("Batch Size")
+        int batchSize;
+
+        @Label("Error Count")
+        int errorCount;
+    }
+}
@@ -0,0 +1,498 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.xinput.learn.stock.util.MemoryEstimator;
+
+import lombok.Getter;
+
+/**
+ * 批处理请求通道
+ * 每个优先级对应一个独立的通道，并单独统计排队深度和排队时延
+ * <p>
+ * 通道内每个租户一个基于数组的有界队列，入队出队不产生新对象：
+ * 1. 通道总容量限制所有租户的排队请求数；指定了租户的请求另受单租户容量(通道容量 * tenantMaxQueueShare)限制，
+ *    一个租户占满自己的队列只会触发它自己的溢出策略，不影响其他租户入队；未指定租户的请求归入默认租户，只受通道容量限制
+ * 2. 组批时按差额轮询(Deficit Round Robin)在有排队请求的租户之间分配批次位置，每轮每个租户最多取 quantum 个，
+ *    批次装满时当前租户未用完的额度保留到下一个批次
+ * <p>
+ * 运行中调整容量时各租户换用新队列，旧队列中的请求转入该租户的溢出队列，组批时优先取出，不丢弃任何请求
+ * <p>
+ * 入队先占用租户名额，再占用通道名额：租户队列已满的请求不会临时占用通道名额，
+ * 其他租户的并发入队不会因此看到虚假的通道已满
+ * <p>
+ * 带超时的入队(BLOCK 策略)在通道或租户队列已满时不占用名额，在条件变量上等待组批、丢弃或扩容释放空位后重试
+ */
+class BatchLane<K, V> {
+
+    @Getter
+    private final BatchPriority priority;
+
+    @Getter
+    private volatile int capacity;
+
+    /**
+     * 单个租户最多占用通道容量的比例
+     */
+    private final double tenantMaxQueueShare;
+
+    private final Map<String, TenantQueue<K, V>> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * 有排队请求的租户，按轮询顺序排列；每个租户最多出现一次
+     */
+    private final ConcurrentLinkedDeque<TenantQueue<K, V>> active = new ConcurrentLinkedDeque<>();
+
+    /**
+     * 所有租户的排队请求数
+     */
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /**
+     * 入队请求数
+     */
+    private final AtomicLong requestCount = new AtomicLong(0);
+
+    /**
+     * 出队进入批处理的请求数
+     */
+    private final AtomicLong dispatchedCount = new AtomicLong(0);
+
+    /**
+     * 累计排队时间(毫秒)
+     */
+    private final AtomicLong totalWaitMs = new AtomicLong(0);
+
+    /**
+     * 最大排队时间(毫秒)
+     */
+    private final AtomicLong maxWaitMs = new AtomicLong(0);
+
+    /**
+     * 溢出被丢弃的请求数
+     */
+    private final AtomicLong shedCount = new AtomicLong(0);
+
+    private final ReentrantLock notFullLock = new ReentrantLock();
+
+    /**
+     * 有请求出队或扩容时通知带超时入队的等待线程
+     */
+    private final Condition notFull = notFullLock.newCondition();
+
+    /**
+     * 带超时入队的等待线程数，没有等待线程时出队不加锁
+     */
+    private final AtomicInteger waiters = new AtomicInteger(0);
+
+    BatchLane(BatchPriority priority, int capacity, double tenantMaxQueueShare) {
+        this.priority = priority;
+        this.capacity = capacity;
+        this.tenantMaxQueueShare = tenantMaxQueueShare;
+    }
+
+    boolean offer(BatchRequest<K, V> request) {
+        TenantQueue<K, V> tenant = tenantQueue(request.getTenant());
+        if (!reserve(tenant)) {
+            return false;
+        }
+        if (!tenant.offer(request)) {
+            unreserve(tenant);
+            return false;
+        }
+        enqueued(tenant);
+        return true;
+    }
+
+    /**
+     * 带超时入队，通道总容量和租户队列都有空位时才占用名额，等待期间不占用
+     */
+    boolean offer(BatchRequest<K, V> request, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        TenantQueue<K, V> tenant = tenantQueue(request.getTenant());
+        waiters.incrementAndGet();
+        try {
+            notFullLock.lockInterruptibly();
+            try {
+                while (true) {
+                    if (reserve(tenant)) {
+                        if (tenant.offer(request)) {
+                            enqueued(tenant);
+                            return true;
+                        }
+                        // 与扩缩容并发时入队失败，归还名额后再等待
+                        tenant.release(1);
+                        size.decrementAndGet();
+                    }
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = notFull.awaitNanos(remaining);
+                }
+            } finally {
+                notFullLock.unlock();
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * 调整队列容量，已入队的请求全部保留
+     * 缩容时保留的请求可能暂时超过新容量，新请求按新容量限制
+     */
+    synchronized void resize(int newCapacity) {
+        if (newCapacity == capacity) {
+            return;
+        }
+        capacity = newCapacity;
+        for (TenantQueue<K, V> tenant : tenants.values()) {
+            tenant.resize(tenantCapacity(tenant.name));
+        }
+        signalNotFull();
+    }
+
+    /**
+     * 取出最旧的请求（用于丢弃），不计入排队时延
+     * 优先取指定租户自己的请求，该租户没有排队请求时取排队最多的租户
+     */
+    BatchRequest<K, V> poll(String tenant) {
+        TenantQueue<K, V> victim = tenants.get(tenant);
+        if (victim == null || victim.isEmpty()) {
+            victim = null;
+            for (TenantQueue<K, V> candidate : tenants.values()) {
+                if (victim == null || candidate.size() > victim.size()) {
+                    victim = candidate;
+                }
+            }
+        }
+        BatchRequest<K, V> request = victim != null ? victim.poll() : null;
+        if (request != null) {
+            size.decrementAndGet();
+            signalNotFull();
+        }
+        return request;
+    }
+
+    /**
+     * 按差额轮询取出最多 maxElements 个请求放入批次，并记录每个请求的排队时间
+     *
+     * @param quantum 每轮每个租户最多取出的请求数
+     * @return 实际取出的数量
+     */
+    int drainTo(List<BatchRequest<K, V>> batch, int maxElements, int quantum) {
+        if (maxElements <= 0) {
+            return 0;
+        }
+        int before = batch.size();
+        // 取出的租户由当前线程独占，直到重新放回轮询队列
+        TenantQueue<K, V> tenant = null;
+        while (batch.size() - before < maxElements && (tenant != null || (tenant = active.pollFirst()) != null)) {
+            if (tenant.deficit <= 0) {
+                tenant.deficit += Math.max(1, quantum);
+            }
+            int room = maxElements - (batch.size() - before);
+            tenant.deficit -= tenant.drainTo(batch, Math.min(tenant.deficit, room));
+            if (tenant.isEmpty()) {
+                tenant.deficit = 0;
+                tenant.scheduled.set(false);
+                // 与入队并发时由这里或入队方之一重新放回
+                if (!tenant.isEmpty() && tenant.scheduled.compareAndSet(false, true)) {
+                    active.offerLast(tenant);
+                }
+                tenant = null;
+            } else if (tenant.deficit > 0) {
+                // 批次已满，本轮额度未用完，下个批次先取该租户
+                active.offerFirst(tenant);
+                tenant = null;
+            } else if (!active.isEmpty() || batch.size() - before >= maxElements) {
+                active.offerLast(tenant);
+                tenant = null;
+            }
+            // 没有其他租户等待时继续取当前租户，不经过轮询队列
+        }
+        int drained = batch.size() - before;
+        if (drained > 0) {
+            size.addAndGet(-drained);
+            signalNotFull();
+            long now = System.currentTimeMillis();
+            for (int i = before; i < batch.size(); i++) {
+                long waitMs = now - batch.get(i).getStartTime();
+                totalWaitMs.addAndGet(waitMs);
+                maxWaitMs.accumulateAndGet(waitMs, Math::max);
+            }
+            dispatchedCount.addAndGet(drained);
+        }
+        return drained;
+    }
+
+    /**
+     * 最旧请求的入队时间，通道为空时返回 -1
+     * 只用于估算排队时间，请求可能在读取时已被取走
+     */
+    long oldestStartTime() {
+        long oldest = -1;
+        for (TenantQueue<K, V> tenant : tenants.values()) {
+            long startTime = tenant.oldestStartTime();
+            if (startTime >= 0 && (oldest < 0 || startTime < oldest)) {
+                oldest = startTime;
+            }
+        }
+        return oldest;
+    }
+
+    void recordShed() {
+        shedCount.incrementAndGet();
+    }
+
+    int size() {
+        return Math.max(0, size.get());
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 各租户的排队请求数
+     */
+    Map<String, Integer> getTenantQueueSizes() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (TenantQueue<K, V> tenant : tenants.values()) {
+            sizes.put(tenant.name, tenant.size());
+        }
+        return sizes;
+    }
+
+    /**
+     * 各租户队列内部数组占用的堆内存(字节)
+     */
+    long estimateQueueArrayBytes() {
+        long bytes = 0;
+        for (TenantQueue<K, V> tenant : tenants.values()) {
+            bytes += MemoryEstimator.referenceArray(tenant.capacity);
+        }
+        return bytes;
+    }
+
+    LaneMetrics getMetrics() {
+        long dispatched = dispatchedCount.get();
+        return LaneMetrics.builder()
+                .priority(priority)
+                .capacity(capacity)
+                .queueSize(size())
+                .tenantCount(tenants.size())
+                .requestCount(requestCount.get())
+                .dispatchedCount(dispatched)
+                .shedCount(shedCount.get())
+                .avgWaitMs(dispatched > 0 ? totalWaitMs.get() * 1.0 / dispatched : 0)
+                .maxWaitMs(maxWaitMs.get())
+                .build();
+    }
+
+    /**
+     * 依次占用租户名额和通道名额，通道已满时归还租户名额
+     * 通道名额只在租户有空位时占用，失败不会留下需要归还的通道名额
+     */
+    private boolean reserve(TenantQueue<K, V> tenant) {
+        if (size.get() >= capacity || !tenant.reserve()) {
+            return false;
+        }
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                tenant.release(1);
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 归还已占用但未能入队的名额
+     */
+    private void unreserve(TenantQueue<K, V> tenant) {
+        tenant.release(1);
+        size.decrementAndGet();
+        signalNotFull();
+    }
+
+    /**
+     * 释放空位后唤醒带超时入队的等待线程；等待线程先登记再检查空位，这里先释放再检查登记，不会丢失通知
+     */
+    private void signalNotFull() {
+        if (waiters.get() > 0) {
+            notFullLock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                notFullLock.unlock();
+            }
+        }
+    }
+
+    private void enqueued(TenantQueue<K, V> tenant) {
+        requestCount.incrementAndGet();
+        if (tenant.scheduled.compareAndSet(false, true)) {
+            active.offerLast(tenant);
+        }
+    }
+
+    private TenantQueue<K, V> tenantQueue(String tenant) {
+        TenantQueue<K, V> queue = tenants.get(tenant);
+        if (queue == null) {
+            queue = tenants.computeIfAbsent(tenant, name -> new TenantQueue<>(name, tenantCapacity(name)));
+        }
+        return queue;
+    }
+
+    private int tenantCapacity(String tenant) {
+        if (AbstractBatchLoader.DEFAULT_TENANT.equals(tenant)) {
+            return capacity;
+        }
+        return Math.max(1, Math.min(capacity, (int) Math.ceil(capacity * tenantMaxQueueShare)));
+    }
+
+    /**
+     * 单个租户的队列
+     */
+    private static final class TenantQueue<K, V> {
+
+        private final String name;
+
+        private volatile int capacity;
+
+        private volatile BlockingQueue<BatchRequest<K, V>> queue;
+
+        /**
+         * 调整容量前已入队的请求，先于当前队列取出；为空时不影响热路径
+         */
+        private final Queue<BatchRequest<K, V>> overflow = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 是否在轮询队列中
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /**
+         * 已占用的名额数（已入队和正在入队的请求），不超过租户容量
+         */
+        private final AtomicInteger reserved = new AtomicInteger(0);
+
+        /**
+         * 本轮剩余额度，只由取出该租户的组批线程访问
+         */
+        private int deficit = 0;
+
+        TenantQueue(String name, int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * 占用一个租户名额；缩容后已占用的名额可能超过新容量，取出到新容量以下后才能再占用
+         */
+        boolean reserve() {
+            int current;
+            do {
+                current = reserved.get();
+                if (current >= capacity) {
+                    return false;
+                }
+            } while (!reserved.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release(int count) {
+            reserved.addAndGet(-count);
+        }
+
+        /**
+         * 已占用名额后入队，只在与扩缩容并发时可能失败
+         */
+        boolean offer(BatchRequest<K, V> request) {
+            BlockingQueue<BatchRequest<K, V>> current = queue;
+            if (current.offer(request)) {
+                retireIfReplaced(current);
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void resize(int newCapacity) {
+            if (newCapacity == capacity) {
+                return;
+            }
+            BlockingQueue<BatchRequest<K, V>> retired = queue;
+            queue = new ArrayBlockingQueue<>(newCapacity);
+            capacity = newCapacity;
+            retired.drainTo(overflow);
+        }
+
+        /**
+         * 入队期间队列被替换时，请求可能落在旧队列中，转入溢出队列
+         */
+        private void retireIfReplaced(BlockingQueue<BatchRequest<K, V>> current) {
+            if (current != queue) {
+                current.drainTo(overflow);
+            }
+        }
+
+        BatchRequest<K, V> poll() {
+            BatchRequest<K, V> request = overflow.poll();
+            if (request == null) {
+                request = queue.poll();
+            }
+            if (request != null) {
+                release(1);
+            }
+            return request;
+        }
+
+        int drainTo(List<BatchRequest<K, V>> batch, int maxElements) {
+            int before = batch.size();
+            if (!overflow.isEmpty()) {
+                BatchRequest<K, V> request;
+                while (batch.size() - before < maxElements && (request = overflow.poll()) != null) {
+                    batch.add(request);
+                }
+            }
+            queue.drainTo(batch, maxElements - (batch.size() - before));
+            int drained = batch.size() - before;
+            release(drained);
+            return drained;
+        }
+
+        long oldestStartTime() {
+            BatchRequest<K, V> oldest = overflow.peek();
+            if (oldest == null) {
+                oldest = queue.peek();
+            }
+            return oldest != null ? oldest.getStartTime() : -1;
+        }
+
+        int size() {
+            return overflow.isEmpty() ? queue.size() : queue.size() + overflow.size();
+        }
+
+        boolean isEmpty() {
+            return queue.isEmpty() && overflow.isEmpty();
+        }
+    }
+}
@@ -20,6 +20,18 @@ public interface BatchLoader<K, V> {
      */
     Map<K, V> batchLoad(List<K> keys);
 
+    /**
+     * 批量加载数据，按Key返回 找到/不存在/出错 的结果
+     * 默认基于 batchLoad 实现；能够识别单个Key错误的后端可以覆盖此方法，
+     * 避免一个Key的错误导致整个批次失败
+     *
+     * @param keys 需要加载的Key列表
+     * @return 每个Key的加载结果
+     */
+    default BatchResult<K, V> batchLoadResult(List<K> keys) {
+        return BatchResult.of(batchLoad(keys));
+    }
+
     /**
      * 单个加载数据（降级方法，队列满时使用）
      *
@@ -36,6 +48,15 @@ public interface BatchLoader<K, V> {
      */
     CompletableFuture<V> load(K key);
 
+    /**
+     * 按指定优先级异步加载单个数据（会被合并到批处理中）
+     *
+     * @param key      需要加载的Key
+     * @param priority 请求优先级
+     * @return CompletableFuture<V>
+     */
+    CompletableFuture<V> load(K key, BatchPriority priority);
+
     /**
      * 同步加载单个数据（会被合并到批处理中）
      *
@@ -43,4 +64,13 @@ public interface BatchLoader<K, V> {
      * @return Value
      */
     V loadSync(K key);
+
+    /**
+     * 按指定优先级同步加载单个数据（会被合并到批处理中）
+     *
+     * @param key      需要加载的Key
+     * @param priority 请求优先级
+     * @return Value
+     */
+    V loadSync(K key, BatchPriority priority);
 }
@@ -1,5 +1,10 @@
 package com.xinput.learn.stock.batch;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import lombok.Builder;
 import lombok.Getter;
 
@@ -7,7 +12,7 @@ import lombok.Getter;
  * 批处理加载器配置
  */
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class BatchLoaderConfig {
 
     /**
@@ -37,6 +42,43 @@ public class BatchLoaderConfig {
     @Builder.Default
     private int threadPoolSize = 1;
 
+    /**
+     * 是否根据负载自动伸缩批处理线程数
+     * 启用后 threadPoolSize 为初始线程数
+     */
+    @Builder.Default
+    private boolean elasticEnabled = false;
+
+    /**
+     * 弹性伸缩的最小批处理线程数
+     */
+    @Builder.Default
+    private int minThreadPoolSize = 1;
+
+    /**
+     * 弹性伸缩的最大批处理线程数
+     */
+    @Builder.Default
+    private int maxThreadPoolSize = 8;
+
+    /**
+     * 弹性伸缩评估间隔(毫秒)
+     */
+    @Builder.Default
+    private long scaleIntervalMs = 1000;
+
+    /**
+     * 最旧请求排队超过该时间(毫秒)视为过载
+     */
+    @Builder.Default
+    private long scaleUpQueueAgeMs = 200;
+
+    /**
+     * 连续空闲多少轮评估后缩容一个线程
+     */
+    @Builder.Default
+    private int scaleDownIdleRounds = 30;
+
     /**
      * 请求队列容量
      * 待处理请求的队列最大容量
@@ -44,12 +86,93 @@ public class BatchLoaderConfig {
     @Builder.Default
     private int queueCapacity = 10000;
 
+    /**
+     * 低优先级请求队列容量
+     * HIGH/NORMAL 通道各自使用 queueCapacity，LOW 通道单独限制，溢出时直接丢弃
+     */
+    @Builder.Default
+    private int lowPriorityQueueCapacity = 2000;
+
+    /**
+     * 请求对象池大小，0 表示不复用请求对象
+     */
+    @Builder.Default
+    private int requestPoolSize = 1024;
+
+    /**
+     * 单个租户最多占用通道容量的比例，未指定租户的请求不受限制
+     */
+    @Builder.Default
+    private double tenantMaxQueueShare = 0.5;
+
+    /**
+     * 组批时每轮每个租户最多取出的请求数
+     */
+    @Builder.Default
+    private int tenantQuantum = 10;
+
+    /**
+     * 每个租户每秒的请求配额，0 表示不限制；未指定租户的请求不受限制
+     */
+    @Builder.Default
+    private double tenantRateLimit = 0;
+
+    /**
+     * 租户配额允许的突发请求数
+     */
+    @Builder.Default
+    private int tenantBurst = 100;
+
+    /**
+     * 单独配置的租户配额(每秒)，覆盖 tenantRateLimit，也可以为 default 租户配置
+     */
+    @Builder.Default
+    private Map<String, Double> tenantQuotas = Collections.emptyMap();
+
+    /**
+     * 租户数上限，超过后新出现的租户归入 other
+     */
+    @Builder.Default
+    private int maxTenants = 64;
+
     /**
      * 队列溢出策略
      */
     @Builder.Default
     private OverflowStrategy overflowStrategy = OverflowStrategy.BLOCK;
 
+    /**
+     * 自适应并发限制初始值（ADAPTIVE_LIMIT 策略）
+     */
+    @Builder.Default
+    private int adaptiveInitialLimit = 200;
+
+    /**
+     * 自适应并发限制下限（ADAPTIVE_LIMIT 策略）
+     */
+    @Builder.Default
+    private int adaptiveMinLimit = 10;
+
+    /**
+     * 自适应并发限制上限（ADAPTIVE_LIMIT 策略）
+     */
+    @Builder.Default
+    private int adaptiveMaxLimit = 2000;
+
+    /**
+     * 排队时间目标值(毫秒)（CODEL 策略）
+     * 批次最旧请求的排队时间持续超过该值一个观察窗口后进入丢弃状态，每次丢弃时批次中排队超过该值的请求被丢弃
+     */
+    @Builder.Default
+    private long codelTargetMs = 100;
+
+    /**
+     * 排队时间观察窗口(毫秒)（CODEL 策略）
+     * 丢弃状态下第 n 次丢弃后间隔 interval/sqrt(n) 再次丢弃；同时是任何时候允许的最大排队时间
+     */
+    @Builder.Default
+    private long codelIntervalMs = 1000;
+
     /**
      * 请求超时时间(毫秒)
      */
@@ -68,6 +191,139 @@ public class BatchLoaderConfig {
     @Builder.Default
     private boolean retryOnNull = false;
 
+    /**
+     * 降级/重试单个查询的并行度
+     */
+    @Builder.Default
+    private int fallbackParallelism = 8;
+
+    /**
+     * 降级/重试单个查询的等待队列容量
+     */
+    @Builder.Default
+    private int fallbackQueueCapacity = 1000;
+
+    /**
+     * 完成 future 的线程数，0 表示在批处理线程上完成
+     */
+    @Builder.Default
+    private int completionParallelism = 2;
+
+    /**
+     * 完成 future 时每个任务处理的请求数，大批次拆成多块并行完成
+     */
+    @Builder.Default
+    private int completionChunkSize = 64;
+
+    /**
+     * 分区子批次并行度（设置了分区器时生效）
+     */
+    @Builder.Default
+    private int partitionParallelism = 4;
+
+    /**
+     * 各分区的最大批量，未配置的分区使用 maxBatchSize
+     */
+    @Builder.Default
+    private Map<String, Integer> partitionMaxBatchSize = Collections.emptyMap();
+
+    /**
+     * 整批失败时是否二分重试，隔离出错的Key
+     */
+    @Builder.Default
+    private boolean bisectOnFailure = true;
+
+    /**
+     * 二分重试的最大深度，超过后剩余Key直接以原异常失败
+     */
+    @Builder.Default
+    private int bisectMaxDepth = 7;
+
+    /**
+     * 是否启用批量查询熔断器
+     */
+    @Builder.Default
+    private boolean circuitBreakerEnabled = true;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    @Builder.Default
+    private int circuitBreakerFailureThreshold = 5;
+
+    /**
+     * 熔断持续时间(毫秒)，之后进入半开状态探测
+     */
+    @Builder.Default
+    private long circuitBreakerOpenMs = 5000;
+
+    /**
+     * 半开状态下允许的探测批次数
+     */
+    @Builder.Default
+    private int circuitBreakerHalfOpenProbes = 1;
+
+    /**
+     * 是否启用对冲请求
+     */
+    @Builder.Default
+    private boolean hedgeEnabled = false;
+
+    /**
+     * 对冲触发分位数，批量查询耗时超过该分位数仍未返回时发出对冲请求
+     */
+    @Builder.Default
+    private double hedgePercentile = 0.95;
+
+    /**
+     * 对冲请求的最小延迟(毫秒)，避免样本不足时过早对冲
+     */
+    @Builder.Default
+    private long hedgeMinDelayMs = 50;
+
+    /**
+     * 是否发出 JFR 事件（入队、组批、批量查询、完成）
+     * 关闭时不创建事件对象
+     */
+    @Builder.Default
+    private boolean jfrEnabled = false;
+
+    /**
+     * 是否统计热点 Key
+     */
+    @Builder.Default
+    private boolean hotKeyEnabled = true;
+
+    /**
+     * 保留的热点 Key 个数
+     */
+    @Builder.Default
+    private int hotKeyTopK = 20;
+
+    /**
+     * 热点统计 Count-Min Sketch 每行计数器个数
+     */
+    @Builder.Default
+    private int hotKeySketchWidth = 2048;
+
+    /**
+     * 热点统计 Count-Min Sketch 行数
+     */
+    @Builder.Default
+    private int hotKeySketchDepth = 4;
+
+    /**
+     * 每多少个请求抽样记录一次，1 表示全部记录
+     */
+    @Builder.Default
+    private int hotKeySampleEvery = 4;
+
+    /**
+     * 热点计数的半衰期(毫秒)
+     */
+    @Builder.Default
+    private long hotKeyHalfLifeMs = 60000;
+
     /**
      * 是否启用监控日志
      */
@@ -79,4 +335,54 @@ public class BatchLoaderConfig {
      */
     @Builder.Default
     private long monitorIntervalSeconds = 60;
+
+    /**
+     * 校验配置取值，运行时变更在修改任何状态之前调用
+     *
+     * @throws IllegalArgumentException 存在非法取值时抛出，消息中列出所有非法项
+     */
+    public void validate() {
+        List<String> errors = new ArrayList<>();
+        check(errors, intervalMs > 0, "intervalMs 必须大于 0: " + intervalMs);
+        check(errors, maxBatchSize >= 1, "maxBatchSize 不能小于 1: " + maxBatchSize);
+        check(errors, threadPoolSize >= 1, "threadPoolSize 不能小于 1: " + threadPoolSize);
+        check(errors, minThreadPoolSize >= 1, "minThreadPoolSize 不能小于 1: " + minThreadPoolSize);
+        check(errors, maxThreadPoolSize >= minThreadPoolSize,
+                "maxThreadPoolSize 不能小于 minThreadPoolSize: " + maxThreadPoolSize + " < " + minThreadPoolSize);
+        check(errors, scaleIntervalMs > 0, "scaleIntervalMs 必须大于 0: " + scaleIntervalMs);
+        check(errors, queueCapacity >= 1, "queueCapacity 不能小于 1: " + queueCapacity);
+        check(errors, lowPriorityQueueCapacity >= 1, "lowPriorityQueueCapacity 不能小于 1: " + lowPriorityQueueCapacity);
+        check(errors, tenantMaxQueueShare > 0 && tenantMaxQueueShare <= 1,
+                "tenantMaxQueueShare 必须在 (0, 1] 之间: " + tenantMaxQueueShare);
+        check(errors, tenantQuantum >= 1, "tenantQuantum 不能小于 1: " + tenantQuantum);
+        check(errors, tenantRateLimit >= 0, "tenantRateLimit 不能小于 0: " + tenantRateLimit);
+        check(errors, maxTenants >= 1, "maxTenants 不能小于 1: " + maxTenants);
+        check(errors, overflowStrategy != null, "overflowStrategy 不能为空");
+        check(errors, adaptiveMinLimit >= 1, "adaptiveMinLimit 不能小于 1: " + adaptiveMinLimit);
+        check(errors, adaptiveMinLimit <= adaptiveInitialLimit && adaptiveInitialLimit <= adaptiveMaxLimit,
+                "必须满足 adaptiveMinLimit <= adaptiveInitialLimit <= adaptiveMaxLimit: "
+                        + adaptiveMinLimit + " / " + adaptiveInitialLimit + " / " + adaptiveMaxLimit);
+        check(errors, codelTargetMs > 0, "codelTargetMs 必须大于 0: " + codelTargetMs);
+        check(errors, codelIntervalMs > 0, "codelIntervalMs 必须大于 0: " + codelIntervalMs);
+        check(errors, timeoutMs > 0, "timeoutMs 必须大于 0: " + timeoutMs);
+        check(errors, completionChunkSize >= 1, "completionChunkSize 不能小于 1: " + completionChunkSize);
+        check(errors, bisectMaxDepth >= 0, "bisectMaxDepth 不能小于 0: " + bisectMaxDepth);
+        check(errors, hedgePercentile > 0 && hedgePercentile < 1, "hedgePercentile 必须在 (0, 1) 之间: " + hedgePercentile);
+        check(errors, hedgeMinDelayMs >= 0, "hedgeMinDelayMs 不能小于 0: " + hedgeMinDelayMs);
+        if (partitionMaxBatchSize != null) {
+            for (Map.Entry<String, Integer> entry : partitionMaxBatchSize.entrySet()) {
+                check(errors, entry.getValue() != null && entry.getValue() >= 1,
+                        "partitionMaxBatchSize." + entry.getKey() + " 不能小于 1: " + entry.getValue());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(name + " 配置非法: " + String.join("; ", errors));
+        }
+    }
+
+    private static void check(List<String> errors, boolean valid, String message) {
+        if (!valid) {
+            errors.add(message);
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.xinput.learn.stock.batch;
 
+import java.util.List;
+import java.util.Map;
+
 import lombok.Builder;
 import lombok.Getter;
 
@@ -40,6 +43,145 @@ public class BatchLoaderMetrics {
      */
     private int currentQueueSize;
 
+    /**
+     * 各优先级通道指标
+     */
+    private Map<BatchPriority, LaneMetrics> lanes;
+
+    /**
+     * 超出自适应并发限制被拒绝的次数
+     */
+    private long limitRejectCount;
+
+    /**
+     * 超出租户配额被拒绝的次数，不计入失败次数
+     */
+    private long quotaRejectCount;
+
+    /**
+     * 排队时间超限被丢弃的次数
+     */
+    private long codelDropCount;
+
+    /**
+     * 当前自适应并发限制，未启用时为 -1
+     */
+    private int concurrencyLimit;
+
+    /**
+     * 当前在途请求数，未启用自适应并发限制时为 -1
+     */
+    private int inflightCount;
+
+    /**
+     * 熔断器状态: CLOSED | OPEN | HALF_OPEN | DISABLED
+     */
+    private String circuitState;
+
+    /**
+     * 熔断打开次数
+     */
+    private long circuitOpenCount;
+
+    /**
+     * 因熔断被拒绝的批次数
+     */
+    private long circuitRejectCount;
+
+    /**
+     * 发出对冲请求的次数
+     */
+    private long hedgeCount;
+
+    /**
+     * 对冲请求胜出的次数
+     */
+    private long hedgeWinCount;
+
+    /**
+     * 结果为空后单独重试的次数
+     */
+    private long retryCount;
+
+    /**
+     * 整批失败后进行二分重试的次数
+     */
+    private long bisectCount;
+
+    /**
+     * 单个Key加载失败的次数
+     */
+    private long keyErrorCount;
+
+    /**
+     * 跨分区被拆分的批次数
+     */
+    private long partitionedBatchCount;
+
+    /**
+     * 拆分出的子批次数
+     */
+    private long subBatchCount;
+
+    /**
+     * 请求对象池为空时新建对象的次数，稳定运行时应不再增长
+     */
+    private long requestPoolMissCount;
+
+    /**
+     * 当前批处理线程数
+     */
+    private int workerCount;
+
+    /**
+     * 弹性伸缩扩容次数
+     */
+    private long scaleUpCount;
+
+    /**
+     * 弹性伸缩缩容次数
+     */
+    private long scaleDownCount;
+
+    /**
+     * 批量查询耗时的指数加权平均(毫秒)，未启用弹性伸缩时为 -1
+     */
+    private double avgBatchLatencyMs;
+
+    /**
+     * 批量查询返回到最后一个 future 完成的耗时 P50/P99/最大值(微秒)，样本不足时分位数为 -1
+     */
+    private long completionLatencyP50Micros;
+
+    private long completionLatencyP99Micros;
+
+    private long completionLatencyMaxMicros;
+
+    /**
+     * 完成执行器已满或已关闭，由提交线程自己完成的次数
+     */
+    private long completionCallerRunsCount;
+
+    /**
+     * 结果分发对象池为空时新建对象的次数，稳定运行时应不再增长
+     */
+    private long completionPoolMissCount;
+
+    /**
+     * 请求级调度上下文立即触发组批的次数
+     */
+    private long contextDispatchCount;
+
+    /**
+     * 热点 Key，按衰减后的请求数从多到少排序，未启用时为空
+     */
+    private List<HotKey> hotKeys;
+
+    /**
+     * 各租户的排队深度、配额和拒绝数
+     */
+    private Map<String, TenantMetrics> tenants;
+
     /**
      * 平均批量大小
      */
@@ -65,11 +207,12 @@ public class BatchLoaderMetrics {
     public String toString() {
         return String.format(
                 "BatchLoaderMetrics{总请求=%d, 批处理次数=%d, 平均批量=%.2f, " +
-                        "降级=%d(%.2f%%), 阻塞=%d, 失败=%d(%.2f%%), 队列=%d}",
+                        "降级=%d(%.2f%%), 阻塞=%d, 失败=%d(%.2f%%), 队列=%d, 通道=%s}",
                 totalRequestCount, batchCount, getAvgBatchSize(),
                 degradeCount, getDegradeRate(),
                 blockCount,
                 failCount, getFailRate(),
-                currentQueueSize);
+                currentQueueSize,
+                lanes == null ? "[]" : lanes.values());
     }
 }
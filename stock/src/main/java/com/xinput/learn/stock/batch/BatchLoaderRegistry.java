@@ -0,0 +1,119 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 批处理加载器注册中心
+ * 统一管理所有加载器（Spring Bean 形式的和 @Batched 自动创建的），集中提供配置和监控指标
+ */
+@Slf4j
+@Component
+public class BatchLoaderRegistry implements ApplicationContextAware, SmartInitializingSingleton {
+
+    private final Map<String, AbstractBatchLoader<?, ?>> loaders = new ConcurrentHashMap<>();
+
+    /**
+     * 由注册中心创建的加载器，需要由注册中心负责关闭
+     */
+    private final List<AbstractBatchLoader<?, ?>> managedLoaders = new CopyOnWriteArrayList<>();
+
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * 所有单例初始化完成后，登记 Spring 容器中的加载器
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void afterSingletonsInstantiated() {
+        for (AbstractBatchLoader loader : applicationContext.getBeansOfType(AbstractBatchLoader.class).values()) {
+            register(loader);
+        }
+    }
+
+    /**
+     * 登记加载器，生命周期由调用方管理
+     */
+    public void register(AbstractBatchLoader<?, ?> loader) {
+        String name = loader.getConfig().getName();
+        if (loaders.putIfAbsent(name, loader) == null) {
+            log.info("注册批处理加载器 - {}", name);
+        }
+    }
+
+    /**
+     * 获取加载器，不存在时创建、初始化并登记，生命周期由注册中心管理
+     * 初始化会启动线程，放在 ConcurrentHashMap 的锁外执行；并发创建时只保留先登记的，其余的关闭
+     */
+    @SuppressWarnings("unchecked")
+    public <L extends AbstractBatchLoader<?, ?>> L getOrCreate(String name, Supplier<L> factory) {
+        AbstractBatchLoader<?, ?> existing = loaders.get(name);
+        if (existing != null) {
+            return (L) existing;
+        }
+
+        L loader = factory.get();
+        try {
+            loader.init();
+        } catch (RuntimeException e) {
+            loader.destroy();
+            throw e;
+        }
+        existing = loaders.putIfAbsent(name, loader);
+        if (existing != null) {
+            loader.destroy();
+            return (L) existing;
+        }
+        managedLoaders.add(loader);
+        log.info("创建批处理加载器 - {}", name);
+        return loader;
+    }
+
+    public AbstractBatchLoader<?, ?> get(String name) {
+        return loaders.get(name);
+    }
+
+    public Collection<AbstractBatchLoader<?, ?>> getAll() {
+        return loaders.values();
+    }
+
+    /**
+     * 各加载器的配置和监控指标
+     */
+    public Map<String, Object> getLoaders() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, AbstractBatchLoader<?, ?>> entry : loaders.entrySet()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("config", entry.getValue().getConfig());
+            item.put("metrics", entry.getValue().getMetrics());
+            result.put(entry.getKey(), item);
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (AbstractBatchLoader<?, ?> loader : managedLoaders) {
+            loader.destroy();
+        }
+    }
+}
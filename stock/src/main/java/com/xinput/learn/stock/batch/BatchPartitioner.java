@@ -0,0 +1,20 @@
+package com.xinput.learn.stock.batch;
+
+/**
+ * 批次分区器
+ * 后端按分区存储时，同一批次中跨分区的Key会导致一次慢查询，
+ * 分区器把组好的批次按分区拆成子批次，各子批次并行查询，结果分别分发给各自的请求
+ *
+ * @param <K> 请求的Key类型
+ */
+@FunctionalInterface
+public interface BatchPartitioner<K> {
+
+    /**
+     * 计算Key所属的分区
+     *
+     * @param key 请求的Key
+     * @return 分区名称，相同分区的Key会被放入同一个子批次
+     */
+    String partition(K key);
+}
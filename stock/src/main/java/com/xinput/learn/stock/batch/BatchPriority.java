@@ -0,0 +1,25 @@
+package com.xinput.learn.stock.batch;
+
+/**
+ * 请求优先级
+ * 每个优先级对应一个独立的请求通道，组批时按 HIGH -> NORMAL -> LOW 的顺序取请求
+ */
+public enum BatchPriority {
+
+    /**
+     * 高优先级 - 延迟敏感的请求（如下单前的查询）
+     * 组批时优先取出，DROP_OLDEST 策略下永远不会被丢弃
+     */
+    HIGH,
+
+    /**
+     * 普通优先级 - 默认通道
+     */
+    NORMAL,
+
+    /**
+     * 低优先级 - 批量分析、定时刷新等可延后的请求
+     * 通道容量单独限制，队列溢出时最先被丢弃
+     */
+    LOW
+}
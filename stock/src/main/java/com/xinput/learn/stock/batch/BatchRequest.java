@@ -0,0 +1,32 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.concurrent.CompletableFuture;
+
+import lombok.Getter;
+
+/**
+ * 批处理请求包装类
+ * 对象由 BatchRequestPool 复用，请求结束后字段会被清空，不能在结束后继续持有
+ */
+@Getter
+class BatchRequest<K, V> {
+    private K key;
+    private CompletableFuture<V> future;
+    private long startTime;
+    private BatchPriority priority;
+    private String tenant;
+
+    BatchRequest<K, V> init(K key, CompletableFuture<V> future, long startTime, BatchPriority priority, String tenant) {
+        this.key = key;
+        this.future = future;
+        this.startTime = startTime;
+        this.priority = priority;
+        this.tenant = tenant;
+        return this;
+    }
+
+    void clear() {
+        this.key = null;
+        this.future = null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批处理请求对象池
+ * 基于数组的有界队列，取出/归还都不产生新对象；池为空时新建，池满时丢弃归还的对象
+ */
+class BatchRequestPool<K, V> {
+
+    private final ArrayBlockingQueue<BatchRequest<K, V>> pool;
+
+    /**
+     * 池为空时新建对象的次数
+     */
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    BatchRequestPool(int size) {
+        this.pool = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+    }
+
+    BatchRequest<K, V> acquire(K key, CompletableFuture<V> future, long startTime, BatchPriority priority, String tenant) {
+        BatchRequest<K, V> request = pool != null ? pool.poll() : null;
+        if (request == null) {
+            missCount.incrementAndGet();
+            request = new BatchRequest<>();
+        }
+        return request.init(key, future, startTime, priority, tenant);
+    }
+
+    /**
+     * 归还请求对象，调用方之后不能再使用该对象
+     */
+    void release(BatchRequest<K, V> request) {
+        request.clear();
+        if (pool != null) {
+            pool.offer(request);
+        }
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 池中空闲的对象数
+     */
+    int getIdleCount() {
+        return pool != null ? pool.size() : 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量加载结果，每个Key单独给出 找到/不存在/出错 的结果
+ * 单个Key出错不会影响同一批次中的其他Key
+ * 由 Key->Value 映射构造时直接引用原映射，不复制、不为每个Key创建包装对象，只有在修改时才复制
+ *
+ * @param <K> 请求的Key类型
+ * @param <V> 返回的Value类型
+ */
+public class BatchResult<K, V> {
+
+    /**
+     * 找到的值，不包含的Key视为不存在
+     */
+    private Map<K, V> values;
+
+    /**
+     * values 是否由当前对象创建，不是时修改前需要先复制
+     */
+    private boolean ownsValues;
+
+    /**
+     * 出错的Key，没有错误时为空
+     */
+    private Map<K, Throwable> errors;
+
+    public BatchResult(int expectedSize) {
+        this.values = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+        this.ownsValues = true;
+    }
+
+    private BatchResult(Map<K, V> values) {
+        this.values = values != null ? values : Collections.emptyMap();
+        this.ownsValues = false;
+    }
+
+    /**
+     * 由普通的 Key->Value 映射构造结果，映射中缺失或为 null 的Key视为不存在
+     */
+    public static <K, V> BatchResult<K, V> of(Map<K, V> valueMap) {
+        return new BatchResult<>(valueMap);
+    }
+
+    /**
+     * 所有Key都以同一个异常失败
+     */
+    public static <K, V> BatchResult<K, V> failed(List<K> keys, Throwable error) {
+        BatchResult<K, V> result = new BatchResult<>(0);
+        for (K key : keys) {
+            result.error(key, error);
+        }
+        return result;
+    }
+
+    public BatchResult<K, V> found(K key, V value) {
+        mutableValues().put(key, value);
+        if (errors != null) {
+            errors.remove(key);
+        }
+        return this;
+    }
+
+    public BatchResult<K, V> notFound(K key) {
+        if (values.containsKey(key)) {
+            mutableValues().remove(key);
+        }
+        if (errors != null) {
+            errors.remove(key);
+        }
+        return this;
+    }
+
+    public BatchResult<K, V> error(K key, Throwable error) {
+        if (errors == null) {
+            errors = new HashMap<>();
+        }
+        errors.put(key, error);
+        return this;
+    }
+
+    /**
+     * 合并另一个批次的结果到当前结果
+     */
+    public BatchResult<K, V> merge(BatchResult<K, V> other) {
+        if (!other.values.isEmpty()) {
+            mutableValues().putAll(other.values);
+        }
+        if (other.errors != null) {
+            for (Map.Entry<K, Throwable> entry : other.errors.entrySet()) {
+                error(entry.getKey(), entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 获取单个Key的错误，没有错误时返回 null
+     */
+    public Throwable getError(K key) {
+        return errors == null ? null : errors.get(key);
+    }
+
+    /**
+     * 获取单个Key的值，批量结果中未包含、值为 null 或出错时返回 null；出错的Key先用 {@link #getError} 判断
+     */
+    public V getValue(K key) {
+        return values.get(key);
+    }
+
+    private Map<K, V> mutableValues() {
+        if (!ownsValues) {
+            values = new HashMap<>(values);
+            ownsValues = true;
+        }
+        return values;
+    }
+}
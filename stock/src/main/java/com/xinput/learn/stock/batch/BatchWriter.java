@@ -0,0 +1,44 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 通用批量写入器接口，与 {@link BatchLoader} 对应
+ * 写入先在窗口内按 Key 合并，再批量刷新到存储
+ *
+ * @param <K> 写入的Key类型（如代码）
+ * @param <U> 更新内容类型
+ */
+public interface BatchWriter<K, U> {
+
+    /**
+     * 批量写入存储
+     *
+     * @param updates Key到合并后更新内容的映射
+     */
+    void batchWrite(Map<K, U> updates);
+
+    /**
+     * 合并同一个Key在窗口内的两次更新
+     *
+     * @param previous 之前尚未刷新的更新
+     * @param current  新的更新
+     * @return 合并后的更新
+     */
+    U merge(U previous, U current);
+
+    /**
+     * 异步写入
+     *
+     * @param key    Key
+     * @param update 更新内容
+     * @return 包含该次更新的批次刷新成功后完成
+     */
+    CompletableFuture<Void> write(K key, U update);
+
+    /**
+     * 立即刷新所有待写入的更新
+     */
+    void flush();
+}
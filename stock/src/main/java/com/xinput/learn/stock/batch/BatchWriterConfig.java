@@ -0,0 +1,57 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 批量写入器配置
+ */
+@Getter
+@Builder
+public class BatchWriterConfig {
+
+    /**
+     * 名称（用于日志和监控）
+     */
+    @Builder.Default
+    private String name = "BatchWriter";
+
+    /**
+     * 刷新间隔时间(毫秒)
+     * 同一个Key在一个间隔内的多次更新合并为一次写入
+     */
+    @Builder.Default
+    private long intervalMs = 100;
+
+    /**
+     * 单次刷新最多写入的Key数量
+     * 待写入Key达到这个数量会立即触发刷新
+     */
+    @Builder.Default
+    private int maxBatchSize = 500;
+
+    /**
+     * 待写入Key的最大数量
+     * 超过后新Key的写入直接拒绝，已有Key的更新仍然合并
+     */
+    @Builder.Default
+    private int queueCapacity = 10000;
+
+    /**
+     * 关闭时等待剩余更新刷新完成的最长时间(毫秒)
+     */
+    @Builder.Default
+    private long shutdownTimeoutMs = 10000;
+
+    /**
+     * 是否启用监控日志
+     */
+    @Builder.Default
+    private boolean enableMonitor = true;
+
+    /**
+     * 监控日志打印间隔(秒)
+     */
+    @Builder.Default
+    private long monitorIntervalSeconds = 60;
+}
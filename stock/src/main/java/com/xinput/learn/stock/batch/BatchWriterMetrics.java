@@ -0,0 +1,77 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 批量写入器监控指标
+ */
+@Getter
+@Builder
+public class BatchWriterMetrics {
+
+    /**
+     * 总写入次数
+     */
+    private long writeCount;
+
+    /**
+     * 被合并的写入次数（同一个Key在刷新前的重复写入）
+     */
+    private long mergeCount;
+
+    /**
+     * 拒绝次数（待写入Key已满或已关闭）
+     */
+    private long rejectCount;
+
+    /**
+     * 刷新次数
+     */
+    private long flushCount;
+
+    /**
+     * 刷新写入的Key总数
+     */
+    private long flushedKeyCount;
+
+    /**
+     * 刷新失败次数
+     */
+    private long flushFailCount;
+
+    /**
+     * 当前待写入Key数量
+     */
+    private int pendingCount;
+
+    /**
+     * 写入延迟 P50(毫秒)，从写入到所在批次刷新完成，样本不足时为 -1
+     */
+    private long writeLatencyP50Ms;
+
+    /**
+     * 写入延迟 P99(毫秒)
+     */
+    private long writeLatencyP99Ms;
+
+    /**
+     * 最大写入延迟(毫秒)
+     */
+    private long writeLatencyMaxMs;
+
+    /**
+     * 平均每次刷新的Key数量
+     */
+    public double getAvgFlushSize() {
+        return flushCount > 0 ? flushedKeyCount * 1.0 / flushCount : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "BatchWriterMetrics{写入=%d, 合并=%d, 拒绝=%d, 刷新=%d, 平均刷新量=%.2f, 失败=%d, 待写入=%d, 延迟P50=%dms, P99=%dms, 最大=%dms}",
+                writeCount, mergeCount, rejectCount, flushCount, getAvgFlushSize(), flushFailCount, pendingCount,
+                writeLatencyP50Ms, writeLatencyP99Ms, writeLatencyMaxMs);
+    }
+}
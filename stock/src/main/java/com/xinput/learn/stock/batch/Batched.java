@@ -0,0 +1,57 @@
+package com.xinput.learn.stock.batch;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明式批处理
+ * 标注在只有一个参数的单Key查询方法上，并发调用会被合并，
+ * 统一交给同一个Bean上的批量方法查询，无需手写 AbstractBatchLoader 子类
+ *
+ * <pre>
+ * &#64;Batched(batchMethod = "queryStock")
+ * public Stock findStock(String code) { ... }
+ *
+ * public Map&lt;String, Stock&gt; queryStock(List&lt;String&gt; codes) { ... }
+ * </pre>
+ *
+ * 批处理配置默认取 stock.batch.*，可以通过注解属性单独覆盖
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Batched {
+
+    /**
+     * 加载器名称（用于日志和监控），默认: 类名.方法名
+     */
+    String name() default "";
+
+    /**
+     * 批量方法名称，方法签名需为 Map&lt;K, V&gt; method(List&lt;K&gt; keys)
+     */
+    String batchMethod();
+
+    /**
+     * 请求优先级
+     */
+    BatchPriority priority() default BatchPriority.NORMAL;
+
+    /**
+     * 批处理间隔时间(毫秒)，小于等于0时使用全局配置
+     */
+    long intervalMs() default -1;
+
+    /**
+     * 批处理最大大小，小于等于0时使用全局配置
+     */
+    int maxBatchSize() default -1;
+
+    /**
+     * 请求超时时间(毫秒)，小于等于0时使用全局配置
+     */
+    long timeoutMs() default -1;
+}
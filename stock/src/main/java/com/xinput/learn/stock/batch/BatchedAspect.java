@@ -0,0 +1,106 @@
+package com.xinput.learn.stock.batch;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Resource;
+
+import org.apache.commons.lang3.StringUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import com.xinput.learn.stock.config.BatchConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @Batched 切面
+ * 拦截单Key方法调用，交给对应的 MethodBatchLoader 合并成批量查询
+ */
+@Slf4j
+@Aspect
+@Component
+public class BatchedAspect {
+
+    @Resource
+    private BatchLoaderRegistry batchLoaderRegistry;
+
+    @Resource
+    private BatchConfig batchConfig;
+
+    @Around("@annotation(batched)")
+    public Object around(ProceedingJoinPoint joinPoint, Batched batched) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        if (args.length != 1) {
+            log.warn("@Batched 只支持单参数方法，直接执行 - {}", joinPoint.getSignature());
+            return joinPoint.proceed();
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        String name = StringUtils.isNotBlank(batched.name())
+                ? batched.name()
+                : AopUtils.getTargetClass(target).getSimpleName() + "." + method.getName();
+
+        MethodBatchLoader loader = batchLoaderRegistry.getOrCreate(name,
+                () -> createLoader(name, batched, target, method));
+        try {
+            return loader.loadSync(args[0], batched.priority());
+        } catch (RuntimeException e) {
+            throw originalCause(e);
+        }
+    }
+
+    /**
+     * loadSync 把加载失败包装为 RuntimeException，还原出批量/单个方法抛出的原始异常，
+     * 调用方看到的异常类型与不加注解时一致；超时等批处理自身的异常原样抛出
+     */
+    private static Throwable originalCause(RuntimeException e) {
+        Throwable cause = e.getCause();
+        if (!(cause instanceof ExecutionException) && !(cause instanceof CompletionException)) {
+            return e;
+        }
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        // 受检异常在 MethodBatchLoader 中被包装
+        if (cause instanceof UndeclaredThrowableException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private MethodBatchLoader createLoader(String name, Batched batched, Object target, Method singleMethod) {
+        Class<?> targetClass = AopUtils.getTargetClass(target);
+        Method batchMethod = ReflectionUtils.findMethod(targetClass, batched.batchMethod(), List.class);
+        if (batchMethod == null || !Map.class.isAssignableFrom(batchMethod.getReturnType())) {
+            throw new IllegalStateException(String.format(
+                    "@Batched 批量方法不存在或签名不正确，需要 Map %s(List): %s",
+                    batched.batchMethod(), targetClass.getName()));
+        }
+        ReflectionUtils.makeAccessible(batchMethod);
+        ReflectionUtils.makeAccessible(singleMethod);
+
+        BatchLoaderConfig.BatchLoaderConfigBuilder builder = batchConfig.toLoaderConfig(name);
+        if (batched.intervalMs() > 0) {
+            builder.intervalMs(batched.intervalMs());
+        }
+        if (batched.maxBatchSize() > 0) {
+            builder.maxBatchSize(batched.maxBatchSize());
+        }
+        if (batched.timeoutMs() > 0) {
+            builder.timeoutMs(batched.timeoutMs());
+        }
+        return new MethodBatchLoader(builder.build(), target, singleMethod, batchMethod);
+    }
+}
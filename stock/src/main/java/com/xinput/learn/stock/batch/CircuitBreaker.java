@@ -0,0 +1,106 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * 批量查询熔断器
+ * CLOSED: 正常放行，连续失败达到阈值后进入 OPEN
+ * OPEN: 拒绝所有批量查询，经过 openMs 后进入 HALF_OPEN
+ * HALF_OPEN: 只放行有限个探测批次，探测成功则恢复 CLOSED，失败则重新 OPEN
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openMs;
+
+    private final int halfOpenProbes;
+
+    @Getter
+    private volatile State state = State.CLOSED;
+
+    /**
+     * 连续失败次数
+     */
+    private int consecutiveFailures = 0;
+
+    /**
+     * 进入 OPEN 状态的时间
+     */
+    private long openedAt = 0;
+
+    /**
+     * HALF_OPEN 状态下已放行的探测批次数
+     */
+    private int probesInFlight = 0;
+
+    /**
+     * 熔断打开次数
+     */
+    private final AtomicLong openCount = new AtomicLong(0);
+
+    /**
+     * 因熔断被拒绝的批次数
+     */
+    private final AtomicLong rejectCount = new AtomicLong(0);
+
+    CircuitBreaker(int failureThreshold, long openMs, int halfOpenProbes) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * 是否放行本次批量查询
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                rejectCount.incrementAndGet();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                rejectCount.incrementAndGet();
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+        }
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                openCount.incrementAndGet();
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    long getOpenCount() {
+        return openCount.get();
+    }
+
+    long getRejectCount() {
+        return rejectCount.get();
+    }
+}
@@ -0,0 +1,11 @@
+package com.xinput.learn.stock.batch;
+
+/**
+ * 熔断器打开时拒绝批量查询抛出的异常
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,127 @@
+package com.xinput.learn.stock.batch;
+
+/**
+ * 基于排队时间的丢弃控制（CoDel，RFC 8289 的控制律，以批次为出队单位）
+ * <p>
+ * 1. 每个批次出队时取批次中最旧请求的排队时间作为样本
+ * 2. 样本持续高于目标值满一个观察窗口，进入丢弃状态并立即丢弃一次；样本低于目标值时离开丢弃状态
+ * 3. 丢弃状态下第 n 次丢弃后，下一次丢弃安排在 interval / sqrt(n) 之后，持续积压时丢弃越来越频繁
+ * 4. 离开丢弃状态后 16 个窗口内再次进入，从上次的丢弃频率继续，而不是从头开始
+ * 5. 一次丢弃作用于整个批次：批次中排队超过目标值的请求被丢弃；不论是否处于丢弃状态，排队超过一个窗口的请求总是被丢弃
+ */
+class CoDelController {
+
+    /**
+     * 再次进入丢弃状态时沿用上次丢弃频率的时间范围（窗口数）
+     */
+    private static final int REENTRY_INTERVALS = 16;
+
+    private final long targetMs;
+
+    private final long intervalMs;
+
+    /**
+     * 样本首次高于目标值后满一个窗口的时间，为 0 表示样本未高于目标值
+     */
+    private long firstAboveTime = 0;
+
+    /**
+     * 是否处于丢弃状态
+     */
+    private boolean dropping = false;
+
+    /**
+     * 本次丢弃状态内的丢弃次数，决定丢弃间隔
+     */
+    private int count = 0;
+
+    /**
+     * 上一次进入丢弃状态时的丢弃次数
+     */
+    private int lastCount = 0;
+
+    /**
+     * 下一次丢弃的时间
+     */
+    private long dropNext = 0;
+
+    private long dropCount = 0;
+
+    CoDelController(long targetMs, long intervalMs) {
+        this.targetMs = targetMs;
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * 批次出队时调用，返回本批次允许的最大排队时间，超过的请求应被丢弃
+     *
+     * @param headSojournMs 批次中最旧请求的排队时间
+     * @param now           当前时间
+     * @return 本次需要丢弃时为目标值，否则为观察窗口长度
+     */
+    synchronized long dropThresholdMs(long headSojournMs, long now) {
+        return shouldDrop(headSojournMs, now) ? targetMs : intervalMs;
+    }
+
+    /**
+     * 按控制律判断本次出队是否丢弃
+     */
+    synchronized boolean shouldDrop(long sojournMs, long now) {
+        boolean okToDrop = okToDrop(sojournMs, now);
+        if (dropping) {
+            if (!okToDrop) {
+                dropping = false;
+                return false;
+            }
+            if (now >= dropNext) {
+                count++;
+                dropNext = controlLaw(dropNext, count);
+                dropCount++;
+                return true;
+            }
+            return false;
+        }
+        if (okToDrop) {
+            dropping = true;
+            int delta = count - lastCount;
+            count = delta > 1 && now - dropNext < REENTRY_INTERVALS * intervalMs ? delta : 1;
+            lastCount = count;
+            dropNext = controlLaw(now, count);
+            dropCount++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean okToDrop(long sojournMs, long now) {
+        if (sojournMs < targetMs) {
+            firstAboveTime = 0;
+            return false;
+        }
+        if (firstAboveTime == 0) {
+            firstAboveTime = now + intervalMs;
+            return false;
+        }
+        return now >= firstAboveTime;
+    }
+
+    private long controlLaw(long time, int count) {
+        return time + (long) (intervalMs / Math.sqrt(count));
+    }
+
+    synchronized boolean isDropping() {
+        return dropping;
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    synchronized long getDropNext() {
+        return dropNext;
+    }
+
+    synchronized long getDropCount() {
+        return dropCount;
+    }
+}
@@ -0,0 +1,248 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点 Key 统计：Count-Min Sketch 估算请求数，加上固定容量的候选集合保留前 K 个热点
+ * <p>
+ * 1. 内存固定: depth * width 个计数器，候选集合最多 2K 个 Key，与 Key 的总数无关
+ * 2. 按 sampleEvery 抽样记录，未抽中的请求只有一次随机数开销；抽中的请求更新 depth 个计数器，估算值超过候选集合的最小值才加锁替换
+ * 3. 每个衰减周期把所有计数乘以 2^(-周期/半衰期)，计数反映最近一段时间的热度，稳态下 计数 * (1 - 衰减系数) / 周期 即为请求速率
+ * 4. 批处理组批时记录候选 Key 占用的批次位置，得到热点 Key 在批次中的占比
+ */
+class HeavyHitterSketch<K> {
+
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C,
+            0xFD7046C5, 0xB55A4F09};
+
+    private final int depth;
+
+    private final int mask;
+
+    private final AtomicLongArray counters;
+
+    private final int topK;
+
+    private final int capacity;
+
+    private final int sampleEvery;
+
+    private final long decayIntervalMs;
+
+    private final double decayFactor;
+
+    private final Map<K, Candidate> candidates = new ConcurrentHashMap<>();
+
+    /**
+     * 候选集合已满时进入集合需要超过的估算值
+     */
+    private volatile long admitThreshold = 0;
+
+    /**
+     * 衰减后的总请求数
+     */
+    private final AtomicLong total = new AtomicLong(0);
+
+    /**
+     * 衰减后的总批次位置数
+     */
+    private final AtomicLong totalSlots = new AtomicLong(0);
+
+    /**
+     * @param width       每行计数器个数，向上取整为 2 的幂
+     * @param depth       行数，最多 8 行
+     * @param halfLifeMs  计数衰减一半的时间
+     */
+    HeavyHitterSketch(int topK, int width, int depth, int sampleEvery, long halfLifeMs) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.depth = Math.max(1, Math.min(SEEDS.length, depth));
+        this.mask = size - 1;
+        this.counters = new AtomicLongArray(size * this.depth);
+        this.topK = Math.max(1, topK);
+        this.capacity = this.topK * 2;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.decayIntervalMs = Math.max(100, halfLifeMs / 10);
+        this.decayFactor = Math.pow(0.5, decayIntervalMs * 1.0 / Math.max(1, halfLifeMs));
+    }
+
+    /**
+     * 记录一次请求，在请求线程上调用
+     */
+    void record(K key) {
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return;
+        }
+        total.addAndGet(sampleEvery);
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(index(hash, row), sampleEvery));
+        }
+
+        Candidate candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.count = estimate;
+            return;
+        }
+        if (candidates.size() >= capacity && estimate <= admitThreshold) {
+            return;
+        }
+        admit(key, estimate);
+    }
+
+    /**
+     * 记录一个批次中的 Key，在批处理线程上调用
+     */
+    void recordBatch(List<K> keys) {
+        totalSlots.addAndGet(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Candidate candidate = candidates.get(keys.get(i));
+            if (candidate != null) {
+                candidate.slots.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 衰减周期(毫秒)，由加载器按该周期调度 {@link #decay}
+     */
+    long getDecayIntervalMs() {
+        return decayIntervalMs;
+    }
+
+    /**
+     * 所有计数按衰减系数缩小，并用衰减后的估算值刷新候选集合
+     */
+    void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            long value;
+            do {
+                value = counters.get(i);
+            } while (value != 0 && !counters.compareAndSet(i, value, (long) (value * decayFactor)));
+        }
+        decay(total);
+        decay(totalSlots);
+        synchronized (candidates) {
+            candidates.entrySet().removeIf(entry -> {
+                entry.getValue().count = estimate(entry.getKey());
+                decay(entry.getValue().slots);
+                return entry.getValue().count == 0;
+            });
+            admitThreshold = candidates.size() >= capacity ? minCount() : 0;
+        }
+    }
+
+    /**
+     * 当前最热的前 K 个 Key
+     */
+    List<HotKey> getHotKeys() {
+        List<Map.Entry<K, Candidate>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<K, Candidate> entry) -> entry.getValue().count).reversed());
+        long totalCount = total.get();
+        long slotCount = totalSlots.get();
+        double ratePerCount = (1 - decayFactor) * 1000.0 / decayIntervalMs;
+        List<HotKey> hotKeys = new ArrayList<>(Math.min(topK, entries.size()));
+        for (Map.Entry<K, Candidate> entry : entries) {
+            if (hotKeys.size() >= topK) {
+                break;
+            }
+            long count = entry.getValue().count;
+            long slots = entry.getValue().slots.get();
+            hotKeys.add(HotKey.builder()
+                    .key(String.valueOf(entry.getKey()))
+                    .count(count)
+                    .requestRate(count * ratePerCount)
+                    .requestShare(totalCount > 0 ? Math.min(1.0, count * 1.0 / totalCount) : 0)
+                    .slotShare(slotCount > 0 ? Math.min(1.0, slots * 1.0 / slotCount) : 0)
+                    .build());
+        }
+        return hotKeys;
+    }
+
+    /**
+     * 占用的堆内存(字节)估算，计数器数组加候选集合
+     */
+    long estimateRetainedBytes() {
+        return 16 + counters.length() * 8L + candidates.size() * 96L;
+    }
+
+    private void admit(K key, long estimate) {
+        synchronized (candidates) {
+            if (candidates.containsKey(key)) {
+                return;
+            }
+            if (candidates.size() >= capacity) {
+                K coldest = null;
+                long coldestCount = Long.MAX_VALUE;
+                for (Map.Entry<K, Candidate> entry : candidates.entrySet()) {
+                    if (entry.getValue().count < coldestCount) {
+                        coldest = entry.getKey();
+                        coldestCount = entry.getValue().count;
+                    }
+                }
+                if (estimate <= coldestCount) {
+                    admitThreshold = coldestCount;
+                    return;
+                }
+                candidates.remove(coldest);
+            }
+            Candidate candidate = new Candidate();
+            candidate.count = estimate;
+            candidates.put(key, candidate);
+            if (candidates.size() >= capacity) {
+                admitThreshold = minCount();
+            }
+        }
+    }
+
+    private long minCount() {
+        long min = Long.MAX_VALUE;
+        for (Candidate candidate : candidates.values()) {
+            min = Math.min(min, candidate.count);
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    private long estimate(K key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    private void decay(AtomicLong value) {
+        long current;
+        do {
+            current = value.get();
+        } while (current != 0 && !value.compareAndSet(current, (long) (current * decayFactor)));
+    }
+
+    /**
+     * 每行使用不同的种子混合哈希值(murmur3 fmix32)
+     */
+    private int index(int hash, int row) {
+        int h = hash ^ SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private static final class Candidate {
+
+        private volatile long count;
+
+        private final AtomicLong slots = new AtomicLong(0);
+    }
+}
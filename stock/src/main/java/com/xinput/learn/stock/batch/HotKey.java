@@ -0,0 +1,37 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 热点 Key 监控指标，计数均为按半衰期衰减后的估算值
+ */
+@Getter
+@Builder
+public class HotKey {
+
+    /**
+     * Key
+     */
+    private String key;
+
+    /**
+     * 衰减后的请求数估算(Count-Min Sketch，只会高估)
+     */
+    private long count;
+
+    /**
+     * 请求速率估算(次/秒)，按半衰期平滑，持续的流量下接近实际速率，短时突发会被摊平
+     */
+    private double requestRate;
+
+    /**
+     * 占全部请求的比例
+     */
+    private double requestShare;
+
+    /**
+     * 占批次位置的比例，同一批次中的重复请求各占一个位置
+     */
+    private double slotShare;
+}
@@ -0,0 +1,63 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 单个优先级通道的监控指标
+ */
+@Getter
+@Builder
+public class LaneMetrics {
+
+    /**
+     * 优先级
+     */
+    private BatchPriority priority;
+
+    /**
+     * 通道容量
+     */
+    private int capacity;
+
+    /**
+     * 当前队列深度
+     */
+    private int queueSize;
+
+    /**
+     * 出现过的租户数
+     */
+    private int tenantCount;
+
+    /**
+     * 入队请求数
+     */
+    private long requestCount;
+
+    /**
+     * 已进入批处理的请求数
+     */
+    private long dispatchedCount;
+
+    /**
+     * 溢出被丢弃的请求数
+     */
+    private long shedCount;
+
+    /**
+     * 平均排队时间(毫秒)
+     */
+    private double avgWaitMs;
+
+    /**
+     * 最大排队时间(毫秒)
+     */
+    private long maxWaitMs;
+
+    @Override
+    public String toString() {
+        return String.format("%s{队列=%d/%d, 请求=%d, 已处理=%d, 丢弃=%d, 平均排队=%.2fms, 最大排队=%dms}",
+                priority, queueSize, capacity, requestCount, dispatchedCount, shedCount, avgWaitMs, maxWaitMs);
+    }
+}
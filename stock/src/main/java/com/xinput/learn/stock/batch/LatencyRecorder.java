@@ -0,0 +1,80 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.Arrays;
+
+/**
+ * 最近 N 次耗时记录，用于估算耗时分位数，单位由调用方决定
+ * 1. 指定分位数: 每记录 16 个样本重新计算一次，{@link #getPercentile()} 直接读取，适合热路径上频繁读取(如对冲延迟)
+ * 2. 不指定分位数: 记录只写入样本，{@link #percentiles} 读取时才排序计算，适合只在查看指标时读取
+ */
+class LatencyRecorder {
+
+    /**
+     * 每记录多少个样本重新计算一次分位数
+     */
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+
+    /**
+     * 预先计算的分位数，小于 0 表示不预先计算
+     */
+    private final double percentile;
+
+    private int count = 0;
+
+    private int index = 0;
+
+    private long recorded = 0;
+
+    private volatile long percentileValue = -1;
+
+    LatencyRecorder(int size) {
+        this(size, -1);
+    }
+
+    LatencyRecorder(int size, double percentile) {
+        this.samples = new long[size];
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long latency) {
+        samples[index] = latency;
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (percentile >= 0 && ++recorded % RECOMPUTE_EVERY == 0) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            percentileValue = valueAt(sorted, percentile);
+        }
+    }
+
+    /**
+     * 预先计算的分位数，样本不足或未指定分位数时返回 -1
+     */
+    long getPercentile() {
+        return percentileValue;
+    }
+
+    /**
+     * 按当前样本计算多个分位数，只排序一次；没有样本时对应位置为 -1
+     */
+    long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            result[i] = sorted.length == 0 ? -1 : valueAt(sorted, percentiles[i]);
+        }
+        return result;
+    }
+
+    private static long valueAt(long[] sorted, double percentile) {
+        return sorted[Math.max(0, Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1))];
+    }
+}
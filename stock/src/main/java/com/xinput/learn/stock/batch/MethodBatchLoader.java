@@ -0,0 +1,56 @@
+package com.xinput.learn.stock.batch;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于反射的批处理加载器，由 @Batched 注解自动创建
+ * 批量查询调用目标Bean上的批量方法，降级时调用原始的单Key方法
+ */
+public class MethodBatchLoader extends AbstractBatchLoader<Object, Object> {
+
+    /**
+     * 原始Bean（非代理对象），直接调用不会再次进入切面
+     */
+    private final Object target;
+
+    private final Method singleMethod;
+
+    private final Method batchMethod;
+
+    public MethodBatchLoader(BatchLoaderConfig config, Object target, Method singleMethod, Method batchMethod) {
+        super(config);
+        this.target = target;
+        this.singleMethod = singleMethod;
+        this.batchMethod = batchMethod;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Object, Object> batchLoad(List<Object> keys) {
+        return (Map<Object, Object>) invoke(batchMethod, keys);
+    }
+
+    @Override
+    public Object singleLoad(Object key) {
+        return invoke(singleMethod, key);
+    }
+
+    private Object invoke(Method method, Object arg) {
+        try {
+            return method.invoke(target, arg);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            // 受检异常由 BatchedAspect 还原后抛给调用方
+            throw new UndeclaredThrowableException(cause, "批处理方法调用异常: " + method.getName());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("批处理方法无法访问: " + method.getName(), e);
+        }
+    }
+}
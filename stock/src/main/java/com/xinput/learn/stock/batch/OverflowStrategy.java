@@ -28,5 +28,19 @@ public enum OverflowStrategy {
      * 适用场景：优先处理最新请求，可以容忍少量请求丢失
      * 注意：不推荐，除非业务场景明确可以丢弃
      */
-    DROP_OLDEST
+    DROP_OLDEST,
+
+    /**
+     * 自适应并发限制 - 根据 batchLoad 实测耗时推算可承受的在途请求数，超出即拒绝
+     * 适用场景：后端容量随负载变化，希望在队列填满之前就控制住排队时延
+     * 队列仍然填满时按快速失败处理，高优先级请求不受并发限制
+     */
+    ADAPTIVE_LIMIT,
+
+    /**
+     * 排队时间控制（CoDel）- 按请求的排队时间而非队列长度丢弃请求
+     * 适用场景：过载时宁可丢弃部分请求，也要保证被处理请求的时延有上界
+     * 队列仍然填满时按快速失败处理，高优先级请求不会被丢弃
+     */
+    CODEL
 }
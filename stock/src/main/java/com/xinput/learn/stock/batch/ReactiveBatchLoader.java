@@ -0,0 +1,231 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 响应式批处理加载器
+ * 与 {@link AbstractBatchLoader} 使用同一份 {@link BatchLoaderConfig}，请求以 Mono 返回，
+ * 通过 bufferTimeout 按"最大批量或间隔时间"窗口合并后批量查询
+ * <p>
+ * 背压：在途请求数超过队列容量时直接以 {@link RejectedExecutionException} 拒绝；
+ * {@link #loadMany(Flux)} 按最大批量向上游请求，调用方的 Flux 只会被按需拉取
+ *
+ * @param <K> Key 类型
+ * @param <V> Value 类型
+ */
+@Slf4j
+public abstract class ReactiveBatchLoader<K, V> {
+
+    @Getter
+    protected final BatchLoaderConfig config;
+
+    private FluxSink<Request<K, V>> sink;
+
+    private Disposable subscription;
+
+    /**
+     * 执行后端查询的调度器，后端为阻塞调用，不能占用事件循环线程
+     */
+    private Scheduler scheduler;
+
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+
+    private final AtomicLong totalRequestCount = new AtomicLong(0);
+
+    private final AtomicLong batchCount = new AtomicLong(0);
+
+    private final AtomicLong degradeCount = new AtomicLong(0);
+
+    private final AtomicLong rejectCount = new AtomicLong(0);
+
+    private volatile boolean shutdown = false;
+
+    public ReactiveBatchLoader(BatchLoaderConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 批量加载
+     */
+    public abstract Map<K, V> batchLoad(List<K> keys);
+
+    /**
+     * 单个加载，批量查询失败时降级使用
+     */
+    public abstract V singleLoad(K key);
+
+    @PostConstruct
+    public void init() {
+        scheduler = Schedulers.newBoundedElastic(
+                config.getThreadPoolSize() + config.getFallbackParallelism(),
+                config.getQueueCapacity(),
+                config.getName() + "-reactive");
+
+        // 批处理线程数即同时在途的批次数，与阻塞版本保持一致
+        subscription = Flux.<Request<K, V>>create(s -> sink = s)
+                .filter(this::isActive)
+                .bufferTimeout(config.getMaxBatchSize(), Duration.ofMillis(config.getIntervalMs()))
+                .onBackpressureBuffer()
+                .flatMap(this::dispatch, config.getThreadPoolSize())
+                .subscribe(null, e -> log.error("{} 批处理流异常终止", config.getName(), e));
+
+        log.info("{} 初始化完成 - 批处理间隔: {}ms, 最大批量: {}, 并发批次: {}, 在途上限: {}, 超时时间: {}ms",
+                config.getName(),
+                config.getIntervalMs(),
+                config.getMaxBatchSize(),
+                config.getThreadPoolSize(),
+                config.getQueueCapacity(),
+                config.getTimeoutMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        shutdown = true;
+        if (sink != null) {
+            sink.complete();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+        log.info("{} 已关闭", config.getName());
+    }
+
+    /**
+     * 加载单个 key，订阅时才入队；取消订阅的请求不会进入批次
+     */
+    public Mono<V> load(K key) {
+        return Mono.create(monoSink -> {
+            if (shutdown) {
+                monoSink.error(new IllegalStateException("BatchLoader 已关闭"));
+                return;
+            }
+            totalRequestCount.incrementAndGet();
+            if (pendingCount.incrementAndGet() > config.getQueueCapacity()) {
+                pendingCount.decrementAndGet();
+                rejectCount.incrementAndGet();
+                monoSink.error(new RejectedExecutionException("请求队列已满"));
+                return;
+            }
+            Request<K, V> request = new Request<>(key, monoSink);
+            monoSink.onCancel(() -> request.cancelled = true);
+            sink.next(request);
+        });
+    }
+
+    /**
+     * 加载多个 key，结果顺序与 key 顺序一致；每次最多向上游拉取一个最大批量的 key
+     */
+    public Flux<V> loadMany(Flux<K> keys) {
+        return keys.flatMapSequential(this::load, config.getMaxBatchSize());
+    }
+
+    /**
+     * 执行一个批次，后端查询放到调度器上执行
+     */
+    private Mono<Void> dispatch(List<Request<K, V>> batch) {
+        batchCount.incrementAndGet();
+        List<K> keys = new ArrayList<>(batch.size());
+        for (Request<K, V> request : batch) {
+            keys.add(request.key);
+        }
+
+        return Mono.fromCallable(() -> batchLoad(keys))
+                .subscribeOn(scheduler)
+                .timeout(Duration.ofMillis(config.getTimeoutMs()))
+                .doOnNext(result -> complete(batch, result))
+                .then()
+                .onErrorResume(e -> {
+                    log.error("{} 批量查询失败，降级为单个查询 - 数量: {}", config.getName(), batch.size(), e);
+                    return degrade(batch);
+                });
+    }
+
+    /**
+     * 入批前已取消的请求直接丢弃
+     */
+    private boolean isActive(Request<K, V> request) {
+        if (request.cancelled) {
+            pendingCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void complete(List<Request<K, V>> batch, Map<K, V> result) {
+        for (Request<K, V> request : batch) {
+            pendingCount.decrementAndGet();
+            V value = result.get(request.key);
+            if (value != null) {
+                request.sink.success(value);
+            } else if (config.isAllowNull()) {
+                request.sink.success();
+            } else {
+                request.sink.error(new IllegalStateException("查询结果为空: " + request.key));
+            }
+        }
+    }
+
+    private Mono<Void> degrade(List<Request<K, V>> batch) {
+        degradeCount.addAndGet(batch.size());
+        return Flux.fromIterable(batch)
+                .flatMap(request -> Mono.fromCallable(() -> singleLoad(request.key))
+                        .subscribeOn(scheduler)
+                        .timeout(Duration.ofMillis(config.getTimeoutMs()))
+                        .doOnNext(request.sink::success)
+                        .switchIfEmpty(Mono.fromRunnable(request.sink::success))
+                        .doOnError(request.sink::error)
+                        .onErrorResume(e -> Mono.empty())
+                        .doFinally(signal -> pendingCount.decrementAndGet()),
+                        config.getFallbackParallelism())
+                .then();
+    }
+
+    /**
+     * 获取监控指标
+     */
+    public BatchLoaderMetrics getMetrics() {
+        return BatchLoaderMetrics.builder()
+                .totalRequestCount(totalRequestCount.get())
+                .batchCount(batchCount.get())
+                .degradeCount(degradeCount.get())
+                .limitRejectCount(rejectCount.get())
+                .currentQueueSize(pendingCount.get())
+                .inflightCount(pendingCount.get())
+                .build();
+    }
+
+    private static class Request<K, V> {
+
+        private final K key;
+
+        private final MonoSink<V> sink;
+
+        private volatile boolean cancelled;
+
+        private Request(K key, MonoSink<V> sink) {
+            this.key = key;
+            this.sink = sink;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.xinput.learn.stock.batch;
 
+import com.xinput.learn.stock.cache.TieredStockCache;
 import com.xinput.learn.stock.config.BatchConfig;
+import com.xinput.learn.stock.consts.StockCache;
 import com.xinput.learn.stock.model.Stock;
 import com.xinput.learn.stock.service.StockService;
 import lombok.extern.slf4j.Slf4j;
@@ -22,20 +24,14 @@ public class StockBatchLoader extends AbstractBatchLoader<String, Stock> {
     @Resource
     private StockService stockService;
 
+    @Resource
+    private TieredStockCache tieredStockCache;
+
     public StockBatchLoader(BatchConfig batchConfig) {
-        super(BatchLoaderConfig.builder()
-                .name("StockBatchLoader")
-                .intervalMs(batchConfig.getIntervalMs())
-                .maxBatchSize(batchConfig.getMaxBatchSize())
-                .threadPoolSize(batchConfig.getThreadPoolSize())
-                .queueCapacity(batchConfig.getQueueCapacity())
-                .overflowStrategy(batchConfig.getOverflowStrategy())
-                .timeoutMs(batchConfig.getTimeoutMs())
-                .allowNull(batchConfig.isAllowNull())
-                .retryOnNull(batchConfig.isRetryOnNull())
-                .enableMonitor(batchConfig.isEnableMonitor())
-                .monitorIntervalSeconds(batchConfig.getMonitorIntervalSeconds())
-                .build());
+        super(batchConfig.toLoaderConfig("StockBatchLoader").build());
+        if (batchConfig.isPartitionEnabled()) {
+            setPartitioner(new StockBoardPartitioner());
+        }
     }
 
     @Override
@@ -57,7 +53,42 @@ public class StockBatchLoader extends AbstractBatchLoader<String, Stock> {
      * @return CompletableFuture<Stock>
      */
     public CompletableFuture<Stock> loadStock(String code) {
-        return load(code);
+        return loadStock(code, BatchPriority.NORMAL);
+    }
+
+    /**
+     * 加载信息 - 异步方式，指定优先级
+     *
+     * @param code     代码
+     * @param priority 请求优先级
+     * @return CompletableFuture<Stock>
+     */
+    public CompletableFuture<Stock> loadStock(String code, BatchPriority priority) {
+        return loadStock(code, priority, null);
+    }
+
+    /**
+     * 加载信息 - 异步方式，指定优先级和租户
+     *
+     * @param code     代码
+     * @param priority 请求优先级
+     * @param tenant   租户或调用方标识，为空时归入默认租户
+     * @return CompletableFuture<Stock>
+     */
+    public CompletableFuture<Stock> loadStock(String code, BatchPriority priority, String tenant) {
+        if (!tieredStockCache.isEnabled()) {
+            return load(code, priority, tenant);
+        }
+        // 启用分层缓存时先查缓存，未命中再进入批处理，结果按加载开始时的快照版本写回
+        Stock cached = tieredStockCache.get(code);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long version = StockCache.getVersion();
+        return load(code, priority, tenant).thenApply(stock -> {
+            tieredStockCache.put(code, stock, version);
+            return stock;
+        });
     }
 
     /**
@@ -0,0 +1,144 @@
+package com.xinput.learn.stock.batch;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.cache.TieredStockCache;
+import com.xinput.learn.stock.config.WriterConfig;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.model.StockUpdate;
+import com.xinput.learn.stock.repository.StockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 信息批量写入器
+ * 更新合并后批量写入后端，一轮刷新的所有批次写入后只发布一次新的数据快照
+ * <p>
+ * 快照发布后只读，发布需要复制全部数据并重建标签索引，开销与数据总量成正比而不是与本轮更新量成正比；
+ * 因此每轮刷新只发布一次，刷新频率由 stock.writer.interval-ms 和 max-batch-size 控制，
+ * 达到最大批量触发的刷新同一时间最多排队一个
+ */
+@Slf4j
+@Component
+public class StockBatchWriter extends AbstractBatchWriter<String, StockUpdate> {
+
+    @Resource
+    private StockRepository stockRepository;
+
+    @Resource
+    private TieredStockCache tieredStockCache;
+
+    /**
+     * 本轮刷新已写入后端、尚未发布到快照的数据，只在刷新锁内访问
+     */
+    private final Map<String, Stock> unpublished = new HashMap<>();
+
+    public StockBatchWriter(WriterConfig writerConfig) {
+        super(writerConfig.toWriterConfig("StockBatchWriter").build());
+    }
+
+    /**
+     * 合并规则：名称后写覆盖；标签为合并模式时取并集，否则后写覆盖
+     */
+    @Override
+    public StockUpdate merge(StockUpdate previous, StockUpdate current) {
+        StockUpdate merged = new StockUpdate();
+        merged.setCode(current.getCode());
+        merged.setName(current.getName() != null ? current.getName() : previous.getName());
+        if (current.getReason() == null) {
+            merged.setReason(previous.getReason());
+            merged.setMergeReason(previous.isMergeReason());
+        } else if (current.isMergeReason()) {
+            merged.setReason(union(previous.getReason(), current.getReason()));
+            merged.setMergeReason(previous.getReason() == null || previous.isMergeReason());
+        } else {
+            merged.setReason(current.getReason());
+            merged.setMergeReason(false);
+        }
+        return merged;
+    }
+
+    @Override
+    public void batchWrite(Map<String, StockUpdate> updates) {
+        // 基于当前快照和本轮已写入的数据计算更新后的数据，刷新串行执行，不会与其他刷新交错
+        StockSnapshot snapshot = StockCache.getSnapshot();
+        Map<String, Stock> changed = Maps.newHashMapWithExpectedSize(updates.size());
+        for (StockUpdate update : updates.values()) {
+            Stock current = unpublished.containsKey(update.getCode())
+                    ? unpublished.get(update.getCode())
+                    : snapshot.getStockMap().get(update.getCode());
+            changed.put(update.getCode(), apply(current, update));
+        }
+
+        stockRepository.saveAll(changed.values());
+        unpublished.putAll(changed);
+    }
+
+    /**
+     * 把本轮写入的数据合并发布为新快照，发布失败时保留到下一轮重试
+     */
+    @Override
+    protected void afterFlush() {
+        if (unpublished.isEmpty()) {
+            return;
+        }
+        StockSnapshot snapshot = StockCache.getSnapshot();
+        Map<String, Stock> stockMap = Maps.newHashMapWithExpectedSize(snapshot.size() + unpublished.size());
+        stockMap.putAll(snapshot.getStockMap());
+        stockMap.putAll(unpublished);
+        Set<String> changedCodes = new HashSet<>(unpublished.keySet());
+        // 未变化数据的 JSON 编码随快照沿用，变化的代码失效；变化的代码同时供变更推送计算增量
+        StockCache.publish(StockSnapshot.of(stockMap, snapshot.getSourceVersion())
+                .inheritJsonFragments(snapshot, changedCodes)
+                .markChanged(changedCodes));
+        unpublished.clear();
+        // 新快照发布后失效缓存，发布前开始的加载因版本变化不会写回旧数据
+        if (tieredStockCache.isEnabled()) {
+            tieredStockCache.invalidate(changedCodes);
+        }
+    }
+
+    /**
+     * 写入更新 - 异步方式
+     */
+    public CompletableFuture<Void> writeStock(StockUpdate update) {
+        return write(update.getCode(), update);
+    }
+
+    /**
+     * 更新不修改已发布快照中的对象，总是生成新对象
+     */
+    private Stock apply(Stock current, StockUpdate update) {
+        Stock stock = new Stock();
+        stock.setCode(update.getCode());
+        stock.setName(update.getName() != null ? update.getName()
+                : current != null ? current.getName() : null);
+        List<String> reason = current != null ? current.getReason() : null;
+        if (update.getReason() != null) {
+            reason = update.isMergeReason() ? union(reason, update.getReason()) : Lists.newArrayList(update.getReason());
+        }
+        stock.setReason(CollectionUtils.isEmpty(reason) ? null : reason);
+        return stock;
+    }
+
+    private List<String> union(List<String> previous, List<String> current) {
+        LinkedHashSet<String> reason = new LinkedHashSet<>();
+        if (previous != null) {
+            reason.addAll(previous);
+        }
+        reason.addAll(current);
+        return Lists.newArrayList(reason);
+    }
+}
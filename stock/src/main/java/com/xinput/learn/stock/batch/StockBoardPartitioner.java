@@ -0,0 +1,47 @@
+package com.xinput.learn.stock.batch;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 按交易所和板块划分代码
+ * 深市主板: 000/001/002/003
+ * 创业板: 300/301/302
+ * 沪市主板: 600/601/603/605
+ * 科创板: 688/689
+ * 北交所: 4xx/8xx/920
+ */
+public class StockBoardPartitioner implements BatchPartitioner<String> {
+
+    public static final String SZ_MAIN = "SZ_MAIN";
+
+    public static final String SZ_GEM = "SZ_GEM";
+
+    public static final String SH_MAIN = "SH_MAIN";
+
+    public static final String SH_STAR = "SH_STAR";
+
+    public static final String BJ = "BJ";
+
+    public static final String OTHER = "OTHER";
+
+    @Override
+    public String partition(String code) {
+        if (StringUtils.length(code) < 3) {
+            return OTHER;
+        }
+        switch (code.charAt(0)) {
+            case '0':
+                return SZ_MAIN;
+            case '3':
+                return SZ_GEM;
+            case '6':
+                return code.startsWith("68") ? SH_STAR : SH_MAIN;
+            case '4':
+            case '8':
+            case '9':
+                return BJ;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.config.BatchConfig;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.service.StockService;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 信息响应式批量加载器
+ * 与 {@link StockBatchLoader} 使用相同的批处理配置，便于对比两种实现
+ */
+@Component
+public class StockReactiveBatchLoader extends ReactiveBatchLoader<String, Stock> {
+
+    @Resource
+    private StockService stockService;
+
+    public StockReactiveBatchLoader(BatchConfig batchConfig) {
+        super(batchConfig.toLoaderConfig("StockReactiveBatchLoader").build());
+    }
+
+    @Override
+    public Map<String, Stock> batchLoad(List<String> keys) {
+        return stockService.queryStock(keys);
+    }
+
+    @Override
+    public Stock singleLoad(String key) {
+        return stockService.getStock(key);
+    }
+}
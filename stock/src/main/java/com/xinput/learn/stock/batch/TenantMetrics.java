@@ -0,0 +1,42 @@
+package com.xinput.learn.stock.batch;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 单个租户的监控指标
+ */
+@Getter
+@Builder
+public class TenantMetrics {
+
+    /**
+     * 租户，未指定租户的请求为 default，超过租户数上限的归入 other
+     */
+    private String tenant;
+
+    /**
+     * 每秒配额，0 表示不限制
+     */
+    private double rateLimit;
+
+    /**
+     * 各优先级通道中的排队请求数
+     */
+    private int queueSize;
+
+    /**
+     * 请求数
+     */
+    private long requestCount;
+
+    /**
+     * 超出配额被拒绝的请求数
+     */
+    private long quotaRejectCount;
+
+    /**
+     * 租户队列已满、按溢出策略处理的请求数
+     */
+    private long queueFullCount;
+}
@@ -0,0 +1,84 @@
+package com.xinput.learn.stock.batch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个租户的配额和计数，全部使用无锁计数器
+ * <p>
+ * 配额为令牌桶，按 GCRA(Generic Cell Rate Algorithm) 实现：只记录下一个请求的理论到达时间，
+ * 每次请求一次 CAS 推进 1/速率，理论到达时间超前当前时间不超过 (突发 - 1)/速率 时放行，等价于容量为突发、速率为速率的令牌桶
+ */
+class TenantState {
+
+    private final String tenant;
+
+    /**
+     * 理论到达时间(System.nanoTime)
+     */
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong requestCount = new AtomicLong(0);
+
+    private final AtomicLong quotaRejectCount = new AtomicLong(0);
+
+    private final AtomicLong queueFullCount = new AtomicLong(0);
+
+    TenantState(String tenant) {
+        this.tenant = tenant;
+    }
+
+    String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * 申请一个配额
+     *
+     * @param ratePerSecond 每秒配额，不大于 0 时不限制
+     * @param burst         允许的突发请求数
+     * @return 是否放行
+     */
+    boolean tryAcquire(double ratePerSecond, int burst) {
+        return tryAcquire(ratePerSecond, burst, System.nanoTime());
+    }
+
+    /**
+     * @param now 当前时间(System.nanoTime)
+     */
+    boolean tryAcquire(double ratePerSecond, int burst, long now) {
+        requestCount.incrementAndGet();
+        if (ratePerSecond <= 0) {
+            return true;
+        }
+        long interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        long tolerance = interval * Math.max(0, burst - 1);
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            if (start - now > tolerance) {
+                quotaRejectCount.incrementAndGet();
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    void recordQueueFull() {
+        queueFullCount.incrementAndGet();
+    }
+
+    long getRequestCount() {
+        return requestCount.get();
+    }
+
+    long getQuotaRejectCount() {
+        return quotaRejectCount.get();
+    }
+
+    long getQueueFullCount() {
+        return queueFullCount.get();
+    }
+}
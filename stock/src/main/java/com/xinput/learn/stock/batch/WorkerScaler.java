@@ -0,0 +1,124 @@
+package com.xinput.learn.stock.batch;
+
+/**
+ * 批处理线程数弹性伸缩
+ * 根据队列深度、最旧请求的排队时间和批量查询耗时估算需要的批处理线程数：
+ * <p>
+ * 1. 在途批次数按 Little 定律估算: 每秒批次数 × 平均批量查询耗时
+ * 2. 连续 {@link #SCALE_UP_ROUNDS} 轮过载才扩容，每次扩容当前线程数的一半（至少 1 个）
+ * 3. 连续 scaleDownIdleRounds 轮空闲才缩容，每次减少 1 个
+ * 4. 每次调整后重新累计，扩容快、缩容慢，避免来回震荡
+ */
+class WorkerScaler {
+
+    /**
+     * 连续过载多少轮后扩容
+     */
+    private static final int SCALE_UP_ROUNDS = 2;
+
+    /**
+     * 批量查询耗时的平滑系数
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final int minWorkers;
+
+    private final int maxWorkers;
+
+    private final int maxBatchSize;
+
+    private final long scaleUpQueueAgeMs;
+
+    private final int scaleDownIdleRounds;
+
+    private volatile int workers;
+
+    /**
+     * 批量查询耗时的指数加权平均(毫秒)
+     */
+    private volatile double avgLatencyMs = 0;
+
+    private int overloadRounds = 0;
+
+    private int idleRounds = 0;
+
+    private long scaleUpCount = 0;
+
+    private long scaleDownCount = 0;
+
+    WorkerScaler(int initialWorkers, int minWorkers, int maxWorkers, int maxBatchSize,
+                 long scaleUpQueueAgeMs, int scaleDownIdleRounds) {
+        this.minWorkers = Math.max(1, minWorkers);
+        this.maxWorkers = Math.max(this.minWorkers, maxWorkers);
+        this.maxBatchSize = maxBatchSize;
+        this.scaleUpQueueAgeMs = scaleUpQueueAgeMs;
+        this.scaleDownIdleRounds = scaleDownIdleRounds;
+        this.workers = Math.max(this.minWorkers, Math.min(this.maxWorkers, initialWorkers));
+    }
+
+    /**
+     * 记录一次批量查询耗时
+     */
+    void onLatency(long latencyNanos) {
+        double latencyMs = latencyNanos / 1_000_000.0;
+        double current = avgLatencyMs;
+        avgLatencyMs = current == 0 ? latencyMs : current + LATENCY_ALPHA * (latencyMs - current);
+    }
+
+    /**
+     * 评估一轮，只由伸缩线程调用
+     *
+     * @param queueDepth  当前排队请求数
+     * @param oldestAgeMs 最旧请求已排队时间，没有排队请求时为 0
+     * @param batches     本轮内执行的批次数
+     * @param periodMs    本轮时长
+     * @return 调整后的线程数
+     */
+    synchronized int evaluate(int queueDepth, long oldestAgeMs, long batches, long periodMs) {
+        int current = workers;
+        double busyWorkers = periodMs > 0 ? batches * avgLatencyMs / periodMs : 0;
+
+        boolean overloaded = queueDepth >= (long) current * maxBatchSize
+                || oldestAgeMs > scaleUpQueueAgeMs
+                || busyWorkers >= current * 0.9;
+        boolean idle = queueDepth < maxBatchSize
+                && oldestAgeMs <= scaleUpQueueAgeMs / 2
+                && busyWorkers < current - 1;
+
+        if (overloaded) {
+            idleRounds = 0;
+            if (++overloadRounds >= SCALE_UP_ROUNDS && current < maxWorkers) {
+                overloadRounds = 0;
+                scaleUpCount++;
+                workers = Math.min(maxWorkers, current + Math.max(1, current / 2));
+            }
+        } else if (idle) {
+            overloadRounds = 0;
+            if (++idleRounds >= scaleDownIdleRounds && current > minWorkers) {
+                idleRounds = 0;
+                scaleDownCount++;
+                workers = current - 1;
+            }
+        } else {
+            overloadRounds = 0;
+            idleRounds = 0;
+        }
+        return workers;
+    }
+
+    int getWorkers() {
+        return workers;
+    }
+
+    double getAvgLatencyMs() {
+        return avgLatencyMs;
+    }
+
+    synchronized long getScaleUpCount() {
+        return scaleUpCount;
+    }
+
+    synchronized long getScaleDownCount() {
+        return scaleDownCount;
+    }
+}
@@ -0,0 +1,408 @@
+package com.xinput.learn.stock.cache;
+
+import com.google.common.collect.Lists;
+import com.xinput.learn.stock.model.Stock;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 堆外存储
+ * <p>
+ * 1. 数据按追加方式写入固定大小的内存块(DirectByteBuffer 或内存映射)，内存块组成环形日志，写满后整块回收最旧的数据
+ * 2. 索引是堆外的开放寻址哈希表（位置 LongBuffer + 哈希 IntBuffer），GC 只看到少量 Buffer 对象，与条目数无关
+ * 3. 同一个 Key 再次写入时旧记录只从索引删除，空间随所在内存块回收
+ * <pre>
+ * 记录: 记录长度(int) | Key哈希(int) | code | name | 标签数(short，-1 表示 null) | 标签...
+ *       字符串为 长度(short，-1 表示 null) + UTF-8 字节，记录不跨内存块，块尾不足时写入长度 0 作为结束标记
+ * </pre>
+ * 非线程安全，由 {@link TieredStockCache} 加锁访问
+ */
+@Slf4j
+class OffHeapStockStore implements Closeable {
+
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+
+    private static final int INITIAL_INDEX_SLOTS = 1 << 16;
+
+    private static final long EMPTY = 0;
+
+    private static final long TOMBSTONE = -1;
+
+    private final ByteBuffer[] slabs;
+
+    private final int slabSize;
+
+    private final long capacity;
+
+    private final Path mappedFile;
+
+    private final FileChannel channel;
+
+    /**
+     * 下一条记录的全局写入位置，只增不减，所在内存块 = 位置 / slabSize % 块数
+     */
+    private long head = 0;
+
+    /**
+     * 最旧的有效位置，总是内存块起点
+     */
+    private long tail = 0;
+
+    /**
+     * 索引槽位：记录位置 + 1，0 为空，-1 为已删除
+     */
+    private LongBuffer positions;
+
+    private IntBuffer hashes;
+
+    private int mask;
+
+    /**
+     * 非空槽位数(含已删除)
+     */
+    private int usedSlots = 0;
+
+    private int entryCount = 0;
+
+    private int allocatedSlabs = 0;
+
+    private long evictionCount = 0;
+
+    OffHeapStockStore(long capacityBytes, int slabSize, String mappedFile) throws IOException {
+        int slabCount = (int) Math.max(1, capacityBytes / slabSize);
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabSize = slabSize;
+        this.capacity = (long) slabCount * slabSize;
+        if (mappedFile == null || mappedFile.isEmpty()) {
+            this.mappedFile = null;
+            this.channel = null;
+        } else {
+            this.mappedFile = Paths.get(mappedFile);
+            Path parent = this.mappedFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(this.mappedFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        resizeIndex(INITIAL_INDEX_SLOTS);
+    }
+
+    Stock get(String code) {
+        byte[] key = code.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(key, hash(code));
+        return slot < 0 ? null : decode(positions.get(slot) - 1);
+    }
+
+    /**
+     * 写入，记录超过内存块大小时不缓存
+     *
+     * @return 是否写入
+     */
+    boolean put(Stock stock) {
+        byte[] key = stock.getCode().getBytes(StandardCharsets.UTF_8);
+        byte[] name = bytes(stock.getName());
+        List<String> reasons = stock.getReason();
+        byte[][] reasonBytes = null;
+        int size = RECORD_HEADER_SIZE + 2 + key.length + 2 + (name == null ? 0 : name.length) + 2;
+        if (reasons != null) {
+            reasonBytes = new byte[reasons.size()][];
+            for (int i = 0; i < reasonBytes.length; i++) {
+                reasonBytes[i] = bytes(reasons.get(i));
+                size += 2 + (reasonBytes[i] == null ? 0 : reasonBytes[i].length);
+            }
+        }
+        if (size > slabSize) {
+            return false;
+        }
+
+        int hash = hash(stock.getCode());
+        remove(key, hash);
+
+        long position = allocate(size);
+        ByteBuffer slab = slabFor(position);
+        int offset = offsetOf(position);
+        slab.putInt(offset, size);
+        slab.putInt(offset + 4, hash);
+        offset = putBytes(slab, offset + RECORD_HEADER_SIZE, key);
+        offset = putBytes(slab, offset, name);
+        if (reasonBytes == null) {
+            slab.putShort(offset, (short) -1);
+        } else {
+            slab.putShort(offset, (short) reasonBytes.length);
+            offset += 2;
+            for (byte[] reason : reasonBytes) {
+                offset = putBytes(slab, offset, reason);
+            }
+        }
+
+        insert(hash, position);
+        return true;
+    }
+
+    boolean remove(String code) {
+        return remove(code.getBytes(StandardCharsets.UTF_8), hash(code));
+    }
+
+    void clear() {
+        head = 0;
+        tail = 0;
+        entryCount = 0;
+        usedSlots = 0;
+        resizeIndex(INITIAL_INDEX_SLOTS);
+    }
+
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    long getUsedBytes() {
+        return head - tail;
+    }
+
+    long getAllocatedBytes() {
+        return (long) allocatedSlabs * slabSize;
+    }
+
+    long getCapacityBytes() {
+        return capacity;
+    }
+
+    long getIndexBytes() {
+        return (mask + 1L) * (8 + 4);
+    }
+
+    long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            Files.deleteIfExists(mappedFile);
+        }
+    }
+
+    /**
+     * 分配记录空间，当前内存块剩余空间不足时写入结束标记并换到下一块；环形日志写满时回收最旧的内存块
+     */
+    private long allocate(int size) {
+        int offset = offsetOf(head);
+        if (offset + size > slabSize) {
+            if (offset + 4 <= slabSize) {
+                slabFor(head).putInt(offset, 0);
+            }
+            head += slabSize - offset;
+        }
+        while (head + size > tail + capacity) {
+            evictSlab(tail);
+            tail += slabSize;
+        }
+        long position = head;
+        head += size;
+        return position;
+    }
+
+    /**
+     * 回收一个内存块：逐条删除仍指向该块的索引项
+     */
+    private void evictSlab(long start) {
+        ByteBuffer slab = slabFor(start);
+        int offset = 0;
+        while (offset + RECORD_HEADER_SIZE <= slabSize) {
+            int size = slab.getInt(offset);
+            if (size <= 0) {
+                break;
+            }
+            int hash = slab.getInt(offset + 4);
+            int slot = hash & mask;
+            long value;
+            while ((value = positions.get(slot)) != EMPTY) {
+                if (value == start + offset + 1) {
+                    positions.put(slot, TOMBSTONE);
+                    entryCount--;
+                    evictionCount++;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            offset += size;
+        }
+    }
+
+    private boolean remove(byte[] key, int hash) {
+        int slot = findSlot(key, hash);
+        if (slot < 0) {
+            return false;
+        }
+        positions.put(slot, TOMBSTONE);
+        entryCount--;
+        return true;
+    }
+
+    private int findSlot(byte[] key, int hash) {
+        int slot = hash & mask;
+        long value;
+        while ((value = positions.get(slot)) != EMPTY) {
+            if (value != TOMBSTONE && hashes.get(slot) == hash && keyEquals(value - 1, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int hash, long position) {
+        int slot = hash & mask;
+        long value;
+        while ((value = positions.get(slot)) != EMPTY && value != TOMBSTONE) {
+            slot = (slot + 1) & mask;
+        }
+        if (value == EMPTY) {
+            usedSlots++;
+        }
+        positions.put(slot, position + 1);
+        hashes.put(slot, hash);
+        entryCount++;
+
+        // 负载超过 3/4 时重建，有效条目超过一半时扩容，否则只清理已删除的槽位
+        int slots = mask + 1;
+        if (usedSlots > slots / 4 * 3) {
+            resizeIndex(entryCount > slots / 2 ? slots << 1 : slots);
+        }
+    }
+
+    private void resizeIndex(int slots) {
+        LongBuffer oldPositions = positions;
+        IntBuffer oldHashes = hashes;
+        positions = ByteBuffer.allocateDirect(slots * 8).asLongBuffer();
+        hashes = ByteBuffer.allocateDirect(slots * 4).asIntBuffer();
+        mask = slots - 1;
+        usedSlots = 0;
+        if (oldPositions == null || entryCount == 0) {
+            return;
+        }
+        for (int i = 0; i < oldPositions.capacity(); i++) {
+            long value = oldPositions.get(i);
+            if (value != EMPTY && value != TOMBSTONE) {
+                int hash = oldHashes.get(i);
+                int slot = hash & mask;
+                while (positions.get(slot) != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                positions.put(slot, value);
+                hashes.put(slot, hash);
+                usedSlots++;
+            }
+        }
+        log.debug("堆外索引重建 - 槽位: {}, 条目: {}", slots, entryCount);
+    }
+
+    private boolean keyEquals(long position, byte[] key) {
+        ByteBuffer slab = slabFor(position);
+        int offset = offsetOf(position) + RECORD_HEADER_SIZE;
+        if (slab.getShort(offset) != key.length) {
+            return false;
+        }
+        offset += 2;
+        for (int i = 0; i < key.length; i++) {
+            if (slab.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Stock decode(long position) {
+        ByteBuffer slab = slabFor(position);
+        int[] offset = {offsetOf(position) + RECORD_HEADER_SIZE};
+        Stock stock = new Stock();
+        stock.setCode(getString(slab, offset));
+        stock.setName(getString(slab, offset));
+        int reasonCount = slab.getShort(offset[0]);
+        offset[0] += 2;
+        if (reasonCount >= 0) {
+            List<String> reasons = Lists.newArrayListWithCapacity(reasonCount);
+            for (int i = 0; i < reasonCount; i++) {
+                reasons.add(getString(slab, offset));
+            }
+            stock.setReason(reasons);
+        }
+        return stock;
+    }
+
+    private ByteBuffer slabFor(long position) {
+        int index = (int) (position / slabSize % slabs.length);
+        ByteBuffer slab = slabs[index];
+        if (slab == null) {
+            slab = allocateSlab(index);
+            slabs[index] = slab;
+            allocatedSlabs++;
+        }
+        return slab;
+    }
+
+    private ByteBuffer allocateSlab(int index) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(slabSize);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) index * slabSize, slabSize);
+        } catch (IOException e) {
+            throw new IllegalStateException("映射堆外缓存文件失败: " + mappedFile, e);
+        }
+    }
+
+    private int offsetOf(long position) {
+        return (int) (position % slabSize);
+    }
+
+    private static int hash(String code) {
+        int h = code.hashCode();
+        return (h ^ (h >>> 16)) * 0x9E3779B9;
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int putBytes(ByteBuffer slab, int offset, byte[] bytes) {
+        if (bytes == null) {
+            slab.putShort(offset, (short) -1);
+            return offset + 2;
+        }
+        slab.putShort(offset, (short) bytes.length);
+        offset += 2;
+        for (int i = 0; i < bytes.length; i++) {
+            slab.put(offset + i, bytes[i]);
+        }
+        return offset + bytes.length;
+    }
+
+    private static String getString(ByteBuffer slab, int[] offset) {
+        int length = slab.getShort(offset[0]);
+        offset[0] += 2;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = slab.get(offset[0] + i);
+        }
+        offset[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
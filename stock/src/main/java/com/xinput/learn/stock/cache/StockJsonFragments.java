@@ -0,0 +1,108 @@
+package com.xinput.learn.stock.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预编码的 JSON 片段
+ * <p>
+ * 每条数据的 JSON 编码缓存在所属快照上，响应直接把片段写入输出流，不再经过对象映射；
+ * 只有当前快照中的对象才使用缓存（按引用判断），其他来源的对象(如 JDBC 后端、堆外缓存反序列化的副本)照常编码
+ */
+@Component
+public class StockJsonFragments {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder encodeCount = new LongAdder();
+
+    /**
+     * 数据的 JSON 编码，返回的数组不可修改
+     */
+    public byte[] encode(Stock stock) throws IOException {
+        if (stock == null) {
+            return NULL;
+        }
+        StockSnapshot snapshot = StockCache.getSnapshot();
+        String code = stock.getCode();
+        boolean cacheable = code != null && snapshot.getStockMap().get(code) == stock;
+        if (cacheable) {
+            byte[] fragment = snapshot.getJsonFragment(code);
+            if (fragment != null) {
+                hitCount.increment();
+                return fragment;
+            }
+        }
+
+        byte[] fragment = objectMapper.writeValueAsBytes(stock);
+        encodeCount.increment();
+        if (cacheable) {
+            snapshot.putJsonFragment(code, fragment);
+        }
+        return fragment;
+    }
+
+    /**
+     * 写出单条数据
+     */
+    public void write(Stock stock, HttpServletResponse response) throws IOException {
+        byte[] fragment = encode(stock);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(fragment.length);
+        response.getOutputStream().write(fragment);
+    }
+
+    /**
+     * 以 JSON 数组写出多条数据，顺序与列表一致
+     */
+    public void write(List<Stock> stocks, HttpServletResponse response) throws IOException {
+        byte[][] fragments = new byte[stocks.size()][];
+        int length = 2 + Math.max(0, stocks.size() - 1);
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = encode(stocks.get(i));
+            length += fragments[i].length;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(length);
+        writeArray(fragments, response.getOutputStream());
+    }
+
+    /**
+     * 片段拼接成 JSON 数组写入输出流
+     */
+    public void writeArray(byte[][] fragments, OutputStream out) throws IOException {
+        out.write('[');
+        for (int i = 0; i < fragments.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(fragments[i]);
+        }
+        out.write(']');
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getEncodeCount() {
+        return encodeCount.sum();
+    }
+}
@@ -0,0 +1,97 @@
+package com.xinput.learn.stock.cache;
+
+import com.xinput.learn.stock.model.Stock;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 标签计数和共现计数的 fork/join 任务
+ * 按下标区间二分拆分，叶子任务在本地 Map 中计数，合并时把较小的结果并入较大的结果
+ */
+class TagCountTask extends RecursiveTask<TagCountTask.Partial> {
+
+    private final List<Stock> stocks;
+
+    private final int from;
+
+    private final int to;
+
+    private final int threshold;
+
+    TagCountTask(List<Stock> stocks, int from, int to, int threshold) {
+        this.stocks = stocks;
+        this.from = from;
+        this.to = to;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    @Override
+    protected Partial compute() {
+        if (to - from <= threshold) {
+            Partial partial = new Partial();
+            for (int i = from; i < to; i++) {
+                partial.add(stocks.get(i).getReason(), 1);
+            }
+            return partial;
+        }
+        int middle = (from + to) >>> 1;
+        TagCountTask left = new TagCountTask(stocks, from, middle, threshold);
+        left.fork();
+        Partial right = new TagCountTask(stocks, middle, to, threshold).compute();
+        return Partial.merge(left.join(), right);
+    }
+
+    /**
+     * 部分计数结果，共现矩阵按行稀疏存储且对称(A-B 和 B-A 都记录)，不含对角线
+     */
+    static class Partial {
+
+        final Map<String, Integer> counts = new HashMap<>();
+
+        final Map<String, Map<String, Integer>> cooccurrence = new HashMap<>();
+
+        int stockCount = 0;
+
+        /**
+         * 累加一条数据的标签，delta 为 -1 时撤销；重复的标签只计一次
+         */
+        void add(List<String> tags, int delta) {
+            if (tags == null || tags.isEmpty()) {
+                return;
+            }
+            stockCount += delta;
+            for (int i = 0; i < tags.size(); i++) {
+                String tag = tags.get(i);
+                if (tags.indexOf(tag) != i) {
+                    continue;
+                }
+                counts.merge(tag, delta, Integer::sum);
+                for (int j = 0; j < tags.size(); j++) {
+                    String other = tags.get(j);
+                    if (j != i && tags.indexOf(other) == j && !other.equals(tag)) {
+                        cooccurrence.computeIfAbsent(tag, key -> new HashMap<>()).merge(other, delta, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        static Partial merge(Partial a, Partial b) {
+            Partial target = a.counts.size() >= b.counts.size() ? a : b;
+            Partial source = target == a ? b : a;
+            target.stockCount += source.stockCount;
+            source.counts.forEach((tag, count) -> target.counts.merge(tag, count, Integer::sum));
+            source.cooccurrence.forEach((tag, row) -> {
+                Map<String, Integer> targetRow = target.cooccurrence.get(tag);
+                if (targetRow == null) {
+                    target.cooccurrence.put(tag, row);
+                } else {
+                    row.forEach((other, count) -> targetRow.merge(other, count, Integer::sum));
+                }
+            });
+            return target;
+        }
+    }
+}
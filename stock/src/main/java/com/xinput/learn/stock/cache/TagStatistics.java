@@ -0,0 +1,209 @@
+package com.xinput.learn.stock.cache;
+
+import com.xinput.learn.stock.model.Stock;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 一个快照版本的标签统计，发布后只读
+ * <p>
+ * 1. 每个标签的数据条数
+ * 2. 稀疏的标签共现矩阵: 标签 -> (标签 -> 同时带有两个标签的条数)，对称存储
+ * 3. 每个标签按共现条数排序的前 K 个相关标签，以及按数据条数排序的标签列表
+ * <p>
+ * 全量计算使用 fork/join 并行计数；增量更新只复制发生变化的矩阵行，并只重新排序这些行
+ */
+@Getter
+public class TagStatistics {
+
+    private static final Comparator<Map.Entry<String, Integer>> BY_COUNT =
+            Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    /**
+     * 快照版本
+     */
+    private final long version;
+
+    /**
+     * 带标签的数据条数
+     */
+    private final int stockCount;
+
+    private final Map<String, Integer> counts;
+
+    private final Map<String, Map<String, Integer>> cooccurrence;
+
+    /**
+     * 标签 -> 共现条数最多的前 K 个标签
+     */
+    private final Map<String, List<String>> related;
+
+    /**
+     * 按数据条数从多到少排序的标签
+     */
+    private final List<String> tagsByCount;
+
+    private final int topK;
+
+    /**
+     * 计算耗时(毫秒)
+     */
+    private final long computeMs;
+
+    /**
+     * 是否由上一版本增量更新得到
+     */
+    private final boolean incremental;
+
+    private TagStatistics(long version, int stockCount, Map<String, Integer> counts,
+                          Map<String, Map<String, Integer>> cooccurrence, Map<String, List<String>> related,
+                          int topK, long computeMs, boolean incremental) {
+        this.version = version;
+        this.stockCount = stockCount;
+        this.counts = counts;
+        this.cooccurrence = cooccurrence;
+        this.related = related;
+        this.topK = topK;
+        this.computeMs = computeMs;
+        this.incremental = incremental;
+        List<String> tags = new ArrayList<>(counts.keySet());
+        tags.sort(Comparator.<String>comparingInt(counts::get).reversed().thenComparing(Comparator.naturalOrder()));
+        this.tagsByCount = Collections.unmodifiableList(tags);
+    }
+
+    /**
+     * 全量计算
+     *
+     * @param stocks    带标签的数据
+     * @param pool      并行计算使用的线程池
+     * @param threshold 单个子任务处理的最少数据条数
+     */
+    public static TagStatistics compute(long version, List<Stock> stocks, int topK, ForkJoinPool pool, int threshold) {
+        long startTime = System.currentTimeMillis();
+        // 合并部分结果的开销与子任务数成正比，子任务数不超过并行度的 4 倍
+        int chunk = Math.max(threshold, (stocks.size() + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4));
+        TagCountTask.Partial partial = pool.invoke(new TagCountTask(stocks, 0, stocks.size(), chunk));
+        Map<String, List<String>> related = new HashMap<>(partial.cooccurrence.size() * 4 / 3 + 1);
+        partial.cooccurrence.forEach((tag, row) -> related.put(tag, topRelated(row, topK)));
+        return new TagStatistics(version, partial.stockCount, partial.counts, partial.cooccurrence, related,
+                topK, System.currentTimeMillis() - startTime, false);
+    }
+
+    /**
+     * 在当前统计上应用数据变化，得到新版本的统计
+     *
+     * @param before 变化前的数据，新增的数据不在其中
+     * @param after  变化后的数据，删除的数据不在其中
+     */
+    public TagStatistics apply(long newVersion, Collection<Stock> before, Collection<Stock> after) {
+        long startTime = System.currentTimeMillis();
+        TagCountTask.Partial delta = new TagCountTask.Partial();
+        for (Stock stock : before) {
+            delta.add(stock.getReason(), -1);
+        }
+        for (Stock stock : after) {
+            delta.add(stock.getReason(), 1);
+        }
+
+        Map<String, Integer> newCounts = new HashMap<>(counts);
+        delta.counts.forEach((tag, change) -> {
+            if (newCounts.merge(tag, change, Integer::sum) <= 0) {
+                newCounts.remove(tag);
+            }
+        });
+
+        // 只复制发生变化的行
+        Map<String, Map<String, Integer>> newCooccurrence = new HashMap<>(cooccurrence);
+        Map<String, List<String>> newRelated = new HashMap<>(related);
+        Set<String> touched = new HashSet<>(delta.counts.keySet());
+        touched.addAll(delta.cooccurrence.keySet());
+        for (String tag : touched) {
+            Map<String, Integer> rowDelta = delta.cooccurrence.get(tag);
+            if (rowDelta == null) {
+                continue;
+            }
+            Map<String, Integer> row = new HashMap<>(cooccurrence.getOrDefault(tag, Collections.emptyMap()));
+            rowDelta.forEach((other, change) -> {
+                if (row.merge(other, change, Integer::sum) <= 0) {
+                    row.remove(other);
+                }
+            });
+            if (row.isEmpty()) {
+                newCooccurrence.remove(tag);
+                newRelated.remove(tag);
+            } else {
+                newCooccurrence.put(tag, row);
+                newRelated.put(tag, topRelated(row, topK));
+            }
+        }
+        for (String tag : touched) {
+            if (!newCounts.containsKey(tag)) {
+                newCooccurrence.remove(tag);
+                newRelated.remove(tag);
+            }
+        }
+
+        return new TagStatistics(newVersion, stockCount + delta.stockCount, newCounts, newCooccurrence, newRelated,
+                topK, System.currentTimeMillis() - startTime, true);
+    }
+
+    public int getCount(String tag) {
+        return counts.getOrDefault(tag, 0);
+    }
+
+    /**
+     * 非零的共现标签对数(无序)
+     */
+    public long getPairCount() {
+        long pairs = 0;
+        for (Map<String, Integer> row : cooccurrence.values()) {
+            pairs += row.size();
+        }
+        return pairs / 2;
+    }
+
+    /**
+     * 两个标签的 Jaccard 相似度
+     */
+    public double jaccard(String tag, String other) {
+        int both = cooccurrence.getOrDefault(tag, Collections.emptyMap()).getOrDefault(other, 0);
+        int either = getCount(tag) + getCount(other) - both;
+        return either > 0 ? both * 1.0 / either : 0;
+    }
+
+    /**
+     * 用大小为 K 的堆选出前 K 个，不对整行排序
+     */
+    private static List<String> topRelated(Map<String, Integer> row, int topK) {
+        if (topK <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Map.Entry<String, Integer>> heap = new PriorityQueue<>(topK + 1, BY_COUNT.reversed());
+        for (Map.Entry<String, Integer> entry : row.entrySet()) {
+            if (heap.size() < topK) {
+                heap.offer(entry);
+            } else if (BY_COUNT.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.offer(entry);
+            }
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(heap);
+        entries.sort(BY_COUNT);
+        List<String> tags = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Integer> entry : entries) {
+            tags.add(entry.getKey());
+        }
+        return Collections.unmodifiableList(tags);
+    }
+}
@@ -0,0 +1,109 @@
+package com.xinput.learn.stock.cache;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 分层缓存监控指标
+ */
+@Getter
+@Builder
+public class TieredCacheMetrics {
+
+    /**
+     * 堆内热点层命中次数
+     */
+    private long hotHitCount;
+
+    /**
+     * 堆外层命中次数
+     */
+    private long offHeapHitCount;
+
+    /**
+     * 未命中次数
+     */
+    private long missCount;
+
+    /**
+     * 从堆外层提升到热点层的次数
+     */
+    private long promotionCount;
+
+    /**
+     * 从热点层降级到堆外层的次数
+     */
+    private long demotionCount;
+
+    /**
+     * 堆外层回收内存块时淘汰的条目数
+     */
+    private long evictionCount;
+
+    /**
+     * 数据更新导致的失效次数
+     */
+    private long invalidationCount;
+
+    /**
+     * 热点层条目数 / 容量
+     */
+    private int hotSize;
+
+    private int hotCapacity;
+
+    /**
+     * 堆外层条目数
+     */
+    private int offHeapEntryCount;
+
+    /**
+     * 堆外层已写入字节数(含已被覆盖、等待随内存块回收的旧记录)
+     */
+    private long offHeapUsedBytes;
+
+    /**
+     * 堆外层已分配的内存块字节数 / 容量
+     */
+    private long offHeapAllocatedBytes;
+
+    private long offHeapCapacityBytes;
+
+    /**
+     * 堆外索引占用字节数
+     */
+    private long offHeapIndexBytes;
+
+    /**
+     * 总命中率
+     */
+    public double getHitRate() {
+        long total = hotHitCount + offHeapHitCount + missCount;
+        return total > 0 ? (hotHitCount + offHeapHitCount) * 1.0 / total : 0;
+    }
+
+    /**
+     * 热点层占用率
+     */
+    public double getHotOccupancy() {
+        return hotCapacity > 0 ? hotSize * 1.0 / hotCapacity : 0;
+    }
+
+    /**
+     * 堆外层占用率
+     */
+    public double getOffHeapOccupancy() {
+        return offHeapCapacityBytes > 0 ? offHeapUsedBytes * 1.0 / offHeapCapacityBytes : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "TieredCacheMetrics{命中率=%.2f%%, 热点命中=%d, 堆外命中=%d, 未命中=%d, 提升=%d, 降级=%d, 淘汰=%d, 失效=%d, "
+                        + "热点层=%d/%d, 堆外层=%d条 %.1f/%.1fMB(%.2f%%), 堆外索引=%.1fMB}",
+                getHitRate() * 100, hotHitCount, offHeapHitCount, missCount, promotionCount, demotionCount,
+                evictionCount, invalidationCount, hotSize, hotCapacity, offHeapEntryCount,
+                offHeapUsedBytes / 1048576.0, offHeapCapacityBytes / 1048576.0, getOffHeapOccupancy() * 100,
+                offHeapIndexBytes / 1048576.0);
+    }
+}
@@ -0,0 +1,190 @@
+package com.xinput.learn.stock.cache;
+
+import com.xinput.learn.stock.config.CacheConfig;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.util.MemoryEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 查询结果的分层缓存，放在批处理加载器前面
+ * <p>
+ * 1. 堆内热点层: 按访问顺序的 LRU，容量小，命中时没有反序列化开销
+ * 2. 堆外层: {@link OffHeapStockStore}，紧凑的二进制格式，不产生 GC 需要扫描的对象，可以缓存数百万条
+ * 3. 两层互斥: 热点层淘汰的条目降级写入堆外层；堆外层命中的条目提升到热点层并从堆外层删除
+ * 4. 写入时带上加载开始时的快照版本，版本已变化说明期间有更新，结果不缓存；更新发布后由写入器失效对应的 Key
+ * <p>
+ * 两层共用一把锁，堆外层的读写都很短（一次哈希查找 + 一条记录的编解码）
+ */
+@Slf4j
+@Component
+public class TieredStockCache {
+
+    private final boolean enabled;
+
+    private final int hotCapacity;
+
+    private final LinkedHashMap<String, Stock> hot;
+
+    private final OffHeapStockStore offHeap;
+
+    private long hotHitCount = 0;
+
+    private long offHeapHitCount = 0;
+
+    private long missCount = 0;
+
+    private long promotionCount = 0;
+
+    private long demotionCount = 0;
+
+    private long invalidationCount = 0;
+
+    public TieredStockCache(CacheConfig cacheConfig) throws IOException {
+        this.enabled = cacheConfig.isEnabled();
+        this.hotCapacity = Math.max(1, cacheConfig.getHotCapacity());
+        this.hot = new LinkedHashMap<String, Stock>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stock> eldest) {
+                if (size() <= hotCapacity) {
+                    return false;
+                }
+                demote(eldest.getValue());
+                return true;
+            }
+        };
+
+        if (enabled && cacheConfig.getOffHeapSizeMb() > 0) {
+            int slabSize = Math.min(cacheConfig.getSlabSizeMb(), cacheConfig.getOffHeapSizeMb()) << 20;
+            this.offHeap = new OffHeapStockStore((long) cacheConfig.getOffHeapSizeMb() << 20, slabSize,
+                    cacheConfig.getMappedFile());
+        } else {
+            this.offHeap = null;
+        }
+
+        if (enabled) {
+            log.info("分层缓存初始化完成 - 热点层容量: {}, 堆外层: {}MB, 内存块: {}MB, 存储: {}",
+                    hotCapacity, offHeap == null ? 0 : cacheConfig.getOffHeapSizeMb(), cacheConfig.getSlabSizeMb(),
+                    offHeap == null ? "-" : cacheConfig.getMappedFile().isEmpty() ? "direct" : cacheConfig.getMappedFile());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @return 缓存的数据，未命中返回 null
+     */
+    public synchronized Stock get(String code) {
+        Stock stock = hot.get(code);
+        if (stock != null) {
+            hotHitCount++;
+            return stock;
+        }
+        if (offHeap != null && (stock = offHeap.get(code)) != null) {
+            offHeapHitCount++;
+            promotionCount++;
+            offHeap.remove(code);
+            hot.put(code, stock);
+            return stock;
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * 写入缓存，null 值不缓存
+     *
+     * @param version 加载开始时的快照版本 {@link StockCache#getVersion()}
+     */
+    public synchronized void put(String code, Stock stock, long version) {
+        if (stock == null || version != StockCache.getVersion()) {
+            return;
+        }
+        if (offHeap != null) {
+            offHeap.remove(code);
+        }
+        hot.put(code, stock);
+    }
+
+    /**
+     * 数据更新后失效
+     */
+    public synchronized void invalidate(Collection<String> codes) {
+        for (String code : codes) {
+            boolean removed = hot.remove(code) != null;
+            if (offHeap != null) {
+                removed |= offHeap.remove(code);
+            }
+            if (removed) {
+                invalidationCount++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        hot.clear();
+        if (offHeap != null) {
+            offHeap.clear();
+        }
+    }
+
+    public synchronized TieredCacheMetrics getMetrics() {
+        TieredCacheMetrics.TieredCacheMetricsBuilder builder = TieredCacheMetrics.builder()
+                .hotHitCount(hotHitCount)
+                .offHeapHitCount(offHeapHitCount)
+                .missCount(missCount)
+                .promotionCount(promotionCount)
+                .demotionCount(demotionCount)
+                .invalidationCount(invalidationCount)
+                .hotSize(hot.size())
+                .hotCapacity(hotCapacity);
+        if (offHeap != null) {
+            builder.evictionCount(offHeap.getEvictionCount())
+                    .offHeapEntryCount(offHeap.getEntryCount())
+                    .offHeapUsedBytes(offHeap.getUsedBytes())
+                    .offHeapAllocatedBytes(offHeap.getAllocatedBytes())
+                    .offHeapCapacityBytes(offHeap.getCapacityBytes())
+                    .offHeapIndexBytes(offHeap.getIndexBytes());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 估算热点层占用的堆内存(字节)，堆外层的占用见 {@link TieredCacheMetrics}
+     */
+    public synchronized long estimateHotBytes() {
+        long bytes = MemoryEstimator.hashMap(hot.size()) + hot.size() * (MemoryEstimator.LINKED_MAP_NODE - MemoryEstimator.MAP_NODE);
+        for (Stock stock : hot.values()) {
+            bytes += MemoryEstimator.stock(stock);
+        }
+        return bytes;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        hot.clear();
+        if (offHeap != null) {
+            offHeap.close();
+        }
+    }
+
+    /**
+     * 热点层淘汰的条目降级到堆外层，没有堆外层时直接丢弃
+     */
+    private void demote(Stock stock) {
+        if (offHeap != null && offHeap.put(stock)) {
+            demotionCount++;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.xinput.learn.stock.config;
+
+import com.xinput.learn.stock.service.DiagnosticsService;
+import com.xinput.learn.stock.util.AllocationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求内存分配采样
+ * 每 allocationSampleEvery 个请求记录一次请求线程从进入到完成分配的字节数，按接口路径模板汇总；
+ * 批处理线程上的分配不在这里统计，见 {@link DiagnosticsService#allocation}
+ */
+@Component
+public class AllocationSamplingInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = AllocationSamplingInterceptor.class.getName() + ".start";
+
+    @Resource
+    private DiagnosticsConfig diagnosticsConfig;
+
+    @Resource
+    private DiagnosticsService diagnosticsService;
+
+    private final AtomicLong requestCount = new AtomicLong(0);
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        int every = diagnosticsConfig.getAllocationSampleEvery();
+        if (every > 0 && requestCount.incrementAndGet() % every == 0) {
+            long start = AllocationUtils.currentThreadAllocatedBytes();
+            if (start >= 0) {
+                request.setAttribute(START_ATTRIBUTE, start);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        long bytes = AllocationUtils.currentThreadAllocatedBytes() - (Long) start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        diagnosticsService.recordRequestAllocation(pattern != null ? pattern.toString() : request.getRequestURI(), bytes);
+    }
+}
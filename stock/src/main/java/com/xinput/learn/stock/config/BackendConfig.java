@@ -0,0 +1,51 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 数据查询后端配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.backend")
+public class BackendConfig {
+
+    /**
+     * 后端类型
+     * mock: 内存数据 + 随机休眠模拟耗时
+     * jdbc: 内嵌 H2 数据库，启动时从源数据文件导入
+     * 默认: mock
+     */
+    private String type = "mock";
+
+    /**
+     * 导入数据库的源数据文件(classpath)，"file:" 开头时读取文件系统
+     * 默认: code.txt
+     */
+    private String source = "code.txt";
+
+    /**
+     * 单条 IN 查询最少绑定的参数个数
+     * 批量较小时不再继续拆分，避免为少量 key 占用多个连接
+     * 默认: 16
+     */
+    private int inMinSize = 16;
+
+    /**
+     * 单条 IN 查询最多绑定的参数个数
+     * 默认: 256
+     */
+    private int inMaxSize = 256;
+
+    /**
+     * 批量查询最多同时占用连接池的比例，所有批次、分区的 IN 查询共享
+     * 其余连接留给单个查询和写入，避免批量查询并行过多耗尽连接池
+     * 默认: 0.5
+     */
+    private double queryPoolShare = 0.5;
+}
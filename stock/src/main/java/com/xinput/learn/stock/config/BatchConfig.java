@@ -3,6 +3,10 @@ package com.xinput.learn.stock.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import com.xinput.learn.stock.batch.BatchLoaderConfig;
 import com.xinput.learn.stock.batch.OverflowStrategy;
 
 import lombok.Getter;
@@ -38,6 +42,44 @@ public class BatchConfig {
      */
     private int threadPoolSize = 1;
 
+    /**
+     * 是否根据负载自动伸缩批处理线程数
+     * 根据队列深度、最旧请求排队时间和批量查询耗时在 [min, max] 之间调整，threadPoolSize 为初始线程数
+     * 默认: false
+     */
+    private boolean elasticEnabled = false;
+
+    /**
+     * 弹性伸缩的最小批处理线程数
+     * 默认: 1
+     */
+    private int minThreadPoolSize = 1;
+
+    /**
+     * 弹性伸缩的最大批处理线程数
+     * 默认: 8
+     */
+    private int maxThreadPoolSize = 8;
+
+    /**
+     * 弹性伸缩评估间隔(毫秒)
+     * 默认: 1000ms
+     */
+    private long scaleIntervalMs = 1000;
+
+    /**
+     * 最旧请求排队超过该时间(毫秒)视为过载
+     * 默认: 200ms
+     */
+    private long scaleUpQueueAgeMs = 200;
+
+    /**
+     * 连续空闲多少轮评估后缩容一个线程
+     * 扩容只需连续 2 轮过载，缩容要慢得多，避免来回震荡
+     * 默认: 30
+     */
+    private int scaleDownIdleRounds = 30;
+
     /**
      * 请求队列容量
      * 待处理请求的队列最大容量
@@ -45,16 +87,100 @@ public class BatchConfig {
      */
     private int queueCapacity = 10000;
 
+    /**
+     * 低优先级请求队列容量
+     * 低优先级通道溢出时直接丢弃请求，不走溢出策略
+     * 默认: 2000
+     */
+    private int lowPriorityQueueCapacity = 2000;
+
+    /**
+     * 请求对象池大小
+     * 复用请求包装对象，0 表示不复用
+     * 默认: 1024
+     */
+    private int requestPoolSize = 1024;
+
+    /**
+     * 单个租户最多占用通道容量的比例
+     * 租户由调用方传入(如 /stock/getBatch 的 X-Tenant-Id 请求头)，未指定租户的请求不受限制
+     * 默认: 0.5
+     */
+    private double tenantMaxQueueShare = 0.5;
+
+    /**
+     * 组批时按差额轮询在租户之间分配批次位置，每轮每个租户最多取出的请求数
+     * 默认: 10
+     */
+    private int tenantQuantum = 10;
+
+    /**
+     * 每个租户每秒的请求配额(令牌桶)，0 表示不限制
+     * 默认: 0
+     */
+    private double tenantRateLimit = 0;
+
+    /**
+     * 租户配额允许的突发请求数
+     * 默认: 100
+     */
+    private int tenantBurst = 100;
+
+    /**
+     * 单独配置的租户配额(每秒)，key 为租户，覆盖 tenantRateLimit
+     */
+    private Map<String, Double> tenantQuotas = new HashMap<>();
+
+    /**
+     * 租户数上限，超过后新出现的租户归入 other
+     * 默认: 64
+     */
+    private int maxTenants = 64;
+
     /**
      * 队列溢出策略
      * BLOCK: 阻塞等待（推荐）
      * DEGRADE: 降级执行单个查询
      * FAIL_FAST: 快速失败
      * DROP_OLDEST: 丢弃最旧请求（不推荐）
+     * ADAPTIVE_LIMIT: 自适应并发限制
+     * CODEL: 按排队时间丢弃
      * 默认: BLOCK
      */
     private OverflowStrategy overflowStrategy = OverflowStrategy.BLOCK;
 
+    /**
+     * 自适应并发限制初始值（ADAPTIVE_LIMIT 策略）
+     * 默认: 200
+     */
+    private int adaptiveInitialLimit = 200;
+
+    /**
+     * 自适应并发限制下限（ADAPTIVE_LIMIT 策略）
+     * 默认: 10
+     */
+    private int adaptiveMinLimit = 10;
+
+    /**
+     * 自适应并发限制上限（ADAPTIVE_LIMIT 策略）
+     * 默认: 2000
+     */
+    private int adaptiveMaxLimit = 2000;
+
+    /**
+     * 排队时间目标值(毫秒)（CODEL 策略）
+     * 批次最旧请求的排队时间持续超过该值一个观察窗口后开始丢弃
+     * 默认: 100ms
+     */
+    private long codelTargetMs = 100;
+
+    /**
+     * 排队时间观察窗口(毫秒)（CODEL 策略）
+     * 丢弃状态下第 n 次丢弃后间隔 interval/sqrt(n) 再次丢弃，也是允许的最大排队时间
+     * 默认: 1000ms
+     */
+    private long codelIntervalMs = 1000;
+
     /**
      * 请求超时时间(毫秒)
      * 默认: 5000ms
@@ -73,6 +199,148 @@ public class BatchConfig {
      */
     private boolean retryOnNull = false;
 
+    /**
+     * 降级/重试单个查询的并行度
+     * 默认: 8
+     */
+    private int fallbackParallelism = 8;
+
+    /**
+     * 降级/重试单个查询的等待队列容量
+     * 默认: 1000
+     */
+    private int fallbackQueueCapacity = 1000;
+
+    /**
+     * 完成 future 的线程数
+     * 调用方挂在 future 上的回调在这些线程上执行，不会拖慢下一个批次；0 表示在批处理线程上完成
+     * 默认: 2
+     */
+    private int completionParallelism = 2;
+
+    /**
+     * 完成 future 时每个任务处理的请求数，大批次拆成多块并行完成
+     * 默认: 64
+     */
+    private int completionChunkSize = 64;
+
+    /**
+     * 是否按交易所/板块拆分批次
+     * 跨分区的批次会被拆成子批次并行查询
+     * 默认: true
+     */
+    private boolean partitionEnabled = true;
+
+    /**
+     * 分区子批次并行度
+     * 默认: 4
+     */
+    private int partitionParallelism = 4;
+
+    /**
+     * 各分区的最大批量，key 为分区名: SZ_MAIN | SZ_GEM | SH_MAIN | SH_STAR | BJ | OTHER
+     * 未配置的分区使用 maxBatchSize
+     */
+    private Map<String, Integer> partitionMaxBatchSize = new HashMap<>();
+
+    /**
+     * 整批失败时是否二分重试，隔离出错的Key
+     * 默认: true
+     */
+    private boolean bisectOnFailure = true;
+
+    /**
+     * 二分重试的最大深度
+     * 默认: 7 (可将 128 个Key拆分到单个)
+     */
+    private int bisectMaxDepth = 7;
+
+    /**
+     * 是否启用批量查询熔断器
+     * 默认: true
+     */
+    private boolean circuitBreakerEnabled = true;
+
+    /**
+     * 连续失败多少次后熔断
+     * 默认: 5
+     */
+    private int circuitBreakerFailureThreshold = 5;
+
+    /**
+     * 熔断持续时间(毫秒)，之后进入半开状态探测
+     * 默认: 5000ms
+     */
+    private long circuitBreakerOpenMs = 5000;
+
+    /**
+     * 半开状态下允许的探测批次数
+     * 默认: 1
+     */
+    private int circuitBreakerHalfOpenProbes = 1;
+
+    /**
+     * 是否启用对冲请求
+     * 默认: false
+     */
+    private boolean hedgeEnabled = false;
+
+    /**
+     * 对冲触发分位数
+     * 默认: 0.95
+     */
+    private double hedgePercentile = 0.95;
+
+    /**
+     * 对冲请求的最小延迟(毫秒)
+     * 默认: 50ms
+     */
+    private long hedgeMinDelayMs = 50;
+
+    /**
+     * 是否发出 JFR 事件
+     * 开启后配合 JFR 录制分析批处理各阶段耗时
+     * 默认: false
+     */
+    private boolean jfrEnabled = false;
+
+    /**
+     * 是否统计热点 Key
+     * 开启后在 /stock/metrics 的 hotKeys 中输出请求最多的 Key、请求速率及批次占比
+     * 默认: true
+     */
+    private boolean hotKeyEnabled = true;
+
+    /**
+     * 保留的热点 Key 个数
+     * 默认: 20
+     */
+    private int hotKeyTopK = 20;
+
+    /**
+     * 热点统计 Count-Min Sketch 每行计数器个数，越大估算越准
+     * 默认: 2048
+     */
+    private int hotKeySketchWidth = 2048;
+
+    /**
+     * 热点统计 Count-Min Sketch 行数
+     * 默认: 4
+     */
+    private int hotKeySketchDepth = 4;
+
+    /**
+     * 每多少个请求抽样记录一次，1 表示全部记录
+     * 默认: 4
+     */
+    private int hotKeySampleEvery = 4;
+
+    /**
+     * 热点计数的半衰期(毫秒)
+     * 默认: 60000
+     */
+    private long hotKeyHalfLifeMs = 60000;
+
     /**
      * 是否启用监控日志
      * 默认: true
@@ -84,4 +352,65 @@ public class BatchConfig {
      * 默认: 60秒
      */
     private long monitorIntervalSeconds = 60;
+
+    /**
+     * 以当前配置创建加载器配置，调用方可以在返回的 builder 上继续覆盖个别参数
+     *
+     * @param name 加载器名称
+     */
+    public BatchLoaderConfig.BatchLoaderConfigBuilder toLoaderConfig(String name) {
+        return BatchLoaderConfig.builder()
+                .name(name)
+                .intervalMs(intervalMs)
+                .maxBatchSize(maxBatchSize)
+                .threadPoolSize(threadPoolSize)
+                .elasticEnabled(elasticEnabled)
+                .minThreadPoolSize(minThreadPoolSize)
+                .maxThreadPoolSize(maxThreadPoolSize)
+                .scaleIntervalMs(scaleIntervalMs)
+                .scaleUpQueueAgeMs(scaleUpQueueAgeMs)
+                .scaleDownIdleRounds(scaleDownIdleRounds)
+                .queueCapacity(queueCapacity)
+                .lowPriorityQueueCapacity(lowPriorityQueueCapacity)
+                .requestPoolSize(requestPoolSize)
+                .tenantMaxQueueShare(tenantMaxQueueShare)
+                .tenantQuantum(tenantQuantum)
+                .tenantRateLimit(tenantRateLimit)
+                .tenantBurst(tenantBurst)
+                .tenantQuotas(tenantQuotas)
+                .maxTenants(maxTenants)
+                .overflowStrategy(overflowStrategy)
+                .adaptiveInitialLimit(adaptiveInitialLimit)
+                .adaptiveMinLimit(adaptiveMinLimit)
+                .adaptiveMaxLimit(adaptiveMaxLimit)
+                .codelTargetMs(codelTargetMs)
+                .codelIntervalMs(codelIntervalMs)
+                .timeoutMs(timeoutMs)
+                .allowNull(allowNull)
+                .retryOnNull(retryOnNull)
+                .fallbackParallelism(fallbackParallelism)
+                .fallbackQueueCapacity(fallbackQueueCapacity)
+                .completionParallelism(completionParallelism)
+                .completionChunkSize(completionChunkSize)
+                .partitionParallelism(partitionParallelism)
+                .partitionMaxBatchSize(partitionMaxBatchSize)
+                .bisectOnFailure(bisectOnFailure)
+                .bisectMaxDepth(bisectMaxDepth)
+                .circuitBreakerEnabled(circuitBreakerEnabled)
+                .circuitBreakerFailureThreshold(circuitBreakerFailureThreshold)
+                .circuitBreakerOpenMs(circuitBreakerOpenMs)
+                .circuitBreakerHalfOpenProbes(circuitBreakerHalfOpenProbes)
+                .hedgeEnabled(hedgeEnabled)
+                .hedgePercentile(hedgePercentile)
+                .hedgeMinDelayMs(hedgeMinDelayMs)
+                .jfrEnabled(jfrEnabled)
+                .hotKeyEnabled(hotKeyEnabled)
+                .hotKeyTopK(hotKeyTopK)
+                .hotKeySketchWidth(hotKeySketchWidth)
+                .hotKeySketchDepth(hotKeySketchDepth)
+                .hotKeySampleEvery(hotKeySampleEvery)
+                .hotKeyHalfLifeMs(hotKeyHalfLifeMs)
+                .enableMonitor(enableMonitor)
+                .monitorIntervalSeconds(monitorIntervalSeconds);
+    }
 }
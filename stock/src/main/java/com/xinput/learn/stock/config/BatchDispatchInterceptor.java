@@ -0,0 +1,33 @@
+package com.xinput.learn.stock.config;
+
+import com.xinput.learn.stock.batch.BatchDispatchContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 请求级批处理调度
+ * 为组合查询接口的请求打开 {@link BatchDispatchContext}，请求内多层依赖的加载在请求线程空闲时立即组批，请求结束后关闭
+ */
+@Component
+public class BatchDispatchInterceptor implements HandlerInterceptor {
+
+    private static final String CONTEXT_ATTRIBUTE = BatchDispatchInterceptor.class.getName() + ".context";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(CONTEXT_ATTRIBUTE, BatchDispatchContext.open());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object context = request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            request.removeAttribute(CONTEXT_ATTRIBUTE);
+            ((BatchDispatchContext) context).close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 查询结果缓存配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.cache")
+public class CacheConfig {
+
+    /**
+     * 是否在批处理加载器前启用结果缓存
+     * 默认: false
+     */
+    private boolean enabled = false;
+
+    /**
+     * 堆内热点层容量(条)
+     * 默认: 10000
+     */
+    private int hotCapacity = 10000;
+
+    /**
+     * 堆外层容量(MB)，0 表示只使用堆内热点层
+     * 默认: 256MB
+     */
+    private int offHeapSizeMb = 256;
+
+    /**
+     * 堆外层每个内存块的大小(MB)，内存块按需分配，写满后整块回收最旧的数据
+     * 默认: 16MB
+     */
+    private int slabSizeMb = 16;
+
+    /**
+     * 内存映射文件路径，为空时使用 DirectByteBuffer
+     * 映射文件不受 -XX:MaxDirectMemorySize 限制，由操作系统页缓存换入换出
+     */
+    private String mappedFile = "";
+}
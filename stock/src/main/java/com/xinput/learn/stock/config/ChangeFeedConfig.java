@@ -0,0 +1,59 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 快照变更推送配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.changes")
+public class ChangeFeedConfig {
+
+    /**
+     * 保留最近多少个版本的变更，客户端断线重连时可以从这些版本续传，更早的版本需要重新全量下载
+     * 默认: 1024
+     */
+    private int bufferSize = 1024;
+
+    /**
+     * 单个版本最多推送的变更代码数，超过时推送 reset 事件，由客户端重新全量下载
+     * 默认: 10000
+     */
+    private int maxDeltaCodes = 10000;
+
+    /**
+     * 最大订阅数，超过时拒绝新订阅
+     * 默认: 1000
+     */
+    private int maxSubscribers = 1000;
+
+    /**
+     * 推送线程数，每个订阅者同一时刻最多占用一个线程，写入慢的客户端不会阻塞其他订阅者
+     * 默认: 4
+     */
+    private int senderThreads = 4;
+
+    /**
+     * 单个订阅者最多积压的待推送事件数，超过时丢弃积压的事件改为推送 reset，由客户端重新全量下载
+     * 默认: 64
+     */
+    private int subscriberQueueSize = 64;
+
+    /**
+     * 心跳间隔(秒)，保持连接并及时发现已断开的客户端
+     * 默认: 15s
+     */
+    private int heartbeatSeconds = 15;
+
+    /**
+     * 单个连接的最长时间(毫秒)，到期后客户端带 Last-Event-ID 自动重连续传
+     * 默认: 1800000ms (30分钟)
+     */
+    private long emitterTimeoutMs = 1800000;
+}
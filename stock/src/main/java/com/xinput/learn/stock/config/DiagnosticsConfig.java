@@ -0,0 +1,29 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 诊断配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.diagnostics")
+public class DiagnosticsConfig {
+
+    /**
+     * 查询接口每多少个请求采样一次请求线程的内存分配，0 表示不采样
+     * 默认: 16
+     */
+    private int allocationSampleEvery = 16;
+
+    /**
+     * 线程分配速率的默认采样时长(毫秒)
+     * 默认: 1000ms
+     */
+    private long allocationWindowMs = 1000;
+}
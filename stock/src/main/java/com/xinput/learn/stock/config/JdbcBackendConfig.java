@@ -0,0 +1,34 @@
+package com.xinput.learn.stock.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * 内嵌数据库后端配置
+ * 数据源相关的自动配置已在启动类中排除，只有 stock.backend.type=jdbc 时才创建数据源、连接池和 JdbcTemplate，
+ * mock 后端不启动 H2 和连接池；数据源仍读取 spring.datasource 下的配置
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.backend.type", havingValue = "jdbc")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class JdbcBackendConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
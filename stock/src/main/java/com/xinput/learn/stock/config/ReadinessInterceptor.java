@@ -0,0 +1,36 @@
+package com.xinput.learn.stock.config;
+
+import com.xinput.learn.stock.consts.StockCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 就绪门控
+ * 首个数据快照发布之前，请求在这里等待，避免读到空数据；等待超时返回 503
+ */
+@Slf4j
+@Component
+public class ReadinessInterceptor implements HandlerInterceptor {
+
+    @Resource
+    private SnapshotConfig snapshotConfig;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (StockCache.isReady()) {
+            return true;
+        }
+        if (StockCache.awaitReady(snapshotConfig.getReadyWaitMs())) {
+            return true;
+        }
+        log.warn("数据尚未就绪，拒绝请求 - {}", request.getRequestURI());
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "数据尚未就绪，请稍后重试");
+        return false;
+    }
+}
@@ -0,0 +1,42 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 数据快照配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.snapshot")
+public class SnapshotConfig {
+
+    /**
+     * 是否启用二进制快照
+     * 启用后启动时优先读取快照，源文件变化时才重新解析文本
+     * 默认: true
+     */
+    private boolean enabled = true;
+
+    /**
+     * 快照文件路径
+     * 默认: data/stock.snapshot
+     */
+    private String path = "data/stock.snapshot";
+
+    /**
+     * 源数据文件(classpath)，"file:" 开头时读取文件系统
+     * 默认: code.txt
+     */
+    private String source = "code.txt";
+
+    /**
+     * 快照发布前，请求最多等待多久(毫秒)，超时返回 503
+     * 默认: 3000ms
+     */
+    private long readyWaitMs = 3000;
+}
@@ -0,0 +1,35 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 标签统计配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.tags")
+public class TagStatsConfig {
+
+    /**
+     * 每个标签预先计算的相关标签个数
+     * 默认: 10
+     */
+    private int topK = 10;
+
+    /**
+     * 全量计算的并行度，0 表示使用 CPU 核数
+     * 默认: 0
+     */
+    private int parallelism = 0;
+
+    /**
+     * 全量计算时单个子任务处理的数据条数，低于该值不再拆分
+     * 默认: 2048
+     */
+    private int forkThreshold = 2048;
+}
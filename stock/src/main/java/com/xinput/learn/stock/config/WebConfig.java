@@ -0,0 +1,62 @@
+package com.xinput.learn.stock.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * Web 配置
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Resource
+    private ReadinessInterceptor readinessInterceptor;
+
+    @Resource
+    private AllocationSamplingInterceptor allocationSamplingInterceptor;
+
+    @Resource
+    private BatchDispatchInterceptor batchDispatchInterceptor;
+
+    @Resource
+    private Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 状态检查接口不等待，直接反映是否就绪
+        registry.addInterceptor(readinessInterceptor)
+                .addPathPatterns("/stock/**")
+                .excludePathPatterns("/stock/status");
+        // 查询接口采样请求线程的内存分配
+        registry.addInterceptor(allocationSamplingInterceptor)
+                .addPathPatterns("/stock/get/**", "/stock/getBatch", "/stock/getBatch/**", "/stock/find/**");
+        // 组合查询接口使用请求级批处理调度
+        registry.addInterceptor(batchDispatchInterceptor)
+                .addPathPatterns("/stock/page/**");
+    }
+
+    /**
+     * 二进制编码 - 客户端通过 Accept 头协商 application/x-jackson-smile 或 application/cbor
+     * 默认转换器不会应用 spring.jackson.* 配置，这里替换为使用同一个 builder 创建的转换器，保证与 JSON 输出一致
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        // builder 是 prototype 作用域，注入的实例只在这里使用
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                jackson2ObjectMapperBuilder.factory(new SmileFactory()).build()));
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                jackson2ObjectMapperBuilder.factory(new CBORFactory()).build()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.xinput.learn.stock.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.xinput.learn.stock.batch.BatchWriterConfig;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 批量写入配置
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "stock.writer")
+public class WriterConfig {
+
+    /**
+     * 刷新间隔时间(毫秒)
+     * 同一个代码在一个间隔内的多次更新合并为一次写入
+     * 每轮刷新发布一次新快照，发布需要复制全部数据，间隔过小会频繁复制快照
+     * 默认: 100ms
+     */
+    private long intervalMs = 100;
+
+    /**
+     * 单次刷新最多写入的代码数量
+     * 默认: 500
+     */
+    private int maxBatchSize = 500;
+
+    /**
+     * 待写入代码的最大数量，超过后新代码的更新直接拒绝
+     * 默认: 10000
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 关闭时等待剩余更新刷新完成的最长时间(毫秒)
+     * 默认: 10000ms
+     */
+    private long shutdownTimeoutMs = 10000;
+
+    /**
+     * 是否启用监控日志
+     * 默认: true
+     */
+    private boolean enableMonitor = true;
+
+    /**
+     * 监控日志打印间隔(秒)
+     * 默认: 60秒
+     */
+    private long monitorIntervalSeconds = 60;
+
+    /**
+     * 转换为写入器配置
+     *
+     * @param name 写入器名称
+     */
+    public BatchWriterConfig.BatchWriterConfigBuilder toWriterConfig(String name) {
+        return BatchWriterConfig.builder()
+                .name(name)
+                .intervalMs(intervalMs)
+                .maxBatchSize(maxBatchSize)
+                .queueCapacity(queueCapacity)
+                .shutdownTimeoutMs(shutdownTimeoutMs)
+                .enableMonitor(enableMonitor)
+                .monitorIntervalSeconds(monitorIntervalSeconds);
+    }
+}
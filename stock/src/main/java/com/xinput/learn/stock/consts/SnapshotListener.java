@@ -0,0 +1,17 @@
+package com.xinput.learn.stock.consts;
+
+/**
+ * 快照发布监听
+ */
+@FunctionalInterface
+public interface SnapshotListener {
+
+    /**
+     * 新快照发布后在发布锁内调用，按版本顺序依次通知，实现需要尽快返回
+     *
+     * @param previous 上一个快照
+     * @param current  新快照
+     * @param version  新快照的版本
+     */
+    void onPublish(StockSnapshot previous, StockSnapshot current, long version);
+}
@@ -2,11 +2,83 @@ package com.xinput.learn.stock.consts;
 
 import com.google.common.collect.Maps;
 import com.xinput.learn.stock.model.Stock;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 public class StockCache {
 
     public static volatile Map<String, Stock> stockMap = Maps.newHashMap();
 
+    /**
+     * 当前发布的快照
+     */
+    private static volatile StockSnapshot snapshot = StockSnapshot.empty();
+
+    /**
+     * 快照版本号，每次发布加一
+     */
+    private static volatile long version = 0;
+
+    /**
+     * 首个快照发布前，就绪门控在这里等待
+     */
+    private static final CountDownLatch READY = new CountDownLatch(1);
+
+    /**
+     * 快照发布监听
+     */
+    private static final List<SnapshotListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * 发布新的快照
+     */
+    public static synchronized void publish(StockSnapshot newSnapshot) {
+        StockSnapshot previous = snapshot;
+        snapshot = newSnapshot;
+        stockMap = newSnapshot.getStockMap();
+        version++;
+        READY.countDown();
+        for (SnapshotListener listener : LISTENERS) {
+            try {
+                listener.onPublish(previous, newSnapshot, version);
+            } catch (RuntimeException e) {
+                log.error("快照发布监听异常 - 版本: {}", version, e);
+            }
+        }
+    }
+
+    public static void addListener(SnapshotListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(SnapshotListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static StockSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public static long getVersion() {
+        return version;
+    }
+
+    public static boolean isReady() {
+        return READY.getCount() == 0;
+    }
+
+    /**
+     * 等待首个快照发布
+     *
+     * @return 超时前是否已就绪
+     */
+    public static boolean awaitReady(long timeoutMs) throws InterruptedException {
+        return READY.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,139 @@
+package com.xinput.learn.stock.consts;
+
+import com.google.common.collect.Lists;
+import com.xinput.learn.stock.model.Stock;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 数据快照
+ * 一次加载得到的完整数据及其索引，发布后只读
+ */
+@Getter
+public class StockSnapshot {
+
+    /**
+     * 代码 -> 信息
+     */
+    private final Map<String, Stock> stockMap;
+
+    /**
+     * 有概念标签的数据
+     */
+    private final List<Stock> reasonStocks;
+
+    /**
+     * 没有概念标签的数据
+     */
+    private final List<Stock> noReasonStocks;
+
+    /**
+     * 源文件版本(大小和修改时间)，用于判断二进制快照是否过期
+     */
+    private final long sourceVersion;
+
+    /**
+     * 快照生成时间
+     */
+    private final long createdAt;
+
+    /**
+     * 代码 -> 该数据的 JSON 编码，按需填充，只缓存本快照中的对象，数组不可修改
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, byte[]> jsonFragments = new ConcurrentHashMap<>();
+
+    /**
+     * 相对上一个已发布快照发生变化的代码，增量更新时在发布前设置；为 null 表示未知(如全量加载)，需要全量比较
+     */
+    private volatile Set<String> changedCodes;
+
+    public StockSnapshot(Map<String, Stock> stockMap, List<Stock> reasonStocks, List<Stock> noReasonStocks,
+                         long sourceVersion, long createdAt) {
+        this.stockMap = stockMap;
+        this.reasonStocks = Collections.unmodifiableList(reasonStocks);
+        this.noReasonStocks = Collections.unmodifiableList(noReasonStocks);
+        this.sourceVersion = sourceVersion;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * 由数据构建快照，同时建立标签索引
+     */
+    public static StockSnapshot of(Map<String, Stock> stockMap, long sourceVersion) {
+        List<Stock> reasonStocks = Lists.newArrayListWithCapacity(stockMap.size());
+        List<Stock> noReasonStocks = Lists.newArrayListWithCapacity(stockMap.size());
+        for (Stock stock : stockMap.values()) {
+            if (CollectionUtils.isNotEmpty(stock.getReason())) {
+                reasonStocks.add(stock);
+            } else {
+                noReasonStocks.add(stock);
+            }
+        }
+        return new StockSnapshot(stockMap, reasonStocks, noReasonStocks, sourceVersion, System.currentTimeMillis());
+    }
+
+    public static StockSnapshot empty() {
+        return of(Collections.emptyMap(), 0);
+    }
+
+    public int size() {
+        return stockMap.size();
+    }
+
+    public byte[] getJsonFragment(String code) {
+        return jsonFragments.get(code);
+    }
+
+    public void putJsonFragment(String code, byte[] fragment) {
+        jsonFragments.put(code, fragment);
+    }
+
+    public int getJsonFragmentCount() {
+        return jsonFragments.size();
+    }
+
+    /**
+     * 已缓存的 JSON 编码总字节数
+     */
+    public long getJsonFragmentBytes() {
+        long bytes = 0;
+        for (byte[] fragment : jsonFragments.values()) {
+            bytes += fragment.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * 沿用上一个快照中未变化数据的 JSON 编码，变化的代码在下次使用时重新编码
+     *
+     * @param previous     上一个快照
+     * @param changedCodes 发生变化的代码
+     * @return 当前快照
+     */
+    public StockSnapshot inheritJsonFragments(StockSnapshot previous, Set<String> changedCodes) {
+        for (Map.Entry<String, byte[]> entry : previous.jsonFragments.entrySet()) {
+            if (!changedCodes.contains(entry.getKey()) && stockMap.get(entry.getKey()) == previous.stockMap.get(entry.getKey())) {
+                jsonFragments.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 记录相对上一个快照发生变化的代码，只能在基于当前已发布快照增量生成、发布之前调用
+     *
+     * @return 当前快照
+     */
+    public StockSnapshot markChanged(Set<String> changedCodes) {
+        this.changedCodes = Collections.unmodifiableSet(changedCodes);
+        return this;
+    }
+}
@@ -0,0 +1,66 @@
+package com.xinput.learn.stock.controller;
+
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.batch.BatchLoaderRegistry;
+import com.xinput.learn.stock.model.ConfigAuditEntry;
+import com.xinput.learn.stock.service.BatchConfigService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批处理运行时管理接口
+ */
+@RestController
+@RequestMapping("/stock/admin")
+public class BatchAdminController {
+
+    @Resource
+    private BatchConfigService batchConfigService;
+
+    @Resource
+    private BatchLoaderRegistry batchLoaderRegistry;
+
+    /**
+     * 当前绑定的批处理配置和各加载器实际生效的配置
+     */
+    @GetMapping("/batch-config")
+    public Map<String, Object> batchConfig() {
+        Map<String, Object> loaders = Maps.newLinkedHashMap();
+        batchLoaderRegistry.getAll().forEach(loader -> loaders.put(loader.getConfig().getName(), loader.getConfig()));
+
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        result.put("batchConfig", batchConfigService.getCurrentConfig());
+        result.put("loaders", loaders);
+        return result;
+    }
+
+    /**
+     * 运行时修改批处理配置，已排队的请求不受影响
+     * 例如: {"interval-ms": 20, "max-batch-size": 200, "queue-capacity": 20000, "overflow-strategy": "ADAPTIVE_LIMIT"}
+     */
+    @PostMapping("/batch-config")
+    public ConfigAuditEntry updateBatchConfig(@RequestBody Map<String, Object> request, HttpServletRequest httpRequest) {
+        String operator = httpRequest.getHeader("X-Operator");
+        if (StringUtils.isBlank(operator)) {
+            operator = httpRequest.getRemoteAddr();
+        }
+        return batchConfigService.update(request, operator);
+    }
+
+    /**
+     * 配置变更审计记录，最新的在前
+     */
+    @GetMapping("/batch-config/audit")
+    public List<ConfigAuditEntry> audit() {
+        return batchConfigService.getAuditLog();
+    }
+}
@@ -0,0 +1,60 @@
+package com.xinput.learn.stock.controller;
+
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.config.DiagnosticsConfig;
+import com.xinput.learn.stock.service.DiagnosticsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.Map;
+
+/**
+ * 内存诊断接口
+ */
+@RestController
+@RequestMapping("/stock/diagnostics")
+public class DiagnosticsController {
+
+    @Resource
+    private DiagnosticsService diagnosticsService;
+
+    @Resource
+    private DiagnosticsConfig diagnosticsConfig;
+
+    /**
+     * 堆内存估算和线程分配速率
+     */
+    @GetMapping("")
+    public Map<String, Object> diagnostics(@RequestParam(required = false) Long sampleMs) throws InterruptedException {
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        result.put("memory", diagnosticsService.memory());
+        result.put("allocation", diagnosticsService.allocation(windowMs(sampleMs)));
+        return result;
+    }
+
+    /**
+     * 各子系统的堆内存估算和 JVM 实际用量
+     */
+    @GetMapping("/memory")
+    public Map<String, Object> memory() {
+        return diagnosticsService.memory();
+    }
+
+    /**
+     * 线程分配速率，请求会阻塞采样时长
+     *
+     * @param sampleMs 采样时长(毫秒)，默认 stock.diagnostics.allocation-window-ms
+     */
+    @GetMapping("/allocation")
+    public Map<String, Object> allocation(@RequestParam(required = false) Long sampleMs) throws InterruptedException {
+        return diagnosticsService.allocation(windowMs(sampleMs));
+    }
+
+    private long windowMs(Long sampleMs) {
+        long windowMs = sampleMs == null ? diagnosticsConfig.getAllocationWindowMs() : sampleMs;
+        return Math.max(1, Math.min(windowMs, 60_000));
+    }
+}
@@ -0,0 +1,97 @@
+package com.xinput.learn.stock.controller;
+
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.batch.StockReactiveBatchLoader;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.service.StockService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 响应式接口 - 与 {@link StockController} 一一对应，返回 Mono/Flux，请求线程不阻塞等待批处理结果
+ */
+@RestController
+@RequestMapping("/stock/reactive")
+public class ReactiveStockController {
+
+    @Resource
+    private StockService stockService;
+
+    @Resource
+    private StockReactiveBatchLoader stockReactiveBatchLoader;
+
+    @GetMapping("/all")
+    public Mono<Map<String, Stock>> all() {
+        return Mono.fromSupplier(() -> StockCache.stockMap);
+    }
+
+    /**
+     * 单个查询(不使用批处理) - 阻塞的后端查询放到 boundedElastic 上执行
+     */
+    @GetMapping("/get/{code}")
+    public Mono<Stock> get(@PathVariable(name = "code") String code) {
+        return Mono.fromCallable(() -> stockService.getStock(code))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 单个查询(使用批处理)
+     */
+    @GetMapping("/getBatch/{code}")
+    public Mono<Stock> getBatch(@PathVariable(name = "code") String code) {
+        return stockReactiveBatchLoader.load(code);
+    }
+
+    /**
+     * 多个查询(使用批处理) - 结果顺序与代码顺序一致
+     *
+     * @param codes 代码列表，逗号分隔
+     */
+    @GetMapping("/getBatch")
+    public Flux<Stock> getBatchMany(@RequestParam String codes) {
+        return stockReactiveBatchLoader.loadMany(Flux.fromIterable(Arrays.asList(codes.split(",")))
+                .map(String::trim));
+    }
+
+    @GetMapping("/reason")
+    public Mono<Map<String, Object>> reason() {
+        return Mono.fromSupplier(() -> toResult(stockService.reason()));
+    }
+
+    @GetMapping("/noreason")
+    public Mono<Map<String, Object>> noreason() {
+        return Mono.fromSupplier(() -> toResult(stockService.noreason()));
+    }
+
+    /**
+     * 获取响应式批处理器监控指标
+     */
+    @GetMapping("/metrics")
+    public Mono<Map<String, Object>> metrics() {
+        return Mono.fromSupplier(() -> {
+            Map<String, Object> result = Maps.newHashMap();
+            result.put("metrics", stockReactiveBatchLoader.getMetrics());
+            result.put("config", stockReactiveBatchLoader.getConfig());
+            return result;
+        });
+    }
+
+    private Map<String, Object> toResult(List<Stock> stocks) {
+        Map<String, Object> map = Maps.newHashMap();
+        map.put("size", stocks.size());
+        map.put("stocks", stocks);
+        return map;
+    }
+}
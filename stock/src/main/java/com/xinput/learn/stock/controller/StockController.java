@@ -1,37 +1,130 @@
 package com.xinput.learn.stock.controller;
 
 import com.google.common.collect.Maps;
+import com.xinput.learn.stock.batch.BatchDispatchContext;
+import com.xinput.learn.stock.batch.BatchLoaderRegistry;
+import com.xinput.learn.stock.batch.BatchPriority;
 import com.xinput.learn.stock.batch.StockBatchLoader;
+import com.xinput.learn.stock.batch.StockBatchWriter;
+import com.xinput.learn.stock.cache.StockJsonFragments;
+import com.xinput.learn.stock.cache.TagStatistics;
+import com.xinput.learn.stock.cache.TieredCacheMetrics;
+import com.xinput.learn.stock.cache.TieredStockCache;
 import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.model.RelatedTag;
 import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.model.StockUpdate;
+import com.xinput.learn.stock.service.StockChangeFeed;
 import com.xinput.learn.stock.service.StockService;
+import com.xinput.learn.stock.service.TagStatisticsService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/stock")
 public class StockController {
 
+    private static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+
+    private static final String TENANT_HEADER = "X-Tenant-Id";
+
     @Resource
     private StockService stockService;
 
     @Resource
     private StockBatchLoader stockBatchLoader;
 
+    @Resource
+    private BatchLoaderRegistry batchLoaderRegistry;
+
+    @Resource
+    private StockBatchWriter stockBatchWriter;
+
+    @Resource
+    private TieredStockCache tieredStockCache;
+
+    @Resource
+    private StockJsonFragments stockJsonFragments;
+
+    @Resource
+    private StockChangeFeed stockChangeFeed;
+
+    @Resource
+    private TagStatisticsService tagStatisticsService;
+
+    /**
+     * 状态检查 - 数据快照发布前返回 503
+     */
     @GetMapping("/status")
-    public String status() {
-        return "OK";
+    public ResponseEntity<String> status() {
+        if (!StockCache.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("STARTING");
+        }
+        return ResponseEntity.ok("OK");
     }
 
+    /**
+     * 全部数据 - 响应头 X-Snapshot-Version 为数据对应的快照版本，可作为 /stock/changes 的 since 参数；
+     * 带 If-None-Match 且版本未变化时返回 304
+     */
     @GetMapping("/all")
-    public Map<String, Stock> all() {
-        return StockCache.stockMap;
+    public ResponseEntity<Map<String, Stock>> all(WebRequest webRequest) {
+        long version = StockCache.getVersion();
+        if (webRequest.checkNotModified(snapshotETag(version))) {
+            return null;
+        }
+        return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, String.valueOf(version)).body(StockCache.stockMap);
+    }
+
+    /**
+     * 快照变更推送(SSE) - 每次快照发布推送一次增量，断线重连时浏览器自动带上 Last-Event-ID 续传
+     *
+     * @param since 已有数据的快照版本(如 /stock/all 的 X-Snapshot-Version)，不传时只推送之后的变更
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(required = false) Long since,
+                              @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        if (StringUtils.isNumeric(lastEventId)) {
+            since = Long.parseLong(lastEventId);
+        }
+        return stockChangeFeed.subscribe(since);
+    }
+
+    /**
+     * 变更推送状态
+     */
+    @GetMapping("/changes/metrics")
+    public Map<String, Object> changesMetrics() {
+        return stockChangeFeed.getMetrics();
     }
 
     /**
@@ -45,20 +138,122 @@ public class StockController {
     /**
      * 单个查询(使用批处理) - 多个并发请求会被合并成一个批量查询
      * 提高并发吞吐量，减少数据库查询次数
+     *
+     * JSON 响应直接写出快照上预编码的片段，Smile/CBOR 仍按 Accept 头协商编码
+     *
+     * @param priority 请求优先级: HIGH | NORMAL | LOW，默认 NORMAL
+     * @param tenant   租户或调用方标识(X-Tenant-Id 请求头)，按租户限制配额并公平分配批次位置
      */
     @GetMapping("/getBatch/{code}")
-    public Stock getBatch(@PathVariable(name = "code") String code) {
+    public ResponseEntity<Stock> getBatch(@PathVariable(name = "code") String code,
+                                          @RequestParam(defaultValue = "NORMAL") BatchPriority priority,
+                                          @RequestHeader(name = TENANT_HEADER, required = false) String tenant,
+                                          HttpServletRequest request,
+                                          HttpServletResponse response) throws IOException {
         // 调用批处理加载器，等待异步结果完成后返回
-        return stockBatchLoader.loadStock(code).join();
+        Stock stock = stockBatchLoader.loadStock(code, priority, tenant).join();
+        if (!acceptsJson(request)) {
+            return ResponseEntity.ok(stock);
+        }
+        stockJsonFragments.write(stock, response);
+        return null;
+    }
+
+    /**
+     * 多个查询(使用批处理) - 结果顺序与代码顺序一致，JSON 响应由预编码片段拼接
+     *
+     * @param codes  代码列表，逗号分隔
+     * @param tenant 租户或调用方标识(X-Tenant-Id 请求头)
+     */
+    @GetMapping("/getBatch")
+    public ResponseEntity<List<Stock>> getBatchMany(@RequestParam String codes,
+                                                    @RequestParam(defaultValue = "NORMAL") BatchPriority priority,
+                                                    @RequestHeader(name = TENANT_HEADER, required = false) String tenant,
+                                                    HttpServletRequest request,
+                                                    HttpServletResponse response) throws IOException {
+        String[] codeArray = codes.split(",");
+        List<CompletableFuture<Stock>> futures = new ArrayList<>(codeArray.length);
+        for (String code : codeArray) {
+            futures.add(stockBatchLoader.loadStock(code.trim(), priority, tenant));
+        }
+        List<Stock> stocks = new ArrayList<>(futures.size());
+        for (CompletableFuture<Stock> future : futures) {
+            stocks.add(future.join());
+        }
+        if (!acceptsJson(request)) {
+            return ResponseEntity.ok(stocks);
+        }
+        stockJsonFragments.write(stocks, response);
+        return null;
+    }
+
+    /**
+     * 单个查询(声明式批处理) - 通过 @Batched 注解合并请求，无需手写加载器
+     */
+    @GetMapping("/find/{code}")
+    public Stock find(@PathVariable(name = "code") String code) {
+        return stockService.findStock(code);
+    }
+
+    /**
+     * 组合查询 - 数据本身、同标签的数据、以及与这些数据同标签的相关数据，三层依赖的加载
+     * 请求级调度上下文中每层加载在请求线程空闲时立即组批，不等待批处理间隔
+     *
+     * @param peers   同标签数据个数
+     * @param related 相关数据个数
+     */
+    @GetMapping("/page/{code}")
+    public Map<String, Object> page(@PathVariable(name = "code") String code,
+                                    @RequestParam(defaultValue = "10") int peers,
+                                    @RequestParam(defaultValue = "10") int related) throws Exception {
+        BatchDispatchContext context = BatchDispatchContext.current();
+        Executor executor = context != null ? context : Runnable::run;
+        long startTime = System.currentTimeMillis();
+
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        Set<String> seen = new HashSet<>();
+        seen.add(code);
+        CompletableFuture<Map<String, Object>> page = stockBatchLoader.loadStock(code)
+                .thenComposeAsync(stock -> {
+                    result.put("stock", stock);
+                    List<String> peerCodes = stockService.tagPeers(Collections.singletonList(stock), seen, peers);
+                    seen.addAll(peerCodes);
+                    return loadAll(peerCodes);
+                }, executor)
+                .thenComposeAsync(peerStocks -> {
+                    result.put("peers", peerStocks);
+                    return loadAll(stockService.tagPeers(peerStocks, seen, related));
+                }, executor)
+                .thenApply(relatedStocks -> {
+                    result.put("related", relatedStocks);
+                    return result;
+                });
+
+        long timeoutMs = stockBatchLoader.getConfig().getTimeoutMs();
+        if (context == null) {
+            page.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } else {
+            context.await(page, timeoutMs);
+            result.put("dispatchCount", context.getDispatchCount());
+        }
+        result.put("costTime", (System.currentTimeMillis() - startTime) + "ms");
+        return result;
     }
 
+    /**
+     * 有标签的数据 - 版本头和 304 规则同 /stock/all
+     */
     @GetMapping("/reason")
-    public Map<String, Object> reason() {
+    public ResponseEntity<Map<String, Object>> reason(WebRequest webRequest) {
+        long version = StockCache.getVersion();
+        if (webRequest.checkNotModified(snapshotETag(version))) {
+            return null;
+        }
         List<Stock> stocks = stockService.reason();
         Map<String, Object> map = Maps.newHashMap();
         map.put("size", stocks.size());
         map.put("stocks", stocks);
-        return map;
+        return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, String.valueOf(version)).body(map);
     }
 
     @GetMapping("/noreason")
@@ -70,6 +265,57 @@ public class StockController {
         return map;
     }
 
+    /**
+     * 标签统计 - 返回快照发布时预先计算的结果，版本头和 304 规则同 /stock/all
+     *
+     * @param limit 返回数据条数最多的前 limit 个标签
+     * @param k     每个标签返回的相关标签个数，不超过 stock.tags.top-k
+     * @param tag   只返回指定标签
+     */
+    @GetMapping("/tags/stats")
+    public ResponseEntity<Map<String, Object>> tagStats(@RequestParam(defaultValue = "50") int limit,
+                                                        @RequestParam(defaultValue = "10") int k,
+                                                        @RequestParam(required = false) String tag,
+                                                        WebRequest webRequest) {
+        TagStatistics statistics = tagStatisticsService.getStatistics();
+        if (statistics == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        if (webRequest.checkNotModified(snapshotETag(statistics.getVersion()))) {
+            return null;
+        }
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        result.put("version", statistics.getVersion());
+        result.put("stockCount", statistics.getStockCount());
+        result.put("tagCount", statistics.getCounts().size());
+        result.put("pairCount", statistics.getPairCount());
+        result.put("computeMs", statistics.getComputeMs());
+        result.put("incremental", statistics.isIncremental());
+        List<String> tags = StringUtils.isBlank(tag) ? statistics.getTagsByCount()
+                : (statistics.getCount(tag) > 0 ? Collections.singletonList(tag) : Collections.emptyList());
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (String name : tags.subList(0, Math.min(Math.max(0, limit), tags.size()))) {
+            List<RelatedTag> related = new ArrayList<>();
+            for (String other : statistics.getRelated().getOrDefault(name, Collections.emptyList())) {
+                if (related.size() >= k) {
+                    break;
+                }
+                related.add(RelatedTag.builder()
+                        .tag(other)
+                        .count(statistics.getCooccurrence().get(name).get(other))
+                        .jaccard(statistics.jaccard(name, other))
+                        .build());
+            }
+            Map<String, Object> item = Maps.newLinkedHashMap();
+            item.put("tag", name);
+            item.put("count", statistics.getCount(name));
+            item.put("related", related);
+            items.add(item);
+        }
+        result.put("tags", items);
+        return ResponseEntity.ok().header(SNAPSHOT_VERSION_HEADER, String.valueOf(statistics.getVersion())).body(result);
+    }
+
     /**
      * 获取批处理器监控指标
      */
@@ -78,6 +324,111 @@ public class StockController {
         Map<String, Object> result = Maps.newHashMap();
         result.put("metrics", stockBatchLoader.getMetrics());
         result.put("config", stockBatchLoader.getConfig());
+        Map<String, Object> fragments = Maps.newHashMap();
+        fragments.put("hitCount", stockJsonFragments.getHitCount());
+        fragments.put("encodeCount", stockJsonFragments.getEncodeCount());
+        result.put("jsonFragments", fragments);
+        return result;
+    }
+
+    /**
+     * 批量更新 - 更新在写入器中按代码合并后批量写入，写入成功后发布新快照
+     *
+     * @param updates 更新列表
+     * @param sync    是否等待写入完成后再返回，默认 false
+     */
+    @PostMapping("/update")
+    public Map<String, Object> update(@RequestBody List<StockUpdate> updates,
+                                      @RequestParam(defaultValue = "false") boolean sync) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(updates.size());
+        for (StockUpdate update : updates) {
+            futures.add(stockBatchWriter.writeStock(update));
+        }
+
+        long rejected = 0;
+        if (sync) {
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    rejected++;
+                }
+            }
+        } else {
+            rejected = futures.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+        }
+
+        Map<String, Object> result = Maps.newHashMap();
+        result.put("accepted", updates.size() - rejected);
+        result.put("failed", rejected);
+        result.put("version", StockCache.getVersion());
+        return result;
+    }
+
+    /**
+     * 获取批量写入器的配置和监控指标
+     */
+    @GetMapping("/writer")
+    public Map<String, Object> writer() {
+        Map<String, Object> result = Maps.newHashMap();
+        result.put("metrics", stockBatchWriter.getMetrics());
+        result.put("config", stockBatchWriter.getConfig());
         return result;
     }
+
+    /**
+     * 获取分层缓存各层的命中和占用情况
+     */
+    @GetMapping("/cache")
+    public TieredCacheMetrics cache() {
+        return tieredStockCache.getMetrics();
+    }
+
+    /**
+     * 获取所有批处理加载器的配置和监控指标
+     */
+    @GetMapping("/loaders")
+    public Map<String, Object> loaders() {
+        return batchLoaderRegistry.getLoaders();
+    }
+
+    private CompletableFuture<List<Stock>> loadAll(List<String> codes) {
+        List<CompletableFuture<Stock>> futures = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            futures.add(stockBatchLoader.loadStock(code));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<Stock> stocks = new ArrayList<>(futures.size());
+            for (CompletableFuture<Stock> future : futures) {
+                stocks.add(future.join());
+            }
+            return stocks;
+        });
+    }
+
+    /**
+     * 快照版本作为 ETag，先读版本再读数据，数据只会比版本新，客户端最多多下载一次
+     */
+    private String snapshotETag(long version) {
+        return "\"v" + version + "\"";
+    }
+
+    /**
+     * 客户端是否接受 JSON：没有 Accept 头、Accept 头无法解析，或按优先级排序后第一个可接受的类型兼容 JSON
+     */
+    private boolean acceptsJson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isEmpty()) {
+            return true;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            // 与没有 Accept 头一样按默认的 JSON 响应，不因请求头格式错误返回 500
+            return true;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        return !mediaTypes.isEmpty() && mediaTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+    }
 }
@@ -0,0 +1,55 @@
+package com.xinput.learn.stock.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批处理配置变更审计记录
+ */
+@Getter
+@Builder
+public class ConfigAuditEntry {
+
+    /**
+     * 变更时间
+     */
+    private long time;
+
+    /**
+     * 操作人，取请求头 X-Operator，缺省为请求来源地址
+     */
+    private String operator;
+
+    /**
+     * 提交的配置项
+     */
+    private Map<String, Object> request;
+
+    /**
+     * 实际发生变化的配置项: 属性名 -> [旧值, 新值]
+     */
+    private Map<String, List<Object>> changes;
+
+    /**
+     * 已应用新配置的加载器
+     */
+    private List<String> loaders;
+
+    /**
+     * 各加载器未生效、需要重启的配置项
+     */
+    private Map<String, List<String>> restartRequired;
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+}
@@ -0,0 +1,27 @@
+package com.xinput.learn.stock.model;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * 相关标签
+ */
+@Getter
+@Builder
+public class RelatedTag {
+
+    /**
+     * 标签
+     */
+    private final String tag;
+
+    /**
+     * 同时带有两个标签的数据条数
+     */
+    private final int count;
+
+    /**
+     * Jaccard 相似度: 同时带有两个标签的条数 / 带有任一标签的条数
+     */
+    private final double jaccard;
+}
@@ -0,0 +1,41 @@
+package com.xinput.learn.stock.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 一次快照发布相对上一版本的变更
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StockChange {
+
+    /**
+     * 快照版本
+     */
+    private final long version;
+
+    /**
+     * 发布时间
+     */
+    private final long time;
+
+    /**
+     * 新增的数据
+     */
+    private final List<Stock> added;
+
+    /**
+     * 删除的代码
+     */
+    private final List<String> removed;
+
+    /**
+     * 变化的数据
+     */
+    private final List<StockDelta> changed;
+}
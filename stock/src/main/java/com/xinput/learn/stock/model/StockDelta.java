@@ -0,0 +1,36 @@
+package com.xinput.learn.stock.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 单条数据的变更，只包含变化的部分
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StockDelta {
+
+    /**
+     * 代码
+     */
+    private final String code;
+
+    /**
+     * 新名称，名称未变化时为空
+     */
+    private final String name;
+
+    /**
+     * 新增的标签
+     */
+    private final List<String> addedTags;
+
+    /**
+     * 移除的标签
+     */
+    private final List<String> removedTags;
+}
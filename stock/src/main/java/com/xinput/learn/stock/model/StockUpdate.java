@@ -0,0 +1,34 @@
+package com.xinput.learn.stock.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 信息更新，字段为空表示不修改
+ */
+@Getter
+@Setter
+public class StockUpdate {
+
+    /**
+     * 代码
+     */
+    private String code;
+
+    /**
+     * 名称，ST 状态体现在名称中，如 *ST高升
+     */
+    private String name;
+
+    /**
+     * 概念标签
+     */
+    private List<String> reason;
+
+    /**
+     * true: 标签与已有标签合并；false: 替换已有标签
+     */
+    private boolean mergeReason;
+}
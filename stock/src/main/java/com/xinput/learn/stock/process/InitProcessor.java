@@ -1,18 +1,56 @@
 package com.xinput.learn.stock.process;
 
+import com.xinput.learn.stock.config.SnapshotConfig;
 import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
 import com.xinput.learn.stock.util.StockFactory;
+import com.xinput.learn.stock.util.StockSnapshotCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Resource;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
 @Slf4j
 @Component
 public class InitProcessor implements ApplicationRunner {
 
+    @Resource
+    private SnapshotConfig snapshotConfig;
+
     @Override
     public void run(ApplicationArguments args) {
-        StockCache.stockMap = StockFactory.reslove("code.txt");
+        long startTime = System.currentTimeMillis();
+        String source = snapshotConfig.getSource();
+        long sourceVersion = StockSnapshotCodec.sourceVersion(source);
+        Path path = Paths.get(snapshotConfig.getPath());
+
+        // 优先读取二进制快照，快照不存在、损坏或过期时再解析文本
+        StockSnapshot snapshot = snapshotConfig.isEnabled() ? StockSnapshotCodec.read(path, sourceVersion) : null;
+        if (snapshot != null) {
+            StockCache.publish(snapshot);
+            log.info("从快照加载数据完成 - 数量: {}, 耗时: {}ms", snapshot.size(), System.currentTimeMillis() - startTime);
+            return;
+        }
+
+        Map<String, Stock> stockMap = StockFactory.reslove(source);
+        snapshot = StockSnapshot.of(stockMap, sourceVersion);
+        StockCache.publish(snapshot);
+        log.info("从文本加载数据完成 - 数量: {}, 耗时: {}ms", snapshot.size(), System.currentTimeMillis() - startTime);
+
+        // 加载成功后写入快照，供下次启动使用
+        if (snapshotConfig.isEnabled() && !stockMap.isEmpty()) {
+            try {
+                StockSnapshotCodec.write(path, snapshot);
+                log.info("写入数据快照 - {}", path.toAbsolutePath());
+            } catch (Exception e) {
+                log.warn("写入数据快照失败 - {}", path.toAbsolutePath(), e);
+            }
+        }
     }
 }
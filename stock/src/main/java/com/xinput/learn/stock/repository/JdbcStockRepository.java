@@ -0,0 +1,213 @@
+package com.xinput.learn.stock.repository;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.config.BackendConfig;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.util.StockFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 内嵌数据库后端
+ * <p>
+ * 批量查询拆分为多条 IN 查询并行执行：
+ * 1. 并行查询数 = 连接池大小 * queryPoolShare，所有批次和分区的 IN 查询共享这些名额，
+ * 多个批次同时查询时不会占满连接池，单个查询和写入始终有连接可用
+ * 2. 每条 IN 查询的参数个数 = 批量 / 并行查询数，限制在 [inMinSize, inMaxSize]，批量越大单条查询越大
+ * 3. 参数个数向上取整到 2 的幂，不足部分重复最后一个 key 补齐，SQL 只有少数几种形态，预编译语句缓存可以命中
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "stock.backend.type", havingValue = "jdbc")
+public class JdbcStockRepository implements StockRepository {
+
+    private static final String SELECT = "SELECT code, name, reason FROM stock WHERE code ";
+
+    private static final RowMapper<Stock> STOCK_ROW_MAPPER = (rs, rowNum) -> {
+        Stock stock = new Stock();
+        stock.setCode(rs.getString(1));
+        stock.setName(rs.getString(2));
+        String reason = rs.getString(3);
+        if (reason != null) {
+            stock.setReason(Lists.newArrayList(StringUtils.split(reason, "+")));
+        }
+        return stock;
+    };
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private BackendConfig backendConfig;
+
+    /**
+     * 按参数个数缓存的 IN 查询 SQL，下标为 log2(参数个数)
+     */
+    private String[] inSqls;
+
+    /**
+     * 批量查询的最大并行数，所有批次共享
+     */
+    @Getter
+    private int queryParallelism;
+
+    /**
+     * 批量查询的连接名额，当前线程和查询线程执行 IN 查询前都要获取
+     */
+    private Semaphore queryPermits;
+
+    private ExecutorService queryExecutor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = dataSource instanceof HikariDataSource
+                ? ((HikariDataSource) dataSource).getMaximumPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        queryParallelism = Math.max(1, (int) (poolSize * backendConfig.getQueryPoolShare()));
+        queryPermits = new Semaphore(queryParallelism);
+        int maxSize = Integer.highestOneBit(Math.max(1, backendConfig.getInMaxSize()));
+        inSqls = new String[Integer.numberOfTrailingZeros(maxSize) + 1];
+        for (int i = 0; i < inSqls.length; i++) {
+            inSqls[i] = SELECT + "IN (" + StringUtils.repeat("?", ",", 1 << i) + ")";
+        }
+        queryExecutor = Executors.newFixedThreadPool(queryParallelism, r -> {
+            Thread thread = new Thread(r, "stock-jdbc-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long startTime = System.currentTimeMillis();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS stock ("
+                + "code VARCHAR(16) PRIMARY KEY, name VARCHAR(64) NOT NULL, reason VARCHAR(1024))");
+        jdbcTemplate.execute("TRUNCATE TABLE stock");
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Stock stock : StockFactory.reslove(backendConfig.getSource()).values()) {
+            rows.add(toRow(stock));
+        }
+        for (List<Object[]> chunk : Lists.partition(rows, 1000)) {
+            jdbcTemplate.batchUpdate("INSERT INTO stock (code, name, reason) VALUES (?, ?, ?)", chunk);
+        }
+
+        log.info("内嵌数据库初始化完成 - 数量: {}, 耗时: {}ms, 连接池大小: {}, 并行查询数: {}, IN 参数个数: [{}, {}], 建议最大批量: {}",
+                rows.size(),
+                System.currentTimeMillis() - startTime,
+                poolSize,
+                queryParallelism,
+                backendConfig.getInMinSize(),
+                maxSize,
+                queryParallelism * maxSize);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (queryExecutor != null) {
+            queryExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public Stock findByCode(String code) {
+        List<Stock> stocks = jdbcTemplate.query(SELECT + "= ?", STOCK_ROW_MAPPER, code);
+        return stocks.isEmpty() ? null : stocks.get(0);
+    }
+
+    @Override
+    public Map<String, Stock> findByCodes(List<String> codes) {
+        if (CollectionUtils.isEmpty(codes)) {
+            return Collections.emptyMap();
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(codes));
+        List<List<String>> chunks = Lists.partition(distinct, inSize(distinct.size()));
+
+        Map<String, Stock> stockMap = Maps.newHashMapWithExpectedSize(distinct.size());
+        if (chunks.size() == 1) {
+            putAll(stockMap, queryIn(chunks.get(0)));
+            return stockMap;
+        }
+
+        // 多条 IN 查询并行执行，当前线程执行第一条；同时执行的查询数受共享名额限制
+        List<CompletableFuture<List<Stock>>> futures = new ArrayList<>(chunks.size() - 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            List<String> chunk = chunks.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> queryIn(chunk), queryExecutor));
+        }
+        putAll(stockMap, queryIn(chunks.get(0)));
+        for (CompletableFuture<List<Stock>> future : futures) {
+            putAll(stockMap, future.join());
+        }
+        return stockMap;
+    }
+
+    @Override
+    public void saveAll(Collection<Stock> stocks) {
+        List<Object[]> rows = new ArrayList<>(stocks.size());
+        for (Stock stock : stocks) {
+            rows.add(toRow(stock));
+        }
+        jdbcTemplate.batchUpdate("MERGE INTO stock (code, name, reason) KEY (code) VALUES (?, ?, ?)", rows);
+    }
+
+    private Object[] toRow(Stock stock) {
+        String reason = CollectionUtils.isEmpty(stock.getReason()) ? null : String.join("+", stock.getReason());
+        return new Object[]{stock.getCode(), stock.getName(), reason};
+    }
+
+    /**
+     * 单条 IN 查询的参数个数，随批量和并行查询数自适应
+     */
+    private int inSize(int keyCount) {
+        int perConnection = (keyCount + queryParallelism - 1) / queryParallelism;
+        int maxSize = 1 << (inSqls.length - 1);
+        return Math.min(maxSize, Math.max(backendConfig.getInMinSize(), perConnection));
+    }
+
+    private List<Stock> queryIn(List<String> codes) {
+        int bucket = codes.size() <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(codes.size() - 1);
+        int size = 1 << bucket;
+        Object[] args = new Object[size];
+        for (int i = 0; i < size; i++) {
+            // 不足部分重复最后一个 key 补齐
+            args[i] = codes.get(Math.min(i, codes.size() - 1));
+        }
+        // 名额在查询前获取、查询后释放，等待其他查询结果时不持有，不会互相等待
+        queryPermits.acquireUninterruptibly();
+        try {
+            return jdbcTemplate.query(inSqls[bucket], STOCK_ROW_MAPPER, args);
+        } finally {
+            queryPermits.release();
+        }
+    }
+
+    private void putAll(Map<String, Stock> stockMap, List<Stock> stocks) {
+        for (Stock stock : stocks) {
+            stockMap.put(stock.getCode(), stock);
+        }
+    }
+}
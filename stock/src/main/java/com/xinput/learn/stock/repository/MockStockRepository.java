@@ -0,0 +1,48 @@
+package com.xinput.learn.stock.repository;
+
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.util.StockFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 模拟后端 - 从内存读取数据并随机休眠，模拟数据库耗时
+ */
+@Repository
+@ConditionalOnProperty(name = "stock.backend.type", havingValue = "mock", matchIfMissing = true)
+public class MockStockRepository implements StockRepository {
+
+    @Override
+    public Stock findByCode(String code) {
+        // 模拟查询数据库耗时
+        StockFactory.sleep(ThreadLocalRandom.current().nextInt(100, 1000));
+        return StockCache.stockMap.get(code);
+    }
+
+    @Override
+    public Map<String, Stock> findByCodes(List<String> codes) {
+        // 模拟查询数据库耗时
+        StockFactory.sleep(ThreadLocalRandom.current().nextInt(200, 1000));
+        Map<String, Stock> stockMap = Maps.newHashMapWithExpectedSize(codes.size());
+        for (String code : codes) {
+            Stock stock = StockCache.stockMap.get(code);
+            if (stock != null) {
+                stockMap.put(code, stock);
+            }
+        }
+        return stockMap;
+    }
+
+    @Override
+    public void saveAll(Collection<Stock> stocks) {
+        // 模拟写入数据库耗时，数据本身随新快照发布生效
+        StockFactory.sleep(ThreadLocalRandom.current().nextInt(20, 100));
+    }
+}
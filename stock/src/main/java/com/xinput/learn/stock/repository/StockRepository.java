@@ -0,0 +1,29 @@
+package com.xinput.learn.stock.repository;
+
+import com.xinput.learn.stock.model.Stock;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 数据查询后端
+ * 通过 stock.backend.type 切换: mock(模拟耗时) | jdbc(内嵌数据库)
+ */
+public interface StockRepository {
+
+    /**
+     * 单个查询
+     */
+    Stock findByCode(String code);
+
+    /**
+     * 批量查询，不存在的代码不出现在结果中
+     */
+    Map<String, Stock> findByCodes(List<String> codes);
+
+    /**
+     * 批量保存，代码已存在则覆盖
+     */
+    void saveAll(Collection<Stock> stocks);
+}
@@ -0,0 +1,219 @@
+package com.xinput.learn.stock.service;
+
+import com.xinput.learn.stock.batch.AbstractBatchLoader;
+import com.xinput.learn.stock.batch.BatchLoaderConfig;
+import com.xinput.learn.stock.batch.BatchLoaderRegistry;
+import com.xinput.learn.stock.config.BatchConfig;
+import com.xinput.learn.stock.model.ConfigAuditEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 批处理配置运行时变更
+ * <p>
+ * 变更写入最高优先级的配置源后重新绑定 {@link BatchConfig}（效果同 @RefreshScope），之后新建的加载器使用新值；
+ * 已运行的加载器只覆盖本次发生变化的配置项，保留各自的个性化配置（如 @Batched 上指定的参数）
+ * <p>
+ * 所有加载器的新配置校验通过后才开始修改；应用过程中任一加载器失败时，恢复配置源、配置 Bean 和已更新的加载器
+ */
+@Slf4j
+@Service
+public class BatchConfigService {
+
+    private static final String PREFIX = "stock.batch";
+
+    private static final String PROPERTY_SOURCE_NAME = "stockBatchRuntimeOverrides";
+
+    private static final int AUDIT_CAPACITY = 200;
+
+    @Resource
+    private ConfigurableEnvironment environment;
+
+    @Resource
+    private BatchConfig batchConfig;
+
+    @Resource
+    private BatchLoaderRegistry batchLoaderRegistry;
+
+    private final Map<String, Object> overrides = new LinkedHashMap<>();
+
+    private final Deque<ConfigAuditEntry> auditLog = new ArrayDeque<>(AUDIT_CAPACITY);
+
+    /**
+     * 应用配置变更
+     *
+     * @param request  配置项，键为 stock.batch 下的属性名(interval-ms / intervalMs 均可)，嵌套对象按层级展开
+     * @param operator 操作人
+     * @return 审计记录
+     */
+    public synchronized ConfigAuditEntry update(Map<String, Object> request, String operator) {
+        ConfigAuditEntry.ConfigAuditEntryBuilder audit = ConfigAuditEntry.builder()
+                .time(System.currentTimeMillis())
+                .operator(operator)
+                .request(request);
+
+        Map<String, Object> previousOverrides = new LinkedHashMap<>(overrides);
+        BatchConfig previous = new BatchConfig();
+        BeanUtils.copyProperties(batchConfig, previous);
+        Map<AbstractBatchLoader<?, ?>, BatchLoaderConfig> applied = new LinkedHashMap<>();
+        try {
+            flatten(PREFIX, request, overrides);
+            environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME, new LinkedHashMap<>(overrides)));
+
+            BatchConfig rebound = Binder.get(environment).bind(PREFIX, BatchConfig.class).orElseGet(BatchConfig::new);
+            Map<String, List<Object>> changes = diff(batchConfig, rebound);
+
+            // 先校验新建加载器的默认配置和每个已运行加载器的新配置，全部合法才开始修改
+            rebound.toLoaderConfig(PREFIX).build().validate();
+            Map<AbstractBatchLoader<?, ?>, BatchLoaderConfig> planned = new LinkedHashMap<>();
+            Map<String, List<String>> restartRequired = new LinkedHashMap<>();
+            for (AbstractBatchLoader<?, ?> loader : batchLoaderRegistry.getAll()) {
+                List<String> pending = new ArrayList<>();
+                BatchLoaderConfig newConfig = apply(loader.getConfig(), changes, pending);
+                loader.validateReconfigure(newConfig);
+                planned.put(loader, newConfig);
+                if (!pending.isEmpty()) {
+                    restartRequired.put(newConfig.getName(), pending);
+                }
+            }
+
+            BeanUtils.copyProperties(rebound, batchConfig);
+            List<String> loaders = new ArrayList<>();
+            for (Map.Entry<AbstractBatchLoader<?, ?>, BatchLoaderConfig> entry : planned.entrySet()) {
+                BatchLoaderConfig before = entry.getKey().getConfig();
+                List<String> pending = entry.getKey().reconfigure(entry.getValue());
+                applied.put(entry.getKey(), before);
+                loaders.add(entry.getValue().getName());
+                if (!pending.isEmpty()) {
+                    restartRequired.computeIfAbsent(entry.getValue().getName(), name -> new ArrayList<>()).addAll(pending);
+                }
+            }
+            audit.changes(changes).loaders(loaders).restartRequired(restartRequired).success(true);
+        } catch (Exception e) {
+            // 回滚配置源、配置 Bean 以及已经更新的加载器
+            overrides.clear();
+            overrides.putAll(previousOverrides);
+            environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME, new LinkedHashMap<>(overrides)));
+            BeanUtils.copyProperties(previous, batchConfig);
+            for (Map.Entry<AbstractBatchLoader<?, ?>, BatchLoaderConfig> entry : applied.entrySet()) {
+                try {
+                    entry.getKey().reconfigure(entry.getValue());
+                } catch (RuntimeException rollbackError) {
+                    log.error("批处理配置回滚失败 - {}", entry.getValue().getName(), rollbackError);
+                }
+            }
+            log.error("批处理配置变更失败 - {}", request, e);
+            audit.success(false).error(e.getMessage());
+        }
+
+        ConfigAuditEntry entry = audit.build();
+        record(entry);
+        return entry;
+    }
+
+    /**
+     * 当前生效的批处理配置，返回普通对象副本（配置 Bean 是 CGLIB 代理，不能直接序列化）
+     */
+    public synchronized BatchConfig getCurrentConfig() {
+        BatchConfig current = new BatchConfig();
+        BeanUtils.copyProperties(batchConfig, current);
+        return current;
+    }
+
+    /**
+     * 最近的审计记录，最新的在前
+     */
+    public synchronized List<ConfigAuditEntry> getAuditLog() {
+        return new ArrayList<>(auditLog);
+    }
+
+    private void record(ConfigAuditEntry entry) {
+        if (auditLog.size() >= AUDIT_CAPACITY) {
+            auditLog.removeLast();
+        }
+        auditLog.addFirst(entry);
+        log.info("[配置审计] 操作人: {}, 成功: {}, 变更: {}, 加载器: {}, 需重启生效: {}, 错误: {}",
+                entry.getOperator(), entry.isSuccess(), entry.getChanges(), entry.getLoaders(),
+                entry.getRestartRequired(), entry.getError());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flatten(String prefix, Map<String, Object> source, Map<String, Object> target) {
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            String key = entry.getKey().startsWith(PREFIX + ".") ? entry.getKey() : prefix + "." + entry.getKey();
+            if (entry.getValue() instanceof Map) {
+                flatten(key, (Map<String, Object>) entry.getValue(), target);
+            } else {
+                target.put(key, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 比较两份配置，返回发生变化的属性
+     */
+    private Map<String, List<Object>> diff(BatchConfig before, BatchConfig after) {
+        BeanWrapper oldWrapper = PropertyAccessorFactory.forBeanPropertyAccess(before);
+        BeanWrapper newWrapper = PropertyAccessorFactory.forBeanPropertyAccess(after);
+        Map<String, List<Object>> changes = new LinkedHashMap<>();
+        for (PropertyDescriptor descriptor : oldWrapper.getPropertyDescriptors()) {
+            String name = descriptor.getName();
+            if (descriptor.getWriteMethod() == null || descriptor.getReadMethod() == null) {
+                continue;
+            }
+            Object oldValue = oldWrapper.getPropertyValue(name);
+            Object newValue = newWrapper.getPropertyValue(name);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.put(name, Arrays.asList(oldValue, newValue));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 在加载器当前配置上覆盖发生变化的属性；加载器配置中没有的属性（如 partitionEnabled）记为需要重启
+     */
+    private BatchLoaderConfig apply(BatchLoaderConfig current, Map<String, List<Object>> changes, List<String> pending) {
+        BatchLoaderConfig.BatchLoaderConfigBuilder builder = current.toBuilder();
+        for (Map.Entry<String, List<Object>> change : changes.entrySet()) {
+            Method setter = findBuilderMethod(change.getKey());
+            if (setter == null) {
+                pending.add(change.getKey());
+                continue;
+            }
+            try {
+                setter.invoke(builder, change.getValue().get(1));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("无法应用配置项: " + change.getKey(), e);
+            }
+        }
+        return builder.build();
+    }
+
+    private Method findBuilderMethod(String name) {
+        for (Method method : BatchLoaderConfig.BatchLoaderConfigBuilder.class.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == 1) {
+                return method;
+            }
+        }
+        return null;
+    }
+}
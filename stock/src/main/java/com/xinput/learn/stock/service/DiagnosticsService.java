@@ -0,0 +1,273 @@
+package com.xinput.learn.stock.service;
+
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.batch.AbstractBatchLoader;
+import com.xinput.learn.stock.batch.BatchLoaderRegistry;
+import com.xinput.learn.stock.batch.StockBatchWriter;
+import com.xinput.learn.stock.cache.TieredCacheMetrics;
+import com.xinput.learn.stock.cache.TieredStockCache;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.util.AllocationUtils;
+import com.xinput.learn.stock.util.MemoryEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存诊断
+ * <p>
+ * 1. 各子系统的堆内存估算（{@link MemoryEstimator}），以及 JVM 堆和堆外缓冲区的实际用量，用于容器内存规划
+ * 2. 线程分配速率：在采样窗口前后读取 ThreadMXBean 的线程累计分配字节数，按加载器汇总其自有线程池的全部线程，并列出分配最多的线程；
+ *    请求线程由多个加载器和接口共用，无法归属到单个加载器，加载器的每请求分配只含加载器线程，请求线程上的分配见第 3 项
+ * 3. 查询接口的请求线程分配采样（{@link com.xinput.learn.stock.config.AllocationSamplingInterceptor}）
+ */
+@Slf4j
+@Service
+public class DiagnosticsService {
+
+    private static final int TOP_THREADS = 10;
+
+    @Resource
+    private BatchLoaderRegistry batchLoaderRegistry;
+
+    @Resource
+    private TieredStockCache tieredStockCache;
+
+    @Resource
+    private StockBatchWriter stockBatchWriter;
+
+    private final Map<String, RequestAllocation> requestAllocations = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次请求线程的分配字节数
+     *
+     * @param endpoint 接口路径模板
+     */
+    public void recordRequestAllocation(String endpoint, long bytes) {
+        if (bytes >= 0) {
+            requestAllocations.computeIfAbsent(endpoint, key -> new RequestAllocation()).record(bytes);
+        }
+    }
+
+    /**
+     * 各子系统的堆内存估算和 JVM 实际用量
+     */
+    public Map<String, Object> memory() {
+        Map<String, Object> subsystems = Maps.newLinkedHashMap();
+        long total = 0;
+
+        // 数据快照: 数据本身、标签索引、JSON 片段
+        StockSnapshot snapshot = StockCache.getSnapshot();
+        long stockMapBytes = MemoryEstimator.stockMap(snapshot.getStockMap());
+        long indexBytes = MemoryEstimator.arrayList(snapshot.getReasonStocks().size())
+                + MemoryEstimator.arrayList(snapshot.getNoReasonStocks().size());
+        int fragmentCount = snapshot.getJsonFragmentCount();
+        long fragmentBytes = MemoryEstimator.hashMap(fragmentCount)
+                + fragmentCount * MemoryEstimator.array(0, 1) + snapshot.getJsonFragmentBytes();
+        Map<String, Object> snapshotItem = Maps.newLinkedHashMap();
+        snapshotItem.put("stockCount", snapshot.size());
+        snapshotItem.put("stockMapBytes", stockMapBytes);
+        snapshotItem.put("reasonIndexBytes", indexBytes);
+        snapshotItem.put("jsonFragmentCount", fragmentCount);
+        snapshotItem.put("jsonFragmentBytes", fragmentBytes);
+        snapshotItem.put("totalBytes", stockMapBytes + indexBytes + fragmentBytes);
+        subsystems.put("snapshot", snapshotItem);
+        total += stockMapBytes + indexBytes + fragmentBytes;
+
+        // 批处理加载器: 队列数组、排队请求及 future、对象池
+        Map<String, Object> loaders = Maps.newLinkedHashMap();
+        for (AbstractBatchLoader<?, ?> loader : batchLoaderRegistry.getAll()) {
+            Map<String, Long> estimate = loader.estimateRetainedBytes();
+            long loaderTotal = estimate.values().stream().mapToLong(Long::longValue).sum();
+            Map<String, Object> item = Maps.newLinkedHashMap();
+            item.putAll(estimate);
+            item.put("totalBytes", loaderTotal);
+            loaders.put(loader.getConfig().getName(), item);
+            total += loaderTotal;
+        }
+        subsystems.put("loaders", loaders);
+
+        // 批量写入器: 待写入条目(更新内容不计)
+        int pending = stockBatchWriter.getMetrics().getPendingCount();
+        long writerBytes = MemoryEstimator.hashMap(pending) + pending * (MemoryEstimator.shallow(2, 8)
+                + MemoryEstimator.arrayList(1) + MemoryEstimator.COMPLETABLE_FUTURE);
+        Map<String, Object> writerItem = Maps.newLinkedHashMap();
+        writerItem.put("pendingCount", pending);
+        writerItem.put("totalBytes", writerBytes);
+        subsystems.put("writer", writerItem);
+        total += writerBytes;
+
+        // 分层缓存: 热点层在堆内，堆外层单独列出
+        Map<String, Object> cacheItem = Maps.newLinkedHashMap();
+        cacheItem.put("enabled", tieredStockCache.isEnabled());
+        if (tieredStockCache.isEnabled()) {
+            TieredCacheMetrics metrics = tieredStockCache.getMetrics();
+            long hotBytes = tieredStockCache.estimateHotBytes();
+            cacheItem.put("hotSize", metrics.getHotSize());
+            cacheItem.put("hotBytes", hotBytes);
+            cacheItem.put("offHeapEntryCount", metrics.getOffHeapEntryCount());
+            cacheItem.put("offHeapAllocatedBytes", metrics.getOffHeapAllocatedBytes());
+            cacheItem.put("offHeapIndexBytes", metrics.getOffHeapIndexBytes());
+            total += hotBytes;
+        }
+        subsystems.put("tieredCache", cacheItem);
+
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        result.put("estimatedHeapBytes", total);
+        result.put("subsystems", subsystems);
+        result.put("jvm", jvmMemory());
+        return result;
+    }
+
+    /**
+     * 线程分配速率，阻塞采样窗口时长
+     *
+     * @param windowMs 采样窗口(毫秒)
+     */
+    public Map<String, Object> allocation(long windowMs) throws InterruptedException {
+        Map<String, Object> result = Maps.newLinkedHashMap();
+        if (!AllocationUtils.isSupported()) {
+            result.put("error", "当前JVM不支持按线程统计内存分配");
+            return result;
+        }
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Collection<AbstractBatchLoader<?, ?>> loaders = new ArrayList<>(batchLoaderRegistry.getAll());
+        Map<String, long[]> loaderThreadIds = Maps.newLinkedHashMap();
+        Map<String, Long> loaderRequestsBefore = Maps.newHashMap();
+        for (AbstractBatchLoader<?, ?> loader : loaders) {
+            loaderThreadIds.put(loader.getConfig().getName(), loader.getThreadIds());
+            loaderRequestsBefore.put(loader.getConfig().getName(), loader.getMetrics().getTotalRequestCount());
+        }
+
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        long[] before = AllocationUtils.threadAllocatedBytesEach(threadIds);
+        long startTime = System.nanoTime();
+        TimeUnit.MILLISECONDS.sleep(windowMs);
+        long[] after = AllocationUtils.threadAllocatedBytesEach(threadIds);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        Map<Long, Long> deltas = Maps.newHashMapWithExpectedSize(threadIds.length);
+        for (int i = 0; i < threadIds.length; i++) {
+            if (before[i] >= 0 && after[i] >= 0) {
+                deltas.put(threadIds[i], after[i] - before[i]);
+            }
+        }
+        Map<Long, String> names = Maps.newHashMapWithExpectedSize(threadIds.length);
+        for (ThreadInfo info : threadMXBean.getThreadInfo(threadIds)) {
+            if (info != null) {
+                names.put(info.getThreadId(), info.getThreadName());
+            }
+        }
+
+        // 各加载器自有线程池的线程：批处理、降级、完成、分区、对冲、伸缩
+        Map<String, Object> loaderResult = Maps.newLinkedHashMap();
+        for (AbstractBatchLoader<?, ?> loader : loaders) {
+            String name = loader.getConfig().getName();
+            List<Map<String, Object>> threads = new ArrayList<>();
+            long loaderBytes = 0;
+            for (long threadId : loaderThreadIds.get(name)) {
+                Long delta = deltas.get(threadId);
+                if (delta == null) {
+                    continue;
+                }
+                loaderBytes += delta;
+                threads.add(threadRate(threadId, names.get(threadId), delta, seconds));
+            }
+            long requests = loader.getMetrics().getTotalRequestCount() - loaderRequestsBefore.get(name);
+            Map<String, Object> item = Maps.newLinkedHashMap();
+            item.put("bytesPerSecond", (long) (loaderBytes / seconds));
+            item.put("requests", requests);
+            // 不含请求线程上的分配（入队、等待结果），请求线程见 requestSamples
+            item.put("loaderThreadBytesPerRequest", requests > 0 ? loaderBytes * 1.0 / requests : 0);
+            item.put("threads", threads);
+            loaderResult.put(name, item);
+        }
+
+        // 分配最多的线程
+        List<Map<String, Object>> topThreads = new ArrayList<>();
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                .limit(TOP_THREADS)
+                .forEach(entry -> topThreads.add(threadRate(entry.getKey(), names.get(entry.getKey()), entry.getValue(), seconds)));
+
+        Map<String, Object> requestResult = Maps.newLinkedHashMap();
+        requestAllocations.forEach((endpoint, allocation) -> requestResult.put(endpoint, allocation.toMap()));
+
+        result.put("windowMs", windowMs);
+        result.put("loaders", loaderResult);
+        result.put("topThreads", topThreads);
+        result.put("requestSamples", requestResult);
+        return result;
+    }
+
+    private Map<String, Object> threadRate(long threadId, String name, long bytes, double seconds) {
+        Map<String, Object> item = Maps.newLinkedHashMap();
+        item.put("id", threadId);
+        item.put("name", name);
+        item.put("bytesPerSecond", (long) (bytes / seconds));
+        return item;
+    }
+
+    private Map<String, Object> jvmMemory() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        Map<String, Object> jvm = Maps.newLinkedHashMap();
+        jvm.put("heapUsed", heap.getUsed());
+        jvm.put("heapCommitted", heap.getCommitted());
+        jvm.put("heapMax", heap.getMax());
+        jvm.put("nonHeapUsed", nonHeap.getUsed());
+        jvm.put("nonHeapCommitted", nonHeap.getCommitted());
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            Map<String, Object> item = Maps.newLinkedHashMap();
+            item.put("count", pool.getCount());
+            item.put("used", pool.getMemoryUsed());
+            item.put("capacity", pool.getTotalCapacity());
+            jvm.put("bufferPool-" + pool.getName(), item);
+        }
+        return jvm;
+    }
+
+    /**
+     * 单个接口的请求线程分配采样
+     */
+    private static class RequestAllocation {
+
+        private final LongAdder samples = new LongAdder();
+
+        private final LongAdder totalBytes = new LongAdder();
+
+        private final AtomicLong maxBytes = new AtomicLong(0);
+
+        private void record(long bytes) {
+            samples.increment();
+            totalBytes.add(bytes);
+            maxBytes.accumulateAndGet(bytes, Math::max);
+        }
+
+        private Map<String, Object> toMap() {
+            long count = samples.sum();
+            Map<String, Object> item = Maps.newLinkedHashMap();
+            item.put("samples", count);
+            item.put("avgBytes", count > 0 ? totalBytes.sum() * 1.0 / count : 0);
+            item.put("maxBytes", maxBytes.get());
+            return item;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package com.xinput.learn.stock.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.config.ChangeFeedConfig;
+import com.xinput.learn.stock.consts.SnapshotListener;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.model.StockChange;
+import com.xinput.learn.stock.model.StockDelta;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 快照变更推送(Server-Sent Events)
+ * <p>
+ * 1. 每次快照发布时计算相对上一版本的增量(新增、删除、名称和标签变化)，编码一次后放入环形缓冲区，所有订阅者共用
+ * 2. 每个订阅者只记录已入队的版本，由调度线程按版本顺序放入订阅者的有界待推送队列，再由推送线程池异步写出，
+ *    每个订阅者同一时刻最多占用一个推送线程，写入慢的客户端不会阻塞其他订阅者；重连时从 Last-Event-ID 或 since 指定的版本续传
+ * 3. 续传的版本已不在缓冲区、订阅者积压超过待推送队列容量，或单个版本的变更过大时推送 reset 事件，
+ *    客户端重新全量下载(/stock/all 的 X-Snapshot-Version 即对应版本)
+ * <pre>
+ * event: change  id: 版本  data: {"version":..,"time":..,"added":[..],"removed":[..],"changed":[{"code":..,"name":..,"addedTags":[..],"removedTags":[..]}]}
+ * event: reset   id: 版本  data: {"version":..}
+ * event: version id: 版本  data: {"version":..}  订阅时未指定版本，告知当前版本
+ * </pre>
+ */
+@Slf4j
+@Service
+public class StockChangeFeed implements SnapshotListener {
+
+    private static final String EVENT_CHANGE = "change";
+
+    private static final String EVENT_RESET = "reset";
+
+    private static final String EVENT_VERSION = "version";
+
+    /**
+     * 心跳，只在订阅者没有待推送事件时放入队列
+     */
+    private static final FeedEvent HEARTBEAT = new FeedEvent(-1, null, null);
+
+    @Resource
+    private ChangeFeedConfig changeFeedConfig;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 环形缓冲区，版本 v 的事件在 v % 容量 的位置
+     */
+    private FeedEvent[] buffer;
+
+    /**
+     * 缓冲区中最新的版本，0 表示还没有事件
+     */
+    private long headVersion = 0;
+
+    /**
+     * 缓冲区中最早的版本
+     */
+    private long oldestVersion = 1;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已接受的订阅数，接受订阅时先占用名额，保证不超过 maxSubscribers
+     */
+    private final AtomicInteger subscriberCount = new AtomicInteger(0);
+
+    private volatile boolean running = true;
+
+    private Thread dispatcher;
+
+    /**
+     * 推送线程池，每个订阅者最多有一个任务，任务数不超过订阅数
+     */
+    private ThreadPoolExecutor sender;
+
+    private final AtomicLong eventCount = new AtomicLong(0);
+
+    private final AtomicLong resetEventCount = new AtomicLong(0);
+
+    private final AtomicLong sentCount = new AtomicLong(0);
+
+    private final AtomicLong sentBytes = new AtomicLong(0);
+
+    private final AtomicLong rejectCount = new AtomicLong(0);
+
+    private final AtomicLong backlogResetCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        buffer = new FeedEvent[Math.max(1, changeFeedConfig.getBufferSize())];
+        int senderThreads = Math.max(1, changeFeedConfig.getSenderThreads());
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "stock-change-feed-sender-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.allowCoreThreadTimeOut(true);
+        dispatcher = new Thread(this::dispatchLoop, "stock-change-feed");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        StockCache.addListener(this);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        StockCache.removeListener(this);
+        running = false;
+        dispatcher.interrupt();
+        sender.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.complete();
+            } catch (RuntimeException e) {
+                // 容器先于本 Bean 关闭时连接已释放
+                log.debug("关闭订阅失败 - {}", e.getMessage());
+            }
+        }
+        subscribers.clear();
+        subscriberCount.set(0);
+    }
+
+    /**
+     * 订阅变更
+     *
+     * @param since 已有数据的版本，只推送之后的变更；为 null 时从当前版本开始
+     */
+    public SseEmitter subscribe(Long since) {
+        SseEmitter emitter = createEmitter(changeFeedConfig.getEmitterTimeoutMs());
+        if (!admit()) {
+            rejectCount.incrementAndGet();
+            emitter.completeWithError(new IllegalStateException("订阅数已达上限: " + changeFeedConfig.getMaxSubscribers()));
+            return emitter;
+        }
+
+        long cursor;
+        FeedEvent initial;
+        lock.lock();
+        try {
+            if (since == null) {
+                cursor = headVersion;
+                initial = new FeedEvent(cursor, EVENT_VERSION, versionJson(cursor));
+            } else if (since > headVersion || since < oldestVersion - 1) {
+                // 版本已不在缓冲区(或来自上次启动)，需要重新全量下载
+                cursor = headVersion;
+                initial = new FeedEvent(cursor, EVENT_RESET, versionJson(cursor));
+            } else {
+                cursor = since;
+                initial = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Subscriber subscriber = new Subscriber(emitter, cursor, Math.max(1, changeFeedConfig.getSubscriberQueueSize()));
+        if (initial != null) {
+            subscriber.outbox.offer(initial);
+        }
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(throwable -> remove(subscriber));
+        subscribers.add(subscriber);
+        // 由调度线程放入缓冲区中的后续版本并触发推送
+        signal();
+        return emitter;
+    }
+
+    /**
+     * 创建连接，测试中可替换
+     */
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /**
+     * 快照发布时在发布锁内调用，按版本顺序计算增量并放入缓冲区
+     */
+    @Override
+    public void onPublish(StockSnapshot previous, StockSnapshot current, long version) {
+        FeedEvent event = encode(diff(previous, current, version), version);
+        lock.lock();
+        try {
+            buffer[(int) (version % buffer.length)] = event;
+            headVersion = version;
+            oldestVersion = Math.max(oldestVersion, version - buffer.length + 1);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        eventCount.incrementAndGet();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = Maps.newLinkedHashMap();
+        lock.lock();
+        try {
+            metrics.put("headVersion", headVersion);
+            metrics.put("oldestVersion", Math.min(oldestVersion, headVersion));
+        } finally {
+            lock.unlock();
+        }
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("eventCount", eventCount.get());
+        metrics.put("resetEventCount", resetEventCount.get());
+        metrics.put("sentCount", sentCount.get());
+        metrics.put("sentBytes", sentBytes.get());
+        metrics.put("rejectCount", rejectCount.get());
+        metrics.put("backlogResetCount", backlogResetCount.get());
+        return metrics;
+    }
+
+    /**
+     * 计算增量，变化过多时返回 null
+     */
+    private StockChange diff(StockSnapshot previous, StockSnapshot current, long version) {
+        Map<String, Stock> before = previous.getStockMap();
+        Map<String, Stock> after = current.getStockMap();
+        List<Stock> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<StockDelta> deltas = new ArrayList<>();
+        int limit = changeFeedConfig.getMaxDeltaCodes();
+
+        // 增量更新只比较变化的代码，否则全量比较
+        Collection<String> candidates = current.getChangedCodes();
+        if (candidates == null) {
+            candidates = after.keySet();
+            if (Math.abs(after.size() - before.size()) > limit) {
+                return null;
+            }
+        }
+        for (String code : candidates) {
+            Stock stock = after.get(code);
+            Stock old = before.get(code);
+            if (stock == null) {
+                if (old != null) {
+                    removed.add(code);
+                }
+            } else if (old == null) {
+                added.add(stock);
+            } else if (old != stock) {
+                StockDelta delta = delta(old, stock);
+                if (delta != null) {
+                    deltas.add(delta);
+                }
+            }
+            if (added.size() + removed.size() + deltas.size() > limit) {
+                return null;
+            }
+        }
+        if (current.getChangedCodes() == null) {
+            for (String code : before.keySet()) {
+                if (!after.containsKey(code)) {
+                    removed.add(code);
+                    if (added.size() + removed.size() + deltas.size() > limit) {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        return StockChange.builder()
+                .version(version)
+                .time(current.getCreatedAt())
+                .added(added)
+                .removed(removed)
+                .changed(deltas)
+                .build();
+    }
+
+    /**
+     * 单条数据的变化，名称和标签都未变化时返回 null
+     */
+    private StockDelta delta(Stock old, Stock stock) {
+        List<String> oldTags = old.getReason() == null ? Collections.emptyList() : old.getReason();
+        List<String> newTags = stock.getReason() == null ? Collections.emptyList() : stock.getReason();
+        Set<String> oldSet = new HashSet<>(oldTags);
+        Set<String> newSet = new HashSet<>(newTags);
+        List<String> addedTags = new ArrayList<>();
+        for (String tag : newTags) {
+            if (!oldSet.contains(tag)) {
+                addedTags.add(tag);
+            }
+        }
+        List<String> removedTags = new ArrayList<>();
+        for (String tag : oldTags) {
+            if (!newSet.contains(tag)) {
+                removedTags.add(tag);
+            }
+        }
+        boolean nameChanged = !Objects.equals(old.getName(), stock.getName());
+        if (!nameChanged && addedTags.isEmpty() && removedTags.isEmpty()) {
+            return null;
+        }
+        return StockDelta.builder()
+                .code(stock.getCode())
+                .name(nameChanged ? stock.getName() : null)
+                .addedTags(addedTags)
+                .removedTags(removedTags)
+                .build();
+    }
+
+    private FeedEvent encode(StockChange change, long version) {
+        if (change == null) {
+            resetEventCount.incrementAndGet();
+            return new FeedEvent(version, EVENT_RESET, versionJson(version));
+        }
+        try {
+            return new FeedEvent(version, EVENT_CHANGE, objectMapper.writeValueAsBytes(change));
+        } catch (JsonProcessingException e) {
+            log.error("变更编码失败，改为推送 reset - 版本: {}", version, e);
+            resetEventCount.incrementAndGet();
+            return new FeedEvent(version, EVENT_RESET, versionJson(version));
+        }
+    }
+
+    private static byte[] versionJson(long version) {
+        return ("{\"version\":" + version + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 占用一个订阅名额
+     */
+    private boolean admit() {
+        int current;
+        do {
+            current = subscriberCount.get();
+            if (current >= changeFeedConfig.getMaxSubscribers()) {
+                return false;
+            }
+        } while (!subscriberCount.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 移除订阅并归还名额，断开、超时和发送失败可能同时触发，只生效一次
+     */
+    private void remove(Subscriber subscriber) {
+        if (subscriber.removed.compareAndSet(false, true)) {
+            subscribers.remove(subscriber);
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 调度线程: 有新事件或新订阅时把每个订阅者的新版本放入其待推送队列并触发推送，空闲时放入心跳
+     * 调度线程只做入队，不写连接
+     */
+    private void dispatchLoop() {
+        long heartbeatNanos = TimeUnit.SECONDS.toNanos(Math.max(1, changeFeedConfig.getHeartbeatSeconds()));
+        long lastHeartbeat = System.nanoTime();
+        while (running) {
+            try {
+                long head;
+                lock.lock();
+                try {
+                    if (!hasPending()) {
+                        changed.awaitNanos(heartbeatNanos);
+                    }
+                    head = headVersion;
+                } finally {
+                    lock.unlock();
+                }
+
+                boolean heartbeat = System.nanoTime() - lastHeartbeat >= heartbeatNanos;
+                if (heartbeat) {
+                    lastHeartbeat = System.nanoTime();
+                }
+                for (Subscriber subscriber : subscribers) {
+                    enqueue(subscriber, head);
+                    if (heartbeat && subscriber.outbox.isEmpty()) {
+                        subscriber.outbox.offer(HEARTBEAT);
+                    }
+                    schedule(subscriber);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("变更推送异常", e);
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.cursor < headVersion) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把订阅者的后续版本放入待推送队列；队列已满说明客户端跟不上，丢弃积压的事件改为推送最新版本的 reset
+     */
+    private void enqueue(Subscriber subscriber, long head) {
+        while (subscriber.cursor < head) {
+            FeedEvent event;
+            lock.lock();
+            try {
+                long next = subscriber.cursor + 1;
+                event = next >= oldestVersion ? buffer[(int) (next % buffer.length)] : null;
+                if (event == null) {
+                    // 推送落后超过缓冲区，跳到最新版本
+                    event = new FeedEvent(headVersion, EVENT_RESET, versionJson(headVersion));
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!subscriber.outbox.offer(event)) {
+                // 只有调度线程入队，清空后一定能放入
+                subscriber.outbox.clear();
+                subscriber.outbox.offer(new FeedEvent(head, EVENT_RESET, versionJson(head)));
+                subscriber.cursor = head;
+                backlogResetCount.incrementAndGet();
+                log.debug("订阅者积压过多，改为推送 reset - 版本: {}", head);
+                return;
+            }
+            subscriber.cursor = event.version;
+        }
+    }
+
+    /**
+     * 有待推送事件且没有推送任务时提交一个，保证同一订阅者的事件按顺序写出
+     */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.outbox.isEmpty() || subscriber.removed.get() || !subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // 正在关闭
+            subscriber.sending.set(false);
+        }
+    }
+
+    /**
+     * 推送线程: 写出订阅者的全部待推送事件
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            FeedEvent event;
+            while (!subscriber.removed.get() && (event = subscriber.outbox.poll()) != null) {
+                if (!send(subscriber, event)) {
+                    return;
+                }
+            }
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // 与入队并发时由这里或调度线程之一重新提交
+        schedule(subscriber);
+    }
+
+    /**
+     * @return 是否发送成功，失败时移除订阅
+     */
+    private boolean send(Subscriber subscriber, FeedEvent event) {
+        try {
+            if (event == HEARTBEAT) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                return true;
+            }
+            subscriber.emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.version))
+                    .name(event.name)
+                    .data(event.data, MediaType.APPLICATION_JSON));
+            sentCount.incrementAndGet();
+            sentBytes.addAndGet(event.data.length);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("订阅者已断开 - {}", e.getMessage());
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * 编码后的事件，数据由所有订阅者共用
+     */
+    private static class FeedEvent {
+
+        private final long version;
+
+        private final String name;
+
+        private final byte[] data;
+
+        private FeedEvent(long version, String name, byte[] data) {
+            this.version = version;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+
+        /**
+         * 已放入待推送队列的版本，只由调度线程修改
+         */
+        private volatile long cursor;
+
+        /**
+         * 待推送的事件，调度线程放入，推送线程取出
+         */
+        private final BlockingQueue<FeedEvent> outbox;
+
+        /**
+         * 是否已有推送任务
+         */
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        private final AtomicBoolean removed = new AtomicBoolean(false);
+
+        private Subscriber(SseEmitter emitter, long cursor, int queueSize) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.outbox = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+}
@@ -1,53 +1,83 @@
 package com.xinput.learn.stock.service;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
+import com.xinput.learn.stock.batch.Batched;
 import com.xinput.learn.stock.consts.StockCache;
 import com.xinput.learn.stock.model.Stock;
-import com.xinput.learn.stock.util.StockFactory;
-import org.apache.commons.collections4.CollectionUtils;
+import com.xinput.learn.stock.repository.StockRepository;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Set;
 
 @Service
 public class StockService {
 
+    @Resource
+    private StockRepository stockRepository;
+
     public List<Stock> reason() {
-        List<Stock> stocks = Lists.newArrayListWithCapacity(1024 * 6);
-        for (Stock stock : StockCache.stockMap.values()) {
-            if (CollectionUtils.isNotEmpty(stock.getReason())) {
-                stocks.add(stock);
-            }
-        }
-        return stocks;
+        // 直接使用快照中预先建立的标签索引
+        return Lists.newArrayList(StockCache.getSnapshot().getReasonStocks());
     }
 
     public List<Stock> noreason() {
-        List<Stock> stocks = Lists.newArrayListWithCapacity(1024 * 6);
-        for (Stock stock : StockCache.stockMap.values()) {
-            if (CollectionUtils.isEmpty(stock.getReason())) {
-                stocks.add(stock);
+        return Lists.newArrayList(StockCache.getSnapshot().getNoReasonStocks());
+    }
+
+    /**
+     * 与给定数据有相同标签的其他数据代码，按快照中的顺序取前 limit 个
+     *
+     * @param sources 源数据，为 null 的忽略
+     * @param exclude 排除的代码
+     */
+    public List<String> tagPeers(Collection<Stock> sources, Set<String> exclude, int limit) {
+        Set<String> tags = new HashSet<>();
+        for (Stock source : sources) {
+            if (source != null && source.getReason() != null) {
+                tags.addAll(source.getReason());
             }
         }
-        return stocks;
+        List<String> peers = new ArrayList<>();
+        if (tags.isEmpty() || limit <= 0) {
+            return peers;
+        }
+        for (Stock stock : StockCache.getSnapshot().getReasonStocks()) {
+            if (exclude.contains(stock.getCode())) {
+                continue;
+            }
+            for (String tag : stock.getReason()) {
+                if (tags.contains(tag)) {
+                    peers.add(stock.getCode());
+                    break;
+                }
+            }
+            if (peers.size() >= limit) {
+                break;
+            }
+        }
+        return peers;
     }
 
     public Stock getStock(String code) {
-        // 模拟查询数据库耗时
-        StockFactory.sleep(ThreadLocalRandom.current().nextInt(100, 1000));
-        return StockCache.stockMap.get(code);
+        return stockRepository.findByCode(code);
+    }
+
+    /**
+     * 单个查询(声明式批处理) - 并发调用会被 @Batched 切面合并，交给 queryStock 批量查询
+     * 方法体只在降级时执行
+     */
+    @Batched(name = "StockService.findStock", batchMethod = "queryStock")
+    public Stock findStock(String code) {
+        return getStock(code);
     }
 
     public Map<String, Stock> queryStock(List<String> codes) {
-        // 模拟查询数据库耗时
-        StockFactory.sleep(ThreadLocalRandom.current().nextInt(200, 1000));
-        Map<String, Stock> stockMap = Maps.newHashMap();
-        for (String code : codes) {
-            stockMap.put(code, StockCache.stockMap.get(code));
-        }
-        return stockMap;
+        return stockRepository.findByCodes(codes);
     }
 }
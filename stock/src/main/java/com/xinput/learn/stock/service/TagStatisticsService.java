@@ -0,0 +1,112 @@
+package com.xinput.learn.stock.service;
+
+import com.google.common.collect.Lists;
+import com.xinput.learn.stock.cache.TagStatistics;
+import com.xinput.learn.stock.config.TagStatsConfig;
+import com.xinput.learn.stock.consts.SnapshotListener;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 标签统计
+ * <p>
+ * 1. 快照发布时在发布锁内计算统计，读请求直接返回预先计算好的结果，不在请求中遍历数据
+ * 2. 增量更新的快照(带变化代码)只撤销旧数据、累加新数据，只重新排序受影响标签的相关标签
+ * 3. 全量加载或版本不连续时使用专用的 ForkJoinPool 并行重新计算，不占用公共池
+ */
+@Slf4j
+@Service
+public class TagStatisticsService implements SnapshotListener {
+
+    @Resource
+    private TagStatsConfig tagStatsConfig;
+
+    private ForkJoinPool pool;
+
+    private volatile TagStatistics statistics;
+
+    private final AtomicLong fullCount = new AtomicLong(0);
+
+    private final AtomicLong incrementalCount = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        int parallelism = tagStatsConfig.getParallelism() > 0
+                ? tagStatsConfig.getParallelism() : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(parallelism);
+        StockCache.addListener(this);
+        // 注册前已经发布的快照
+        synchronized (StockCache.class) {
+            if (StockCache.isReady() && statistics == null) {
+                statistics = computeFull(StockCache.getSnapshot(), StockCache.getVersion());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        StockCache.removeListener(this);
+        pool.shutdownNow();
+    }
+
+    @Override
+    public void onPublish(StockSnapshot previous, StockSnapshot current, long version) {
+        TagStatistics old = statistics;
+        Set<String> changedCodes = current.getChangedCodes();
+        if (old != null && changedCodes != null && old.getVersion() == version - 1) {
+            List<Stock> before = Lists.newArrayListWithCapacity(changedCodes.size());
+            List<Stock> after = Lists.newArrayListWithCapacity(changedCodes.size());
+            for (String code : changedCodes) {
+                addIfPresent(before, previous.getStockMap(), code);
+                addIfPresent(after, current.getStockMap(), code);
+            }
+            statistics = old.apply(version, before, after);
+            incrementalCount.incrementAndGet();
+        } else {
+            statistics = computeFull(current, version);
+        }
+    }
+
+    /**
+     * 当前统计，快照尚未加载时返回 null
+     */
+    public TagStatistics getStatistics() {
+        return statistics;
+    }
+
+    public long getFullCount() {
+        return fullCount.get();
+    }
+
+    public long getIncrementalCount() {
+        return incrementalCount.get();
+    }
+
+    private TagStatistics computeFull(StockSnapshot snapshot, long version) {
+        TagStatistics result = TagStatistics.compute(version, snapshot.getReasonStocks(), tagStatsConfig.getTopK(),
+                pool, tagStatsConfig.getForkThreshold());
+        fullCount.incrementAndGet();
+        log.info("标签统计完成 - 版本: {}, 数据: {}, 标签: {}, 耗时: {}ms", version, result.getStockCount(),
+                result.getCounts().size(), result.getComputeMs());
+        return result;
+    }
+
+    private static void addIfPresent(List<Stock> stocks, Map<String, Stock> stockMap, String code) {
+        Stock stock = stockMap.get(code);
+        if (stock != null) {
+            stocks.add(stock);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.xinput.learn.stock.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 线程内存分配统计工具
+ * 基于 HotSpot 的 com.sun.management.ThreadMXBean，与 JMH gc profiler 的 gc.alloc.rate.norm 使用同一个计数器
+ */
+public class AllocationUtils {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /**
+     * 当前JVM是否支持按线程统计分配字节数
+     */
+    public static boolean isSupported() {
+        if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        if (bean.isThreadAllocatedMemorySupported() && !bean.isThreadAllocatedMemoryEnabled()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+        }
+        return bean.isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * 当前线程累计分配的字节数，不支持时返回 -1
+     */
+    public static long currentThreadAllocatedBytes() {
+        return threadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 指定线程累计分配的字节数，不支持或线程不存在时返回 -1
+     */
+    public static long threadAllocatedBytes(long threadId) {
+        if (!isSupported()) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * 多个线程各自累计分配的字节数，不支持时返回 null，线程不存在时对应位置为 -1
+     */
+    public static long[] threadAllocatedBytesEach(long[] threadIds) {
+        if (!isSupported()) {
+            return null;
+        }
+        return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(threadIds);
+    }
+
+    /**
+     * 多个线程累计分配的字节数之和，不支持时返回 -1
+     */
+    public static long threadAllocatedBytes(long[] threadIds) {
+        if (!isSupported()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(threadIds)) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,177 @@
+package com.xinput.learn.stock.util;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.xinput.learn.stock.model.Stock;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 堆内存占用估算工具
+ * <p>
+ * 按 HotSpot 64 位对象布局计算：对象头 12 字节(压缩类指针)、引用 4 或 8 字节(是否压缩指针)、8 字节对齐；
+ * String 的布局随运行时版本不同（Java 8 为 char[]，Java 9 起为 byte[] 加编码标记），按当前运行时选择；
+ * 集合按 JDK 实现的内部结构估算（HashMap 节点 32 字节、数组容量取 2 的幂等），不遍历对象图，结果是近似值，用于容量规划和发现回归
+ */
+public class MemoryEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    public static final int REFERENCE = vmOption("UseCompressedOops", true) ? 4 : 8;
+
+    /**
+     * 运行时的 Java 版本号，1.8 记为 8
+     */
+    public static final int JAVA_VERSION = javaVersion(System.getProperty("java.specification.version"));
+
+    /**
+     * 是否启用紧凑字符串(Java 9 起默认启用，可用 -XX:-CompactStrings 关闭)
+     */
+    private static final boolean COMPACT_STRINGS = JAVA_VERSION >= 9 && vmOption("CompactStrings", true);
+
+    /**
+     * HashMap.Node / ConcurrentHashMap.Node: 头 + hash(int) + key/value/next 三个引用
+     */
+    public static final long MAP_NODE = align(OBJECT_HEADER + 4 + 3 * REFERENCE);
+
+    /**
+     * LinkedHashMap.Entry: HashMap.Node + before/after 两个引用
+     */
+    public static final long LINKED_MAP_NODE = align(OBJECT_HEADER + 4 + 5 * REFERENCE);
+
+    /**
+     * CompletableFuture: 头 + result/stack 两个引用
+     */
+    public static final long COMPLETABLE_FUTURE = shallow(2, 0);
+
+    /**
+     * 对象的浅大小
+     *
+     * @param references     引用字段数
+     * @param primitiveBytes 基本类型字段的字节数之和
+     */
+    public static long shallow(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    public static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    public static long referenceArray(int length) {
+        return array(length, REFERENCE);
+    }
+
+    /**
+     * String 的保留大小，按当前运行时的布局计算
+     */
+    public static long string(String value) {
+        return string(value, JAVA_VERSION, COMPACT_STRINGS);
+    }
+
+    /**
+     * 按指定运行时计算 String 的保留大小
+     * 1. Java 8: 头 + value/hash，value 为 char[]，每字符 2 字节
+     * 2. Java 9 起: 头 + value/hash/coder（Java 13 起另有 hashIsZero），value 为 byte[]，
+     * 启用紧凑字符串且全部字符为 Latin-1 时每字符 1 字节，否则 2 字节
+     */
+    static long string(String value, int javaVersion, boolean compactStrings) {
+        if (value == null) {
+            return 0;
+        }
+        if (javaVersion < 9) {
+            return shallow(1, 4) + array(value.length(), 2);
+        }
+        int bytesPerChar = compactStrings ? 1 : 2;
+        for (int i = 0; i < value.length() && bytesPerChar == 1; i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+            }
+        }
+        return shallow(1, 4 + 1 + (javaVersion >= 13 ? 1 : 0)) + array(value.length(), bytesPerChar);
+    }
+
+    /**
+     * ArrayList 按元素个数估算内部数组，元素本身不计
+     */
+    public static long arrayList(int size) {
+        return shallow(1, 4 + 4) + referenceArray(size);
+    }
+
+    /**
+     * HashMap / ConcurrentHashMap 本身（表 + 节点），Key/Value 不计
+     */
+    public static long hashMap(int size) {
+        return shallow(6, 4 * 4) + referenceArray(tableSize(size)) + size * MAP_NODE;
+    }
+
+    /**
+     * 一条数据的保留大小：对象、字符串和标签列表
+     */
+    public static long stock(Stock stock) {
+        if (stock == null) {
+            return 0;
+        }
+        long size = shallow(3, 0) + string(stock.getCode()) + string(stock.getName());
+        List<String> reasons = stock.getReason();
+        if (reasons != null) {
+            size += arrayList(reasons.size());
+            for (String reason : reasons) {
+                size += string(reason);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 代码 -> 数据 的 HashMap 的保留大小（数据对象独占时）
+     */
+    public static long stockMap(Map<String, Stock> stockMap) {
+        long size = hashMap(stockMap.size());
+        for (Map.Entry<String, Stock> entry : stockMap.entrySet()) {
+            Stock stock = entry.getValue();
+            size += stock != null && entry.getKey() == stock.getCode() ? 0 : string(entry.getKey());
+            size += stock(stock);
+        }
+        return size;
+    }
+
+    private static int tableSize(int size) {
+        int capacity = 16;
+        while (capacity * 3 / 4 < size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * 解析 java.specification.version：1.8 -> 8，17 -> 17，无法解析时按 8 处理
+     */
+    static int javaVersion(String specificationVersion) {
+        if (specificationVersion == null) {
+            return 8;
+        }
+        String version = specificationVersion.startsWith("1.") ? specificationVersion.substring(2) : specificationVersion;
+        int end = 0;
+        while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? 8 : Integer.parseInt(version.substring(0, end));
+    }
+
+    private static boolean vmOption(String name, boolean defaultValue) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean == null ? defaultValue : Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.xinput.learn.stock.util;
 
 import com.google.common.collect.Lists;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.util.FileCopyUtils;
 
 import java.io.BufferedReader;
@@ -10,12 +11,45 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 读取 resources 目录下文件的工具类
  */
 public class ResourceFileUtils {
 
+    private static final String FILE_PREFIX = "file:";
+
+    /**
+     * 按文件名获取资源，"file:" 开头的读取文件系统，否则读取 classpath
+     *
+     * @param fileName 文件名，如 "code.txt" 或 "file:data/stock-100x.txt"
+     */
+    public static org.springframework.core.io.Resource getResource(String fileName) {
+        if (fileName.startsWith(FILE_PREFIX)) {
+            return new FileSystemResource(fileName.substring(FILE_PREFIX.length()));
+        }
+        return new ClassPathResource(fileName);
+    }
+
+    /**
+     * 逐行读取，不在内存中保留全部内容，适合大文件
+     *
+     * @param fileName 文件名，规则同 {@link #getResource(String)}
+     * @param consumer 每行的处理
+     */
+    public static void forEachLine(String fileName, Consumer<String> consumer) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(getResource(fileName).getInputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumer.accept(line);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * 方法1：使用 ClassPathResource 读取文件（推荐）
      *
@@ -0,0 +1,330 @@
+package com.xinput.learn.stock.util;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 规模测试数据生成器
+ * <p>
+ * 生成与 code.txt 相同格式(code,name[,标签+标签])的数据文件，相同参数和种子的输出逐字节一致：
+ * 1. 代码: 前缀按 code.txt 的板块分布(300/002/600/688/920...)分配，前缀后的位数随行数增加(1x 时为 6 位代码)，板块内按等间距编号，保证唯一且有序
+ * 2. 名称: 2~5 个汉字，按 code.txt 的长度分布，带少量 ST/*ST 前缀和 A/B 后缀
+ * 3. 标签: 约 8% 的数据带 1~5 个标签，标签按 Zipf 分布抽取，头部使用真实的高频标签
+ * <p>
+ * 命令行: java -cp target/classes com.xinput.learn.stock.util.StockDataGenerator 输出文件 行数|倍数x [seed=1] [tags=1000] [zipf=1.0] [tagged=0.083]
+ * 例如生成 1000 倍数据: ... StockDataGenerator data/stock-1000x.txt 1000x，启动时指定 --stock.snapshot.source=file:data/stock-1000x.txt 加载
+ */
+@Getter
+@Builder
+public class StockDataGenerator {
+
+    /**
+     * code.txt 的行数，作为 1x 的规模
+     */
+    public static final int BASE_ROWS = 5800;
+
+    /**
+     * 代码前缀及权重(code.txt 中各前缀的数量)
+     */
+    private static final String[] PREFIXES = {"000", "001", "002", "003", "300", "301", "430", "600", "601", "603", "605",
+            "688", "831", "832", "833", "834", "835", "836", "837", "838", "839", "870", "871", "872", "873", "920"};
+
+    private static final int[] PREFIX_WEIGHTS = {430, 106, 939, 42, 952, 448, 16, 778, 226, 609, 113,
+            588, 25, 25, 23, 15, 16, 27, 10, 10, 8, 8, 8, 8, 22, 279};
+
+    /**
+     * 名称长度 2~5 的累计概率
+     */
+    private static final double[] NAME_LENGTH_CDF = {0.01, 0.16, 0.98, 1.0};
+
+    /**
+     * 每条数据标签数 1~5 的累计概率
+     */
+    private static final double[] TAG_COUNT_CDF = {0.005, 0.075, 0.505, 0.98, 1.0};
+
+    /**
+     * 名称用字，不含重复字符(生成的标签名依赖这一点保证唯一)
+     */
+    private static final String NAME_CHARS = "中国华新东方天海南北金山科技电子股份实业集团发展控能源环保医药生物信息通讯智精密机械装备材料化工"
+            + "钢铁有色矿银行证券险地产建设交运输航空港口流汽车气光半导体芯微软件数据网络传媒文旅游食品酒饮乳农"
+            + "牧渔林纺织服家居水泥玻璃轻造纸包贸易商零售百货际联合创兴盛鑫宏达隆泰和康安瑞祥恒远大长城江湖西广"
+            + "深浙苏川粤闽鲁豫";
+
+    private static final String[] HEAD_TAGS = {"国企改革", "央企", "机器人", "固态电池", "半年报增长", "人形机器人", "可控核聚变",
+            "国企", "回购", "深圳国资", "海峡两岸", "创新药", "房地产", "储能", "芯片", "PCB", "核电", "数据中心", "存储芯片",
+            "三季报增长", "军工", "稀土永磁", "新能源", "光伏", "信创", "汽车零部件", "新能源汽车", "商业航天", "半导体设备",
+            "低空经济", "上海国资", "三季报预增", "国产替代", "医疗器械", "风电", "预制菜", "量子科技", "特高压", "海南自贸区",
+            "汽车电子", "控制权变更", "工业母机", "北京国资", "中报增长", "业绩预增", "锂电池", "算力", "福建国资", "湖北国资",
+            "海外扩张", "次新股", "扭亏", "创投", "出口占比高", "六氟磷酸锂", "乡村振兴", "专精特新", "一带一路", "黄金"};
+
+    /**
+     * 行数
+     */
+    @Builder.Default
+    private final long rows = BASE_ROWS;
+
+    /**
+     * 随机种子
+     */
+    @Builder.Default
+    private final long seed = 1;
+
+    /**
+     * 标签词表大小
+     */
+    @Builder.Default
+    private final int tagCount = 1000;
+
+    /**
+     * Zipf 分布指数，越大头部标签越集中
+     */
+    @Builder.Default
+    private final double zipfExponent = 1.0;
+
+    /**
+     * 带标签的数据比例
+     */
+    @Builder.Default
+    private final double taggedRatio = 0.083;
+
+    /**
+     * 按 code.txt 的倍数计算行数
+     */
+    public static long rowsForScale(double scale) {
+        return Math.max(1, Math.round(BASE_ROWS * scale));
+    }
+
+    /**
+     * 生成到文件，父目录不存在时创建
+     *
+     * @return 写入的行数
+     */
+    public long generate(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            return generate(writer);
+        }
+    }
+
+    /**
+     * 逐行写出，不在内存中保留数据
+     *
+     * @return 写入的行数
+     */
+    public long generate(Writer writer) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] counts = allocate(rows);
+        long maxCount = Arrays.stream(counts).max().orElse(1);
+        int width = Math.max(3, Long.toString(Math.max(1, maxCount - 1)).length());
+        long space = pow10(width);
+        String[] tags = vocabulary(tagCount);
+        double[] tagCdf = zipfCdf(tags.length, zipfExponent);
+
+        StringBuilder line = new StringBuilder(64);
+        int[] picked = new int[TAG_COUNT_CDF.length];
+        long written = 0;
+        for (int p = 0; p < PREFIXES.length; p++) {
+            // 板块内按等间距编号，编号稀疏且有序
+            long stride = counts[p] == 0 ? 1 : Math.max(1, space / counts[p]);
+            for (long i = 0; i < counts[p]; i++) {
+                line.setLength(0);
+                line.append(PREFIXES[p]);
+                appendPadded(line, i * stride, width);
+                line.append(',');
+                appendName(line, random);
+                if (random.nextDouble() < taggedRatio) {
+                    line.append(',');
+                    appendTags(line, random, tags, tagCdf, picked);
+                }
+                line.append('\n');
+                writer.append(line);
+                written++;
+            }
+        }
+        writer.flush();
+        return written;
+    }
+
+    /**
+     * 按权重把行数分配到各前缀(最大余数法)，总数精确等于行数
+     */
+    private static long[] allocate(long rows) {
+        long totalWeight = Arrays.stream(PREFIX_WEIGHTS).sum();
+        long[] counts = new long[PREFIXES.length];
+        double[] remainders = new double[PREFIXES.length];
+        long assigned = 0;
+        for (int i = 0; i < PREFIXES.length; i++) {
+            double exact = (double) rows * PREFIX_WEIGHTS[i] / totalWeight;
+            counts[i] = (long) exact;
+            remainders[i] = exact - counts[i];
+            assigned += counts[i];
+        }
+        while (assigned < rows) {
+            int best = 0;
+            for (int i = 1; i < remainders.length; i++) {
+                if (remainders[i] > remainders[best]) {
+                    best = i;
+                }
+            }
+            counts[best]++;
+            remainders[best] = -1;
+            assigned++;
+        }
+        return counts;
+    }
+
+    private static void appendName(StringBuilder line, SplittableRandom random) {
+        double special = random.nextDouble();
+        if (special < 0.02) {
+            line.append("*ST");
+        } else if (special < 0.038) {
+            line.append("ST");
+        }
+        int length = 2 + pick(NAME_LENGTH_CDF, random.nextDouble());
+        for (int i = 0; i < length; i++) {
+            line.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+        }
+        double suffix = random.nextDouble();
+        if (suffix < 0.004) {
+            line.append('A');
+        } else if (suffix < 0.005) {
+            line.append('B');
+        }
+    }
+
+    private static void appendTags(StringBuilder line, SplittableRandom random, String[] tags, double[] tagCdf, int[] picked) {
+        int count = Math.min(tags.length, 1 + pick(TAG_COUNT_CDF, random.nextDouble()));
+        for (int i = 0; i < count; i++) {
+            // 同一条数据内的标签不重复
+            int tag;
+            boolean duplicate;
+            do {
+                tag = pick(tagCdf, random.nextDouble());
+                duplicate = false;
+                for (int j = 0; j < i; j++) {
+                    duplicate |= picked[j] == tag;
+                }
+            } while (duplicate);
+            picked[i] = tag;
+            if (i > 0) {
+                line.append('+');
+            }
+            line.append(tags[tag]);
+        }
+    }
+
+    /**
+     * 标签词表: 头部为真实的高频标签，其余按编号生成 2~4 个汉字 + "概念"，互不重复
+     */
+    private static String[] vocabulary(int size) {
+        String[] tags = new String[Math.max(1, size)];
+        int radix = NAME_CHARS.length();
+        for (int i = 0; i < tags.length; i++) {
+            if (i < HEAD_TAGS.length) {
+                tags[i] = HEAD_TAGS[i];
+                continue;
+            }
+            StringBuilder tag = new StringBuilder();
+            long n = (i - HEAD_TAGS.length) + (long) radix;
+            while (n > 0) {
+                tag.append(NAME_CHARS.charAt((int) (n % radix)));
+                n /= radix;
+            }
+            tags[i] = tag.append("概念").toString();
+        }
+        return tags;
+    }
+
+    /**
+     * Zipf 分布的累计概率，第 k 个标签的权重为 1 / k^s
+     */
+    private static double[] zipfCdf(int size, double exponent) {
+        double[] cdf = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cdf[k] /= sum;
+        }
+        cdf[size - 1] = 1.0;
+        return cdf;
+    }
+
+    /**
+     * 按累计概率抽取下标
+     */
+    private static int pick(double[] cdf, double value) {
+        int index = Arrays.binarySearch(cdf, value);
+        return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static void appendPadded(StringBuilder line, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            line.append('0');
+        }
+        line.append(digits);
+    }
+
+    private static long pow10(int width) {
+        long value = 1;
+        for (int i = 0; i < width; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: StockDataGenerator 输出文件 行数|倍数x [seed=1] [tags=1000] [zipf=1.0] [tagged=0.083]");
+            System.exit(1);
+        }
+        String size = args[1].toLowerCase();
+        StockDataGeneratorBuilder builder = StockDataGenerator.builder()
+                .rows(size.endsWith("x") ? rowsForScale(Double.parseDouble(size.substring(0, size.length() - 1)))
+                        : Long.parseLong(size));
+        for (int i = 2; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("参数格式应为 key=value: " + args[i]);
+            }
+            switch (option[0]) {
+                case "seed":
+                    builder.seed(Long.parseLong(option[1]));
+                    break;
+                case "tags":
+                    builder.tagCount(Integer.parseInt(option[1]));
+                    break;
+                case "zipf":
+                    builder.zipfExponent(Double.parseDouble(option[1]));
+                    break;
+                case "tagged":
+                    builder.taggedRatio(Double.parseDouble(option[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + option[0]);
+            }
+        }
+
+        long startTime = System.currentTimeMillis();
+        Path path = Paths.get(args[0]);
+        long written = builder.build().generate(path);
+        System.out.printf("生成完成 - 文件: %s, 行数: %d, 大小: %dMB, 耗时: %dms%n", path.toAbsolutePath(), written,
+                Files.size(path) >> 20, System.currentTimeMillis() - startTime);
+    }
+}
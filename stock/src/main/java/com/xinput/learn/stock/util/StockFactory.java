@@ -3,10 +3,8 @@ package com.xinput.learn.stock.util;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.xinput.learn.stock.model.Stock;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -22,16 +20,15 @@ public class StockFactory {
         }
     }
 
+    /**
+     * 逐行解析数据文件
+     *
+     * @param fileName 文件名，classpath 下的文件或 "file:" 开头的文件系统路径
+     */
     public static Map<String, Stock> reslove(String fileName) {
-        List<String> contents = ResourceFileUtils.readFileFromClasspath(fileName);
-        if (CollectionUtils.isEmpty(contents)) {
-            return Maps.newHashMap();
-        }
-
-        Map<String, Stock> stockMap = Maps.newHashMapWithExpectedSize(contents.size());
-        for (String content : contents) {
-            Optional.ofNullable(create(content)).ifPresent(stock -> stockMap.put(stock.getCode(), stock));
-        }
+        Map<String, Stock> stockMap = Maps.newHashMap();
+        ResourceFileUtils.forEachLine(fileName,
+                content -> Optional.ofNullable(create(content)).ifPresent(stock -> stockMap.put(stock.getCode(), stock)));
         return stockMap;
     }
 
@@ -0,0 +1,256 @@
+package com.xinput.learn.stock.util;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 数据快照的二进制编解码
+ * <pre>
+ * 文件头: magic(int) | 格式版本(short) | 源文件版本(long) | 生成时间(long) | 数据条数(int) | 数据区长度(int) | 数据区CRC32(long)
+ * 数据区: 每条数据 code | name | 标签数(short) | 标签...，字符串为 长度(short) + UTF-8 字节
+ *         之后是有标签数据的下标列表: 数量(int) | 下标(int)...
+ * </pre>
+ * 启动时通过内存映射读取，解码到堆上后立即释放映射；校验失败或源文件版本不一致时视为过期
+ */
+@Slf4j
+public class StockSnapshotCodec {
+
+    private static final int MAGIC = 0x53544B53;
+
+    private static final short FORMAT_VERSION = 2;
+
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8 + 4 + 4 + 8;
+
+    /**
+     * 源文件版本，由文件大小和最后修改时间组成，不读取文件内容，启动时可以快速判断快照是否过期
+     *
+     * @param fileName 文件名，规则同 {@link ResourceFileUtils#getResource(String)}
+     * @return 源文件版本，源文件不可读时返回 -1
+     */
+    public static long sourceVersion(String fileName) {
+        try {
+            Resource resource = ResourceFileUtils.getResource(fileName);
+            return 31 * resource.lastModified() + resource.contentLength();
+        } catch (IOException e) {
+            log.warn("读取源文件信息失败 - {}", fileName, e);
+            return -1;
+        }
+    }
+
+    /**
+     * 写入快照，先写临时文件再原子替换，避免读到写了一半的文件
+     */
+    public static void write(Path path, StockSnapshot snapshot) throws IOException {
+        List<Stock> stocks = Lists.newArrayList(snapshot.getStockMap().values());
+        List<Integer> reasonIndexes = Lists.newArrayListWithCapacity(snapshot.getReasonStocks().size());
+
+        ByteBuffer payload = ByteBuffer.allocate(estimateSize(stocks));
+        for (int i = 0; i < stocks.size(); i++) {
+            Stock stock = stocks.get(i);
+            putString(payload, stock.getCode());
+            putString(payload, stock.getName());
+            List<String> reasons = stock.getReason();
+            int reasonCount = reasons == null ? 0 : reasons.size();
+            payload.putShort((short) reasonCount);
+            for (int j = 0; j < reasonCount; j++) {
+                putString(payload, reasons.get(j));
+            }
+            if (reasonCount > 0) {
+                reasonIndexes.add(i);
+            }
+        }
+        payload.putInt(reasonIndexes.size());
+        for (Integer index : reasonIndexes) {
+            payload.putInt(index);
+        }
+        payload.flip();
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putLong(snapshot.getSourceVersion())
+                .putLong(snapshot.getCreatedAt())
+                .putInt(stocks.size())
+                .putInt(payload.remaining())
+                .putLong(crc32.getValue());
+        header.flip();
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param path          快照文件
+     * @param sourceVersion 当前源文件的版本
+     * @return 快照，文件不存在、损坏或已过期时返回 null
+     */
+    public static StockSnapshot read(Path path, long sourceVersion) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                log.warn("快照文件不完整 - {}", path);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return decode(path, buffer, sourceVersion);
+            } finally {
+                unmap(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取快照失败 - {}", path, e);
+            return null;
+        }
+    }
+
+    private static StockSnapshot decode(Path path, ByteBuffer buffer, long sourceVersion) {
+        if (buffer.getInt() != MAGIC || buffer.getShort() != FORMAT_VERSION) {
+            log.warn("快照文件格式不匹配 - {}", path);
+            return null;
+        }
+        long snapshotSourceVersion = buffer.getLong();
+        long createdAt = buffer.getLong();
+        int count = buffer.getInt();
+        int payloadLength = buffer.getInt();
+        long payloadChecksum = buffer.getLong();
+        if (snapshotSourceVersion != sourceVersion) {
+            log.info("快照已过期，源文件已变化 - {}", path);
+            return null;
+        }
+        if (buffer.remaining() != payloadLength) {
+            log.warn("快照文件长度不匹配 - {}", path);
+            return null;
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.duplicate());
+        if (crc32.getValue() != payloadChecksum) {
+            log.warn("快照文件校验失败 - {}", path);
+            return null;
+        }
+
+        Stock[] stocks = new Stock[count];
+        Map<String, Stock> stockMap = Maps.newHashMapWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            Stock stock = new Stock();
+            stock.setCode(getString(buffer));
+            stock.setName(getString(buffer));
+            int reasonCount = buffer.getShort();
+            if (reasonCount > 0) {
+                List<String> reasons = Lists.newArrayListWithCapacity(reasonCount);
+                for (int j = 0; j < reasonCount; j++) {
+                    reasons.add(getString(buffer));
+                }
+                stock.setReason(reasons);
+            }
+            stocks[i] = stock;
+            stockMap.put(stock.getCode(), stock);
+        }
+
+        // 使用快照中的标签索引，不再扫描全部数据
+        int reasonCount = buffer.getInt();
+        boolean[] hasReason = new boolean[count];
+        List<Stock> reasonStocks = Lists.newArrayListWithCapacity(reasonCount);
+        for (int i = 0; i < reasonCount; i++) {
+            int index = buffer.getInt();
+            hasReason[index] = true;
+            reasonStocks.add(stocks[index]);
+        }
+        List<Stock> noReasonStocks = Lists.newArrayListWithCapacity(count - reasonCount);
+        for (int i = 0; i < count; i++) {
+            if (!hasReason[i]) {
+                noReasonStocks.add(stocks[i]);
+            }
+        }
+        return new StockSnapshot(stockMap, reasonStocks, noReasonStocks, snapshotSourceVersion, createdAt);
+    }
+
+    /**
+     * 释放内存映射，不等 GC 回收 MappedByteBuffer；JDK 9 以下没有 Unsafe.invokeCleaner，交给 GC 回收
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("释放快照内存映射失败，由 GC 回收", e);
+        }
+    }
+
+    private static int estimateSize(List<Stock> stocks) {
+        int size = 4;
+        for (Stock stock : stocks) {
+            size += 2 + utf8Length(stock.getCode()) + 2 + utf8Length(stock.getName()) + 2 + 4;
+            if (stock.getReason() != null) {
+                for (String reason : stock.getReason()) {
+                    size += 2 + utf8Length(reason);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
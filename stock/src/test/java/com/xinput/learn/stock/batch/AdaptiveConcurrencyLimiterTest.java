@@ -0,0 +1,127 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void clampsInitialLimit() {
+        assertThat(new AdaptiveConcurrencyLimiter(5, 10, 100).getLimit()).isEqualTo(10);
+        assertThat(new AdaptiveConcurrencyLimiter(500, 10, 100).getLimit()).isEqualTo(100);
+        assertThat(new AdaptiveConcurrencyLimiter(50, 10, 100).getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    void acquireStopsAtLimitUnlessForced() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+        assertThat(limiter.tryAcquire(false)).isTrue();
+        assertThat(limiter.tryAcquire(false)).isTrue();
+        assertThat(limiter.tryAcquire(false)).isFalse();
+        // 高优先级忽略限制，但仍计入在途数
+        assertThat(limiter.tryAcquire(true)).isTrue();
+        assertThat(limiter.getInflight()).isEqualTo(3);
+
+        limiter.release();
+        limiter.release();
+        assertThat(limiter.tryAcquire(false)).isTrue();
+        assertThat(limiter.getInflight()).isEqualTo(2);
+    }
+
+    @Test
+    void growsWhenSaturatedAndLatencyStable() {
+        AdaptiveConcurrencyLimiter limiter = saturated(10, 1, 1000);
+
+        int previous = limiter.getLimit();
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(BASE_RTT);
+            assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(previous);
+            previous = limiter.getLimit();
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void doesNotGrowWhenMostlyIdle() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 1000);
+
+        // 在途数不到限制的一半且耗时未变慢，样本不能说明后端容量
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(BASE_RTT);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAboveBaseline() {
+        AdaptiveConcurrencyLimiter limiter = saturated(100, 1, 1000);
+        limiter.onSample(BASE_RTT);
+        int grown = limiter.getLimit();
+
+        limiter.onSample(BASE_RTT * 10);
+        assertThat(limiter.getLimit()).isLessThan(grown);
+        int shrunk = limiter.getLimit();
+        limiter.onSample(BASE_RTT * 10);
+        assertThat(limiter.getLimit()).isLessThan(shrunk);
+    }
+
+    @Test
+    void shrinksEvenWhenIdleIfLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 1000);
+        limiter.onSample(BASE_RTT);
+
+        limiter.onSample(BASE_RTT * 10);
+        assertThat(limiter.getLimit()).isLessThan(100);
+    }
+
+    @Test
+    void growsAgainOnceBaselineAdaptsToNewLatency() {
+        AdaptiveConcurrencyLimiter limiter = saturated(100, 1, 1000);
+        limiter.onSample(BASE_RTT);
+
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < 200; i++) {
+            limiter.onSample(BASE_RTT * 10);
+            lowest = Math.min(lowest, limiter.getLimit());
+        }
+        assertThat(lowest).isLessThan(100);
+        // 长期基线追上新的耗时后梯度回到 1，限制重新放大
+        assertThat(limiter.getLimit()).isGreaterThan(lowest);
+    }
+
+    @Test
+    void staysWithinMinAndMax() {
+        AdaptiveConcurrencyLimiter growing = saturated(40, 35, 50);
+        for (int i = 0; i < 200; i++) {
+            growing.onSample(BASE_RTT);
+        }
+        assertThat(growing.getLimit()).isEqualTo(50);
+
+        AdaptiveConcurrencyLimiter shrinking = saturated(40, 35, 50);
+        shrinking.onSample(BASE_RTT);
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            shrinking.onSample(BASE_RTT * 10);
+            assertThat(shrinking.getLimit()).isBetween(35, 50);
+            lowest = Math.min(lowest, shrinking.getLimit());
+        }
+        assertThat(lowest).isEqualTo(35);
+    }
+
+    /**
+     * 在途数占满限制的限制器
+     */
+    private static AdaptiveConcurrencyLimiter saturated(int initial, int min, int max) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initial, min, max);
+        for (int i = 0; i < max; i++) {
+            limiter.tryAcquire(true);
+        }
+        return limiter;
+    }
+}
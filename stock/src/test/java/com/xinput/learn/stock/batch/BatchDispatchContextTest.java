@@ -0,0 +1,102 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 请求级批处理调度：批处理间隔设为很大，请求只能由上下文触发组批
+ */
+class BatchDispatchContextTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private final Map<String, Stock> stocks = TestBatchLoader.stocks();
+
+    private final String[] codes = TestBatchLoader.codes();
+
+    private TestBatchLoader loader;
+
+    @AfterEach
+    void tearDown() {
+        if (loader != null) {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void dispatchesEachLevelWithoutTimer() throws Exception {
+        loader = start(100);
+        try (BatchDispatchContext context = BatchDispatchContext.open()) {
+            CompletableFuture<Stock> level = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < 3; i++) {
+                String code = codes[i];
+                level = level.thenComposeAsync(ignored -> loader.load(code), context);
+            }
+
+            assertThat(context.await(level, TIMEOUT_MS)).isSameAs(stocks.get(codes[2]));
+            assertThat(context.getLoadCount()).isEqualTo(3);
+            assertThat(context.getDispatchCount()).isEqualTo(3);
+        }
+        assertThat(loader.getMetrics().getBatchCount()).isEqualTo(3);
+    }
+
+    @Test
+    void fanOutLoadsOfOneLevelShareOneBatch() throws Exception {
+        int levels = 3;
+        int fanOut = 5;
+        loader = start(100);
+        try (BatchDispatchContext context = BatchDispatchContext.open()) {
+            CompletableFuture<Void> level = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < levels; i++) {
+                int offset = i * fanOut;
+                level = level.thenComposeAsync(ignored -> {
+                    CompletableFuture<?>[] futures = new CompletableFuture<?>[fanOut];
+                    for (int j = 0; j < fanOut; j++) {
+                        futures[j] = loader.load(codes[offset + j]);
+                    }
+                    return CompletableFuture.allOf(futures);
+                }, context);
+            }
+
+            context.await(level, TIMEOUT_MS);
+            assertThat(context.getLoadCount()).isEqualTo(levels * fanOut);
+            assertThat(context.getDispatchCount()).isEqualTo(levels);
+        }
+        // 每层的请求在同一次调度中合并为一个批次，不等待批处理间隔
+        assertThat(loader.getMetrics().getBatchCount()).isEqualTo(levels);
+    }
+
+    @Test
+    void dispatchesEveryQueuedBatch() throws Exception {
+        int maxBatchSize = 4;
+        loader = start(maxBatchSize);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[maxBatchSize * 2 + 2];
+        try (BatchDispatchContext context = BatchDispatchContext.open()) {
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = loader.load(codes[i]);
+            }
+            context.await(CompletableFuture.allOf(futures), TIMEOUT_MS);
+        }
+
+        for (int i = 0; i < futures.length; i++) {
+            assertThat(futures[i].join()).isSameAs(stocks.get(codes[i]));
+        }
+        // 入队达到最大批量时也会触发组批，批次数取决于与批处理线程的交错
+        assertThat(loader.getMetrics().getBatchCount()).isGreaterThanOrEqualTo(3);
+    }
+
+    private TestBatchLoader start(int maxBatchSize) {
+        TestBatchLoader started = TestBatchLoader.inMemory(TestBatchLoader.config("BatchDispatchContextTest")
+                .maxBatchSize(maxBatchSize)
+                .intervalMs(60000)
+                .build());
+        started.init();
+        return started;
+    }
+}
@@ -0,0 +1,171 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchLaneTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void deficitRoundRobinSharesBatchAcrossTenants() {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 100, 1.0);
+        offer(lane, "A", 10);
+        offer(lane, "B", 10);
+        offer(lane, "C", 2);
+
+        List<BatchRequest<String, String>> batch = new ArrayList<>();
+        assertThat(lane.drainTo(batch, 9, 2)).isEqualTo(9);
+        assertThat(tenants(batch)).containsExactly("A", "A", "B", "B", "C", "C", "A", "A", "B");
+
+        // 批次装满时 B 本轮还剩 1 个额度，下个批次先取 B
+        batch.clear();
+        assertThat(lane.drainTo(batch, 4, 2)).isEqualTo(4);
+        assertThat(tenants(batch)).containsExactly("B", "A", "A", "B");
+        assertThat(lane.size()).isEqualTo(22 - 13);
+        assertThat(lane.getMetrics().getDispatchedCount()).isEqualTo(13);
+    }
+
+    @Test
+    void drainKeepsOrderWithinTenant() {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 100, 1.0);
+        offer(lane, "A", 5);
+
+        List<BatchRequest<String, String>> batch = new ArrayList<>();
+        lane.drainTo(batch, 10, 2);
+
+        assertThat(batch.stream().map(BatchRequest::getKey).collect(Collectors.toList()))
+                .containsExactly("A-0", "A-1", "A-2", "A-3", "A-4");
+        assertThat(lane.isEmpty()).isTrue();
+    }
+
+    @Test
+    void fullTenantDoesNotBlockOthers() {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 10, 0.3);
+
+        assertThat(offer(lane, "A", 3)).isEqualTo(3);
+        assertThat(lane.offer(request("A", 3))).isFalse();
+        assertThat(offer(lane, "B", 3)).isEqualTo(3);
+        // 默认租户只受通道容量限制
+        assertThat(offer(lane, AbstractBatchLoader.DEFAULT_TENANT, 10)).isEqualTo(4);
+        assertThat(lane.size()).isEqualTo(10);
+        assertThat(lane.getTenantQueueSizes()).containsEntry("A", 3).containsEntry("B", 3);
+    }
+
+    @Test
+    void rejectedTenantOffersDoNotMakeLaneLookFull() throws Exception {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 10, 0.5);
+        assertThat(offer(lane, "A", 5)).isEqualTo(5);
+
+        // A 的租户队列已满，并发入队 A 的请求全部被拒绝，不能临时占用通道名额
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger acceptedA = new AtomicInteger();
+        try {
+            for (int i = 0; i < 4; i++) {
+                producers.execute(() -> {
+                    while (running.get()) {
+                        if (lane.offer(request("A", 5))) {
+                            acceptedA.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (int round = 0; round < 2000; round++) {
+                // B 用满剩余的 5 个名额，再逐个取出，A 始终是满的
+                assertThat(offer(lane, "B", 5)).isEqualTo(5);
+                for (int i = 0; i < 5; i++) {
+                    assertThat(lane.poll("B").getTenant()).isEqualTo("B");
+                }
+            }
+        } finally {
+            running.set(false);
+            producers.shutdown();
+            producers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        assertThat(acceptedA.get()).isZero();
+        assertThat(lane.size()).isEqualTo(5);
+    }
+
+    @Test
+    void blockingOfferDoesNotHoldCapacityWhileWaiting() throws Exception {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 4, 0.5);
+        offer(lane, "A", 2);
+
+        // A 的租户队列已满，等待期间不占用通道名额，B 仍可用满剩余容量
+        Future<Boolean> blocked = executor.submit(() -> lane.offer(request("A", 2), 5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertThat(blocked.isDone()).isFalse();
+        assertThat(offer(lane, "B", 2)).isEqualTo(2);
+        assertThat(lane.size()).isEqualTo(4);
+
+        // 取出 A 的一个请求后被唤醒入队
+        List<BatchRequest<String, String>> batch = new ArrayList<>();
+        lane.drainTo(batch, 1, 1);
+        assertThat(tenants(batch)).containsExactly("A");
+        assertThat(blocked.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(lane.size()).isEqualTo(4);
+        assertThat(lane.getTenantQueueSizes()).containsEntry("A", 2);
+    }
+
+    @Test
+    void blockingOfferTimesOut() throws Exception {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 2, 1.0);
+        offer(lane, "A", 2);
+
+        long startTime = System.nanoTime();
+        assertThat(lane.offer(request("A", 2), 50, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(System.nanoTime() - startTime).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(lane.size()).isEqualTo(2);
+    }
+
+    @Test
+    void pollWakesBlockingOffer() throws Exception {
+        BatchLane<String, String> lane = new BatchLane<>(BatchPriority.NORMAL, 2, 1.0);
+        offer(lane, "A", 2);
+
+        Future<Boolean> blocked = executor.submit(() -> lane.offer(request("B", 0), 5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertThat(lane.poll("A").getKey()).isEqualTo("A-0");
+
+        assertThat(blocked.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(lane.getTenantQueueSizes()).containsEntry("A", 1).containsEntry("B", 1);
+    }
+
+    private static int offer(BatchLane<String, String> lane, String tenant, int count) {
+        int offered = 0;
+        for (int i = 0; i < count; i++) {
+            if (lane.offer(request(tenant, i))) {
+                offered++;
+            }
+        }
+        return offered;
+    }
+
+    private static BatchRequest<String, String> request(String tenant, int index) {
+        return new BatchRequest<String, String>().init(tenant + "-" + index, new CompletableFuture<>(),
+                System.currentTimeMillis(), BatchPriority.NORMAL, tenant);
+    }
+
+    private static List<String> tenants(List<BatchRequest<String, String>> batch) {
+        return batch.stream().map(BatchRequest::getTenant).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,103 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchLoaderRegistryTest {
+
+    private final BatchLoaderRegistry registry = new BatchLoaderRegistry();
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void returnsSameLoaderForName() {
+        TestBatchLoader first = registry.getOrCreate("RegistryTest",
+                () -> TestBatchLoader.inMemory(TestBatchLoader.config("RegistryTest").build()));
+        TestBatchLoader second = registry.getOrCreate("RegistryTest", () -> {
+            throw new AssertionError("已存在的加载器不应重新创建");
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(registry.get("RegistryTest")).isSameAs(first);
+    }
+
+    @Test
+    void failedInitLeavesNoEntry() {
+        AtomicInteger attempts = new AtomicInteger();
+        assertThatThrownBy(() -> registry.getOrCreate("FailingInit", () -> {
+            attempts.incrementAndGet();
+            return new TestBatchLoader(TestBatchLoader.config("FailingInit").build(), keys -> null) {
+                @Override
+                public void init() {
+                    throw new IllegalStateException("初始化失败");
+                }
+            };
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(registry.get("FailingInit")).isNull();
+
+        TestBatchLoader loader = registry.getOrCreate("FailingInit", () -> {
+            attempts.incrementAndGet();
+            return TestBatchLoader.inMemory(TestBatchLoader.config("FailingInit").build());
+        });
+        assertThat(registry.get("FailingInit")).isSameAs(loader);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentCreationKeepsOneAndDestroysOthers() throws Exception {
+        int threads = 4;
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<TestBatchLoader> created = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TestBatchLoader>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<TestBatchLoader> task = () -> registry.getOrCreate("ConcurrentCreate", () -> {
+                    TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("ConcurrentCreate").build());
+                    synchronized (created) {
+                        created.add(loader);
+                    }
+                    // 所有线程都进入工厂后再继续，保证并发登记
+                    ready.countDown();
+                    try {
+                        ready.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return loader;
+                });
+                futures.add(executor.submit(task));
+            }
+
+            TestBatchLoader winner = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<TestBatchLoader> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)).isSameAs(winner);
+            }
+            assertThat(created).hasSize(threads);
+            for (TestBatchLoader loader : created) {
+                if (loader != winner) {
+                    assertThat(loader.load("000001").isCompletedExceptionally()).isTrue();
+                }
+            }
+            assertThat(winner.load(TestBatchLoader.codes()[0]).get(5, TimeUnit.SECONDS)).isNotNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchResultTest {
+
+    @Test
+    void ofReadsValuesFromMap() {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "A");
+        values.put("b", null);
+        BatchResult<String, String> result = BatchResult.of(values);
+
+        assertThat(result.getValue("a")).isEqualTo("A");
+        assertThat(result.getValue("b")).isNull();
+        assertThat(result.getValue("c")).isNull();
+        assertThat(result.getError("a")).isNull();
+    }
+
+    @Test
+    void ofToleratesNullMap() {
+        BatchResult<String, String> result = BatchResult.of(null);
+
+        assertThat(result.getValue("a")).isNull();
+        assertThat(result.getError("a")).isNull();
+    }
+
+    @Test
+    void modificationsDoNotChangeSourceMap() {
+        Map<String, String> values = new HashMap<>();
+        values.put("a", "A");
+        values.put("b", "B");
+        BatchResult<String, String> result = BatchResult.<String, String>of(values)
+                .found("c", "C")
+                .notFound("a");
+
+        assertThat(result.getValue("a")).isNull();
+        assertThat(result.getValue("b")).isEqualTo("B");
+        assertThat(result.getValue("c")).isEqualTo("C");
+        assertThat(values).containsOnlyKeys("a", "b");
+    }
+
+    @Test
+    void failedMarksEveryKey() {
+        IllegalStateException error = new IllegalStateException("失败");
+        BatchResult<String, String> result = BatchResult.failed(Arrays.asList("a", "b"), error);
+
+        assertThat(result.getError("a")).isSameAs(error);
+        assertThat(result.getError("b")).isSameAs(error);
+        assertThat(result.getError("c")).isNull();
+    }
+
+    @Test
+    void foundAndNotFoundClearError() {
+        IllegalStateException error = new IllegalStateException("失败");
+        BatchResult<String, String> result = BatchResult.<String, String>failed(Arrays.asList("a", "b"), error)
+                .found("a", "A")
+                .notFound("b");
+
+        assertThat(result.getError("a")).isNull();
+        assertThat(result.getValue("a")).isEqualTo("A");
+        assertThat(result.getError("b")).isNull();
+        assertThat(result.getValue("b")).isNull();
+    }
+
+    @Test
+    void mergeCombinesValuesAndErrors() {
+        IllegalStateException error = new IllegalStateException("失败");
+        Map<String, String> left = new HashMap<>();
+        left.put("a", "A");
+        BatchResult<String, String> merged = new BatchResult<String, String>(4)
+                .merge(BatchResult.of(left))
+                .merge(BatchResult.failed(Arrays.asList("b"), error));
+
+        assertThat(merged.getValue("a")).isEqualTo("A");
+        assertThat(merged.getError("b")).isSameAs(error);
+        assertThat(left).containsOnlyKeys("a");
+    }
+}
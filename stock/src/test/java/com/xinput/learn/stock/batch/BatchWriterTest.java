@@ -0,0 +1,260 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * write-behind 批量写入：合并、串行刷新、待写入上限和关闭超时
+ * 刷新间隔设为很大，除非达到最大批量，只有显式 flush 或 destroy 才会写入
+ */
+class BatchWriterTest {
+
+    private RecordingWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.release.countDown();
+            writer.destroy();
+        }
+    }
+
+    @Test
+    void mergesRepeatedUpdatesForOneKey() throws Exception {
+        writer = start(config().build());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(writer.write("000001", "a"));
+        futures.add(writer.write("000001", "b"));
+        futures.add(writer.write("000002", "x"));
+        futures.add(writer.write("000001", "c"));
+
+        writer.flush();
+
+        assertThat(writer.batches).hasSize(1);
+        assertThat(writer.batches.get(0)).containsEntry("000001", "a+b+c").containsEntry("000002", "x");
+        assertThat(writer.afterFlushCount.get()).isEqualTo(1);
+        for (CompletableFuture<Void> future : futures) {
+            assertThat(future).isCompleted();
+        }
+        BatchWriterMetrics metrics = writer.getMetrics();
+        assertThat(metrics.getWriteCount()).isEqualTo(4);
+        assertThat(metrics.getMergeCount()).isEqualTo(2);
+        assertThat(metrics.getFlushedKeyCount()).isEqualTo(2);
+    }
+
+    @Test
+    void splitsRoundIntoBatchesAndCallsAfterFlushOnce() throws Exception {
+        writer = start(config().maxBatchSize(3).queueCapacity(100).build());
+        // 第一批卡在后端期间写入的更新由同一轮刷新继续写完，后台触发的刷新拿不到刷新锁
+        writer.blockWrites = true;
+        writer.write("key-0", "v0");
+        Thread flusher = new Thread(writer::flush);
+        flusher.start();
+        assertThat(writer.writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= 7; i++) {
+            writer.write("key-" + i, "v" + i);
+        }
+
+        writer.release.countDown();
+        flusher.join(5000);
+
+        assertThat(writer.batches).extracting(Map::size).containsExactly(1, 3, 3, 1);
+        assertThat(writer.afterFlushCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    void flushesOneAtATime() throws Exception {
+        writer = start(config().maxBatchSize(4).queueCapacity(100000).build());
+        writer.writeDelayMs = 2;
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        writer.write("key-" + thread + "-" + i, "v");
+                        if (i % 10 == 0) {
+                            writer.flush();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            writer.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(writer.maxConcurrentWrites.get()).isEqualTo(1);
+        assertThat(writer.getMetrics().getFlushedKeyCount()).isEqualTo(threads * 50);
+        assertThat(writer.getMetrics().getPendingCount()).isZero();
+    }
+
+    @Test
+    void rejectsNewKeysAtPendingLimitButMergesExistingOnes() throws Exception {
+        writer = start(config().queueCapacity(2).build());
+        writer.write("000001", "a");
+        writer.write("000002", "b");
+
+        CompletableFuture<Void> rejected = writer.write("000003", "c");
+        CompletableFuture<Void> merged = writer.write("000001", "d");
+
+        assertThatThrownBy(() -> rejected.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(writer.getMetrics().getRejectCount()).isEqualTo(1);
+        writer.flush();
+        merged.get(1, TimeUnit.SECONDS);
+        assertThat(writer.batches.get(0)).containsOnlyKeys("000001", "000002").containsEntry("000001", "a+d");
+    }
+
+    @Test
+    void failedBatchCompletesItsWritesExceptionally() {
+        writer = start(config().build());
+        writer.failWrites = true;
+        CompletableFuture<Void> future = writer.write("000001", "a");
+
+        writer.flush();
+
+        assertThatThrownBy(() -> future.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(writer.getMetrics().getFlushFailCount()).isEqualTo(1);
+        assertThat(writer.afterFlushCount.get()).isZero();
+    }
+
+    @Test
+    void destroyFlushesRemainingUpdates() throws Exception {
+        writer = start(config().build());
+        CompletableFuture<Void> future = writer.write("000001", "a");
+
+        writer.destroy();
+
+        future.get(1, TimeUnit.SECONDS);
+        assertThat(writer.batches).hasSize(1);
+        assertThatThrownBy(() -> writer.write("000002", "b").get(1, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void destroyGivesUpAfterShutdownTimeoutWhenBackendHangs() throws Exception {
+        writer = start(config().shutdownTimeoutMs(200).build());
+        writer.blockWrites = true;
+        CompletableFuture<Void> inFlight = writer.write("000001", "a");
+        Thread flusher = new Thread(writer::flush);
+        flusher.start();
+        assertThat(writer.writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> queued = writer.write("000002", "b");
+
+        long start = System.currentTimeMillis();
+        writer.destroy();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertThat(elapsed).isLessThan(2000);
+        assertThatThrownBy(() -> queued.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        // 卡住的写入恢复后正常完成
+        writer.release.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
+        flusher.join(5000);
+    }
+
+    private static BatchWriterConfig.BatchWriterConfigBuilder config() {
+        return BatchWriterConfig.builder()
+                .name("BatchWriterTest")
+                .intervalMs(60000)
+                .maxBatchSize(100)
+                .queueCapacity(1000)
+                .enableMonitor(false);
+    }
+
+    private static RecordingWriter start(BatchWriterConfig config) {
+        RecordingWriter writer = new RecordingWriter(config);
+        writer.init();
+        return writer;
+    }
+
+    /**
+     * 记录每批写入内容的写入器，更新按写入顺序用 + 连接
+     */
+    private static class RecordingWriter extends AbstractBatchWriter<String, String> {
+
+        private final List<Map<String, String>> batches = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger concurrentWrites = new AtomicInteger();
+
+        private final AtomicInteger maxConcurrentWrites = new AtomicInteger();
+
+        private final AtomicInteger afterFlushCount = new AtomicInteger();
+
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile long writeDelayMs = 0;
+
+        private volatile boolean blockWrites = false;
+
+        private volatile boolean failWrites = false;
+
+        private RecordingWriter(BatchWriterConfig config) {
+            super(config);
+        }
+
+        @Override
+        public String merge(String previous, String current) {
+            return previous + "+" + current;
+        }
+
+        @Override
+        public void batchWrite(Map<String, String> updates) {
+            int concurrent = concurrentWrites.incrementAndGet();
+            maxConcurrentWrites.accumulateAndGet(concurrent, Math::max);
+            try {
+                writeStarted.countDown();
+                if (blockWrites) {
+                    release.await();
+                }
+                if (writeDelayMs > 0) {
+                    Thread.sleep(writeDelayMs);
+                }
+                if (failWrites) {
+                    throw new IllegalStateException("写入失败");
+                }
+                batches.add(new LinkedHashMap<>(updates));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentWrites.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected void afterFlush() {
+            afterFlushCount.incrementAndGet();
+        }
+    }
+}
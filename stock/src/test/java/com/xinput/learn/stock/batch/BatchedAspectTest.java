@@ -0,0 +1,95 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.config.BatchConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchedAspectTest {
+
+    private final BatchLoaderRegistry registry = new BatchLoaderRegistry();
+
+    private CodeService service;
+
+    @BeforeEach
+    void setUp() {
+        BatchConfig batchConfig = new BatchConfig();
+        batchConfig.setEnableMonitor(false);
+        batchConfig.setHedgeEnabled(false);
+        batchConfig.setHotKeyEnabled(false);
+        BatchedAspect aspect = new BatchedAspect();
+        ReflectionTestUtils.setField(aspect, "batchLoaderRegistry", registry);
+        ReflectionTestUtils.setField(aspect, "batchConfig", batchConfig);
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new CodeService());
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        service = factory.getProxy();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void routesThroughBatchMethod() {
+        assertThat(service.find("000001")).isEqualTo("batch-000001");
+        assertThat(registry.get("CodeService.find")).isNotNull();
+        assertThat(registry.get("CodeService.find").getMetrics().getBatchCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rethrowsOriginalRuntimeException() {
+        assertThatThrownBy(() -> service.find(CodeService.BAD_CODE))
+                .isExactlyInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(CodeService.BAD_CODE);
+    }
+
+    @Test
+    void rethrowsOriginalCheckedException() {
+        assertThatThrownBy(() -> service.read("000001"))
+                .isExactlyInstanceOf(IOException.class)
+                .hasMessage("读取失败");
+    }
+
+    public static class CodeService {
+
+        static final String BAD_CODE = "bad";
+
+        @Batched(batchMethod = "findAll")
+        public String find(String code) {
+            return "single-" + code;
+        }
+
+        public Map<String, String> findAll(List<String> codes) {
+            if (codes.contains(BAD_CODE)) {
+                throw new IllegalArgumentException("无效代码: " + BAD_CODE);
+            }
+            Map<String, String> result = new HashMap<>();
+            for (String code : codes) {
+                result.put(code, "batch-" + code);
+            }
+            return result;
+        }
+
+        @Batched(batchMethod = "readAll")
+        public String read(String code) throws IOException {
+            throw new IOException("读取失败");
+        }
+
+        public Map<String, String> readAll(List<String> codes) throws IOException {
+            throw new IOException("读取失败");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 整批失败后的二分重试，以及按Key返回错误的批量结果
+ * 批处理间隔设为很大，批量达到 BATCH_SIZE 时才触发，保证所有请求在同一批次中
+ */
+class BisectRetryTest {
+
+    private static final int BATCH_SIZE = 8;
+
+    private final Map<String, Stock> stocks = TestBatchLoader.stocks();
+
+    private final List<String> codes = Arrays.asList(TestBatchLoader.codes()).subList(0, BATCH_SIZE);
+
+    private final String poisoned = codes.get(3);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final Function<List<String>, Map<String, Stock>> backend = keys -> {
+        calls.incrementAndGet();
+        if (keys.contains(poisoned)) {
+            throw new IllegalArgumentException("数据异常: " + poisoned);
+        }
+        return stocks;
+    };
+
+    @Test
+    void isolatesFailingKey() throws Exception {
+        TestBatchLoader loader = start(config().bisectMaxDepth(7).build(), backend);
+        try {
+            List<CompletableFuture<Stock>> futures = loadAll(loader);
+
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                if (codes.get(i).equals(poisoned)) {
+                    assertFailed(futures.get(i), IllegalArgumentException.class);
+                } else {
+                    assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+                }
+            }
+            BatchLoaderMetrics metrics = loader.getMetrics();
+            assertThat(metrics.getBisectCount()).isEqualTo(1);
+            assertThat(metrics.getKeyErrorCount()).isEqualTo(1);
+            // 8 -> 4 + 4 -> 2 + 2 -> 1 + 1，首次整批加上 6 次拆分后的查询
+            assertThat(calls.get()).isEqualTo(7);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void stopsAtMaxDepth() throws Exception {
+        TestBatchLoader loader = start(config().bisectMaxDepth(1).build(), backend);
+        try {
+            List<CompletableFuture<Stock>> futures = loadAll(loader);
+
+            // 只拆分一次：含出错Key的一半整体失败，另一半正常返回
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                if (i < BATCH_SIZE / 2) {
+                    assertFailed(futures.get(i), IllegalArgumentException.class);
+                } else {
+                    assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+                }
+            }
+            assertThat(loader.getMetrics().getKeyErrorCount()).isEqualTo(BATCH_SIZE / 2);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void failsWholeBatchWhenDisabled() throws Exception {
+        TestBatchLoader loader = start(config().bisectOnFailure(false).build(), backend);
+        try {
+            for (CompletableFuture<Stock> future : loadAll(loader)) {
+                assertFailed(future, IllegalArgumentException.class);
+            }
+            assertThat(loader.getMetrics().getBisectCount()).isZero();
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void perKeyErrorDoesNotFailBatch() throws Exception {
+        TestBatchLoader loader = new TestBatchLoader(config().build(), keys -> stocks) {
+            @Override
+            public BatchResult<String, Stock> batchLoadResult(List<String> keys) {
+                calls.incrementAndGet();
+                return BatchResult.of(stocks).error(poisoned, new IllegalArgumentException("数据异常: " + poisoned));
+            }
+        };
+        loader.init();
+        try {
+            List<CompletableFuture<Stock>> futures = loadAll(loader);
+
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                if (codes.get(i).equals(poisoned)) {
+                    assertFailed(futures.get(i), IllegalArgumentException.class);
+                } else {
+                    assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+                }
+            }
+            assertThat(loader.getMetrics().getBisectCount()).isZero();
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void circuitOpenStopsBisect() throws Exception {
+        TestBatchLoader loader = start(config()
+                .circuitBreakerEnabled(true)
+                .circuitBreakerFailureThreshold(1)
+                .circuitBreakerOpenMs(60000)
+                .build(), backend);
+        try {
+            List<CompletableFuture<Stock>> futures = loadAll(loader);
+
+            // 首次整批失败即熔断，拆分后的查询都被熔断器拒绝，不再访问后端
+            for (CompletableFuture<Stock> future : futures) {
+                assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+            }
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    private BatchLoaderConfig.BatchLoaderConfigBuilder config() {
+        return TestBatchLoader.config("BisectRetryTest")
+                .maxBatchSize(BATCH_SIZE)
+                .intervalMs(60000)
+                .circuitBreakerEnabled(false);
+    }
+
+    private TestBatchLoader start(BatchLoaderConfig config, Function<List<String>, Map<String, Stock>> backend) {
+        TestBatchLoader loader = new TestBatchLoader(config, backend);
+        loader.init();
+        return loader;
+    }
+
+    private List<CompletableFuture<Stock>> loadAll(TestBatchLoader loader) {
+        List<CompletableFuture<Stock>> futures = new ArrayList<>(BATCH_SIZE);
+        for (String code : codes) {
+            futures.add(loader.load(code));
+        }
+        return futures;
+    }
+
+    private static void assertFailed(CompletableFuture<Stock> future, Class<? extends Throwable> cause) {
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(cause);
+    }
+}
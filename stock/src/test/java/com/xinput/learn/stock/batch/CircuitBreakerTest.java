@@ -0,0 +1,159 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 50;
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MS, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.getOpenCount()).isEqualTo(1);
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.getRejectCount()).isEqualTo(2);
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, OPEN_MS, 1);
+
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void failuresWhileOpenDoNotCountAsNewOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MS, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getOpenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenAllowsLimitedProbes() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MS, 2);
+        breaker.onFailure();
+
+        TimeUnit.MILLISECONDS.sleep(OPEN_MS + 10);
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.getRejectCount()).isEqualTo(1);
+    }
+
+    @Test
+    void probeSuccessCloses() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MS, 1);
+        breaker.onFailure();
+
+        TimeUnit.MILLISECONDS.sleep(OPEN_MS + 10);
+        assertThat(breaker.allowRequest()).isTrue();
+        breaker.onSuccess();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void probeFailureReopens() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(5, OPEN_MS, 1);
+        for (int i = 0; i < 5; i++) {
+            breaker.onFailure();
+        }
+
+        TimeUnit.MILLISECONDS.sleep(OPEN_MS + 10);
+        assertThat(breaker.allowRequest()).isTrue();
+        breaker.onFailure();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.getOpenCount()).isEqualTo(2);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void loaderFailsFastWhileOpen() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        TestBatchLoader loader = new TestBatchLoader(TestBatchLoader.config("CircuitBreakerTest")
+                .circuitBreakerEnabled(true)
+                .circuitBreakerFailureThreshold(2)
+                .circuitBreakerOpenMs(60000)
+                .bisectOnFailure(false)
+                .build(), keys -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("后端不可用");
+        });
+        loader.init();
+        try {
+            for (int i = 0; i < 2; i++) {
+                CompletableFuture<Stock> future = loader.load("00000" + i);
+                assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .hasCauseInstanceOf(IllegalStateException.class);
+            }
+            assertThat(loader.getMetrics().getCircuitState()).isEqualTo("OPEN");
+
+            CompletableFuture<Stock> rejected = loader.load("000009");
+            assertThatThrownBy(() -> rejected.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(CircuitBreakerOpenException.class);
+            assertThat(calls.get()).isEqualTo(2);
+            assertThat(loader.getMetrics().getCircuitRejectCount()).isEqualTo(1);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void loaderRecoversThroughHalfOpenProbe() throws Exception {
+        AtomicInteger failures = new AtomicInteger(1);
+        Map<String, Stock> stocks = TestBatchLoader.stocks();
+        String code = TestBatchLoader.codes()[0];
+        TestBatchLoader loader = new TestBatchLoader(TestBatchLoader.config("CircuitBreakerRecoveryTest")
+                .circuitBreakerEnabled(true)
+                .circuitBreakerFailureThreshold(1)
+                .circuitBreakerOpenMs(OPEN_MS)
+                .build(), keys -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("后端不可用");
+            }
+            return stocks;
+        });
+        loader.init();
+        try {
+            assertThatThrownBy(() -> loader.load(code).get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+
+            TimeUnit.MILLISECONDS.sleep(OPEN_MS + 10);
+            assertThat(loader.load(code).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(code));
+            assertThat(loader.getMetrics().getCircuitState()).isEqualTo("CLOSED");
+        } finally {
+            loader.destroy();
+        }
+    }
+}
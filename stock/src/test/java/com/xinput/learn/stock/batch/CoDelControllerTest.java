@@ -0,0 +1,183 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoDelControllerTest {
+
+    private static final long TARGET_MS = 10;
+
+    private static final long INTERVAL_MS = 100;
+
+    private static final long ABOVE = TARGET_MS + 5;
+
+    private static final long BELOW = TARGET_MS - 5;
+
+    @Test
+    void neverDropsBelowTarget() {
+        CoDelController codel = new CoDelController(TARGET_MS, INTERVAL_MS);
+
+        for (long now = 1000; now < 2000; now += 10) {
+            assertThat(codel.shouldDrop(BELOW, now)).isFalse();
+        }
+        assertThat(codel.isDropping()).isFalse();
+        assertThat(codel.getDropCount()).isZero();
+    }
+
+    @Test
+    void entersDroppingAfterFullIntervalAboveTarget() {
+        CoDelController codel = new CoDelController(TARGET_MS, INTERVAL_MS);
+
+        assertThat(codel.shouldDrop(ABOVE, 1000)).isFalse();
+        assertThat(codel.shouldDrop(ABOVE, 1050)).isFalse();
+        assertThat(codel.shouldDrop(ABOVE, 1099)).isFalse();
+        assertThat(codel.isDropping()).isFalse();
+
+        assertThat(codel.shouldDrop(ABOVE, 1100)).isTrue();
+        assertThat(codel.isDropping()).isTrue();
+        assertThat(codel.getCount()).isEqualTo(1);
+        assertThat(codel.getDropNext()).isEqualTo(1100 + INTERVAL_MS);
+    }
+
+    @Test
+    void sampleBelowTargetRestartsObservation() {
+        CoDelController codel = new CoDelController(TARGET_MS, INTERVAL_MS);
+
+        codel.shouldDrop(ABOVE, 1000);
+        codel.shouldDrop(BELOW, 1080);
+        // 重新计时，1100 时还不满一个窗口
+        assertThat(codel.shouldDrop(ABOVE, 1100)).isFalse();
+        assertThat(codel.shouldDrop(ABOVE, 1199)).isFalse();
+        assertThat(codel.shouldDrop(ABOVE, 1200)).isTrue();
+    }
+
+    @Test
+    void dropsAtIntervalOverSqrtCount() {
+        CoDelController codel = dropping(1100);
+
+        long expected = 1100 + INTERVAL_MS;
+        for (int count = 2; count <= 10; count++) {
+            assertThat(codel.shouldDrop(ABOVE, expected - 1)).isFalse();
+            assertThat(codel.shouldDrop(ABOVE, expected)).isTrue();
+            assertThat(codel.getCount()).isEqualTo(count);
+            expected += (long) (INTERVAL_MS / Math.sqrt(count));
+            assertThat(codel.getDropNext()).isEqualTo(expected);
+        }
+        assertThat(codel.getDropCount()).isEqualTo(10);
+    }
+
+    @Test
+    void leavesDroppingWhenSojournFallsBelowTarget() {
+        CoDelController codel = dropping(1100);
+
+        assertThat(codel.shouldDrop(BELOW, 1150)).isFalse();
+        assertThat(codel.isDropping()).isFalse();
+        // 离开后需要重新观察一个完整窗口
+        assertThat(codel.shouldDrop(ABOVE, 1300)).isFalse();
+        assertThat(codel.shouldDrop(ABOVE, 1399)).isFalse();
+        assertThat(codel.shouldDrop(ABOVE, 1400)).isTrue();
+    }
+
+    @Test
+    void reentryResumesPreviousDropRate() {
+        CoDelController codel = dropping(1100);
+        codel.shouldDrop(ABOVE, 1200);
+        codel.shouldDrop(ABOVE, 1270);
+        codel.shouldDrop(ABOVE, 1327);
+        assertThat(codel.getCount()).isEqualTo(4);
+
+        codel.shouldDrop(BELOW, 1330);
+        codel.shouldDrop(ABOVE, 1340);
+        assertThat(codel.shouldDrop(ABOVE, 1440)).isTrue();
+        // 本轮比上次进入时多丢弃 3 次，从 count=3 继续
+        assertThat(codel.getCount()).isEqualTo(3);
+        assertThat(codel.getDropNext()).isEqualTo(1440 + (long) (INTERVAL_MS / Math.sqrt(3)));
+    }
+
+    @Test
+    void reentryAfterLongQuietStartsOver() {
+        CoDelController codel = dropping(1100);
+        codel.shouldDrop(ABOVE, 1200);
+        codel.shouldDrop(ABOVE, 1270);
+        codel.shouldDrop(BELOW, 1280);
+
+        long later = 1270 + 16 * INTERVAL_MS;
+        codel.shouldDrop(ABOVE, later);
+        assertThat(codel.shouldDrop(ABOVE, later + INTERVAL_MS)).isTrue();
+        assertThat(codel.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void thresholdIsTargetOnlyWhenDropping() {
+        CoDelController codel = new CoDelController(TARGET_MS, INTERVAL_MS);
+
+        assertThat(codel.dropThresholdMs(ABOVE, 1000)).isEqualTo(INTERVAL_MS);
+        assertThat(codel.dropThresholdMs(ABOVE, 1100)).isEqualTo(TARGET_MS);
+        // 丢弃状态下未到下一次丢弃时间
+        assertThat(codel.dropThresholdMs(ABOVE, 1150)).isEqualTo(INTERVAL_MS);
+        assertThat(codel.dropThresholdMs(ABOVE, 1200)).isEqualTo(TARGET_MS);
+    }
+
+    @Test
+    void loaderDropsRequestsQueuedLongerThanInterval() throws Exception {
+        TestBatchLoader loader = new TestBatchLoader(TestBatchLoader.config("CoDelControllerTest")
+                .maxBatchSize(10)
+                .intervalMs(1)
+                .threadPoolSize(1)
+                .minThreadPoolSize(1)
+                .overflowStrategy(OverflowStrategy.CODEL)
+                .codelTargetMs(5)
+                .codelIntervalMs(20)
+                .circuitBreakerEnabled(false)
+                .build(), keys -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return TestBatchLoader.stocks();
+        });
+        loader.init();
+        try {
+            String[] codes = TestBatchLoader.codes();
+            List<CompletableFuture<?>> low = new ArrayList<>();
+            List<CompletableFuture<?>> high = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                low.add(loader.load(codes[i % codes.length]));
+                high.add(loader.load(codes[i % codes.length], BatchPriority.HIGH));
+            }
+            CompletableFuture.allOf(high.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            long dropped = low.stream().filter(future -> {
+                try {
+                    future.join();
+                    return false;
+                } catch (CompletionException e) {
+                    return true;
+                }
+            }).count();
+
+            // 第一批查询期间其余请求排队超过窗口，普通请求被丢弃，高优先级请求全部完成
+            assertThat(dropped).isGreaterThan(0);
+            assertThat(loader.getMetrics().getCodelDropCount()).isEqualTo(dropped);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    /**
+     * 在 enterAt 时刻进入丢弃状态的控制器
+     */
+    private static CoDelController dropping(long enterAt) {
+        CoDelController codel = new CoDelController(TARGET_MS, INTERVAL_MS);
+        codel.shouldDrop(ABOVE, enterAt - INTERVAL_MS);
+        assertThat(codel.shouldDrop(ABOVE, enterAt)).isTrue();
+        return codel;
+    }
+}
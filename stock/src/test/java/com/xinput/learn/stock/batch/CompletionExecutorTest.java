@@ -0,0 +1,104 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 在完成执行器上分块完成批次
+ */
+class CompletionExecutorTest {
+
+    private final Map<String, Stock> stocks = TestBatchLoader.stocks();
+
+    private final String[] codes = TestBatchLoader.codes();
+
+    @Test
+    void completesEveryRequestInChunks() throws Exception {
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("CompletionExecutorTest")
+                .completionParallelism(2)
+                .completionChunkSize(3)
+                .build());
+        loader.init();
+        try {
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            for (int round = 0; round < 50; round++) {
+                List<CompletableFuture<Stock>> futures = new ArrayList<>();
+                for (int i = 0; i < 40; i++) {
+                    futures.add(loader.load(codes[(round * 40 + i) % codes.length]).whenComplete((stock, throwable) ->
+                            threads.add(Thread.currentThread().getName())));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    assertThat(futures.get(i).get(5, TimeUnit.SECONDS))
+                            .isSameAs(stocks.get(codes[(round * 40 + i) % codes.length]));
+                }
+            }
+
+            BatchLoaderMetrics metrics = loader.getMetrics();
+            assertThat(threads).allMatch(name -> name.startsWith("CompletionExecutorTest-completion"));
+            assertThat(metrics.getCompletionLatencyP50Micros()).isGreaterThanOrEqualTo(0);
+            assertThat(metrics.getCompletionLatencyP99Micros()).isGreaterThanOrEqualTo(metrics.getCompletionLatencyP50Micros());
+            // 分发对象归还后复用，新建次数不随批次数增长
+            assertThat(metrics.getCompletionPoolMissCount()).isLessThan(metrics.getBatchCount());
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void slowCallbacksDoNotHoldBatchThread() throws Exception {
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("SlowCallbackTest")
+                .threadPoolSize(1)
+                .completionParallelism(2)
+                .build());
+        loader.init();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Void> slow = loader.load(codes[0]).thenAccept(stock -> {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // 回调阻塞在完成线程上，唯一的批处理线程仍可处理下一个批次
+            assertThat(loader.load(codes[1]).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes[1]));
+            assertThat(slow.isDone()).isFalse();
+
+            release.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void completesInlineWithoutExecutor() throws Exception {
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("InlineCompletionTest")
+                .completionParallelism(0)
+                .build());
+        loader.init();
+        try {
+            String code = codes[0];
+            assertThat(loader.load(code).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(code));
+            assertThat(loader.getMetrics().getCompletionPoolMissCount()).isZero();
+        } finally {
+            loader.destroy();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HeavyHitterSketchTest {
+
+    private static final long NO_DECAY_MS = 3600000;
+
+    @Test
+    void findsHeavyHittersInZipfStream() {
+        HeavyHitterSketch<String> sketch = new HeavyHitterSketch<>(10, 1024, 4, 1, NO_DECAY_MS);
+        String[] universe = new String[5000];
+        double[] cdf = new double[universe.length];
+        double sum = 0;
+        for (int i = 0; i < universe.length; i++) {
+            universe[i] = "key-" + i;
+            sum += 1.0 / Math.pow(i + 1, 1.1);
+            cdf[i] = sum;
+        }
+        Random random = new Random(1);
+        Map<String, Integer> exact = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            String key = universe[Math.min(cdf.length - 1, index >= 0 ? index : -index - 1)];
+            exact.merge(key, 1, Integer::sum);
+            sketch.record(key);
+        }
+
+        List<HotKey> hotKeys = sketch.getHotKeys();
+        List<String> reported = hotKeys.stream().map(HotKey::getKey).collect(Collectors.toList());
+        assertThat(reported).hasSize(10).containsAll(Arrays.asList(universe).subList(0, 5));
+        for (HotKey hotKey : hotKeys) {
+            // Count-Min Sketch 只会高估
+            assertThat(hotKey.getCount()).isGreaterThanOrEqualTo(exact.get(hotKey.getKey()));
+        }
+        assertThat(hotKeys.get(0).getRequestShare()).isCloseTo(exact.get(universe[0]) / 100000.0, within(0.01));
+    }
+
+    @Test
+    void loaderReportsZipfHeavyHitters() {
+        String[] universe = TestBatchLoader.codes();
+        double[] cdf = new double[universe.length];
+        double sum = 0;
+        for (int i = 0; i < cdf.length; i++) {
+            sum += 1.0 / Math.pow(i + 1, 1.1);
+            cdf[i] = sum;
+        }
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("HeavyHitterSketchTest")
+                .hotKeyEnabled(true)
+                .hotKeyTopK(10)
+                .hotKeySampleEvery(1)
+                .build());
+        loader.init();
+        try {
+            Random random = new Random(1);
+            CompletableFuture<?>[] window = new CompletableFuture<?>[100];
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < window.length; i++) {
+                    int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+                    window[i] = loader.load(universe[Math.min(cdf.length - 1, index >= 0 ? index : -index - 1)]);
+                }
+                CompletableFuture.allOf(window).join();
+            }
+
+            // 加载器指标中的热点包含分布中最热的几个 Key
+            List<String> reported = loader.getMetrics().getHotKeys().stream()
+                    .map(HotKey::getKey)
+                    .collect(Collectors.toList());
+            assertThat(reported).hasSize(10).containsAll(Arrays.asList(universe).subList(0, 5));
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void admitsOnlyWhenEstimateExceedsColdest() {
+        HeavyHitterSketch<String> sketch = new HeavyHitterSketch<>(1, 4096, 4, 1, NO_DECAY_MS);
+        record(sketch, "a", 5);
+        record(sketch, "b", 1);
+        assertThat(candidates(sketch)).containsOnlyKeys("a", "b");
+
+        // 候选集合已满，估算值不超过最冷的候选时不进入
+        record(sketch, "c", 1);
+        assertThat(candidates(sketch)).containsOnlyKeys("a", "b");
+
+        record(sketch, "c", 1);
+        assertThat(candidates(sketch)).containsOnlyKeys("a", "c");
+
+        record(sketch, "c", 4);
+        assertThat(sketch.getHotKeys()).extracting(HotKey::getKey).containsExactly("c");
+        assertThat(sketch.getHotKeys().get(0).getCount()).isEqualTo(6);
+    }
+
+    @Test
+    void decayScalesCountsAndDropsColdKeys() {
+        // 半衰期等于衰减周期，每次衰减一半
+        HeavyHitterSketch<String> sketch = new HeavyHitterSketch<>(2, 4096, 4, 1, 100);
+        assertThat(sketch.getDecayIntervalMs()).isEqualTo(100);
+        record(sketch, "a", 8);
+        record(sketch, "b", 1);
+
+        sketch.decay();
+
+        assertThat(candidates(sketch)).containsOnlyKeys("a");
+        HotKey hotKey = sketch.getHotKeys().get(0);
+        assertThat(hotKey.getCount()).isEqualTo(4);
+        // 稳态速率 = 计数 * (1 - 衰减系数) / 周期
+        assertThat(hotKey.getRequestRate()).isCloseTo(20.0, within(1e-9));
+
+        sketch.decay();
+        sketch.decay();
+        sketch.decay();
+        assertThat(sketch.getHotKeys()).isEmpty();
+    }
+
+    @Test
+    void recordsBatchSlotShare() {
+        HeavyHitterSketch<String> sketch = new HeavyHitterSketch<>(2, 4096, 4, 1, NO_DECAY_MS);
+        record(sketch, "a", 3);
+
+        sketch.recordBatch(Arrays.asList("a", "a", "b", "c"));
+
+        assertThat(sketch.getHotKeys().get(0).getSlotShare()).isEqualTo(0.5);
+    }
+
+    @Test
+    void sampledCountsStayUnbiased() {
+        HeavyHitterSketch<String> sketch = new HeavyHitterSketch<>(1, 1024, 4, 4, NO_DECAY_MS);
+        record(sketch, "a", 40000);
+
+        HotKey hotKey = sketch.getHotKeys().get(0);
+        assertThat(hotKey.getCount() % 4).isZero();
+        assertThat(hotKey.getCount()).isBetween(36000L, 44000L);
+        assertThat(hotKey.getRequestShare()).isEqualTo(1.0);
+    }
+
+    private static void record(HeavyHitterSketch<String> sketch, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.record(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> candidates(HeavyHitterSketch<String> sketch) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(sketch, "candidates");
+    }
+}
@@ -0,0 +1,46 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyRecorderTest {
+
+    @Test
+    void percentilesOnDemand() {
+        LatencyRecorder recorder = new LatencyRecorder(100);
+        assertThat(recorder.percentiles(0.5, 0.99)).containsExactly(-1, -1);
+
+        for (int i = 100; i >= 1; i--) {
+            recorder.record(i);
+        }
+
+        assertThat(recorder.percentiles(0.5, 0.99, 1.0, 0.0)).containsExactly(50, 99, 100, 1);
+        assertThat(recorder.getPercentile()).isEqualTo(-1);
+    }
+
+    @Test
+    void keepsOnlyLatestSamples() {
+        LatencyRecorder recorder = new LatencyRecorder(10);
+        for (int i = 0; i < 10; i++) {
+            recorder.record(1000);
+        }
+        for (int i = 1; i <= 10; i++) {
+            recorder.record(i);
+        }
+
+        assertThat(recorder.percentiles(1.0)).containsExactly(10);
+    }
+
+    @Test
+    void precomputedPercentileEverySixteenSamples() {
+        LatencyRecorder recorder = new LatencyRecorder(64, 0.5);
+        for (int i = 1; i <= 15; i++) {
+            recorder.record(i);
+        }
+        assertThat(recorder.getPercentile()).isEqualTo(-1);
+
+        recorder.record(16);
+        assertThat(recorder.getPercentile()).isEqualTo(8);
+    }
+}
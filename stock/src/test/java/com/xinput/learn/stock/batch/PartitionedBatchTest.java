@@ -0,0 +1,228 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.config.BatchConfig;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 按分区拆分批次
+ * 批处理间隔设为很大，批量达到 BATCH_SIZE 时才触发，保证所有请求在同一批次中
+ */
+class PartitionedBatchTest {
+
+    private static final int BATCH_SIZE = 12;
+
+    private static final BatchPartitioner<String> FIRST_CHAR = key -> key.substring(0, 1);
+
+    private final Map<String, Stock> stocks = TestBatchLoader.stocks();
+
+    private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void splitsBatchByPartition() throws Exception {
+        TestBatchLoader loader = start(config().build(), keys -> {
+            calls.add(new ArrayList<>(keys));
+            return stocks;
+        });
+        try {
+            List<String> codes = codes(4, 4, 4);
+            List<CompletableFuture<Stock>> futures = loadAll(loader, codes);
+
+            for (int i = 0; i < codes.size(); i++) {
+                assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+            }
+            assertThat(calls).hasSize(3);
+            for (List<String> call : calls) {
+                assertThat(partitions(call)).hasSize(1);
+            }
+            assertThat(loader.getMetrics().getPartitionedBatchCount()).isEqualTo(1);
+            assertThat(loader.getMetrics().getSubBatchCount()).isEqualTo(3);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void splitsPartitionByPartitionMaxBatchSize() throws Exception {
+        List<String> codes = codes(10, 2);
+        String large = FIRST_CHAR.partition(codes.get(0));
+        TestBatchLoader loader = start(config()
+                .partitionMaxBatchSize(Collections.singletonMap(large, 3))
+                .build(), keys -> {
+            calls.add(new ArrayList<>(keys));
+            return stocks;
+        });
+        try {
+            List<CompletableFuture<Stock>> futures = loadAll(loader, codes);
+
+            for (int i = 0; i < codes.size(); i++) {
+                assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+            }
+            // 10 个 Key 按 3 个一批拆成 4 个子批次，另一个分区 1 个子批次
+            assertThat(calls).hasSize(5);
+            for (List<String> call : calls) {
+                if (FIRST_CHAR.partition(call.get(0)).equals(large)) {
+                    assertThat(call).hasSizeLessThanOrEqualTo(3);
+                }
+            }
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void failedPartitionDoesNotFailOthers() throws Exception {
+        List<String> codes = codes(6, 6);
+        String failing = FIRST_CHAR.partition(codes.get(0));
+        TestBatchLoader loader = start(config().bisectOnFailure(false).build(), keys -> {
+            if (FIRST_CHAR.partition(keys.get(0)).equals(failing)) {
+                throw new IllegalStateException("分区不可用: " + failing);
+            }
+            return stocks;
+        });
+        try {
+            List<CompletableFuture<Stock>> futures = loadAll(loader, codes);
+
+            for (int i = 0; i < codes.size(); i++) {
+                CompletableFuture<Stock> future = futures.get(i);
+                if (FIRST_CHAR.partition(codes.get(i)).equals(failing)) {
+                    assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                            .isInstanceOf(ExecutionException.class)
+                            .hasCauseInstanceOf(IllegalStateException.class);
+                } else {
+                    assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+                }
+            }
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void reusesBuffersAcrossBatches() throws Exception {
+        TestBatchLoader loader = start(config().build(), keys -> {
+            calls.add(new ArrayList<>(keys));
+            return stocks;
+        });
+        try {
+            for (int round = 0; round < 20; round++) {
+                List<String> codes = round % 2 == 0 ? codes(4, 4, 4) : codes(6, 6);
+                List<CompletableFuture<Stock>> futures = loadAll(loader, codes);
+                for (int i = 0; i < codes.size(); i++) {
+                    assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isSameAs(stocks.get(codes.get(i)));
+                }
+            }
+            // 上一批次的子批次不会混入下一批次
+            for (List<String> call : calls) {
+                assertThat(partitions(call)).hasSize(1);
+                assertThat(new HashSet<>(call)).hasSize(call.size());
+            }
+            assertThat(calls).hasSize(10 * 3 + 10 * 2);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void steadyStateReusesRequestObjects() {
+        // 与 StockBatchLoader 相同的配置：BatchConfig 默认值 + 按板块分区
+        TestBatchLoader loader = TestBatchLoader.inMemory(new BatchConfig()
+                .toLoaderConfig("PartitionedReuseTest")
+                .enableMonitor(false)
+                .timeoutMs(60000)
+                .build());
+        loader.setPartitioner(new StockBoardPartitioner());
+        loader.init();
+        try {
+            String[] codes = TestBatchLoader.codes();
+            CompletableFuture<?>[] window = new CompletableFuture<?>[100];
+            int requests = 20000;
+            for (int start = 0; start < requests; start += window.length) {
+                for (int i = 0; i < window.length; i++) {
+                    window[i] = loader.load(codes[(start + i) % codes.length]);
+                }
+                CompletableFuture.allOf(window).join();
+            }
+
+            BatchLoaderMetrics metrics = loader.getMetrics();
+            assertThat(metrics.getSubBatchCount()).isGreaterThan(metrics.getPartitionedBatchCount());
+            // 新建的请求对象只取决于同时在途的请求数，不随请求数增长
+            assertThat(metrics.getRequestPoolMissCount()).isLessThan(loader.getConfig().getRequestPoolSize());
+            assertThat(metrics.getRequestPoolMissCount() * 20).isLessThan(requests);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    private BatchLoaderConfig.BatchLoaderConfigBuilder config() {
+        return TestBatchLoader.config("PartitionedBatchTest")
+                .maxBatchSize(BATCH_SIZE)
+                .intervalMs(60000)
+                .circuitBreakerEnabled(false);
+    }
+
+    private TestBatchLoader start(BatchLoaderConfig config, Function<List<String>, Map<String, Stock>> backend) {
+        TestBatchLoader loader = new TestBatchLoader(config, backend);
+        loader.setPartitioner(FIRST_CHAR);
+        loader.init();
+        return loader;
+    }
+
+    /**
+     * 从前几个分区各取指定数量的代码，按分区交错排列
+     */
+    private List<String> codes(int... counts) {
+        Map<String, List<String>> byPartition = new TreeMap<>();
+        for (String code : TestBatchLoader.codes()) {
+            byPartition.computeIfAbsent(FIRST_CHAR.partition(code), p -> new ArrayList<>()).add(code);
+        }
+        List<List<String>> groups = new ArrayList<>();
+        for (List<String> group : byPartition.values()) {
+            if (groups.size() < counts.length && group.size() >= counts[groups.size()]) {
+                groups.add(group.subList(0, counts[groups.size()]));
+            }
+        }
+        assertThat(groups).hasSize(counts.length);
+
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; codes.size() < BATCH_SIZE; i++) {
+            for (List<String> group : groups) {
+                if (i < group.size()) {
+                    codes.add(group.get(i));
+                }
+            }
+        }
+        return codes;
+    }
+
+    private static Set<String> partitions(List<String> keys) {
+        Set<String> partitions = new HashSet<>();
+        for (String key : keys) {
+            partitions.add(FIRST_CHAR.partition(key));
+        }
+        return partitions;
+    }
+
+    private static List<CompletableFuture<Stock>> loadAll(TestBatchLoader loader, List<String> codes) {
+        List<CompletableFuture<Stock>> futures = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            futures.add(loader.load(code));
+        }
+        return futures;
+    }
+}
@@ -0,0 +1,162 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveBatchLoaderTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final Map<String, Stock> stocks = TestBatchLoader.stocks();
+
+    private final String[] codes = TestBatchLoader.codes();
+
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger singleLoads = new AtomicInteger();
+
+    private ReactiveBatchLoader<String, Stock> loader;
+
+    @AfterEach
+    void tearDown() {
+        if (loader != null) {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void mergesInflightLoadsIntoBatches() {
+        loader = start(TestBatchLoader.config("ReactiveBatchLoaderTest").maxBatchSize(100).build(), keys -> {
+            sleep(20);
+            return stocks;
+        });
+        int requests = 2000;
+
+        // 200 个在途请求，不为每个请求占用线程
+        List<Stock> results = Flux.range(0, requests)
+                .flatMap(i -> loader.load(codes[i % codes.length]).map(stock -> {
+                    assertThat(stock).isSameAs(stocks.get(codes[i % codes.length]));
+                    return stock;
+                }), 200)
+                .collectList()
+                .block(TIMEOUT);
+
+        assertThat(results).hasSize(requests);
+        assertThat(batchSizes).allMatch(size -> size <= 100);
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(requests);
+        assertThat(loader.getMetrics().getBatchCount()).isLessThan(requests / 10);
+        assertThat(loader.getMetrics().getCurrentQueueSize()).isZero();
+    }
+
+    @Test
+    void loadManyKeepsKeyOrder() {
+        loader = start(TestBatchLoader.config("ReactiveBatchLoaderTest").maxBatchSize(7).build(), keys -> stocks);
+        List<String> keys = Arrays.asList(codes).subList(0, 50);
+
+        List<Stock> results = loader.loadMany(Flux.fromIterable(keys)).collectList().block(TIMEOUT);
+
+        assertThat(results).extracting(Stock::getCode).containsExactlyElementsOf(keys);
+        assertThat(batchSizes).allMatch(size -> size <= 7);
+    }
+
+    @Test
+    void rejectsBeyondQueueCapacity() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        loader = start(TestBatchLoader.config("ReactiveBatchLoaderTest")
+                .maxBatchSize(5)
+                .queueCapacity(5)
+                .build(), keys -> {
+            await(release);
+            return stocks;
+        });
+        try {
+            List<Mono<Stock>> pending = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                pending.add(loader.load(codes[i]).cache());
+                pending.get(i).subscribe(stock -> {
+                }, e -> {
+                });
+            }
+
+            assertThatThrownBy(() -> loader.load(codes[5]).block(TIMEOUT))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(loader.getMetrics().getLimitRejectCount()).isEqualTo(1);
+
+            release.countDown();
+            for (Mono<Stock> mono : pending) {
+                assertThat(mono.block(TIMEOUT)).isNotNull();
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void degradesToSingleLoadWhenBatchFails() {
+        loader = start(TestBatchLoader.config("ReactiveBatchLoaderTest").maxBatchSize(10).build(), keys -> {
+            throw new IllegalStateException("batch failed");
+        });
+
+        List<Stock> results = Flux.range(0, 10)
+                .flatMap(i -> loader.load(codes[i]), 10)
+                .collectList()
+                .block(TIMEOUT);
+
+        assertThat(results).hasSize(10);
+        assertThat(singleLoads.get()).isEqualTo(10);
+        assertThat(loader.getMetrics().getDegradeCount()).isEqualTo(10);
+    }
+
+    private ReactiveBatchLoader<String, Stock> start(BatchLoaderConfig config,
+                                                     Function<List<String>, Map<String, Stock>> backend) {
+        ReactiveBatchLoader<String, Stock> reactive = new ReactiveBatchLoader<String, Stock>(config) {
+            @Override
+            public Map<String, Stock> batchLoad(List<String> keys) {
+                batchSizes.add(keys.size());
+                return backend.apply(keys);
+            }
+
+            @Override
+            public Stock singleLoad(String key) {
+                singleLoads.incrementAndGet();
+                return stocks.get(key);
+            }
+        };
+        reactive.init();
+        return reactive;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
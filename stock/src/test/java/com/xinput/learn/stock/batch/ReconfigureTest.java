@@ -0,0 +1,77 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 运行时替换配置：非法取值在修改任何状态之前被拒绝
+ * 最大批量设为很大，请求只能由定时任务触发批处理，用来确认定时任务仍在运行
+ */
+class ReconfigureTest {
+
+    private final TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("ReconfigureTest")
+            .maxBatchSize(10000)
+            .build());
+
+    {
+        loader.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.destroy();
+    }
+
+    @Test
+    void rejectsNonPositiveIntervalAndKeepsTimer() throws Exception {
+        BatchLoaderConfig before = loader.getConfig();
+
+        assertThatThrownBy(() -> loader.reconfigure(before.toBuilder().intervalMs(0).build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("intervalMs");
+
+        assertThat(loader.getConfig()).isSameAs(before);
+        assertThat(loader.load(TestBatchLoader.codes()[0]).get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void rejectsInvalidCapacitiesAndBoundsTogether() {
+        BatchLoaderConfig before = loader.getConfig();
+
+        assertThatThrownBy(() -> loader.reconfigure(before.toBuilder()
+                .queueCapacity(0)
+                .lowPriorityQueueCapacity(-1)
+                .adaptiveMinLimit(500)
+                .adaptiveMaxLimit(100)
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("queueCapacity")
+                .hasMessageContaining("lowPriorityQueueCapacity")
+                .hasMessageContaining("adaptiveMinLimit");
+
+        assertThat(loader.getConfig()).isSameAs(before);
+    }
+
+    @Test
+    void rejectsRename() {
+        assertThatThrownBy(() -> loader.reconfigure(loader.getConfig().toBuilder().name("Other").build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void appliesNewIntervalAndKeepsBatching() throws Exception {
+        assertThat(loader.reconfigure(loader.getConfig().toBuilder()
+                .intervalMs(30)
+                .queueCapacity(50)
+                .build())).isEmpty();
+
+        assertThat(loader.getConfig().getIntervalMs()).isEqualTo(30);
+        assertThat(loader.getConfig().getQueueCapacity()).isEqualTo(50);
+        assertThat(loader.load(TestBatchLoader.codes()[0]).get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+}
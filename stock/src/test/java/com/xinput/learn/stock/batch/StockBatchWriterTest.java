@@ -0,0 +1,181 @@
+package com.xinput.learn.stock.batch;
+
+import com.google.common.collect.Lists;
+import com.xinput.learn.stock.cache.TieredStockCache;
+import com.xinput.learn.stock.config.CacheConfig;
+import com.xinput.learn.stock.config.WriterConfig;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.model.StockUpdate;
+import com.xinput.learn.stock.repository.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 信息批量写入：合并规则、写入后端以及每轮刷新只发布一次快照
+ */
+class StockBatchWriterTest {
+
+    private final RecordingRepository repository = new RecordingRepository();
+
+    private StockBatchWriter writer;
+
+    private StockSnapshot before;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        before = StockCache.getSnapshot();
+        Map<String, Stock> stocks = new HashMap<>();
+        stocks.put("000001", stock("000001", "平安银行", "银行"));
+        stocks.put("000002", stock("000002", "万科A", null));
+        StockCache.publish(StockSnapshot.of(stocks, 1));
+
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setIntervalMs(60000);
+        writerConfig.setMaxBatchSize(2);
+        writerConfig.setEnableMonitor(false);
+        writer = new StockBatchWriter(writerConfig);
+        ReflectionTestUtils.setField(writer, "stockRepository", repository);
+        ReflectionTestUtils.setField(writer, "tieredStockCache", new TieredStockCache(new CacheConfig()));
+        writer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.release.countDown();
+        writer.destroy();
+        StockCache.publish(before);
+    }
+
+    @Test
+    void mergesNameAndReasonUpdates() {
+        StockUpdate rename = update("000001", "平安银行A", null, false);
+        StockUpdate addReason = update("000001", null, Lists.newArrayList("金融"), true);
+        StockUpdate replaceReason = update("000002", null, Lists.newArrayList("地产"), false);
+
+        StockUpdate merged = writer.merge(rename, addReason);
+        assertThat(merged.getName()).isEqualTo("平安银行A");
+        assertThat(merged.getReason()).containsExactly("金融");
+        assertThat(merged.isMergeReason()).isTrue();
+
+        StockUpdate replaced = writer.merge(addReason, replaceReason);
+        assertThat(replaced.getReason()).containsExactly("地产");
+        assertThat(replaced.isMergeReason()).isFalse();
+    }
+
+    @Test
+    void publishesOneSnapshotPerFlushRound() throws Exception {
+        StockSnapshot previous = StockCache.getSnapshot();
+        // 第一批卡在后端期间写入的更新由同一轮刷新分批写完，最大批量为 2
+        repository.blocked = true;
+        CompletableFuture<Void> first = writer.writeStock(update("000009", "新股", null, false));
+        Thread flusher = new Thread(writer::flush);
+        flusher.start();
+        assertThat(repository.saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        long version = StockCache.getVersion();
+        writer.writeStock(update("000001", "平安银行A", null, false));
+        writer.writeStock(update("000001", null, Lists.newArrayList("金融"), true));
+        writer.writeStock(update("000002", null, Lists.newArrayList("地产"), false));
+        CompletableFuture<Void> last = writer.writeStock(update("000003", "国华网安", null, false));
+        repository.release.countDown();
+        flusher.join(5000);
+        first.get(5, TimeUnit.SECONDS);
+        last.get(5, TimeUnit.SECONDS);
+
+        assertThat(repository.saved).extracting(List::size).containsExactly(1, 2, 1);
+        assertThat(StockCache.getVersion() - version).isEqualTo(1);
+        StockSnapshot snapshot = StockCache.getSnapshot();
+        assertThat(snapshot.getChangedCodes()).containsExactlyInAnyOrder("000001", "000002", "000003", "000009");
+        assertThat(snapshot.getStockMap().get("000001").getName()).isEqualTo("平安银行A");
+        assertThat(snapshot.getStockMap().get("000001").getReason()).containsExactly("银行", "金融");
+        assertThat(snapshot.getStockMap().get("000002").getReason()).containsExactly("地产");
+        assertThat(snapshot.getStockMap().get("000003").getName()).isEqualTo("国华网安");
+        assertThat(snapshot.getReasonStocks()).hasSize(2);
+        assertThat(snapshot.getSourceVersion()).isEqualTo(1);
+        // 已发布快照中的对象不被修改
+        assertThat(previous.getStockMap().get("000001").getName()).isEqualTo("平安银行");
+    }
+
+    @Test
+    void nextRoundBuildsOnPublishedSnapshot() throws Exception {
+        long version = StockCache.getVersion();
+        writer.writeStock(update("000002", null, Lists.newArrayList("地产"), false));
+        writer.flush();
+        CompletableFuture<Void> future = writer.writeStock(update("000002", null, Lists.newArrayList("物业"), true));
+        writer.flush();
+        future.get(5, TimeUnit.SECONDS);
+
+        assertThat(StockCache.getSnapshot().getStockMap().get("000002").getReason()).containsExactly("地产", "物业");
+        assertThat(StockCache.getSnapshot().getChangedCodes()).containsExactly("000002");
+        assertThat(StockCache.getVersion() - version).isEqualTo(2);
+    }
+
+    private static Stock stock(String code, String name, String reason) {
+        Stock stock = new Stock();
+        stock.setCode(code);
+        stock.setName(name);
+        stock.setReason(reason == null ? null : Lists.newArrayList(reason));
+        return stock;
+    }
+
+    private static StockUpdate update(String code, String name, List<String> reason, boolean mergeReason) {
+        StockUpdate update = new StockUpdate();
+        update.setCode(code);
+        update.setName(name);
+        update.setReason(reason);
+        update.setMergeReason(mergeReason);
+        return update;
+    }
+
+    /**
+     * 记录每次保存的数据，blocked 为 true 时第一次保存等待 release
+     */
+    private static class RecordingRepository implements StockRepository {
+
+        private final List<List<Stock>> saved = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch saveStarted = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile boolean blocked = false;
+
+        @Override
+        public Stock findByCode(String code) {
+            return null;
+        }
+
+        @Override
+        public Map<String, Stock> findByCodes(List<String> codes) {
+            return new HashMap<>();
+        }
+
+        @Override
+        public void saveAll(Collection<Stock> stocks) {
+            saved.add(new ArrayList<>(stocks));
+            saveStarted.countDown();
+            if (blocked) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
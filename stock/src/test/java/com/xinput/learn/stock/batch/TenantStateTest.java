@@ -0,0 +1,169 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GCRA 配额：速率 10/s，突发 5
+ */
+class TenantStateTest {
+
+    private static final double RATE = 10;
+
+    private static final int BURST = 5;
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void allowsBurstThenRejects() {
+        TenantState state = new TenantState("A");
+        long now = System.nanoTime();
+
+        for (int i = 0; i < BURST; i++) {
+            assertThat(state.tryAcquire(RATE, BURST, now)).isTrue();
+        }
+        assertThat(state.tryAcquire(RATE, BURST, now)).isFalse();
+        assertThat(state.getRequestCount()).isEqualTo(BURST + 1);
+        assertThat(state.getQuotaRejectCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsAtRate() {
+        TenantState state = new TenantState("A");
+        long now = System.nanoTime();
+        for (int i = 0; i < BURST; i++) {
+            state.tryAcquire(RATE, BURST, now);
+        }
+
+        // 每个间隔恢复一个配额
+        assertThat(state.tryAcquire(RATE, BURST, now + INTERVAL - 1)).isFalse();
+        assertThat(state.tryAcquire(RATE, BURST, now + INTERVAL)).isTrue();
+        assertThat(state.tryAcquire(RATE, BURST, now + INTERVAL)).isFalse();
+        assertThat(state.tryAcquire(RATE, BURST, now + 3 * INTERVAL)).isTrue();
+        assertThat(state.tryAcquire(RATE, BURST, now + 3 * INTERVAL)).isTrue();
+        assertThat(state.tryAcquire(RATE, BURST, now + 3 * INTERVAL)).isFalse();
+    }
+
+    @Test
+    void idleTimeDoesNotAccumulateBeyondBurst() {
+        TenantState state = new TenantState("A");
+        long later = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+        int allowed = 0;
+        for (int i = 0; i < BURST * 4; i++) {
+            if (state.tryAcquire(RATE, BURST, later)) {
+                allowed++;
+            }
+        }
+        assertThat(allowed).isEqualTo(BURST);
+    }
+
+    @Test
+    void sustainedRateMatchesQuota() {
+        TenantState state = new TenantState("A");
+        long now = System.nanoTime();
+
+        // 每 10ms 请求一次，持续 10 秒：突发 5 个加上 10 秒内恢复的 100 个
+        int allowed = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (state.tryAcquire(RATE, BURST, now + i * TimeUnit.MILLISECONDS.toNanos(10))) {
+                allowed++;
+            }
+        }
+        assertThat(allowed).isBetween(100 + BURST - 1, 100 + BURST);
+    }
+
+    @Test
+    void nonPositiveRateIsUnlimited() {
+        TenantState state = new TenantState("A");
+        long now = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(state.tryAcquire(0, 1, now)).isTrue();
+        }
+        assertThat(state.getQuotaRejectCount()).isZero();
+    }
+
+    @Test
+    void loaderCountsQuotaRejectsSeparately() throws Exception {
+        String[] codes = TestBatchLoader.codes();
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("TenantQuotaTest")
+                .tenantRateLimit(1)
+                .tenantBurst(2)
+                .build());
+        loader.init();
+        try {
+            CompletableFuture<Stock> first = loader.load(codes[0], BatchPriority.NORMAL, "A");
+            CompletableFuture<Stock> second = loader.load(codes[1], BatchPriority.NORMAL, "A");
+            CompletableFuture<Stock> rejected = loader.load(codes[2], BatchPriority.NORMAL, "A");
+
+            assertThat(rejected.isCompletedExceptionally()).isTrue();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+            BatchLoaderMetrics metrics = loader.getMetrics();
+            assertThat(metrics.getQuotaRejectCount()).isEqualTo(1);
+            assertThat(metrics.getFailCount()).isZero();
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void noisyTenantOnlyFillsItsOwnShare() {
+        // 不触发组批，队列中的请求全部保留，结果只取决于入队时的容量
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("TenantIsolationTest")
+                .intervalMs(60000)
+                .maxBatchSize(1000)
+                .queueCapacity(100)
+                .tenantMaxQueueShare(0.5)
+                .overflowStrategy(OverflowStrategy.FAIL_FAST)
+                .circuitBreakerEnabled(false)
+                .build());
+        loader.init();
+        try {
+            assertThat(offer(loader, "noisy", 200)).isEqualTo(50);
+            assertThat(offer(loader, "quiet", 40)).isEqualTo(40);
+            assertThat(loader.getTenantMetrics().get("noisy").getQueueFullCount()).isEqualTo(150);
+            assertThat(loader.getTenantMetrics().get("quiet").getQueueFullCount()).isZero();
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    void untaggedRequestsShareWholeQueue() {
+        TestBatchLoader loader = TestBatchLoader.inMemory(TestBatchLoader.config("TenantSharedTest")
+                .intervalMs(60000)
+                .maxBatchSize(1000)
+                .queueCapacity(100)
+                .overflowStrategy(OverflowStrategy.FAIL_FAST)
+                .circuitBreakerEnabled(false)
+                .build());
+        loader.init();
+        try {
+            // 不区分租户时突发请求占满整个队列，后来的请求全部失败
+            assertThat(offer(loader, null, 200)).isEqualTo(100);
+            assertThat(offer(loader, null, 40)).isZero();
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    /**
+     * 入队 count 个请求，返回未被立即拒绝的个数
+     */
+    private static int offer(TestBatchLoader loader, String tenant, int count) {
+        String[] codes = TestBatchLoader.codes();
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            if (!loader.load(codes[i % codes.length], BatchPriority.NORMAL, tenant).isCompletedExceptionally()) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
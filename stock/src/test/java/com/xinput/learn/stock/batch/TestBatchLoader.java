@@ -0,0 +1,72 @@
+package com.xinput.learn.stock.batch;
+
+import com.xinput.learn.stock.config.BatchConfig;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.util.StockFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 测试用批处理加载器，批量查询交给传入的函数，默认直接返回 code.txt 中的数据
+ */
+public class TestBatchLoader extends AbstractBatchLoader<String, Stock> {
+
+    private static volatile Map<String, Stock> stocks;
+
+    private final Function<List<String>, Map<String, Stock>> backend;
+
+    public TestBatchLoader(BatchLoaderConfig config, Function<List<String>, Map<String, Stock>> backend) {
+        super(config);
+        this.backend = backend;
+    }
+
+    /**
+     * 直接返回 code.txt 中数据的加载器
+     */
+    public static TestBatchLoader inMemory(BatchLoaderConfig config) {
+        Map<String, Stock> stockMap = stocks();
+        return new TestBatchLoader(config, keys -> stockMap);
+    }
+
+    /**
+     * 按 BatchConfig 默认值生成的配置，关闭监控日志、对冲请求和热点统计，超时放宽到 60 秒
+     */
+    public static BatchLoaderConfig.BatchLoaderConfigBuilder config(String name) {
+        return new BatchConfig().toLoaderConfig(name)
+                .enableMonitor(false)
+                .hedgeEnabled(false)
+                .hotKeyEnabled(false)
+                .timeoutMs(60000);
+    }
+
+    /**
+     * code.txt 中的数据，只解析一次
+     */
+    public static Map<String, Stock> stocks() {
+        if (stocks == null) {
+            synchronized (TestBatchLoader.class) {
+                if (stocks == null) {
+                    stocks = Collections.unmodifiableMap(StockFactory.reslove("code.txt"));
+                }
+            }
+        }
+        return stocks;
+    }
+
+    public static String[] codes() {
+        return stocks().keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public Map<String, Stock> batchLoad(List<String> keys) {
+        return backend.apply(keys);
+    }
+
+    @Override
+    public Stock singleLoad(String key) {
+        return backend.apply(Collections.singletonList(key)).get(key);
+    }
+}
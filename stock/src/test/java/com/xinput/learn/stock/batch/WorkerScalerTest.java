@@ -0,0 +1,175 @@
+package com.xinput.learn.stock.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * 弹性伸缩评估：每轮的批次数和时长由测试直接给出，不依赖真实时间
+ */
+class WorkerScalerTest {
+
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private static final long SCALE_UP_QUEUE_AGE_MS = 200;
+
+    private static final long PERIOD_MS = 1000;
+
+    @Test
+    void clampsWorkersToBounds() {
+        assertThat(scaler(10, 2, 4, 3).getWorkers()).isEqualTo(4);
+        assertThat(scaler(0, 2, 4, 3).getWorkers()).isEqualTo(2);
+        assertThat(scaler(1, 0, 4, 3).getWorkers()).isEqualTo(1);
+        // 上限小于下限时按下限
+        assertThat(scaler(5, 3, 1, 3).getWorkers()).isEqualTo(3);
+    }
+
+    @Test
+    void smoothsBatchLatency() {
+        WorkerScaler scaler = scaler(2, 1, 8, 3);
+        scaler.onLatency(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(scaler.getAvgLatencyMs()).isEqualTo(100.0);
+        scaler.onLatency(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(scaler.getAvgLatencyMs()).isCloseTo(120.0, within(1e-9));
+    }
+
+    @Test
+    void scalesUpAfterTwoRoundsOfLittlesLawOverload() {
+        WorkerScaler scaler = scaler(2, 1, 8, 3);
+        scaler.onLatency(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // 每秒 18 批 × 100ms = 1.8 个线程忙，达到 2 个线程的 90%
+        assertThat(scaler.evaluate(0, 0, 18, PERIOD_MS)).isEqualTo(2);
+        assertThat(scaler.evaluate(0, 0, 18, PERIOD_MS)).isEqualTo(3);
+        assertThat(scaler.getScaleUpCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsWorkersBelowOverloadThreshold() {
+        WorkerScaler scaler = scaler(2, 1, 8, 3);
+        scaler.onLatency(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // 1.7 个线程忙: 不过载，也不空闲（忙线程数不少于 current - 1）
+        for (int i = 0; i < 10; i++) {
+            assertThat(scaler.evaluate(0, 0, 17, PERIOD_MS)).isEqualTo(2);
+        }
+        assertThat(scaler.getScaleUpCount()).isZero();
+        assertThat(scaler.getScaleDownCount()).isZero();
+    }
+
+    @Test
+    void queueDepthOrAgeAloneCountsAsOverload() {
+        WorkerScaler byDepth = scaler(2, 1, 8, 3);
+        byDepth.evaluate(2 * MAX_BATCH_SIZE, 0, 0, PERIOD_MS);
+        assertThat(byDepth.evaluate(2 * MAX_BATCH_SIZE, 0, 0, PERIOD_MS)).isEqualTo(3);
+
+        WorkerScaler byAge = scaler(2, 1, 8, 3);
+        byAge.evaluate(1, SCALE_UP_QUEUE_AGE_MS + 1, 0, PERIOD_MS);
+        assertThat(byAge.evaluate(1, SCALE_UP_QUEUE_AGE_MS + 1, 0, PERIOD_MS)).isEqualTo(3);
+    }
+
+    @Test
+    void overloadMustBeConsecutive() {
+        WorkerScaler scaler = scaler(2, 1, 8, 3);
+        long overloadedAge = SCALE_UP_QUEUE_AGE_MS + 1;
+        // 中间一轮既不过载也不空闲，重新累计
+        scaler.evaluate(1, overloadedAge, 0, PERIOD_MS);
+        scaler.evaluate(1, SCALE_UP_QUEUE_AGE_MS, 0, PERIOD_MS);
+        assertThat(scaler.evaluate(1, overloadedAge, 0, PERIOD_MS)).isEqualTo(2);
+        assertThat(scaler.evaluate(1, overloadedAge, 0, PERIOD_MS)).isEqualTo(3);
+    }
+
+    @Test
+    void scalesUpByHalfAndStopsAtMax() {
+        WorkerScaler scaler = scaler(6, 1, 8, 3);
+        long overloadedAge = SCALE_UP_QUEUE_AGE_MS + 1;
+
+        scaler.evaluate(1, overloadedAge, 0, PERIOD_MS);
+        // 6 + 3 = 9，受上限限制为 8
+        assertThat(scaler.evaluate(1, overloadedAge, 0, PERIOD_MS)).isEqualTo(8);
+        for (int i = 0; i < 4; i++) {
+            assertThat(scaler.evaluate(1, overloadedAge, 0, PERIOD_MS)).isEqualTo(8);
+        }
+        assertThat(scaler.getScaleUpCount()).isEqualTo(1);
+    }
+
+    @Test
+    void scalesDownOneAfterIdleRoundsAndStopsAtMin() {
+        WorkerScaler scaler = scaler(4, 2, 8, 3);
+
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(4);
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(4);
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(3);
+        // 调整后重新累计空闲轮数
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(3);
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(3);
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(2);
+        for (int i = 0; i < 6; i++) {
+            assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(2);
+        }
+        assertThat(scaler.getScaleDownCount()).isEqualTo(2);
+    }
+
+    @Test
+    void overloadResetsIdleRounds() {
+        WorkerScaler scaler = scaler(4, 2, 8, 3);
+        scaler.evaluate(0, 0, 0, PERIOD_MS);
+        scaler.evaluate(0, 0, 0, PERIOD_MS);
+        scaler.evaluate(1, SCALE_UP_QUEUE_AGE_MS + 1, 0, PERIOD_MS);
+
+        assertThat(scaler.evaluate(0, 0, 0, PERIOD_MS)).isEqualTo(4);
+        assertThat(scaler.getScaleDownCount()).isZero();
+    }
+
+    @Test
+    void loaderSpreadsBacklogOverAddedWorkers() throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        TestBatchLoader loader = new TestBatchLoader(TestBatchLoader.config("WorkerScalerTest")
+                .maxBatchSize(10)
+                .intervalMs(5)
+                .elasticEnabled(true)
+                .threadPoolSize(1)
+                .minThreadPoolSize(1)
+                .maxThreadPoolSize(4)
+                .scaleIntervalMs(20)
+                .scaleUpQueueAgeMs(10)
+                .circuitBreakerEnabled(false)
+                .build(), keys -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return TestBatchLoader.stocks();
+        });
+        loader.init();
+        try {
+            String[] codes = TestBatchLoader.codes();
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                futures.add(loader.load(codes[i % codes.length]));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+            assertThat(loader.getMetrics().getScaleUpCount()).isGreaterThan(0);
+            assertThat(maxConcurrent.get()).isGreaterThan(1);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    private static WorkerScaler scaler(int initial, int min, int max, int idleRounds) {
+        return new WorkerScaler(initial, min, max, MAX_BATCH_SIZE, SCALE_UP_QUEUE_AGE_MS, idleRounds);
+    }
+}
@@ -0,0 +1,172 @@
+package com.xinput.learn.stock.cache;
+
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapStockStoreTest {
+
+    private static final int SLAB_SIZE = 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void putAndGet() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(64 * SLAB_SIZE, SLAB_SIZE, null)) {
+            assertThat(store.put(stock("000001", "平安银行", "银行", "深圳"))).isTrue();
+            assertThat(store.put(stock("600000", null))).isTrue();
+            Stock empty = stock("300750", "宁德时代");
+            empty.setReason(Collections.emptyList());
+            assertThat(store.put(empty)).isTrue();
+
+            Stock read = store.get("000001");
+            assertThat(read.getCode()).isEqualTo("000001");
+            assertThat(read.getName()).isEqualTo("平安银行");
+            assertThat(read.getReason()).containsExactly("银行", "深圳");
+            assertThat(store.get("600000").getName()).isNull();
+            assertThat(store.get("600000").getReason()).isNull();
+            assertThat(store.get("300750").getReason()).isEmpty();
+            assertThat(store.get("missing")).isNull();
+            assertThat(store.getEntryCount()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void putReplacesExistingKey() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(64 * SLAB_SIZE, SLAB_SIZE, null)) {
+            store.put(stock("000001", "平安银行"));
+            store.put(stock("000001", "平安银行", "银行"));
+
+            assertThat(store.getEntryCount()).isEqualTo(1);
+            assertThat(store.get("000001").getReason()).containsExactly("银行");
+        }
+    }
+
+    @Test
+    void remove() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(64 * SLAB_SIZE, SLAB_SIZE, null)) {
+            store.put(stock("000001", "平安银行"));
+
+            assertThat(store.remove("000001")).isTrue();
+            assertThat(store.remove("000001")).isFalse();
+            assertThat(store.get("000001")).isNull();
+            assertThat(store.getEntryCount()).isZero();
+        }
+    }
+
+    @Test
+    void rejectsRecordLargerThanSlab() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(4 * SLAB_SIZE, SLAB_SIZE, null)) {
+            char[] name = new char[SLAB_SIZE];
+            Arrays.fill(name, 'x');
+
+            assertThat(store.put(stock("000001", new String(name)))).isFalse();
+            assertThat(store.get("000001")).isNull();
+            assertThat(store.getUsedBytes()).isZero();
+        }
+    }
+
+    @Test
+    void evictsOldestSlabWhenFull() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(4 * SLAB_SIZE, SLAB_SIZE, null)) {
+            int count = 1000;
+            for (int i = 0; i < count; i++) {
+                assertThat(store.put(stock(code(i), "名称" + i))).isTrue();
+            }
+
+            assertThat(store.getEvictionCount()).isPositive();
+            assertThat(store.getEntryCount()).isEqualTo(count - store.getEvictionCount());
+            assertThat(store.getUsedBytes()).isLessThanOrEqualTo(store.getCapacityBytes());
+            assertThat(store.getAllocatedBytes()).isEqualTo(store.getCapacityBytes());
+            assertThat(store.get(code(0))).isNull();
+            // 环形日志多次回绕后，最近写入的数据仍然完整
+            for (int i = count - 10; i < count; i++) {
+                assertThat(store.get(code(i)).getName()).isEqualTo("名称" + i);
+            }
+        }
+    }
+
+    @Test
+    void growsIndexBeyondInitialSlots() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(16L << 20, 1 << 20, null)) {
+            long initialIndexBytes = store.getIndexBytes();
+            int count = 60000;
+            for (int i = 0; i < count; i++) {
+                store.put(stock(code(i), null));
+            }
+
+            assertThat(store.getIndexBytes()).isGreaterThan(initialIndexBytes);
+            assertThat(store.getEntryCount()).isEqualTo(count);
+            for (int i = 0; i < count; i += 997) {
+                assertThat(store.get(code(i)).getCode()).isEqualTo(code(i));
+            }
+        }
+    }
+
+    @Test
+    void removedSlotsDoNotGrowIndex() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(16L << 20, 1 << 20, null)) {
+            long initialIndexBytes = store.getIndexBytes();
+            for (int i = 0; i < 200000; i++) {
+                store.put(stock(code(i), null));
+                store.remove(code(i));
+            }
+
+            assertThat(store.getIndexBytes()).isEqualTo(initialIndexBytes);
+            assertThat(store.getEntryCount()).isZero();
+        }
+    }
+
+    @Test
+    void clearDropsEverything() throws IOException {
+        try (OffHeapStockStore store = new OffHeapStockStore(64 * SLAB_SIZE, SLAB_SIZE, null)) {
+            store.put(stock("000001", "平安银行"));
+            store.clear();
+
+            assertThat(store.get("000001")).isNull();
+            assertThat(store.getEntryCount()).isZero();
+            assertThat(store.getUsedBytes()).isZero();
+            assertThat(store.put(stock("000001", "平安银行"))).isTrue();
+            assertThat(store.get("000001").getName()).isEqualTo("平安银行");
+        }
+    }
+
+    @Test
+    void mappedFileIsDeletedOnClose() throws IOException {
+        Path file = dir.resolve("cache/offheap.dat");
+        OffHeapStockStore store = new OffHeapStockStore(4 * SLAB_SIZE, SLAB_SIZE, file.toString());
+        try {
+            assertThat(file).exists();
+            for (int i = 0; i < 200; i++) {
+                store.put(stock(code(i), "名称" + i));
+            }
+            assertThat(store.get(code(199)).getName()).isEqualTo("名称199");
+        } finally {
+            store.close();
+        }
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    private static String code(int index) {
+        return String.format("%06d", index);
+    }
+
+    private static Stock stock(String code, String name, String... reasons) {
+        Stock stock = new Stock();
+        stock.setCode(code);
+        stock.setName(name);
+        if (reasons.length > 0) {
+            stock.setReason(Arrays.asList(reasons));
+        }
+        return stock;
+    }
+}
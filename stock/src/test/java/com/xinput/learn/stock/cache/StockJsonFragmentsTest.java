@@ -0,0 +1,115 @@
+package com.xinput.learn.stock.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockJsonFragmentsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final StockJsonFragments fragments = new StockJsonFragments();
+
+    private StockSnapshot before;
+
+    private List<Stock> stocks;
+
+    @BeforeEach
+    void setUp() {
+        before = StockCache.getSnapshot();
+        StockCache.publish(StockSnapshot.of(TestBatchLoader.stocks(), 1));
+        stocks = new ArrayList<>(StockCache.getSnapshot().getStockMap().values());
+        ReflectionTestUtils.setField(fragments, "objectMapper", objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StockCache.publish(before);
+    }
+
+    @Test
+    void arrayMatchesObjectMapperOutput() throws IOException {
+        for (int size : new int[]{0, 1, 10, 100}) {
+            List<Stock> payload = stocks.subList(0, Math.min(size, stocks.size()));
+            byte[][] encoded = new byte[payload.size()][];
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = fragments.encode(payload.get(i));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            fragments.writeArray(encoded, out);
+
+            assertThat(out.toByteArray()).isEqualTo(objectMapper.writeValueAsBytes(payload));
+        }
+    }
+
+    @Test
+    void cachesOnlySnapshotObjects() throws IOException {
+        Stock cached = stocks.get(0);
+        byte[] first = fragments.encode(cached);
+        assertThat(fragments.encode(cached)).isSameAs(first);
+        assertThat(fragments.getEncodeCount()).isEqualTo(1);
+        assertThat(fragments.getHitCount()).isEqualTo(1);
+
+        // 同代码的其他对象(如后端查询的副本)照常编码，不读写快照上的片段
+        Stock copy = new Stock();
+        copy.setCode(cached.getCode());
+        copy.setName("copy");
+        assertThat(fragments.encode(copy)).isEqualTo(objectMapper.writeValueAsBytes(copy));
+        assertThat(fragments.encode(cached)).isSameAs(first);
+        assertThat(fragments.getEncodeCount()).isEqualTo(2);
+        assertThat(fragments.encode(null)).isEqualTo("null".getBytes());
+    }
+
+    @Test
+    void newSnapshotKeepsFragmentsOfUnchangedStocks() throws IOException {
+        Stock unchanged = stocks.get(0);
+        Stock old = stocks.get(1);
+        byte[] unchangedFragment = fragments.encode(unchanged);
+        fragments.encode(old);
+
+        Stock updated = new Stock();
+        updated.setCode(old.getCode());
+        updated.setName("updated");
+        Map<String, Stock> stockMap = new HashMap<>(StockCache.getSnapshot().getStockMap());
+        stockMap.put(updated.getCode(), updated);
+        StockSnapshot previous = StockCache.getSnapshot();
+        StockCache.publish(StockSnapshot.of(stockMap, 2)
+                .inheritJsonFragments(previous, Collections.singleton(updated.getCode())));
+
+        assertThat(fragments.encode(unchanged)).isSameAs(unchangedFragment);
+        assertThat(fragments.encode(updated)).isEqualTo(objectMapper.writeValueAsBytes(updated));
+        assertThat(fragments.getEncodeCount()).isEqualTo(3);
+    }
+
+    @Test
+    void writesJsonResponseWithContentLength() throws IOException {
+        List<Stock> payload = stocks.subList(0, 5);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        fragments.write(payload, response);
+
+        byte[] expected = objectMapper.writeValueAsBytes(payload);
+        assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(response.getContentLength()).isEqualTo(expected.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(expected);
+    }
+}
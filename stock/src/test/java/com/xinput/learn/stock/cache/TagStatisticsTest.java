@@ -0,0 +1,105 @@
+package com.xinput.learn.stock.cache;
+
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TagStatisticsTest {
+
+    private static final int TOP_K = 5;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private final List<Stock> stocks = StockSnapshot.of(TestBatchLoader.stocks(), 0).getReasonStocks();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        TagStatistics sequential = TagStatistics.compute(1, stocks, TOP_K, pool, Integer.MAX_VALUE);
+        TagStatistics parallel = TagStatistics.compute(1, stocks, TOP_K, pool, 16);
+
+        assertSame(parallel, sequential);
+        assertThat(sequential.getStockCount()).isEqualTo(stocks.size());
+    }
+
+    @Test
+    void countsCooccurrence() {
+        List<Stock> small = Arrays.asList(stock("1", "a", "b"), stock("2", "a", "c"), stock("3", "a", "b"));
+        TagStatistics statistics = TagStatistics.compute(1, small, TOP_K, pool, Integer.MAX_VALUE);
+
+        assertThat(statistics.getCount("a")).isEqualTo(3);
+        assertThat(statistics.getCount("b")).isEqualTo(2);
+        assertThat(statistics.getPairCount()).isEqualTo(2);
+        assertThat(statistics.getRelated().get("a")).containsExactly("b", "c");
+        assertThat(statistics.jaccard("a", "b")).isEqualTo(2.0 / 3);
+        assertThat(statistics.getTagsByCount()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void incrementalMatchesFull() {
+        List<Stock> before = new ArrayList<>();
+        List<Stock> after = new ArrayList<>();
+        List<Stock> updated = new ArrayList<>(stocks);
+        // 修改前 50 条的标签，删除第 50 条，新增一条
+        for (int i = 0; i < 50; i++) {
+            before.add(stocks.get(i));
+            Stock stock = stock(stocks.get(i).getCode(), stocks.get(i + 1).getReason().toArray(new String[0]));
+            after.add(stock);
+            updated.set(i, stock);
+        }
+        before.add(stocks.get(50));
+        updated.remove(50);
+        Stock added = stock("999999", "新标签", stocks.get(0).getReason().get(0));
+        after.add(added);
+        updated.add(added);
+
+        TagStatistics incremental = TagStatistics.compute(1, stocks, TOP_K, pool, Integer.MAX_VALUE).apply(2, before, after);
+        TagStatistics full = TagStatistics.compute(2, updated, TOP_K, pool, Integer.MAX_VALUE);
+
+        assertThat(incremental.isIncremental()).isTrue();
+        assertSame(incremental, full);
+        assertThat(incremental.getCount("新标签")).isEqualTo(1);
+    }
+
+    @Test
+    void removingLastStockDropsTag() {
+        Stock only = stock("1", "a", "b");
+        TagStatistics statistics = TagStatistics.compute(1, Collections.singletonList(only), TOP_K, pool, Integer.MAX_VALUE)
+                .apply(2, Collections.singletonList(only), Collections.emptyList());
+
+        assertThat(statistics.getCounts()).isEmpty();
+        assertThat(statistics.getCooccurrence()).isEmpty();
+        assertThat(statistics.getRelated()).isEmpty();
+        assertThat(statistics.getStockCount()).isZero();
+    }
+
+    private static void assertSame(TagStatistics actual, TagStatistics expected) {
+        assertThat(actual.getStockCount()).isEqualTo(expected.getStockCount());
+        assertThat(actual.getCounts()).isEqualTo(expected.getCounts());
+        assertThat(actual.getCooccurrence()).isEqualTo(expected.getCooccurrence());
+        assertThat(actual.getRelated()).isEqualTo(expected.getRelated());
+        assertThat(actual.getTagsByCount()).isEqualTo(expected.getTagsByCount());
+    }
+
+    private static Stock stock(String code, String... tags) {
+        Stock stock = new Stock();
+        stock.setCode(code);
+        stock.setName("名称" + code);
+        stock.setReason(new ArrayList<>(Arrays.asList(tags)));
+        return stock;
+    }
+}
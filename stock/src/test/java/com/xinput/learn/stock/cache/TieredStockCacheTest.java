@@ -0,0 +1,147 @@
+package com.xinput.learn.stock.cache;
+
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.config.CacheConfig;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.util.MemoryEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredStockCacheTest {
+
+    private static final int HOT_CAPACITY = 10;
+
+    private static final int ENTRIES = 1000;
+
+    private final Stock[] templates = TestBatchLoader.stocks().values().toArray(new Stock[0]);
+
+    @Test
+    void demotesHotOverflowAndPromotesOnRead() throws IOException {
+        TieredStockCache cache = new TieredStockCache(config(4));
+        try {
+            List<Stock> stocks = fill(cache);
+
+            TieredCacheMetrics filled = cache.getMetrics();
+            assertThat(filled.getHotSize()).isEqualTo(HOT_CAPACITY);
+            assertThat(filled.getOffHeapEntryCount()).isEqualTo(ENTRIES - HOT_CAPACITY);
+            assertThat(filled.getDemotionCount()).isEqualTo(ENTRIES - HOT_CAPACITY);
+
+            for (Stock stock : stocks) {
+                assertThat(cache.get(stock.getCode())).usingRecursiveComparison().isEqualTo(stock);
+            }
+            TieredCacheMetrics read = cache.getMetrics();
+            // 每条都从其中一层命中，堆外层命中的条目提升到热点层，两层不重复
+            assertThat(read.getHotHitCount() + read.getOffHeapHitCount()).isEqualTo(ENTRIES);
+            assertThat(read.getMissCount()).isZero();
+            assertThat(read.getPromotionCount()).isEqualTo(read.getOffHeapHitCount());
+            assertThat(read.getHotSize() + read.getOffHeapEntryCount()).isEqualTo(ENTRIES);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void heapFootprintIsBoundedByHotCapacity() throws IOException {
+        TieredStockCache cache = new TieredStockCache(config(4));
+        try {
+            List<Stock> stocks = fill(cache);
+            Map<String, Stock> heapMap = new HashMap<>();
+            for (Stock stock : stocks) {
+                heapMap.put(stock.getCode(), stock);
+            }
+
+            // 堆内只保留热点层，其余条目在堆外
+            long hotBytes = cache.estimateHotBytes();
+            assertThat(hotBytes).isPositive();
+            assertThat(hotBytes * (ENTRIES / HOT_CAPACITY / 2)).isLessThan(MemoryEstimator.stockMap(heapMap));
+            assertThat(cache.getMetrics().getOffHeapUsedBytes()).isPositive();
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void overflowIsDroppedWithoutOffHeapTier() throws IOException {
+        TieredStockCache cache = new TieredStockCache(config(0));
+        try {
+            List<Stock> stocks = fill(cache);
+
+            assertThat(cache.getMetrics().getHotSize()).isEqualTo(HOT_CAPACITY);
+            assertThat(cache.get(stocks.get(0).getCode())).isNull();
+            assertThat(cache.get(stocks.get(ENTRIES - 1).getCode())).isNotNull();
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void staleVersionIsNotCached() throws IOException {
+        TieredStockCache cache = new TieredStockCache(config(4));
+        try {
+            Stock stock = copy(templates[0], 0);
+            cache.put(stock.getCode(), stock, StockCache.getVersion() - 1);
+
+            assertThat(cache.get(stock.getCode())).isNull();
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void invalidateRemovesFromBothTiers() throws IOException {
+        TieredStockCache cache = new TieredStockCache(config(4));
+        try {
+            List<Stock> stocks = fill(cache);
+            String offHeapCode = stocks.get(0).getCode();
+            String hotCode = stocks.get(ENTRIES - 1).getCode();
+
+            cache.invalidate(Arrays.asList(offHeapCode, hotCode, "missing"));
+
+            assertThat(cache.get(offHeapCode)).isNull();
+            assertThat(cache.get(hotCode)).isNull();
+            assertThat(cache.getMetrics().getInvalidationCount()).isEqualTo(2);
+        } finally {
+            cache.close();
+        }
+    }
+
+    private List<Stock> fill(TieredStockCache cache) {
+        long version = StockCache.getVersion();
+        List<Stock> stocks = new ArrayList<>(ENTRIES);
+        for (int i = 0; i < ENTRIES; i++) {
+            Stock stock = copy(templates[i % templates.length], i);
+            cache.put(stock.getCode(), stock, version);
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    /**
+     * 复制数据，代码加序号后缀，用于生成任意数量的条目
+     */
+    private static Stock copy(Stock template, int index) {
+        Stock stock = new Stock();
+        stock.setCode(template.getCode() + "-" + index);
+        stock.setName(template.getName());
+        stock.setReason(template.getReason() == null ? null : new ArrayList<>(template.getReason()));
+        return stock;
+    }
+
+    private static CacheConfig config(int offHeapSizeMb) {
+        CacheConfig config = new CacheConfig();
+        config.setEnabled(true);
+        config.setHotCapacity(HOT_CAPACITY);
+        config.setOffHeapSizeMb(offHeapSizeMb);
+        config.setSlabSizeMb(1);
+        return config;
+    }
+}
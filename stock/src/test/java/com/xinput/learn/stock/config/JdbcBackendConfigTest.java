@@ -0,0 +1,93 @@
+package com.xinput.learn.stock.config;
+
+import com.xinput.learn.stock.model.Stock;
+import com.xinput.learn.stock.repository.JdbcStockRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcBackendConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(JdbcBackendConfig.class)
+            .withPropertyValues("spring.datasource.url=jdbc:h2:mem:backend-config-test;DB_CLOSE_DELAY=-1");
+
+    @Test
+    void mockBackendCreatesNoDataSource() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(DataSource.class);
+            assertThat(context).doesNotHaveBean(JdbcTemplate.class);
+        });
+        contextRunner.withPropertyValues("stock.backend.type=mock").run(context ->
+                assertThat(context).doesNotHaveBean(DataSource.class));
+    }
+
+    @Test
+    void jdbcBackendCreatesDataSourceAndTemplate() {
+        contextRunner.withPropertyValues("stock.backend.type=jdbc", "spring.datasource.hikari.maximum-pool-size=3")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(DataSource.class);
+                    assertThat(context).hasSingleBean(JdbcTemplate.class);
+                    assertThat(context.getBean(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(3);
+                });
+    }
+
+    @Test
+    void concurrentBatchQueriesLeaveConnectionsForSingleQueries() {
+        contextRunner.withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration.class))
+                .withUserConfiguration(BackendConfig.class, JdbcStockRepository.class)
+                .withPropertyValues("stock.backend.type=jdbc",
+                        "spring.datasource.url=jdbc:h2:mem:backend-pool-test;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=2",
+                        "spring.datasource.hikari.connection-timeout=250")
+                .run(context -> {
+                    JdbcStockRepository repository = context.getBean(JdbcStockRepository.class);
+                    HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+                    // 2 个连接只有 1 个给批量查询
+                    assertThat(repository.getQueryParallelism()).isEqualTo(1);
+
+                    List<String> codes = new ArrayList<>(
+                            context.getBean(JdbcTemplate.class).queryForList("SELECT code FROM stock", String.class));
+                    ExecutorService callers = Executors.newFixedThreadPool(8);
+                    try {
+                        // 8 个批次同时查询，每个批次拆成多条 IN 查询，同时占用的连接不超过并行查询数
+                        List<Future<Map<String, Stock>>> batches = new ArrayList<>();
+                        for (int i = 0; i < 8; i++) {
+                            batches.add(callers.submit(() -> {
+                                Map<String, Stock> result = null;
+                                for (int round = 0; round < 20; round++) {
+                                    result = repository.findByCodes(codes);
+                                }
+                                return result;
+                            }));
+                        }
+                        int peak = 0;
+                        while (!batches.stream().allMatch(Future::isDone)) {
+                            peak = Math.max(peak, dataSource.getHikariPoolMXBean().getActiveConnections());
+                            // 剩余的连接仍可用于单个查询
+                            assertThat(repository.findByCode(codes.get(0))).isNotNull();
+                        }
+                        assertThat(peak).isLessThanOrEqualTo(repository.getQueryParallelism());
+                        for (Future<Map<String, Stock>> batch : batches) {
+                            assertThat(batch.get(30, TimeUnit.SECONDS)).hasSize(codes.size());
+                        }
+                    } finally {
+                        callers.shutdownNow();
+                    }
+                });
+    }
+}
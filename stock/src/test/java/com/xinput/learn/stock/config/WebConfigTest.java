@@ -0,0 +1,81 @@
+package com.xinput.learn.stock.config;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebConfigTest {
+
+    private static final TypeReference<Map<String, Stock>> STOCK_MAP = new TypeReference<Map<String, Stock>>() {
+    };
+
+    @Test
+    void replacesBinaryConvertersWithBuilderMappers() throws Exception {
+        List<HttpMessageConverter<?>> converters = converters();
+
+        assertThat(converters).filteredOn(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter).hasSize(1);
+        assertThat(converters).filteredOn(converter -> converter instanceof MappingJackson2CborHttpMessageConverter).hasSize(1);
+
+        // 与 JSON 使用同一份配置：不输出空字段
+        Stock stock = new Stock();
+        stock.setCode("000001");
+        stock.setName("平安银行");
+        for (ObjectMapper mapper : binaryMappers(converters)) {
+            assertThat(mapper.readTree(mapper.writeValueAsBytes(stock)).has("reason")).isFalse();
+        }
+    }
+
+    @Test
+    void binaryEncodingsRoundTripAndAreSmallerThanJson() throws Exception {
+        Map<String, Stock> stocks = TestBatchLoader.stocks();
+        ObjectMapper json = new ObjectMapper();
+        int jsonBytes = json.writeValueAsBytes(stocks).length;
+
+        for (ObjectMapper mapper : binaryMappers(converters())) {
+            byte[] bytes = mapper.writeValueAsBytes(stocks);
+            Map<String, Stock> decoded = mapper.readValue(bytes, STOCK_MAP);
+
+            assertThat(decoded).usingRecursiveComparison().isEqualTo(stocks);
+            assertThat(bytes.length).isLessThan(jsonBytes);
+        }
+    }
+
+    private static List<HttpMessageConverter<?>> converters() {
+        WebConfig webConfig = new WebConfig();
+        ReflectionTestUtils.setField(webConfig, "jackson2ObjectMapperBuilder",
+                Jackson2ObjectMapperBuilder.json().serializationInclusion(JsonInclude.Include.NON_NULL));
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter());
+        converters.add(new MappingJackson2SmileHttpMessageConverter());
+        converters.add(new MappingJackson2CborHttpMessageConverter());
+        webConfig.extendMessageConverters(converters);
+        return converters;
+    }
+
+    private static List<ObjectMapper> binaryMappers(List<HttpMessageConverter<?>> converters) {
+        List<ObjectMapper> mappers = new ArrayList<>();
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2SmileHttpMessageConverter
+                    || converter instanceof MappingJackson2CborHttpMessageConverter) {
+                mappers.add(((AbstractJackson2HttpMessageConverter) converter).getObjectMapper());
+            }
+        }
+        return mappers;
+    }
+}
@@ -0,0 +1,42 @@
+package com.xinput.learn.stock.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockControllerTest {
+
+    private final StockController controller = new StockController();
+
+    @Test
+    void acceptsJsonWithoutAcceptHeader() {
+        assertThat(acceptsJson(null)).isTrue();
+        assertThat(acceptsJson("")).isTrue();
+    }
+
+    @Test
+    void followsPreferredMediaType() {
+        assertThat(acceptsJson("application/json")).isTrue();
+        assertThat(acceptsJson("*/*")).isTrue();
+        assertThat(acceptsJson("application/xml, application/json;q=0.5")).isFalse();
+        assertThat(acceptsJson("application/xml;q=0.5, application/json")).isTrue();
+    }
+
+    @Test
+    void treatsMalformedAcceptHeaderAsJson() {
+        assertThat(acceptsJson("application")).isTrue();
+        assertThat(acceptsJson("text/html;q=abc")).isTrue();
+    }
+
+    private boolean acceptsJson(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (accept != null) {
+            request.addHeader(HttpHeaders.ACCEPT, accept);
+        }
+        Boolean result = ReflectionTestUtils.invokeMethod(controller, "acceptsJson", request);
+        return result != null && result;
+    }
+}
@@ -0,0 +1,89 @@
+package com.xinput.learn.stock.repository;
+
+import com.google.common.collect.Lists;
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.config.BackendConfig;
+import com.xinput.learn.stock.config.JdbcBackendConfig;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcStockRepositoryTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration.class))
+            .withUserConfiguration(JdbcBackendConfig.class, BackendConfig.class, JdbcStockRepository.class)
+            .withPropertyValues("stock.backend.type=jdbc",
+                    "spring.datasource.url=jdbc:h2:mem:jdbc-repository-test;DB_CLOSE_DELAY=-1",
+                    "spring.datasource.hikari.maximum-pool-size=4");
+
+    private final Map<String, Stock> stocks = TestBatchLoader.stocks();
+
+    private final String[] codes = TestBatchLoader.codes();
+
+    @Test
+    void findByCodesReturnsEveryRequestedCodeAtAnyBatchSize() {
+        contextRunner.run(context -> {
+            JdbcStockRepository repository = context.getBean(JdbcStockRepository.class);
+            // 覆盖单条查询、补齐到 2 的幂、拆分为多条并行 IN 查询
+            for (int size : new int[]{1, 3, 10, 17, 100, 500, codes.length}) {
+                List<String> keys = Arrays.asList(codes).subList(0, Math.min(size, codes.length));
+
+                Map<String, Stock> result = repository.findByCodes(keys);
+
+                assertThat(result).containsOnlyKeys(keys);
+                for (String key : keys) {
+                    assertThat(result.get(key)).usingRecursiveComparison().isEqualTo(stocks.get(key));
+                }
+            }
+        });
+    }
+
+    @Test
+    void findByCodesIgnoresDuplicatesAndMissingCodes() {
+        contextRunner.run(context -> {
+            JdbcStockRepository repository = context.getBean(JdbcStockRepository.class);
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                keys.add(codes[i % 20]);
+                keys.add("missing-" + i);
+            }
+
+            Map<String, Stock> result = repository.findByCodes(keys);
+
+            assertThat(result).containsOnlyKeys(Arrays.asList(codes).subList(0, 20));
+            assertThat(repository.findByCodes(Collections.emptyList())).isEmpty();
+            assertThat(repository.findByCode("missing")).isNull();
+        });
+    }
+
+    @Test
+    void saveAllIsVisibleToQueries() {
+        contextRunner.run(context -> {
+            JdbcStockRepository repository = context.getBean(JdbcStockRepository.class);
+            Stock changed = new Stock();
+            changed.setCode(codes[0]);
+            changed.setName("changed");
+            changed.setReason(Lists.newArrayList("a", "b"));
+            Stock added = new Stock();
+            added.setCode("new-code");
+            added.setName("added");
+
+            repository.saveAll(Arrays.asList(changed, added));
+
+            Map<String, Stock> result = repository.findByCodes(Arrays.asList(codes[0], "new-code"));
+            assertThat(result.get(codes[0])).usingRecursiveComparison().isEqualTo(changed);
+            assertThat(result.get("new-code")).usingRecursiveComparison().isEqualTo(added);
+        });
+    }
+}
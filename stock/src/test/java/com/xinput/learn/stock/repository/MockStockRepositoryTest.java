@@ -0,0 +1,25 @@
+package com.xinput.learn.stock.repository;
+
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MockStockRepositoryTest {
+
+    @Test
+    void findByCodesSkipsMissingCodes() {
+        StockCache.publish(StockSnapshot.of(TestBatchLoader.stocks(), 0));
+        String code = TestBatchLoader.codes()[0];
+
+        Map<String, ?> result = new MockStockRepository().findByCodes(Arrays.asList(code, "missing"));
+
+        assertThat(result).containsOnlyKeys(code);
+        assertThat(result.get(code)).isSameAs(TestBatchLoader.stocks().get(code));
+    }
+}
@@ -0,0 +1,134 @@
+package com.xinput.learn.stock.service;
+
+import com.xinput.learn.stock.batch.BatchLoaderConfig;
+import com.xinput.learn.stock.batch.BatchLoaderRegistry;
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.config.BatchConfig;
+import com.xinput.learn.stock.model.ConfigAuditEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchConfigServiceTest {
+
+    private final BatchLoaderRegistry registry = new BatchLoaderRegistry();
+
+    private final BatchConfig batchConfig = new BatchConfig();
+
+    private final BatchConfigService service = new BatchConfigService();
+
+    /**
+     * 所有加载器共享的 reconfigure 调用次数，达到 failAt 的那次调用抛出异常
+     */
+    private final AtomicInteger reconfigureCalls = new AtomicInteger();
+
+    private volatile int failAt = -1;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "environment", new StandardEnvironment());
+        ReflectionTestUtils.setField(service, "batchConfig", batchConfig);
+        ReflectionTestUtils.setField(service, "batchLoaderRegistry", registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void appliesChangedPropertiesToEveryLoader() throws Exception {
+        TestBatchLoader first = loader("ConfigFirst");
+        TestBatchLoader second = loader("ConfigSecond");
+
+        ConfigAuditEntry entry = service.update(Collections.singletonMap("interval-ms", 20), "test");
+
+        assertThat(entry.isSuccess()).isTrue();
+        assertThat(entry.getLoaders()).containsExactlyInAnyOrder("ConfigFirst", "ConfigSecond");
+        assertThat(batchConfig.getIntervalMs()).isEqualTo(20);
+        assertThat(first.getConfig().getIntervalMs()).isEqualTo(20);
+        assertThat(second.getConfig().getIntervalMs()).isEqualTo(20);
+        // 新的定时任务仍在运行
+        assertThat(first.load(TestBatchLoader.codes()[0]).get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void rejectsNonPositiveIntervalWithoutChangingAnything() throws Exception {
+        TestBatchLoader loader = loader("ConfigBadInterval");
+
+        ConfigAuditEntry entry = service.update(Collections.singletonMap("interval-ms", 0), "test");
+
+        assertThat(entry.isSuccess()).isFalse();
+        assertThat(entry.getError()).contains("intervalMs");
+        assertThat(batchConfig.getIntervalMs()).isEqualTo(10);
+        assertThat(service.getCurrentConfig().getIntervalMs()).isEqualTo(10);
+        assertThat(loader.getConfig().getIntervalMs()).isEqualTo(10);
+        assertThat(reconfigureCalls.get()).isZero();
+        assertThat(loader.load(TestBatchLoader.codes()[0]).get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void rejectsZeroCapacityWithoutResizingLanes() {
+        TestBatchLoader loader = loader("ConfigZeroCapacity");
+
+        ConfigAuditEntry entry = service.update(Collections.singletonMap("queue-capacity", 0), "test");
+
+        assertThat(entry.isSuccess()).isFalse();
+        assertThat(entry.getError()).contains("queueCapacity");
+        assertThat(batchConfig.getQueueCapacity()).isEqualTo(10000);
+        assertThat(loader.getConfig().getQueueCapacity()).isEqualTo(10000);
+        assertThat(reconfigureCalls.get()).isZero();
+
+        // 后续合法变更不受影响，失败的配置项也不会残留在配置源中
+        ConfigAuditEntry next = service.update(Collections.singletonMap("max-batch-size", 50), "test");
+        assertThat(next.isSuccess()).isTrue();
+        assertThat(next.getChanges()).containsOnlyKeys("maxBatchSize");
+        assertThat(loader.getConfig().getQueueCapacity()).isEqualTo(10000);
+    }
+
+    @Test
+    void rollsBackLoadersUpdatedBeforeFailure() {
+        TestBatchLoader first = loader("ConfigRollbackFirst");
+        TestBatchLoader second = loader("ConfigRollbackSecond");
+        TestBatchLoader third = loader("ConfigRollbackThird");
+        // 第一个加载器更新成功后，第二个加载器应用时失败
+        failAt = 2;
+
+        ConfigAuditEntry entry = service.update(Collections.singletonMap("max-batch-size", 50), "test");
+
+        assertThat(entry.isSuccess()).isFalse();
+        assertThat(batchConfig.getMaxBatchSize()).isEqualTo(100);
+        for (TestBatchLoader loader : new TestBatchLoader[]{first, second, third}) {
+            assertThat(loader.getConfig().getMaxBatchSize()).isEqualTo(100);
+        }
+        // 两次应用（成功一次、失败一次）加上一次回滚
+        assertThat(reconfigureCalls.get()).isEqualTo(3);
+        assertThat(service.getAuditLog()).hasSize(1);
+    }
+
+    private TestBatchLoader loader(String name) {
+        BatchLoaderConfig config = batchConfig.toLoaderConfig(name)
+                .enableMonitor(false)
+                .hedgeEnabled(false)
+                .hotKeyEnabled(false)
+                .build();
+        return registry.getOrCreate(name, () -> new TestBatchLoader(config, keys -> TestBatchLoader.stocks()) {
+            @Override
+            public synchronized List<String> reconfigure(BatchLoaderConfig newConfig) {
+                if (reconfigureCalls.incrementAndGet() == failAt) {
+                    throw new IllegalStateException("应用配置失败: " + newConfig.getName());
+                }
+                return super.reconfigure(newConfig);
+            }
+        });
+    }
+}
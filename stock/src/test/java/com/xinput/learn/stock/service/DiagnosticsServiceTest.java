@@ -0,0 +1,129 @@
+package com.xinput.learn.stock.service;
+
+import com.xinput.learn.stock.batch.BatchLoaderRegistry;
+import com.xinput.learn.stock.batch.StockBatchWriter;
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.cache.TieredStockCache;
+import com.xinput.learn.stock.config.CacheConfig;
+import com.xinput.learn.stock.config.WriterConfig;
+import com.xinput.learn.stock.consts.StockCache;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.util.AllocationUtils;
+import com.xinput.learn.stock.util.MemoryEstimator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DiagnosticsServiceTest {
+
+    private static final String NAME = "DiagnosticsTest";
+
+    private final BatchLoaderRegistry registry = new BatchLoaderRegistry();
+
+    private final DiagnosticsService service = new DiagnosticsService();
+
+    private StockSnapshot before;
+
+    private TestBatchLoader loader;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        before = StockCache.getSnapshot();
+        StockCache.publish(StockSnapshot.of(TestBatchLoader.stocks(), 1));
+        loader = registry.getOrCreate(NAME, () -> TestBatchLoader.inMemory(TestBatchLoader.config(NAME)
+                .intervalMs(1)
+                .completionParallelism(2)
+                .build()));
+        ReflectionTestUtils.setField(service, "batchLoaderRegistry", registry);
+        ReflectionTestUtils.setField(service, "tieredStockCache", new TieredStockCache(new CacheConfig()));
+        ReflectionTestUtils.setField(service, "stockBatchWriter", new StockBatchWriter(new WriterConfig()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+        StockCache.publish(before);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void memorySumsSubsystemEstimates() {
+        Map<String, Object> memory = service.memory();
+
+        Map<String, Object> subsystems = (Map<String, Object>) memory.get("subsystems");
+        Map<String, Object> snapshot = (Map<String, Object>) subsystems.get("snapshot");
+        Map<String, Object> loaderItem = (Map<String, Object>) ((Map<String, Object>) subsystems.get("loaders")).get(NAME);
+        Map<String, Object> writer = (Map<String, Object>) subsystems.get("writer");
+
+        assertThat(snapshot.get("stockCount")).isEqualTo(TestBatchLoader.stocks().size());
+        assertThat(snapshot.get("stockMapBytes")).isEqualTo(MemoryEstimator.stockMap(TestBatchLoader.stocks()));
+        long expected = (Long) snapshot.get("totalBytes") + (Long) loaderItem.get("totalBytes") + (Long) writer.get("totalBytes");
+        assertThat(memory.get("estimatedHeapBytes")).isEqualTo(expected);
+        assertThat(((Map<String, Object>) subsystems.get("tieredCache")).get("enabled")).isEqualTo(false);
+        assertThat((Map<String, Object>) memory.get("jvm")).containsKeys("heapUsed", "heapMax");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void allocationCountsEveryLoaderPool() throws Exception {
+        assumeTrue(AllocationUtils.isSupported(), "当前JVM不支持按线程统计内存分配");
+        // 先产生一次批处理和结果分发，完成执行器的线程按需创建
+        String[] codes = TestBatchLoader.codes();
+        loader.load(codes[0]).get(5, TimeUnit.SECONDS);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread client = new Thread(() -> {
+            int i = 0;
+            while (running.get()) {
+                List<CompletableFuture<?>> futures = new ArrayList<>();
+                for (int j = 0; j < 64; j++) {
+                    futures.add(loader.load(codes[i++ % codes.length]));
+                }
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            }
+        });
+        client.start();
+        Map<String, Object> result;
+        try {
+            result = service.allocation(300);
+        } finally {
+            running.set(false);
+            client.join(5000);
+        }
+
+        Map<String, Object> item = (Map<String, Object>) ((Map<String, Object>) result.get("loaders")).get(NAME);
+        List<Map<String, Object>> threads = (List<Map<String, Object>>) item.get("threads");
+        assertThat(threads).extracting(thread -> (String) thread.get("name"))
+                .anyMatch(name -> name.equals(NAME + "-batch-loader"))
+                .anyMatch(name -> name.equals(NAME + "-completion"));
+        assertThat((Long) item.get("requests")).isGreaterThan(0);
+        assertThat((Double) item.get("loaderThreadBytesPerRequest")).isGreaterThan(0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsRequestSamplesPerEndpoint() throws Exception {
+        assumeTrue(AllocationUtils.isSupported(), "当前JVM不支持按线程统计内存分配");
+        service.recordRequestAllocation("/stock/all", 100);
+        service.recordRequestAllocation("/stock/all", 300);
+        service.recordRequestAllocation("/stock/all", -1);
+
+        Map<String, Object> samples = (Map<String, Object>) service.allocation(1).get("requestSamples");
+        Map<String, Object> all = (Map<String, Object>) samples.get("/stock/all");
+
+        assertThat(all.get("samples")).isEqualTo(2L);
+        assertThat(all.get("avgBytes")).isEqualTo(200.0);
+        assertThat(all.get("maxBytes")).isEqualTo(300L);
+    }
+}
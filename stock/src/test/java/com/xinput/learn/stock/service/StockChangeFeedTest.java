@@ -0,0 +1,193 @@
+package com.xinput.learn.stock.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xinput.learn.stock.config.ChangeFeedConfig;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockChangeFeedTest {
+
+    private final ChangeFeedConfig config = new ChangeFeedConfig();
+
+    private final ConcurrentLinkedQueue<RecordingEmitter> emitters = new ConcurrentLinkedQueue<>();
+
+    private volatile CountDownLatch nextGate;
+
+    private StockChangeFeed feed;
+
+    private StockSnapshot snapshot = snapshot(0);
+
+    @AfterEach
+    void tearDown() {
+        if (feed != null) {
+            feed.destroy();
+        }
+    }
+
+    @Test
+    void admitsAtMostMaxSubscribers() throws Exception {
+        config.setMaxSubscribers(3);
+        start();
+
+        int threads = 16;
+        CountDownLatch ready = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<SseEmitter>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await(5, TimeUnit.SECONDS);
+                    return feed.subscribe(null);
+                }));
+            }
+            for (Future<SseEmitter> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> metrics = feed.getMetrics();
+        assertThat(metrics.get("subscribers")).isEqualTo(3);
+        assertThat(metrics.get("rejectCount")).isEqualTo(13L);
+    }
+
+    @Test
+    void slowSubscriberIsResetWithoutBlockingOthers() throws Exception {
+        config.setSubscriberQueueSize(2);
+        config.setSenderThreads(2);
+        start();
+
+        CountDownLatch gate = new CountDownLatch(1);
+        nextGate = gate;
+        feed.subscribe(null);
+        RecordingEmitter slow = emitters.poll();
+        nextGate = null;
+        feed.subscribe(null);
+        RecordingEmitter fast = emitters.poll();
+        await(() -> slow.blocked);
+
+        // 慢订阅者阻塞在第一次发送上，其他订阅者照常按顺序收到每个版本
+        for (int version = 1; version <= 6; version++) {
+            publish(version);
+            int expected = version + 1;
+            await(() -> fast.events.size() == expected);
+        }
+        assertThat(fast.events).containsExactly("version:0", "change:1", "change:2", "change:3",
+                "change:4", "change:5", "change:6");
+        assertThat(slow.events).isEmpty();
+
+        // 积压超过待推送队列容量后丢弃积压的变更，改为推送 reset，之后从 reset 的版本继续
+        gate.countDown();
+        await(() -> !slow.events.isEmpty() && slow.events.get(slow.events.size() - 1).endsWith(":6"));
+        assertThat(slow.events).startsWith("version:0");
+        assertThat(slow.events).anyMatch(event -> event.startsWith("reset:"));
+        assertThat(slow.events.size()).isLessThan(fast.events.size());
+        assertThat((Long) feed.getMetrics().get("backlogResetCount")).isPositive();
+    }
+
+    private void start() {
+        feed = new StockChangeFeed() {
+            @Override
+            SseEmitter createEmitter(long timeoutMs) {
+                RecordingEmitter emitter = new RecordingEmitter(nextGate);
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(feed, "changeFeedConfig", config);
+        ReflectionTestUtils.setField(feed, "objectMapper", new ObjectMapper());
+        feed.init();
+    }
+
+    private void publish(long version) {
+        StockSnapshot next = snapshot(version);
+        feed.onPublish(snapshot, next, version);
+        snapshot = next;
+    }
+
+    private static StockSnapshot snapshot(long version) {
+        Stock stock = new Stock();
+        stock.setCode("000001");
+        stock.setName("名称" + version);
+        return StockSnapshot.of(Collections.singletonMap(stock.getCode(), stock), version);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("等待超时").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * 记录发送的事件(名称:版本)，指定 gate 时第一次发送阻塞到 gate 打开，模拟写入慢的客户端
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        private final CountDownLatch gate;
+
+        private volatile boolean blocked = false;
+
+        RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (gate != null && gate.getCount() > 0) {
+                blocked = true;
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof String) {
+                    text.append(data.getData());
+                }
+            }
+            String id = field(text, "id:");
+            String name = field(text, "event:");
+            if (name != null) {
+                events.add(name + ":" + id);
+            }
+        }
+
+        private static String field(StringBuilder text, String prefix) {
+            for (String line : text.toString().split("\n")) {
+                if (line.startsWith(prefix)) {
+                    return line.substring(prefix.length());
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.xinput.learn.stock.service;
+
+import com.xinput.learn.stock.batch.TestBatchLoader;
+import com.xinput.learn.stock.cache.TagStatistics;
+import com.xinput.learn.stock.config.TagStatsConfig;
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TagStatisticsServiceTest {
+
+    private static final int UPDATES = 100;
+
+    private final TagStatsConfig config = new TagStatsConfig();
+
+    private final TagStatisticsService service = new TagStatisticsService();
+
+    private final StockSnapshot snapshot = StockSnapshot.of(TestBatchLoader.stocks(), 0);
+
+    private long fullBefore;
+
+    @BeforeEach
+    void setUp() {
+        config.setParallelism(4);
+        config.setForkThreshold(64);
+        ReflectionTestUtils.setField(service, "tagStatsConfig", config);
+        service.init();
+        // 注册前已发布的快照会先全量计算一次
+        fullBefore = service.getFullCount();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void incrementalPublishMatchesFullRecompute() {
+        service.onPublish(StockSnapshot.empty(), snapshot, 10);
+        StockSnapshot changed = changeTags(snapshot);
+
+        service.onPublish(snapshot, changed, 11);
+
+        TagStatistics incremental = service.getStatistics();
+        assertThat(incremental.isIncremental()).isTrue();
+        assertThat(incremental.getVersion()).isEqualTo(11);
+        assertThat(service.getFullCount() - fullBefore).isEqualTo(1);
+        assertThat(service.getIncrementalCount()).isEqualTo(1);
+        assertSame(incremental, full(changed, 11));
+    }
+
+    @Test
+    void versionGapRecomputesInFull() {
+        service.onPublish(StockSnapshot.empty(), snapshot, 10);
+
+        service.onPublish(snapshot, changeTags(snapshot), 12);
+
+        assertThat(service.getStatistics().isIncremental()).isFalse();
+        assertThat(service.getFullCount() - fullBefore).isEqualTo(2);
+        assertThat(service.getIncrementalCount()).isZero();
+    }
+
+    @Test
+    void snapshotWithoutChangedCodesRecomputesInFull() {
+        service.onPublish(StockSnapshot.empty(), snapshot, 10);
+        StockSnapshot reloaded = StockSnapshot.of(TestBatchLoader.stocks(), 0);
+
+        service.onPublish(snapshot, reloaded, 11);
+
+        assertThat(service.getFullCount() - fullBefore).isEqualTo(2);
+        assertSame(service.getStatistics(), full(reloaded, 11));
+    }
+
+    private TagStatistics full(StockSnapshot current, long version) {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            return TagStatistics.compute(version, current.getReasonStocks(), config.getTopK(), pool, Integer.MAX_VALUE);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 把前 UPDATES 条有标签数据的标签替换为相邻数据的标签，返回标记了变化代码的新快照
+     */
+    private static StockSnapshot changeTags(StockSnapshot snapshot) {
+        List<Stock> stocks = snapshot.getReasonStocks();
+        Map<String, Stock> stockMap = new HashMap<>(snapshot.getStockMap());
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < Math.min(UPDATES, stocks.size() - 1); i++) {
+            Stock stock = new Stock();
+            stock.setCode(stocks.get(i).getCode());
+            stock.setName(stocks.get(i).getName());
+            stock.setReason(stocks.get(i + 1).getReason());
+            stockMap.put(stock.getCode(), stock);
+            codes.add(stock.getCode());
+        }
+        return StockSnapshot.of(stockMap, 0).markChanged(codes);
+    }
+
+    private static void assertSame(TagStatistics actual, TagStatistics expected) {
+        assertThat(actual.getStockCount()).isEqualTo(expected.getStockCount());
+        assertThat(actual.getCounts()).isEqualTo(expected.getCounts());
+        assertThat(actual.getCooccurrence()).isEqualTo(expected.getCooccurrence());
+        assertThat(actual.getRelated()).isEqualTo(expected.getRelated());
+        assertThat(actual.getTagsByCount()).isEqualTo(expected.getTagsByCount());
+    }
+}
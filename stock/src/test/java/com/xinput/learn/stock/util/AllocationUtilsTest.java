@@ -0,0 +1,54 @@
+package com.xinput.learn.stock.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class AllocationUtilsTest {
+
+    /**
+     * 防止分配被 JIT 消除
+     */
+    private static volatile Object sink;
+
+    @BeforeEach
+    void requireSupport() {
+        assumeTrue(AllocationUtils.isSupported(), "当前JVM不支持按线程统计内存分配");
+    }
+
+    @Test
+    void countsCurrentThreadAllocation() {
+        long before = AllocationUtils.currentThreadAllocatedBytes();
+        sink = new byte[1 << 20];
+        long after = AllocationUtils.currentThreadAllocatedBytes();
+
+        assertThat(before).isGreaterThanOrEqualTo(0);
+        assertThat(after - before).isGreaterThanOrEqualTo(1 << 20);
+    }
+
+    @Test
+    void countsOtherThreadAllocation() throws Exception {
+        Thread thread = new Thread(() -> sink = new byte[1 << 20]);
+        thread.start();
+        thread.join(5000);
+
+        // 线程已退出，计数不可读
+        assertThat(AllocationUtils.threadAllocatedBytes(thread.getId())).isEqualTo(-1);
+
+        long self = Thread.currentThread().getId();
+        long[] each = AllocationUtils.threadAllocatedBytesEach(new long[]{self, thread.getId()});
+        assertThat(each[0]).isGreaterThan(0);
+        assertThat(each[1]).isEqualTo(-1);
+    }
+
+    @Test
+    void sumsIgnoringMissingThreads() {
+        long self = Thread.currentThread().getId();
+        long sum = AllocationUtils.threadAllocatedBytes(new long[]{self, Long.MAX_VALUE});
+        long single = AllocationUtils.threadAllocatedBytes(self);
+
+        assertThat(sum).isGreaterThan(0).isLessThanOrEqualTo(single);
+    }
+}
@@ -0,0 +1,87 @@
+package com.xinput.learn.stock.util;
+
+import com.google.common.collect.Lists;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemoryEstimatorTest {
+
+    private static final int REF = MemoryEstimator.REFERENCE;
+
+    @Test
+    void parsesSpecificationVersion() {
+        assertThat(MemoryEstimator.javaVersion("1.8")).isEqualTo(8);
+        assertThat(MemoryEstimator.javaVersion("9")).isEqualTo(9);
+        assertThat(MemoryEstimator.javaVersion("17")).isEqualTo(17);
+        assertThat(MemoryEstimator.javaVersion("21-ea")).isEqualTo(21);
+        assertThat(MemoryEstimator.javaVersion(null)).isEqualTo(8);
+    }
+
+    @Test
+    void java8StringUsesCharArray() {
+        // 头 + value 引用 + hash，char[] 每字符 2 字节，中文和 Latin-1 相同
+        assertThat(MemoryEstimator.string("abc", 8, false)).isEqualTo(align(12 + REF + 4) + align(16 + 3 * 2));
+        assertThat(MemoryEstimator.string("平安银行", 8, false)).isEqualTo(align(12 + REF + 4) + align(16 + 4 * 2));
+    }
+
+    @Test
+    void compactStringUsesOneBytePerLatin1Char() {
+        assertThat(MemoryEstimator.string("000001", 17, true)).isEqualTo(align(12 + REF + 4 + 2) + align(16 + 6));
+        assertThat(MemoryEstimator.string("平安银行", 17, true)).isEqualTo(align(12 + REF + 4 + 2) + align(16 + 4 * 2));
+        // 关闭紧凑字符串时全部按 UTF-16 存储
+        assertThat(MemoryEstimator.string("000001", 17, false)).isEqualTo(align(12 + REF + 4 + 2) + align(16 + 6 * 2));
+    }
+
+    @Test
+    void defaultStringMatchesRuntime() {
+        String value = "000001";
+        int javaVersion = MemoryEstimator.javaVersion(System.getProperty("java.specification.version"));
+        assertThat(MemoryEstimator.JAVA_VERSION).isEqualTo(javaVersion);
+        long java8 = MemoryEstimator.string(value, 8, false);
+        long compact = MemoryEstimator.string(value, javaVersion, true);
+        long utf16 = MemoryEstimator.string(value, javaVersion, false);
+        if (javaVersion < 9) {
+            assertThat(MemoryEstimator.string(value)).isEqualTo(java8);
+        } else {
+            assertThat(MemoryEstimator.string(value)).isIn(compact, utf16);
+        }
+        assertThat(MemoryEstimator.string(null)).isZero();
+    }
+
+    @Test
+    void hashMapTableGrowsAtLoadFactor() {
+        long node = MemoryEstimator.MAP_NODE;
+        assertThat(MemoryEstimator.hashMap(12) - 12 * node).isEqualTo(MemoryEstimator.hashMap(0));
+        assertThat(MemoryEstimator.hashMap(13) - 13 * node - MemoryEstimator.hashMap(0))
+                .isEqualTo(MemoryEstimator.referenceArray(32) - MemoryEstimator.referenceArray(16));
+    }
+
+    @Test
+    void stockMapDoesNotCountKeySharedWithStock() {
+        Stock stock = new Stock();
+        stock.setCode("000001");
+        stock.setName("平安银行");
+        stock.setReason(Lists.newArrayList("银行", "金融"));
+
+        Map<String, Stock> shared = new HashMap<>();
+        shared.put(stock.getCode(), stock);
+        Map<String, Stock> copied = new HashMap<>();
+        copied.put(new String(stock.getCode()), stock);
+
+        long expectedStock = MemoryEstimator.shallow(3, 0)
+                + MemoryEstimator.string("000001") + MemoryEstimator.string("平安银行")
+                + MemoryEstimator.arrayList(2) + MemoryEstimator.string("银行") + MemoryEstimator.string("金融");
+        assertThat(MemoryEstimator.stock(stock)).isEqualTo(expectedStock);
+        assertThat(MemoryEstimator.stockMap(shared)).isEqualTo(MemoryEstimator.hashMap(1) + expectedStock);
+        assertThat(MemoryEstimator.stockMap(copied) - MemoryEstimator.stockMap(shared)).isEqualTo(MemoryEstimator.string("000001"));
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
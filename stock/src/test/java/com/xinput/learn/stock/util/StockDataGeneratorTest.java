@@ -0,0 +1,68 @@
+package com.xinput.learn.stock.util;
+
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockDataGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameSeedGeneratesSameOutput() throws IOException {
+        StockDataGenerator generator = StockDataGenerator.builder().rows(2000).seed(7).build();
+
+        assertThat(generate(generator)).isEqualTo(generate(StockDataGenerator.builder().rows(2000).seed(7).build()));
+        assertThat(generate(generator)).isNotEqualTo(generate(StockDataGenerator.builder().rows(2000).seed(8).build()));
+    }
+
+    @Test
+    void generatesExactRowsWithUniqueCodes() throws IOException {
+        long rows = StockDataGenerator.rowsForScale(2);
+        Path path = dir.resolve("nested/stock-2x.txt");
+
+        assertThat(StockDataGenerator.builder().rows(rows).build().generate(path)).isEqualTo(rows);
+
+        Map<String, Stock> stockMap = StockFactory.reslove("file:" + path);
+        assertThat(stockMap).hasSize((int) rows);
+        long tagged = stockMap.values().stream().filter(stock -> stock.getReason() != null && !stock.getReason().isEmpty()).count();
+        assertThat(tagged * 1.0 / rows).isBetween(0.05, 0.12);
+    }
+
+    @Test
+    void scaledDataIndexesIntoSnapshotWithLinearFootprint() throws IOException {
+        Map<String, Stock> base = generateScale(1);
+        Map<String, Stock> scaled = generateScale(10);
+
+        StockSnapshot snapshot = StockSnapshot.of(scaled, 0);
+        assertThat(snapshot.getReasonStocks().size() + snapshot.getNoReasonStocks().size()).isEqualTo(scaled.size());
+        assertThat(snapshot.getReasonStocks()).allMatch(stock -> !stock.getReason().isEmpty());
+        assertThat(snapshot.getNoReasonStocks())
+                .allMatch(stock -> stock.getReason() == null || stock.getReason().isEmpty());
+
+        // 内存估算随数据规模线性增长
+        double ratio = MemoryEstimator.stockMap(scaled) * 1.0 / MemoryEstimator.stockMap(base);
+        assertThat(ratio).isBetween(8.0, 12.0);
+    }
+
+    private Map<String, Stock> generateScale(double scale) throws IOException {
+        Path path = dir.resolve("stock-" + scale + "x.txt");
+        StockDataGenerator.builder().rows(StockDataGenerator.rowsForScale(scale)).seed(1).build().generate(path);
+        return StockFactory.reslove("file:" + path);
+    }
+
+    private static String generate(StockDataGenerator generator) throws IOException {
+        StringWriter writer = new StringWriter();
+        generator.generate(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,184 @@
+package com.xinput.learn.stock.util;
+
+import com.xinput.learn.stock.consts.StockSnapshot;
+import com.xinput.learn.stock.model.Stock;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockSnapshotCodecTest {
+
+    private static final long VERSION = 42L;
+
+    /**
+     * 文件头中源文件版本的偏移: magic(int) + 格式版本(short)
+     */
+    private static final int VERSION_OFFSET = 4 + 2;
+
+    /**
+     * 文件头长度，之后是数据区
+     */
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8 + 4 + 4 + 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        Path path = dir.resolve("stock.snapshot");
+        StockSnapshot written = StockSnapshot.of(stocks(), VERSION);
+        StockSnapshotCodec.write(path, written);
+
+        StockSnapshot read = StockSnapshotCodec.read(path, VERSION);
+
+        assertThat(read).isNotNull();
+        assertThat(read.size()).isEqualTo(3);
+        assertThat(read.getSourceVersion()).isEqualTo(VERSION);
+        assertThat(read.getCreatedAt()).isEqualTo(written.getCreatedAt());
+        Stock stock = read.getStockMap().get("000001");
+        assertThat(stock.getName()).isEqualTo("平安银行");
+        assertThat(stock.getReason()).containsExactly("银行", "深圳");
+        assertThat(read.getStockMap().get("600000").getReason()).isNull();
+        assertThat(read.getStockMap().get("300750").getName()).isNull();
+        assertThat(read.getReasonStocks()).extracting(Stock::getCode).containsExactlyInAnyOrder("000001", "300750");
+        assertThat(read.getNoReasonStocks()).extracting(Stock::getCode).containsExactly("600000");
+        assertThat(dir.resolve("stock.snapshot.tmp")).doesNotExist();
+    }
+
+    @Test
+    void emptySnapshotRoundTrip() throws IOException {
+        Path path = dir.resolve("empty.snapshot");
+        StockSnapshotCodec.write(path, StockSnapshot.of(Collections.emptyMap(), VERSION));
+
+        StockSnapshot read = StockSnapshotCodec.read(path, VERSION);
+
+        assertThat(read).isNotNull();
+        assertThat(read.size()).isZero();
+    }
+
+    @Test
+    void missingFileReturnsNull() {
+        assertThat(StockSnapshotCodec.read(dir.resolve("missing.snapshot"), VERSION)).isNull();
+    }
+
+    @Test
+    void staleVersionReturnsNull() throws IOException {
+        Path path = dir.resolve("stock.snapshot");
+        StockSnapshotCodec.write(path, StockSnapshot.of(stocks(), VERSION));
+
+        assertThat(StockSnapshotCodec.read(path, VERSION + 1)).isNull();
+    }
+
+    @Test
+    void corruptedPayloadReturnsNull() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[HEADER_SIZE + 3] ^= 0x5A;
+        Files.write(path, bytes);
+
+        assertThat(StockSnapshotCodec.read(path, VERSION)).isNull();
+    }
+
+    @Test
+    void truncatedFileReturnsNull() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThat(StockSnapshotCodec.read(path, VERSION)).isNull();
+
+        Files.write(path, Arrays.copyOf(bytes, HEADER_SIZE - 1));
+        assertThat(StockSnapshotCodec.read(path, VERSION)).isNull();
+    }
+
+    @Test
+    void wrongMagicReturnsNull() throws IOException {
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[0] ^= 0x01;
+        Files.write(path, bytes);
+
+        assertThat(StockSnapshotCodec.read(path, VERSION)).isNull();
+    }
+
+    @Test
+    void headerVersionIsNotCoveredByPayloadChecksum() throws IOException {
+        // 源文件版本只用于判断过期，改写后按新版本读取仍然成功
+        Path path = written();
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putLong(VERSION_OFFSET, VERSION + 7);
+        Files.write(path, bytes);
+
+        assertThat(StockSnapshotCodec.read(path, VERSION)).isNull();
+        assertThat(StockSnapshotCodec.read(path, VERSION + 7)).isNotNull();
+    }
+
+    @Test
+    void fileCanBeReplacedAfterRead() throws IOException {
+        // 读取后释放映射，快照文件可以立即被覆盖
+        Path path = written();
+        assertThat(StockSnapshotCodec.read(path, VERSION)).isNotNull();
+
+        StockSnapshotCodec.write(path, StockSnapshot.of(stocks(), VERSION + 1));
+        assertThat(StockSnapshotCodec.read(path, VERSION + 1)).isNotNull();
+    }
+
+    @Test
+    void sourceVersionTracksSizeAndModifiedTime() throws IOException {
+        Path source = dir.resolve("code.txt");
+        Files.write(source, "000001,平安银行\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_700_000_000_000L));
+        String fileName = "file:" + source;
+
+        long version = StockSnapshotCodec.sourceVersion(fileName);
+        assertThat(StockSnapshotCodec.sourceVersion(fileName)).isEqualTo(version);
+
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_700_000_001_000L));
+        long touched = StockSnapshotCodec.sourceVersion(fileName);
+        assertThat(touched).isNotEqualTo(version);
+
+        Files.write(source, "000001,平安银行\n000002,万科A\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_700_000_001_000L));
+        assertThat(StockSnapshotCodec.sourceVersion(fileName)).isNotEqualTo(touched);
+    }
+
+    @Test
+    void sourceVersionOfMissingFile() {
+        assertThat(StockSnapshotCodec.sourceVersion("file:" + dir.resolve("missing.txt"))).isEqualTo(-1);
+    }
+
+    private Path written() throws IOException {
+        Path path = dir.resolve("stock.snapshot");
+        StockSnapshotCodec.write(path, StockSnapshot.of(stocks(), VERSION));
+        return path;
+    }
+
+    private static Map<String, Stock> stocks() {
+        Map<String, Stock> stocks = new LinkedHashMap<>();
+        stocks.put("000001", stock("000001", "平安银行", "银行", "深圳"));
+        stocks.put("600000", stock("600000", "浦发银行"));
+        stocks.put("300750", stock("300750", null, "锂电池"));
+        return stocks;
+    }
+
+    private static Stock stock(String code, String name, String... reasons) {
+        Stock stock = new Stock();
+        stock.setCode(code);
+        stock.setName(name);
+        if (reasons.length > 0) {
+            stock.setReason(Arrays.asList(reasons));
+        }
+        return stock;
+    }
+}